@@ -37,16 +37,24 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import javax.swing.JCheckBox;
@@ -157,6 +165,30 @@ public class PersistenceManager extends IdvPersistenceManager {
      */
     public static final String MACRO_ZIDVPATH = '%'+PROP_ZIDVPATH+'%';
 
+    /**
+     * Preference that controls whether local {@literal ".zidv"} bundles are
+     * opened with random access, extracting only the data files that the
+     * bundle's data sources resolve, rather than streamed through a
+     * {@link ZipInputStream} and extracted in full.
+     */
+    public static final String PREF_ZIDV_RANDOM_ACCESS = "mcidasv.zidv.randomaccess";
+
+    /** Size of the buffer used when extracting bundle entries. */
+    private static final int ZIDV_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * {@literal ".zidv"} bundle that is being loaded with random access.
+     * Its entries are extracted as they are resolved, see
+     * {@link #resolveZidvPath(String)}. {@code null} otherwise.
+     */
+    private ZipFile zidvArchive;
+
+    /** Directory that the entries of {@link #zidvArchive} go into. */
+    private Path zidvRoot;
+
+    /** Names of the entries of {@link #zidvArchive} already extracted. */
+    private final Set<String> zidvExtracted = new HashSet<>();
+
     static ucar.unidata.util.LogUtil.LogCategory log_ =
         ucar.unidata.util.LogUtil.getLogInstance(IdvManager.class.getName());
 
@@ -715,20 +747,25 @@ public class PersistenceManager extends IdvPersistenceManager {
                 IOUtil.makeDir(tmpDir);
 
                 getStateManager().putProperty(PROP_ZIDVPATH, tmpDir);
-                ZipInputStream zin =
-                    new ZipInputStream(IOUtil.getInputStream(xmlFile));
-                ZipEntry ze = null;
+                File bundleFile = new File(xmlFile);
+                if (getStore().get(PREF_ZIDV_RANDOM_ACCESS, true) && bundleFile.isFile()) {
+                    bundleContents = openZidv(bundleFile, tmpDir);
+                } else {
+                    ZipInputStream zin =
+                        new ZipInputStream(IOUtil.getInputStream(xmlFile));
+                    ZipEntry ze = null;
 
-                while ((ze = zin.getNextEntry()) != null) {
-                    String entryName = ze.getName();
+                    while ((ze = zin.getNextEntry()) != null) {
+                        String entryName = ze.getName();
 
-                    if (ArgumentManager.isXmlBundle(entryName.toLowerCase())) {
-                        bundleContents = new String(IOUtil.readBytes(zin,
-                                null, false));
-                    } else {
+                        if (ArgumentManager.isXmlBundle(entryName.toLowerCase())) {
+                            bundleContents = new String(IOUtil.readBytes(zin,
+                                    null, false));
+                        } else {
 //                        String xmlPath = IOUtil.joinDir(tmpDir, entryName);
-                        if (IOUtil.writeTo(zin, new FileOutputStream(IOUtil.joinDir(tmpDir, entryName))) < 0L) {
-                            return false;
+                            if (IOUtil.writeTo(zin, new FileOutputStream(IOUtil.joinDir(tmpDir, entryName))) < 0L) {
+                                return false;
+                            }
                         }
                     }
                 }
@@ -763,6 +800,143 @@ public class PersistenceManager extends IdvPersistenceManager {
                 logException("Unable to evaluate bundle:" + xmlFile, exc);
             }
             return false;
+        } finally {
+            closeZidv();
+        }
+    }
+
+    /**
+     * Open a {@literal ".zidv"} bundle with random access. Only the bundle
+     * XML is read, straight from the archive. Data files stay in the
+     * archive until a data source resolves them through
+     * {@link #resolveZidvPath(String)}.
+     * 
+     * @param bundleFile Bundle to open.
+     * @param tmpDir Directory that {@link #MACRO_ZIDVPATH} points at.
+     * 
+     * @return Contents of the bundle XML, or {@code null} if there was none.
+     * 
+     * @throws IOException if the bundle could not be read.
+     */
+    private synchronized String openZidv(File bundleFile, String tmpDir) throws IOException {
+        closeZidv();
+        ZipFile zip = new ZipFile(bundleFile);
+        String contents = null;
+        try {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry ze = entries.nextElement();
+                if (!ze.isDirectory() && ArgumentManager.isXmlBundle(ze.getName().toLowerCase())) {
+                    contents = new String(IOUtil.readBytes(zip.getInputStream(ze), null, false));
+                }
+            }
+        } catch (IOException e) {
+            zip.close();
+            throw e;
+        }
+        zidvArchive = zip;
+        zidvRoot = Paths.get(tmpDir).toAbsolutePath().normalize();
+        return contents;
+    }
+
+    /**
+     * Close the bundle opened by {@link #openZidv(File, String)}, if any.
+     * Entries that nothing resolved while the bundle loaded are never
+     * extracted.
+     */
+    private synchronized void closeZidv() {
+        if (zidvArchive != null) {
+            logger.trace("extracted {} of {} entries from '{}'", zidvExtracted.size(), zidvArchive.size(), zidvArchive.getName());
+            try {
+                zidvArchive.close();
+            } catch (IOException e) {
+                logger.warn("could not close '"+zidvArchive.getName()+"'", e);
+            }
+        }
+        zidvArchive = null;
+        zidvRoot = null;
+        zidvExtracted.clear();
+    }
+
+    /**
+     * Replace {@link #MACRO_ZIDVPATH} in {@code path} with the directory the
+     * current bundle's data files go into. If the bundle was opened with
+     * random access, the file is extracted from it the first time it is
+     * resolved. Paths that already start with that directory are handled
+     * the same way.
+     * 
+     * @param path Path of a bundled data file. Cannot be {@code null}.
+     * 
+     * @return {@code path} with the macro replaced.
+     */
+    public synchronized String resolveZidvPath(String path) {
+        String zidvPath = getStateManager().getProperty(PROP_ZIDVPATH, "");
+        String entryName = null;
+        int idx = path.indexOf(MACRO_ZIDVPATH);
+        if (idx >= 0) {
+            entryName = path.substring(idx + MACRO_ZIDVPATH.length());
+            path = path.replace(MACRO_ZIDVPATH, zidvPath);
+        } else if (!zidvPath.isEmpty() && path.startsWith(zidvPath)) {
+            entryName = path.substring(zidvPath.length());
+        }
+        if ((entryName == null) || (zidvArchive == null)) {
+            return path;
+        }
+        entryName = entryName.replace('\\', '/');
+        while (entryName.startsWith("/")) {
+            entryName = entryName.substring(1);
+        }
+        if (zidvExtracted.contains(entryName)) {
+            return path;
+        }
+        ZipEntry ze = zidvArchive.getEntry(entryName);
+        if ((ze == null) || ze.isDirectory()) {
+            return path;
+        }
+        Path target = zidvRoot.resolve(entryName).normalize();
+        if (!target.startsWith(zidvRoot)) {
+            logger.warn("skipping bundle entry outside of '{}': '{}'", zidvRoot, entryName);
+            return path;
+        }
+        try {
+            extractEntry(zidvArchive, ze, target);
+            zidvExtracted.add(entryName);
+        } catch (IOException e) {
+            logger.error("could not extract '"+entryName+"' from '"+zidvArchive.getName()+"'", e);
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException ignored) {
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Copy the contents of a bundle entry to {@code target}, verifying the
+     * CRC-32 if the archive recorded one.
+     * 
+     * @param zip Bundle containing {@code entry}.
+     * @param entry Entry to extract.
+     * @param target Where the entry's contents should end up.
+     * 
+     * @throws IOException if the entry could not be extracted, or did not
+     * match its checksum.
+     */
+    private static void extractEntry(ZipFile zip, ZipEntry entry, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        CRC32 check = new CRC32();
+        byte[] buffer = new byte[ZIDV_BUFFER_SIZE];
+        try (InputStream in = zip.getInputStream(entry);
+             OutputStream out = Files.newOutputStream(target))
+        {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                check.update(buffer, 0, n);
+                out.write(buffer, 0, n);
+            }
+        }
+        if ((entry.getCrc() >= 0) && (check.getValue() != entry.getCrc())) {
+            throw new IOException("checksum mismatch for '" + entry.getName() + "' in " + zip.getName());
         }
     }
 
@@ -1352,7 +1526,7 @@ public class PersistenceManager extends IdvPersistenceManager {
                 return false;
             }
             String tempPath = tempPaths.get(0);
-            tempPath = tempPath.replace(MACRO_ZIDVPATH, zidvPath);
+            tempPath = resolveZidvPath(tempPath);
             tempPaths.set(0, tempPath);
             PollingInfo p = d.getPollingInfo();
             p.setFilePaths(tempPaths);
@@ -1360,6 +1534,30 @@ public class PersistenceManager extends IdvPersistenceManager {
         return true;
     }
 
+    /**
+     * Extracts the bundled data files that {@code dataSources} refer to
+     * before the IDV looks for them.
+     * 
+     * @param dataSources Data sources from the bundle.
+     * @param letUserChangeData Whether the user may pick new files.
+     * 
+     * @return ok
+     * 
+     * @see #resolveZidvPath(String)
+     */
+    @Override protected boolean updateDataPaths(List dataSources,
+                                                boolean letUserChangeData) {
+        for (Object dataSource : dataSources) {
+            List tmpPaths = ((DataSource)dataSource).getTmpPaths();
+            if (tmpPaths != null) {
+                for (Object tmpPath : tmpPaths) {
+                    resolveZidvPath(tmpPath.toString());
+                }
+            }
+        }
+        return super.updateDataPaths(dataSources, letUserChangeData);
+    }
+
     /**
      * Attempts to determine whether or not a given {@link DataSourceImpl} is
      * the result of a McIDAS-V {@literal "bulk load"}.
@@ -50,6 +50,10 @@ import java.util.Hashtable;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.AbstractCellEditor;
 import javax.swing.BorderFactory;
@@ -891,6 +895,17 @@ public class MultiSpectralControl extends HydraControl {
 
         private static final Logger logger = LoggerFactory.getLogger(Spectrum.class);
 
+        /**
+         * Fetches spectra for moved probes off of the thread delivering
+         * probe events. A single thread keeps reader access serialized.
+         */
+        private static final ExecutorService fetcher =
+            Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "MultiSpectralControl spectrum fetch");
+                t.setDaemon(true);
+                return t;
+            });
+
         private final MultiSpectralControl control;
 
         /** 
@@ -911,6 +926,22 @@ public class MultiSpectralControl extends HydraControl {
         /** Whether or not {@code probe} is visible. */
         private boolean isVisible = true;
 
+        /**
+         * Latest probe position whose spectrum has not been fetched yet, or
+         * {@code null} if there is none. An empty value stands for a
+         * {@code null} probe position. Positions that arrive while a fetch
+         * is queued replace it, so fast probe motion only computes the most
+         * recent one.
+         */
+        private final AtomicReference<Optional<RealTuple>> pendingPosition =
+            new AtomicReference<>();
+
+        /**
+         * Whether or not this spectrum has been removed. Guarded by
+         * {@code this}; once set, fetches still in flight are dropped.
+         */
+        private boolean removed = false;
+
         /** 
          * Human-friendly ID for this spectrum and probe. Used in 
          * {@link MultiSpectralControl#probeTable}. 
@@ -947,8 +978,17 @@ public class MultiSpectralControl extends HydraControl {
         }
 
         public void probePositionChanged(final ProbeEvent<RealTuple> e) {
-            RealTuple position = e.getNewValue();
-            updatePosition(position);
+            Optional<RealTuple> position = Optional.ofNullable(e.getNewValue());
+            if (pendingPosition.getAndSet(position) == null) {
+                fetcher.execute(this::updatePendingPosition);
+            }
+        }
+
+        private void updatePendingPosition() {
+            Optional<RealTuple> position = pendingPosition.getAndSet(null);
+            if (position != null) {
+                updatePosition(position.orElse(null));
+            }
         }
 
         public void probeFormatPatternChanged(final ProbeEvent<String> e) {
@@ -958,7 +998,11 @@ public class MultiSpectralControl extends HydraControl {
         public void updatePosition(RealTuple position) {
             try {
                 FlatField spectrum = display.getMultiSpectralData().getSpectrum(position);
-                spectrumRef.setData(spectrum);
+                synchronized (this) {
+                    if (!removed) {
+                        spectrumRef.setData(spectrum);
+                    }
+                }
             } catch (Exception ex) {
                 logger.error("Error updating postion.", ex);
             }
@@ -1084,6 +1128,10 @@ public class MultiSpectralControl extends HydraControl {
         }
 
         public void removeValueDisplay() throws VisADException, RemoteException {
+            synchronized (this) {
+                removed = true;
+            }
+            pendingPosition.set(null);
             probe.handleProbeRemoval();
             display.removeRef(spectrumRef);
         }
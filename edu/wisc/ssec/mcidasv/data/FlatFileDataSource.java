@@ -241,6 +241,7 @@ public class FlatFileDataSource extends FilesDataSource {
         for (int i=0; i<bandFiles.size(); i++) {
             FlatFileReader dataChoiceData = new FlatFileReader(bandFiles.get(i), lines, elements);
             dataChoiceData.setBinaryInfo(format, interleave, bigEndian, offset, i+1, bandFiles.size());
+            dataChoiceData.setReadThreads(getIdv().getMaxDataThreadCount());
             dataChoiceData.setUnit(unit);
             dataChoiceData.setEastPositive(eastPositive);
             dataChoiceData.setStride(stride);
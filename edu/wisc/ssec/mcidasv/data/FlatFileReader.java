@@ -32,11 +32,20 @@ import java.awt.Image;
 import java.awt.Toolkit;
 
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
 import java.rmi.RemoteException;
 
 import visad.CoordinateSystem;
@@ -59,6 +68,7 @@ import org.slf4j.LoggerFactory;
 
 import edu.wisc.ssec.mcidasv.data.hydra.LongitudeLatitudeCoordinateSystem;
 import edu.wisc.ssec.mcidasv.data.hydra.SwathNavigation;
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
 
 /**
  * Class that can read file formats associated with {@link FlatFileDataSource}.
@@ -81,6 +91,7 @@ public class FlatFileReader {
     private int bandCount = 1;
     private String unit = "";
     private int stride = 1;
+    private int readThreads = 1;
 
     /** Nav dimensions */
     private int navLines = 0;
@@ -246,6 +257,16 @@ public class FlatFileReader {
         this.strideLines = (int)Math.ceil((float)this.lines / (float)stride);
     }
 
+    /**
+     * Change the number of threads used to decode binary files.
+     * 
+     * @param readThreads Number of threads. Values less than one will result
+     *                    in one thread being used.
+     */
+    public void setReadThreads(int readThreads) {
+        this.readThreads = Math.max(1, readThreads);
+    }
+
     /**
      * Change the unit.
      * 
@@ -260,6 +281,13 @@ public class FlatFileReader {
 
     /**
      * Read floats from a binary file.
+     *
+     * <p>The file is memory mapped a window at a time and every output line
+     * is decoded through a typed view of the window ({@code asShortBuffer()},
+     * {@code asFloatBuffer()}, etc.) in the file's byte order. Lines without
+     * an element stride are bulk copied. Lines are independent of each
+     * other, so they are decoded in parallel when {@link #setReadThreads(int)}
+     * allows it.</p>
      */
     private void readFloatsFromBinary() {
         logger.debug("preparing to read floats...");
@@ -286,112 +314,180 @@ public class FlatFileReader {
                 return;
         }
 
-        int curPixel = 0;
-        int curElement = 0;
-        int curLine = 0;
-        int lastRead = 0;
-        int readEach = 8192;
-        int startPointer = 0;
-        int endPointer = -1;
-        int pixelPointer = 0;
+        // work out where line zero of our band starts, how far apart the
+        // lines are, and how far apart the elements we want are
+        long lineZero = this.offset;
+        long lineBytes;
+        long pixelBytes;
+        if (HeaderInfo.kInterleaveSequential.equals(this.interleave)) {
+            lineZero += (long)(this.band - 1) * this.lines * this.elements * bytesEach;
+            lineBytes = (long)this.elements * bytesEach;
+            pixelBytes = bytesEach;
+        } else if (HeaderInfo.kInterleaveByLine.equals(this.interleave)) {
+            lineZero += (long)(this.band - 1) * this.elements * bytesEach;
+            lineBytes = (long)this.bandCount * this.elements * bytesEach;
+            pixelBytes = bytesEach;
+        } else if (HeaderInfo.kInterleaveByPixel.equals(this.interleave)) {
+            lineZero += (long)(this.band - 1) * bytesEach;
+            lineBytes = (long)this.bandCount * this.elements * bytesEach;
+            pixelBytes = (long)this.bandCount * bytesEach;
+        } else {
+            logger.error("unrecognized interleave type: '{}'", interleave);
+            return;
+        }
 
         int readPixels = this.strideElements * this.strideLines;
         this.floatData = new float[readPixels];
-        byte[] readBytes = new byte[readEach];
 
-        try {
-            FileInputStream fis = new FileInputStream(url);
-
-            // byte boundaries
-            assert(readEach % 64 == 0);
-
-            // assure we read the first time
-            assert(endPointer < 0);
-
-            while ((curPixel < readPixels && curLine < lines && lastRead > 0) || curPixel == 0) {
-
-                pixelPointer = this.offset;
-                
-                if (this.interleave.equals(HeaderInfo.kInterleaveSequential)) {
-                    // Skip to the right band
-                    pixelPointer += (this.band - 1) * (this.lines * this.elements * bytesEach);
-                    // Skip into the band
-                    pixelPointer += (curLine * this.elements * bytesEach) + (curElement * bytesEach);
-                } else if (this.interleave.equals(HeaderInfo.kInterleaveByLine)) {
-                    // Skip to the right line
-                    pixelPointer += curLine * (this.bandCount * this.elements * bytesEach);
-                    // Skip into the line
-                    pixelPointer += ((this.band - 1) * this.elements * bytesEach) + (curElement * bytesEach);
-                } else if (this.interleave.equals(HeaderInfo.kInterleaveByPixel)) {
-                    // Skip to the right line
-                    pixelPointer += curLine * (this.bandCount * this.elements * bytesEach);
-                    // Skip into the line
-                    pixelPointer += (curElement * bandCount * bytesEach) + ((this.band - 1) * bytesEach);
-                } else {
-                    logger.error("unrecognized interleave type: '{}'", interleave);
-                }
+        try (FileChannel channel = FileChannel.open(Paths.get(url), StandardOpenOption.READ)) {
+            BinaryLines reader = new BinaryLines(channel, myFormat, bigEndian, bytesEach,
+                lineZero, lineBytes * stride, pixelBytes * stride, strideElements, floatData);
 
-                // We need data outside of our buffer
-                if (pixelPointer > endPointer) {
+            int readLines = reader.getReadableLines(strideLines);
+            if (readLines < strideLines) {
+                logger.warn("{} is too short: only {} of {} lines could be read", url, readLines, strideLines);
+            }
+            ParallelRows.run(0, readLines - 1, readThreads, reader);
+            logger.debug("read {} floats (expected {})", readLines * strideElements, readPixels);
 
-                    // Skip ahead to useful data
-                    int skipBytes = pixelPointer - endPointer - 1;
-                    if (skipBytes > 0) {
-                        logger.trace("skipping {} bytes", skipBytes);
-                        startPointer += lastRead + fis.skip(skipBytes);
-                        endPointer = startPointer;
-                    }
+        } catch (NumberFormatException exc) {
+            throw new BadDataException("Error parsing binary file", exc);
+        } catch (Exception e) {
+            throw new BadDataException("Error reading binary file: " + url, e);
+        }
+    }
 
-                    // Read more bytes 
-                    lastRead = fis.read(readBytes);
-                    if (startPointer != endPointer) {
-                        startPointer = endPointer + 1;
-                    }
-                    endPointer = startPointer + lastRead - 1;
-                    logger.trace("read {} bytes, from {}", lastRead, startPointer);
+    /**
+     * Decodes blocks of output lines from a memory mapped binary file.
+     * Each call maps its own window, so blocks may be decoded concurrently.
+     */
+    private static final class BinaryLines implements ParallelRows.RowRange {
+
+        /** Largest window mapped at once. */
+        private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private final int format;
+        private final ByteOrder order;
+        private final int bytesEach;
+        private final long lineZero;
+        private final long lineStep;
+        private final long pixelStep;
+        private final int outElements;
+        private final long lineSpan;
+        private final float[] out;
+
+        BinaryLines(FileChannel channel, int format, boolean bigEndian, int bytesEach,
+                    long lineZero, long lineStep, long pixelStep, int outElements, float[] out)
+            throws IOException
+        {
+            this.channel = channel;
+            this.fileSize = channel.size();
+            this.format = format;
+            this.order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            this.bytesEach = bytesEach;
+            this.lineZero = lineZero;
+            this.lineStep = lineStep;
+            this.pixelStep = pixelStep;
+            this.outElements = outElements;
+            this.lineSpan = (outElements - 1) * pixelStep + bytesEach;
+            this.out = out;
+        }
 
+        /**
+         * @param wanted Number of output lines requested.
+         *
+         * @return How many of those lines lie entirely within the file.
+         */
+        int getReadableLines(int wanted) {
+            if (outElements <= 0 || fileSize < lineZero + lineSpan) {
+                return 0;
+            }
+            long fit = (fileSize - lineZero - lineSpan) / lineStep + 1;
+            return (int)Math.min(wanted, fit);
+        }
+
+        @Override public void run(int first, int last) throws IOException {
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            long windowEnd = 0;
+            short[] shorts = null;
+            int[] ints = null;
+            byte[] bytes = null;
+            int pixelStride = (int)(pixelStep / bytesEach);
+
+            for (int line = first; line <= last; line++) {
+                long start = lineZero + line * lineStep;
+                long end = start + lineSpan;
+                if (window == null || start < windowStart || end > windowEnd) {
+                    long size = Math.min(Math.max(WINDOW_BYTES, lineSpan), fileSize - start);
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                    window.order(order);
+                    windowStart = start;
+                    windowEnd = start + size;
                 }
+                window.position((int)(start - windowStart));
+                ByteBuffer row = window.slice().order(order);
+                int dst = line * outElements;
 
-                int readOffset = pixelPointer - startPointer;
-                float readFloat = 0.0f;
-                
-                switch (this.myFormat) {
+                switch (format) {
                     case HeaderInfo.kFormat1ByteUInt:
-                        readFloat = (float)bytesTo1ByteUInt(readBytes, readOffset);
-                        break;
-                    case HeaderInfo.kFormat2ByteUInt:
-                        int newInt = bytesTo2ByteUInt(readBytes, readOffset);
-                        if (this.bigEndian) {
-                            newInt = (((newInt & 0xff) << 8) | ((newInt & 0xff00) >> 8));
+                        if (pixelStride == 1) {
+                            if (bytes == null) bytes = new byte[outElements];
+                            row.get(bytes, 0, outElements);
+                            for (int i = 0; i < outElements; i++) {
+                                out[dst + i] = bytes[i] & 0xff;
+                            }
+                        } else {
+                            for (int i = 0; i < outElements; i++) {
+                                out[dst + i] = row.get(i * pixelStride) & 0xff;
+                            }
                         }
-                        readFloat = (float)newInt;
                         break;
+                    case HeaderInfo.kFormat2ByteUInt:
                     case HeaderInfo.kFormat2ByteSInt:
-                        readFloat = (float)bytesTo2ByteSInt(readBytes, readOffset);
+                        ShortBuffer sb = row.asShortBuffer();
+                        boolean unsigned = (format == HeaderInfo.kFormat2ByteUInt);
+                        if (pixelStride == 1) {
+                            if (shorts == null) shorts = new short[outElements];
+                            sb.get(shorts, 0, outElements);
+                            for (int i = 0; i < outElements; i++) {
+                                out[dst + i] = unsigned ? (shorts[i] & 0xffff) : shorts[i];
+                            }
+                        } else {
+                            for (int i = 0; i < outElements; i++) {
+                                short v = sb.get(i * pixelStride);
+                                out[dst + i] = unsigned ? (v & 0xffff) : v;
+                            }
+                        }
                         break;
                     case HeaderInfo.kFormat4ByteSInt:
-                        readFloat = (float)bytesTo4ByteSInt(readBytes, readOffset);
+                        IntBuffer ib = row.asIntBuffer();
+                        if (pixelStride == 1) {
+                            if (ints == null) ints = new int[outElements];
+                            ib.get(ints, 0, outElements);
+                            for (int i = 0; i < outElements; i++) {
+                                out[dst + i] = ints[i];
+                            }
+                        } else {
+                            for (int i = 0; i < outElements; i++) {
+                                out[dst + i] = ib.get(i * pixelStride);
+                            }
+                        }
                         break;
                     case HeaderInfo.kFormat4ByteFloat:
-                        readFloat = bytesTo4ByteFloat(readBytes, readOffset);
+                        FloatBuffer fb = row.asFloatBuffer();
+                        if (pixelStride == 1) {
+                            fb.get(out, dst, outElements);
+                        } else {
+                            for (int i = 0; i < outElements; i++) {
+                                out[dst + i] = fb.get(i * pixelStride);
+                            }
+                        }
                         break;
                 }
-                this.floatData[curPixel++] = readFloat;
-
-                curElement += stride;
-                if (curElement >= elements) {
-                    curElement = 0;
-                    curLine += stride;
-                }
             }
-
-            fis.close();
-            logger.debug("read {} floats (expected {})", curPixel, readPixels);
-
-        } catch (NumberFormatException exc) {
-            throw new BadDataException("Error parsing binary file", exc);
-        } catch (Exception e) {
-            throw new BadDataException("Error reading binary file: " + url, e);
         }
     }
 
@@ -778,41 +874,6 @@ public class FlatFileReader {
     // byte[] conversion functions
     // TODO: are these replicated elsewhere in McV?
 
-    private static int bytesTo1ByteUInt(byte[] bytes, int offset) {
-        return bytes[offset] & 0xff;
-    }
-
-    private static int bytesTo2ByteUInt(byte[] bytes, int offset) {
-        int accum = 0;
-        for ( int shiftBy = 0; shiftBy < 16; shiftBy += 8 ) {
-            accum |= ((long)(bytes[offset] & 0xff)) << shiftBy;
-            offset++;
-        }
-        return accum;
-    }
-
-    private static int bytesTo2ByteSInt(byte[] bytes, int offset) {
-        return bytesTo2ByteUInt(bytes, offset) - 32768;
-    }
-
-    private static int bytesTo4ByteSInt(byte[] bytes, int offset) {
-        int accum = 0;
-        for ( int shiftBy = 0; shiftBy < 32; shiftBy += 8 ) {
-            accum |= ((long)(bytes[offset] & 0xff)) << shiftBy;
-            offset++;
-        }
-        return accum;
-    }
-
-    private static float bytesTo4ByteFloat(byte[] bytes, int offset) {
-        int accum = 0;
-        for ( int shiftBy = 0; shiftBy < 32; shiftBy += 8 ) {
-            accum |= ((long)(bytes[offset] & 0xff)) << shiftBy;
-            offset++;
-        }
-        return Float.intBitsToFloat(accum);
-    }
-
     private static long bytesToLong(byte[] bytes) {
         if (bytes.length != 4) {
             return 0;
@@ -29,6 +29,8 @@
 package edu.wisc.ssec.mcidasv.data;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +40,7 @@ import ucar.unidata.io.RandomAccessFile;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
 import ucar.ma2.Section;
 
 import ucar.nc2.Attribute;
@@ -152,31 +155,32 @@ public class GpmIosp extends AbstractIOServiceProvider {
         Group hdfGroup = hdfFile.findGroup(groupName);
         Array result;
 
+        // only read the lines/elements (and stride) that were asked for
+        section = Section.fill(section, variable.getShape());
         if (variableName.equals(LAT) || variableName.equals(LON)) {
             Variable hdfVariable = hdfFile.findVariable(hdfGroup, variableName);
-            result = hdfVariable.read();
+            result = hdfVariable.read(section);
         } else if (variableName.startsWith("Tc_")) {
             int channel = variableToChannel(variableName);
-            int[] counts = getDimensionLengths(hdfFile, groupName);
             Variable hdfVariable = hdfFile.findVariable(hdfGroup, "Tc");
-            result = readChannel(hdfVariable, counts[0], counts[1], channel);
+            result = readChannel(hdfVariable, section, channel);
         } else {
             result = null;
         }
         return result;
     }
 
-    private Array readChannel(Variable v, int lines, int elements, int channel)
+    private Array readChannel(Variable v, Section section, int channel)
         throws IOException, InvalidRangeException
     {
         // "S1/Tc" and "S2/Tc" (aka "v") is laid out like "line, ele, chan"
-        // this origin/size business is the notation required for per-channel
-        // access
+        // so the requested line/ele ranges get the channel tacked on the end
         // see "Reading data from a Variable" from
         // http://www.unidata.ucar.edu/software/thredds/current/netcdf-java/tutorial/NetcdfFile.html
-        int[] origin = { 0, 0, channel };
-        int[] size = { lines, elements, 1};
-        return v.read(origin, size).reduce();
+        List<Range> ranges = new ArrayList<>(section.getRanges());
+        ranges.add(new Range(channel, channel));
+        // only drop the channel dimension; a single line or element is still 2D
+        return v.read(ranges).reduce(2);
     }
 
     @Override public String getFileTypeId() {
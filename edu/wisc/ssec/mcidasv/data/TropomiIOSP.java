@@ -45,6 +45,7 @@ import ucar.unidata.io.RandomAccessFile;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
 import ucar.ma2.Section;
 import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
@@ -113,31 +114,38 @@ public class TropomiIOSP extends AbstractIOServiceProvider {
     public static final Pattern BAD_WIN_PATH =
         Pattern.compile("^/[A-Za-z]:/.+$");
 
-    private static HashMap<String, String> groupMap = new HashMap<String, String>();
+    // Everything below is per-file state. The IOSP instance that answers
+    // isValidFile() is not the one that opens the file, and several TROPOMI
+    // files can be open at once, so none of this may be static.
+    private final Map<String, String> groupMap = new HashMap<String, String>();
 
     // Dimensions of a product we can work with, init this early
-    private static int[] dimLen = null;
+    private int[] dimLen = null;
     
     private NetcdfFile hdfFile;
-    private static String filename;
+    private String filename;
 
     @Override public boolean isValidFile(RandomAccessFile raf)
         throws IOException
     {
         // Uses the regex defined near top
+        return TROPOMI_MATCHER.matcher(getFilename(raf)).matches();
+    }
+
+    private static String getFilename(RandomAccessFile raf) {
         String filePath = raf.getLocation();
         if (McIDASV.isWindows() && BAD_WIN_PATH.matcher(filePath).matches()) {
             filePath = filePath.substring(1);
         }
         logger.trace("original path: '{}', path used: '{}'", raf, filePath);
-        filename = Paths.get(filePath).getFileName().toString();
-        return TROPOMI_MATCHER.matcher(filename).matches();
+        return Paths.get(filePath).getFileName().toString();
     }
 
     @Override public void open(RandomAccessFile raf, NetcdfFile ncfile,
                      CancelTask cancelTask) throws IOException
     {
         logger.trace("TropOMI IOSP open()...");
+        filename = getFilename(raf);
 
         // TJJ - kick out anything not supported (most) L2 right now
         if (filename.contains("_L1B_") || filename.contains("_L2__NP")) {
@@ -197,7 +205,7 @@ public class TropomiIOSP extends AbstractIOServiceProvider {
      * Create the group structure and data products for our McV output
      */
 
-    private static void populateDataTree(NetcdfFile ncOut, Map<String, List<Variable>> groupsToVars)
+    private void populateDataTree(NetcdfFile ncOut, Map<String, List<Variable>> groupsToVars)
     {
         for (Map.Entry<String, List<Variable>> e : groupsToVars.entrySet()) {
             Group g = new Group(ncOut, null, e.getKey());
@@ -218,7 +226,8 @@ public class TropomiIOSP extends AbstractIOServiceProvider {
     }
 
     /**
-     * Fulfill data requests
+     * Fulfill data requests. Only the lines and elements covered by
+     * {@code section}, including any stride, are read from the file.
      * @return Array - an array with the requested data subset
      */
 
@@ -238,10 +247,13 @@ public class TropomiIOSP extends AbstractIOServiceProvider {
         logger.trace("found var: " + hdfVariable.getFullName() + 
                 " in group: " + hdfVariable.getGroup().getFullName());
         // Need to knock off 1st dimension for Lat and Lon too...
-        int[] origin = { 0, 0, 0 };
-        int[] size = { 1, dimLen[1], dimLen[2] };
-        logger.trace("reading size: 1, " + dimLen[1] + ", " + dimLen[2]);
-        result = hdfVariable.read(origin, size).reduce();
+        section = Section.fill(section, variable.getShape());
+        List<Range> ranges = new ArrayList<>(3);
+        ranges.add(new Range(0, 0));
+        ranges.addAll(section.getRanges());
+        logger.trace("reading section: {}", ranges);
+        // only drop the time dimension; a single line or element is still 2D
+        result = hdfVariable.read(ranges).reduce(0);
         return result;
     }
 
@@ -252,7 +264,7 @@ public class TropomiIOSP extends AbstractIOServiceProvider {
      * is not certain what the best way to handle the data might be.
      */
 
-    private static boolean validProduct(Variable variable) {
+    private boolean validProduct(Variable variable) {
         int[] varShape = variable.getShape();
         if (varShape.length != dimLen.length) return false;
         // Same dimensions, make sure each individual dimension matches
@@ -282,7 +294,7 @@ public class TropomiIOSP extends AbstractIOServiceProvider {
      * Add a variable to the set of available products.
      */
 
-    private static void addVar(NetcdfFile nc, Group g, Variable vIn) {
+    private void addVar(NetcdfFile nc, Group g, Variable vIn) {
 
         logger.trace("Evaluating: " + vIn.getFullName());
         if (validProduct(vIn)) {
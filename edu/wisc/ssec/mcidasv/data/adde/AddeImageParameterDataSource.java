@@ -51,6 +51,9 @@ import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.swing.BoxLayout;
 import javax.swing.JCheckBox;
@@ -90,6 +93,7 @@ import visad.georef.MapProjection;
 import visad.meteorology.ImageSequence;
 import visad.meteorology.ImageSequenceImpl;
 import visad.meteorology.SingleBandedImage;
+import visad.util.ThreadManager;
 
 import ucar.nc2.iosp.mcidas.McIDASAreaProjection;
 import ucar.unidata.data.BadDataException;
@@ -113,6 +117,7 @@ import ucar.unidata.geoloc.ProjectionImpl;
 import ucar.unidata.idv.DisplayControl;
 import ucar.unidata.util.GuiUtils;
 import ucar.unidata.util.IOUtil;
+import ucar.unidata.util.JobManager;
 import ucar.unidata.util.LogUtil;
 import ucar.unidata.util.PollingInfo;
 import ucar.unidata.util.StringUtil;
@@ -130,6 +135,13 @@ public class AddeImageParameterDataSource extends AddeImageDataSource {
 
     private static final Logger logger = LoggerFactory.getLogger(AddeImageParameterDataSource.class);
 
+    /**
+     * Preference ID for the number of image times that may be fetched at
+     * once. Append {@literal ".<server>"} to override the value for a single
+     * ADDE server. Defaults to the data thread count.
+     */
+    public static final String PREF_FETCH_THREADS = "mcidasv.adde.image.fetchthreads";
+
     /**
      * Public keys for server, group, dataset, user, project.
      */
@@ -204,6 +216,9 @@ public class AddeImageParameterDataSource extends AddeImageDataSource {
 
     protected List<DataChoice> stashedChoices = null;
     private List iml = new ArrayList();
+
+    /** Guards the state shared by concurrent {@link #makeImage} calls. */
+    private final ReentrantLock imageLock = new ReentrantLock();
     private List saveImageList = new ArrayList();
 
     private int previewLineRes = 1;
@@ -1872,7 +1887,8 @@ public class AddeImageParameterDataSource extends AddeImageDataSource {
             int cnt = 1;
             DataChoice parent = dataChoice.getParent();
             final List<SingleBandedImage> images = new ArrayList<SingleBandedImage>();
-            MathType rangeType = null;
+            final List<AddeImageDescriptor> fetchDescriptors = new ArrayList<>();
+            final List<String> fetchLabels = new ArrayList<>();
             for (Iterator iter = descriptorsToUse.iterator(); iter.hasNext(); ) {
                 final AddeImageDescriptor aid = (AddeImageDescriptor) iter.next();
                 if (currentDirs != null) {
@@ -1930,21 +1946,12 @@ public class AddeImageParameterDataSource extends AddeImageDataSource {
                     }
                 }
 
-                try {
-                    SingleBandedImage image = makeImage(aid, rangeType, true, readLabel, subset);
-                    if (image != null) {
-                        if(rangeType==null) {
-                            rangeType = ((FunctionType) image.getType()).getRange();
-                        }
-                        synchronized (images) {
-                            images.add(image);
-                        }
-                    }
-                } catch (VisADException e) {
-                    logger.error("avoiding visad exception: ",e);
-                } catch (RemoteException e) {
-                    logger.error("avoiding remote exception: ", e);
-                }
+                fetchDescriptors.add(aid);
+                fetchLabels.add(readLabel);
+            }
+
+            if (!fetchImages(fetchDescriptors, fetchLabels, subset, images)) {
+                return null;
             }
 
             TreeMap imageMap = new TreeMap();
@@ -1997,6 +2004,115 @@ public class AddeImageParameterDataSource extends AddeImageDataSource {
         }
     }
     
+    /**
+     * Fetch the images for the given descriptors, several at a time if
+     * {@link #getFetchThreadCount(List)} allows it. Each worker fetches
+     * and builds its own image, so the first frames are being built while
+     * later ones are still in flight.
+     *
+     * @param descriptors Images to fetch.
+     * @param readLabels Progress label for each descriptor.
+     * @param subset Geographical subsetting info.
+     * @param images List that receives the images (in no particular order).
+     *
+     * @return {@code false} if the user cancelled the load.
+     *
+     * @throws VisADException if the fetches could not be run.
+     */
+    private boolean fetchImages(final List<AddeImageDescriptor> descriptors,
+                                final List<String> readLabels,
+                                final DataSelection subset,
+                                final List<SingleBandedImage> images)
+            throws VisADException
+    {
+        final int total = descriptors.size();
+        final int numThreads = Math.min(getFetchThreadCount(descriptors), total);
+        final Object loadId = JobManager.getManager().startLoad("Fetching " + total + " images", true, false);
+        try {
+            if (numThreads <= 1) {
+                MathType rangeType = null;
+                for (int i = 0; i < total; i++) {
+                    if (!JobManager.getManager().canContinue(loadId)) {
+                        return false;
+                    }
+                    try {
+                        SingleBandedImage image = makeImage(descriptors.get(i), rangeType, true, readLabels.get(i), subset);
+                        if (image != null) {
+                            if (rangeType == null) {
+                                rangeType = ((FunctionType) image.getType()).getRange();
+                            }
+                            synchronized (images) {
+                                images.add(image);
+                            }
+                        }
+                    } catch (VisADException e) {
+                        logger.error("avoiding visad exception: ",e);
+                    } catch (RemoteException e) {
+                        logger.error("avoiding remote exception: ", e);
+                    }
+                }
+                return true;
+            }
+
+            logger.trace("fetching {} images with {} threads", total, numThreads);
+            final AtomicInteger finished = new AtomicInteger();
+            final AtomicReference<MathType> sharedRangeType = new AtomicReference<>();
+            ThreadManager threadManager = new ThreadManager("ADDE image fetching");
+            for (int i = 0; i < total; i++) {
+                final AddeImageDescriptor aid = descriptors.get(i);
+                final String readLabel = readLabels.get(i);
+                threadManager.addRunnable(new ThreadManager.MyRunnable() {
+                    public void run() throws Exception {
+                        if (!JobManager.getManager().canContinue(loadId)) {
+                            return;
+                        }
+                        try {
+                            SingleBandedImage image = makeImage(aid, sharedRangeType.get(), true, readLabel, subset);
+                            if (image != null) {
+                                sharedRangeType.compareAndSet(null, ((FunctionType) image.getType()).getRange());
+                                synchronized (images) {
+                                    images.add(image);
+                                }
+                            }
+                        } catch (VisADException e) {
+                            logger.error("avoiding visad exception: ",e);
+                        } catch (RemoteException e) {
+                            logger.error("avoiding remote exception: ", e);
+                        }
+                        JobManager.getManager().setDialogLabel2(loadId,
+                            "Fetched " + finished.incrementAndGet() + '/' + total + " images");
+                    }
+                });
+            }
+            threadManager.runInParallel(numThreads);
+            return JobManager.getManager().canContinue(loadId);
+        } finally {
+            JobManager.getManager().stopLoad(loadId);
+        }
+    }
+
+    /**
+     * Number of images that may be fetched at once for the given
+     * descriptors. Looks up {@link #PREF_FETCH_THREADS} for the descriptors'
+     * server first, then the general preference, then falls back to the
+     * IDV data thread count. Local files are read one at a time.
+     *
+     * @param descriptors Images about to be fetched.
+     *
+     * @return Number of concurrent fetches; always at least {@code 1}.
+     */
+    private int getFetchThreadCount(List<AddeImageDescriptor> descriptors) {
+        if (descriptors.isEmpty() || isFromFile(descriptors.get(0))) {
+            return 1;
+        }
+        int threads = getIdv().getStore().get(PREF_FETCH_THREADS, getIdv().getMaxDataThreadCount());
+        AddeImageInfo aii = descriptors.get(0).getImageInfo();
+        if ((aii != null) && (aii.getHost() != null)) {
+            threads = getIdv().getStore().get(PREF_FETCH_THREADS + '.' + aii.getHost(), threads);
+        }
+        return Math.max(1, threads);
+    }
+
     /**
      * Create the single image defined by the given 
      * {@link ucar.unidata.data.imagery.AddeImageDescriptor AddeImageDescriptor}.
@@ -2018,6 +2134,35 @@ public class AddeImageParameterDataSource extends AddeImageDataSource {
                                         boolean fromSequence, 
                                         String readLabel, DataSelection subset)
             throws VisADException, RemoteException {
+        imageLock.lock();
+        try {
+            return makeImageLocked(aid, rangeType, fromSequence, readLabel, subset);
+        } finally {
+            imageLock.unlock();
+        }
+    }
+
+    /**
+     * Does the work of {@link #makeImage}. Must be called while holding
+     * {@link #imageLock}; the lock is only released while the image is
+     * being read from the server.
+     *
+     * @param aid Holds image directory and location of the desired image.
+     * @param rangeType {@literal "rangeType"} to use (if non-{@code null}).
+     * @param fromSequence _more_
+     * @param readLabel 
+     * @param subset geographical subsetting info
+     *
+     * @return The data.
+     *
+     * @throws RemoteException Java RMI problem
+     * @throws VisADException VisAD problem
+     */
+    private SingleBandedImage makeImageLocked(AddeImageDescriptor aid,
+                                              MathType rangeType,
+                                              boolean fromSequence,
+                                              String readLabel, DataSelection subset)
+            throws VisADException, RemoteException {
         
         if (aid == null) {
             return null;
@@ -2193,10 +2338,23 @@ public class AddeImageParameterDataSource extends AddeImageDataSource {
 //                return result;
 //            }
 
-            AreaAdapter aa = new AreaAdapter(src, false);
-            logger.trace("Getting a new aa={} for src=: {}", aa, src);
-            areaDir = previewDir;
-            result = aa.getImage();
+            // let other image fetches proceed while this one is in flight
+            imageLock.unlock();
+            try {
+                result = null;
+                if (getIdv().getStore().get(PREF_COMPACT_IMAGES, true)) {
+                    // hold the raw counts and calibrate them on demand
+                    result = AreaImageFlatField.createImmediateCompact(aid, src, rangeType, readLabel);
+                    logger.trace("Getting compact image={} for src=: {}", result, src);
+                }
+                if (result == null) {
+                    AreaAdapter aa = new AreaAdapter(src, false);
+                    logger.trace("Getting a new aa={} for src=: {}", aa, src);
+                    result = aa.getImage();
+                }
+            } finally {
+                imageLock.lock();
+            }
 
             putCache(src, result);
             aid.setSource(src);
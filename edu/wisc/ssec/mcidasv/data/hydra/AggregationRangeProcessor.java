@@ -73,6 +73,15 @@ public class AggregationRangeProcessor extends RangeProcessor {
 		rngIdx = index;
 	}
 
+	/**
+	 * @param index Granule index.
+	 *
+	 * @return Range processor of the granule at {@code index}.
+	 */
+	public RangeProcessor getRangeProcessor(int index) {
+		return rangeProcessors.get(index);
+	}
+
 	public synchronized void setMultiScaleIndex(int idx) {
 		rangeProcessors.get(rngIdx).setMultiScaleIndex(idx);
 	}
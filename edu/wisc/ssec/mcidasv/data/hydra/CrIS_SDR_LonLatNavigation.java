@@ -33,8 +33,6 @@ import visad.RealTupleType;
 
 public class CrIS_SDR_LonLatNavigation extends SwathNavigation  {
 
-  private Gridded2DSet gset = null;
-
   public CrIS_SDR_LonLatNavigation(SwathAdapter swathAdapter) throws Exception {
     super(swathAdapter);
   }
@@ -58,7 +56,7 @@ public class CrIS_SDR_LonLatNavigation extends SwathNavigation  {
     float[] lons = reader.getFloatArray(lon_array_name, new_geo_start, new_geo_count, new_geo_stride);
     float[] lats = reader.getFloatArray(lat_array_name, new_geo_start, new_geo_count, new_geo_stride);
 
-    gset = new Gridded2DSet(RealTupleType.SpatialEarth2DTuple,
+    Gridded2DSet gset = new Gridded2DSet(RealTupleType.SpatialEarth2DTuple,
                    new float[][] {lons, lats},
                         geo_count[idx_order[0]], geo_count[idx_order[1]],
                             null, null, null, false, false);
@@ -66,6 +64,6 @@ public class CrIS_SDR_LonLatNavigation extends SwathNavigation  {
   }
 
   public Gridded2DSet getInterpSet() {
-    return gset;
+    return getLastInterpSet();
   }
 }
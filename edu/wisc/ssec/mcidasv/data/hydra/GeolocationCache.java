@@ -0,0 +1,247 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+package edu.wisc.ssec.mcidasv.data.hydra;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import visad.Gridded2DSet;
+import visad.Linear2DSet;
+
+/**
+ * Bounded, least-recently-used cache of swath geolocation, scoped to a
+ * single {@link MultiDimensionReader}.
+ *
+ * <p>Every band of a swath that shares a navigation reads the same
+ * longitude and latitude arrays and builds the same
+ * {@link LongitudeLatitudeCoordinateSystem} from them. This cache keeps
+ * both the geolocation set and the coordinate systems built on it, keyed by
+ * the geolocation arrays and the start, count and stride they were read
+ * with, so only the first band pays for the read and the projection.</p>
+ *
+ * <p>Concurrent requests for the same entry wait for the first one to
+ * finish rather than repeating its work. An entry that fails to load is
+ * dropped, so the next request tries again.</p>
+ */
+public class GeolocationCache {
+
+   /** Default upper limit on the number of cached entries per reader. */
+   public static final int DEFAULT_MAX_ENTRIES = 4;
+
+   /** Caches by reader. Dropped along with their reader. */
+   private static final Map<MultiDimensionReader, GeolocationCache> caches =
+      new WeakHashMap<>();
+
+   private final LinkedHashMap<Object, FutureTask<?>> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+   private int maxEntries;
+
+   private long hitCount = 0;
+   private long missCount = 0;
+   private long evictionCount = 0;
+
+   public GeolocationCache() {
+      this(DEFAULT_MAX_ENTRIES);
+   }
+
+   public GeolocationCache(int maxEntries) {
+      this.maxEntries = maxEntries;
+   }
+
+   /**
+    * @param reader Reader the geolocation is read from.
+    *
+    * @return Cache shared by everything that navigates with {@code reader}.
+    */
+   public static GeolocationCache getInstance(MultiDimensionReader reader) {
+      synchronized (caches) {
+         return caches.computeIfAbsent(reader, r -> new GeolocationCache());
+      }
+   }
+
+   /**
+    * Look up the geolocation set for {@code key}, reading it with
+    * {@code loader} if it is not cached.
+    *
+    * @param key Geolocation arrays and the section they are read with.
+    * @param loader Reads the geolocation set.
+    *
+    * @return Cached or newly read geolocation set.
+    *
+    * @throws Exception if {@code loader} fails.
+    */
+   public Gridded2DSet getInterpSet(Key key, Callable<Gridded2DSet> loader) throws Exception {
+      return get(key, loader);
+   }
+
+   /**
+    * Look up the coordinate system for {@code key} and {@code domainSet},
+    * building it with {@code factory} if it is not cached.
+    *
+    * @param key Geolocation arrays and the section they are read with.
+    * @param domainSet Swath domain the coordinate system maps from.
+    * @param factory Builds the coordinate system.
+    *
+    * @return Cached or newly built coordinate system.
+    *
+    * @throws Exception if {@code factory} fails.
+    */
+   public LongitudeLatitudeCoordinateSystem getCoordinateSystem(Key key, Linear2DSet domainSet,
+         Callable<LongitudeLatitudeCoordinateSystem> factory) throws Exception {
+      double[] domain = new double[6];
+      for (int i=0; i<2; i++) {
+         domain[3*i] = domainSet.getLinear1DComponent(i).getFirst();
+         domain[3*i+1] = domainSet.getLinear1DComponent(i).getLast();
+         domain[3*i+2] = domainSet.getLinear1DComponent(i).getLength();
+      }
+      return get(new Key(key, domain), factory);
+   }
+
+   @SuppressWarnings("unchecked")
+   private <T> T get(Object key, Callable<T> loader) throws Exception {
+      FutureTask<T> task;
+      boolean isOwner = false;
+      synchronized (this) {
+         task = (FutureTask<T>) entries.get(key);
+         if (task != null) {
+            hitCount++;
+         }
+         else {
+            missCount++;
+            task = new FutureTask<>(loader);
+            entries.put(key, task);
+            isOwner = true;
+            trim();
+         }
+      }
+      if (isOwner) {
+         task.run();
+      }
+      try {
+         return task.get();
+      }
+      catch (ExecutionException e) {
+         synchronized (this) {
+            entries.remove(key, task);
+         }
+         Throwable cause = e.getCause();
+         if (cause instanceof Exception) {
+            throw (Exception) cause;
+         }
+         if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw e;
+      }
+   }
+
+   /**
+    * Drop every cached entry. Counters are left untouched.
+    */
+   public synchronized void clear() {
+      entries.clear();
+   }
+
+   public synchronized void setMaxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      trim();
+   }
+
+   public synchronized int getMaxEntries() {
+      return maxEntries;
+   }
+
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   public synchronized long getHitCount() {
+      return hitCount;
+   }
+
+   public synchronized long getMissCount() {
+      return missCount;
+   }
+
+   public synchronized long getEvictionCount() {
+      return evictionCount;
+   }
+
+   public synchronized String getStats() {
+      return "GeolocationCache: entries=" + entries.size() +
+             " max=" + maxEntries +
+             " hits=" + hitCount + " misses=" + missCount +
+             " evictions=" + evictionCount;
+   }
+
+   private void trim() {
+      Iterator<FutureTask<?>> iter = entries.values().iterator();
+      while (iter.hasNext() && entries.size() > maxEntries) {
+         iter.next();
+         iter.remove();
+         evictionCount++;
+      }
+   }
+
+   /**
+    * Cache key made of a list of values, compared element by element.
+    * Arrays are compared by content, so callers must not change an array
+    * once it is part of a key.
+    */
+   public static final class Key {
+      private final Object[] parts;
+      private final int hash;
+
+      public Key(Object... parts) {
+         this.parts = parts;
+         this.hash = Arrays.deepHashCode(parts);
+      }
+
+      @Override public int hashCode() {
+         return hash;
+      }
+
+      @Override public boolean equals(Object obj) {
+         if (this == obj) {
+            return true;
+         }
+         if (!(obj instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) obj;
+         return hash == other.hash && Arrays.deepEquals(parts, other.parts);
+      }
+   }
+}
@@ -34,16 +34,20 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import edu.wisc.ssec.mcidasv.data.QualityFlag;
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
 
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.Index;
-import ucar.ma2.IndexIterator;
 import ucar.ma2.Range;
 import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
@@ -103,9 +107,10 @@ public class GranuleAggregation implements MultiDimensionReader {
    private String inTrackGeoDimensionName = null;
    private String crossTrackDimensionName = null;
    private Set<String> products;
-   private String origName = "";
    // assume we are working with VIIRS, will toggle if not
    private boolean isVIIRS = true;
+   // maximum number of granules read at once
+   private int readThreads = ParallelRows.availableParallelism();
 
    public GranuleAggregation(List<NetCDFFile> ncdfal, Set<String> products,
 		   String inTrackDimensionName, String inTrackGeoDimensionName, 
@@ -159,7 +164,6 @@ public class GranuleAggregation implements MultiDimensionReader {
 	   // we pull data from the "mapped" variable name, a packed byte
 	   if (qfMap != null) {
 		   if (qfMap.containsKey(array_name)) {
-			   origName = array_name;
 			   QualityFlag qf = qfMap.get(array_name);
 			   String mappedName = qf.getPackedName();
 			   logger.debug("Key: " + array_name + " mapped to: " + mappedName);
@@ -175,7 +179,6 @@ public class GranuleAggregation implements MultiDimensionReader {
 
 	   if (lutMap != null) {
 		   if (lutMap.containsKey(array_name)) {
-			   origName = array_name;
 			   String mappedName = array_name.substring(0, array_name.length() - 3);
 			   logger.debug("Key: " + array_name + " mapped to: " + mappedName);
 			   return mappedName;
@@ -589,7 +592,7 @@ public class GranuleAggregation implements MultiDimensionReader {
 	   return index;
    }
    
-   private synchronized Object readArray(String array_name, int[] start, int[] count, int[] stride) throws Exception {
+   private Object readArray(String array_name, int[] start, int[] count, int[] stride) throws Exception {
 	   
 	   String mapName = array_name;
 	   array_name = mapNameIfQualityFlag(array_name);
@@ -740,85 +743,45 @@ public class GranuleAggregation implements MultiDimensionReader {
 		   }
 	   }
 	   
+	   // work out where each granule lands in the aggregated array up front,
+	   // so the granules can then be read in any order
 	   int totalLength = 0;
 	   int rangeListCount = 0;
-	   List<Array> arrayList = new ArrayList<>();
-	   for (int granuleIdx = 0; granuleIdx < granuleCount; granuleIdx++) {
-		   if ((granuleIdx >= loGranuleId) && (granuleIdx <= hiGranuleId)) {
-			   Variable var = varMapList.get(loGranuleId + (granuleIdx-loGranuleId)).get(array_name);
-
-			   if (var instanceof Structure) {
-				   // what to do here?
-			   } else {
-				   List<Range> rangeList = new ArrayList<>();
-				   for (int dimensionIdx = 0; dimensionIdx < dimensionCount; dimensionIdx++) {
-					   logger.debug("Creating new Range: " + startSet[rangeListCount][dimensionIdx] +
-							   ", " + (startSet[rangeListCount][dimensionIdx] + countSet[rangeListCount][dimensionIdx] - 1) + ", " + strideSet[rangeListCount][dimensionIdx]);
-					   Range range = new Range(
-							   startSet[rangeListCount][dimensionIdx], 
-							   startSet[rangeListCount][dimensionIdx] + countSet[rangeListCount][dimensionIdx] - 1,
-							   strideSet[rangeListCount][dimensionIdx]
-					   );
-					   rangeList.add(dimensionIdx, range);
-				   }
-				   rangeListCount++;
-				   
-				   // If there were chunks of fill data to remove...
-				   List<Range> al = granCutRanges.get(new Integer(granuleIdx));
-				   if (! al.isEmpty()) {
-					   List<Variable> varChunks = new ArrayList<>();
-					   for (int rangeCount = 0; rangeCount < al.size(); rangeCount+=2) {
-						   List<Range> rl = new ArrayList<>();
-						   rl.add(al.get(rangeCount));
-						   rl.add(al.get(rangeCount + 1));
-						   varChunks.add(var.section(rl));
-					   }
-
-					   int [] newShape = var.getShape();
-					   int cutScans = granCutScans.get(granuleIdx);
-					   newShape[0] = newShape[0] - cutScans;
-					   logger.trace("New Shape: " + newShape[0] + ", " + newShape[1]);
-					   Array single = Array.factory(var.getDataType(), newShape);
-
-					   // now read variable chunk data into single contiguous array
-					   int idx = 0;
-					   for (Variable v : varChunks) {
-						   Array data = v.read();
-						   int [] tmpShape = v.getShape();
-						   for (int tIdx = 0; tIdx < tmpShape.length; tIdx++) {
-							   logger.trace("Shape[" + tIdx + "]: " + tmpShape[tIdx]);
-						   }
-						   IndexIterator ii = data.getIndexIterator();
-						   while (ii.hasNext()) {
-							   single.setFloat(idx, ii.getFloatNext());
-							   idx++;
-						   }
-					   }
-
-					   // finally, apply subset ranges
-					   logger.debug("Size of cut src array: " + single.getSize());
-					   Array subarray = single.section(rangeList);
-					   totalLength += subarray.getSize();
-					   arrayList.add(subarray);
-					   logger.debug("Size of cut sub array: " + subarray.getSize());
+	   List<List<Range>> granRangeLists = new ArrayList<>();
+	   int[] granOffsets = new int[granuleSpan];
+	   int[] granSizes = new int[granuleSpan];
+	   for (int i = 0; i < granuleSpan; i++) {
+		   Variable var = varMapList.get(loGranuleId + i).get(array_name);
 
-				   } else {
-					   Array subarray = var.read(rangeList);
-					   totalLength += subarray.getSize();
-					   logger.debug("Size of reg sub array: " + subarray.getSize());
-					   arrayList.add(subarray);
-				   }
-				   
-			   }
-			   // put in an empty ArrayList placeholder to retain a slot for each granule
+		   if (var instanceof Structure) {
+			   // what to do here?
+			   granRangeLists.add(null);
 		   } else {
-			   Array emptyArray = null;
-			   arrayList.add(emptyArray);
+			   List<Range> rangeList = new ArrayList<>();
+			   int size = 1;
+			   for (int dimensionIdx = 0; dimensionIdx < dimensionCount; dimensionIdx++) {
+				   logger.debug("Creating new Range: " + startSet[rangeListCount][dimensionIdx] +
+						   ", " + (startSet[rangeListCount][dimensionIdx] + countSet[rangeListCount][dimensionIdx] - 1) + ", " + strideSet[rangeListCount][dimensionIdx]);
+				   Range range = new Range(
+						   startSet[rangeListCount][dimensionIdx], 
+						   startSet[rangeListCount][dimensionIdx] + countSet[rangeListCount][dimensionIdx] - 1,
+						   strideSet[rangeListCount][dimensionIdx]
+				   );
+				   rangeList.add(dimensionIdx, range);
+				   size *= range.length();
+			   }
+			   rangeListCount++;
+			   granRangeLists.add(rangeList);
+			   granOffsets[i] = totalLength;
+			   granSizes[i] = size;
+			   totalLength += size;
 		   }
 	   }
 	   
-	   // last, concatenate the individual NetCDF arrays pulled out 
+	   // last, read the individual NetCDF arrays straight into the aggregate
 
+	   final String varName = array_name;
+	   final int firstGranuleId = loGranuleId;
 	   Class arrayType = getArrayType(array_name);
 	   RangeProcessor rngProcessor = varToRangeProcessor.get(array_name);
 
@@ -839,30 +802,136 @@ public class GranuleAggregation implements MultiDimensionReader {
 	   }
 	   
 	   float[] finalArray = new float[totalLength];
-           
-	   int destPos = 0;
-	   int granIdx = 0;
-
-	   int remaining = totalLength;
-	   for (Array a : arrayList) {
-		   if (a != null) {
-			   Object primArray = a.copyTo1DJavaArray();
-			   primArray = processArray(
-			      mapName, array_name, arrayType, granIdx, primArray, rngProcessor, start, count
-			   );
-			   if (a.getSize() > remaining) {
-			       System.arraycopy(primArray, 0, finalArray, destPos, remaining);
-			   } else {
-			       System.arraycopy(primArray, 0, finalArray, destPos, (int) a.getSize());
+
+	   // each granule is read, range processed, and copied into its own slice
+	   // of finalArray, with up to readThreads granules in flight at once
+	   ParallelRows.RowRange readGranules = (first, last) -> {
+		   for (int i = first; i <= last; i++) {
+			   List<Range> rangeList = granRangeLists.get(i);
+			   int length = Math.min(granSizes[i], finalArray.length - granOffsets[i]);
+			   if ((rangeList == null) || (length <= 0)) {
+				   continue;
 			   }
-			   destPos += a.getSize();
-			   remaining -= (int) a.getSize();
+			   int granuleIdx = firstGranuleId + i;
+			   Array a = readGranule(granuleIdx, varMapList.get(granuleIdx).get(varName), rangeList);
+			   Object primArray = a.get1DJavaArray(a.getDataType());
+			   primArray = processArray(mapName, arrayType, granuleIdx, primArray, rngProcessor);
+			   System.arraycopy(primArray, 0, finalArray, granOffsets[i], length);
 		   }
-		   granIdx++;
+	   };
+	   readGranules(granuleSpan, readGranules);
+
+	   // leave the aggregate range processor pointing at the last granule,
+	   // as it did when the granules were processed one after another
+	   if (rngProcessor != null) {
+		   ((AggregationRangeProcessor) rngProcessor).setWhichRangeProcessor(hiGranuleId);
 	   }
        
 	   return finalArray;
    }
+
+   /**
+    * Run {@code task} once for each granule of a request. The reads block on
+    * I/O, so rather than tying up the shared compute pool they run on a
+    * fixed pool of their own, sized from {@link #getReadThreads()} and
+    * limited to the number of granules, which is shut down afterwards.
+    *
+    * @param granuleSpan Number of granules in the request.
+    * @param task Reads the granules with the given (inclusive) indices.
+    *
+    * @throws Exception the first exception thrown by {@code task}.
+    */
+   private void readGranules(int granuleSpan, ParallelRows.RowRange task) throws Exception {
+	   int threads = Math.min(readThreads, granuleSpan);
+	   if (threads <= 1) {
+		   task.run(0, granuleSpan - 1);
+		   return;
+	   }
+	   ExecutorService readers = Executors.newFixedThreadPool(threads, r -> {
+		   Thread t = new Thread(r, "GranuleAggregation granule read");
+		   t.setDaemon(true);
+		   return t;
+	   });
+	   try {
+		   List<Future<Void>> reads = new ArrayList<>(granuleSpan);
+		   for (int i = 0; i < granuleSpan; i++) {
+			   final int granule = i;
+			   reads.add(readers.submit(() -> {
+				   task.run(granule, granule);
+				   return null;
+			   }));
+		   }
+		   for (Future<Void> read : reads) {
+			   try {
+				   read.get();
+			   } catch (ExecutionException e) {
+				   Throwable cause = e.getCause();
+				   if (cause instanceof Exception) {
+					   throw (Exception) cause;
+				   }
+				   throw (Error) cause;
+			   }
+		   }
+	   } finally {
+		   readers.shutdownNow();
+	   }
+   }
+
+   /**
+    * Read the requested section of one granule, first stitching together the
+    * pieces left after any cut scans. Reads of the same granule are
+    * serialized, since a {@code NetcdfFile} cannot be read by several
+    * threads at once; different granules are read concurrently.
+    *
+    * @param granuleIdx Index of the granule.
+    * @param var Variable to read from that granule.
+    * @param rangeList Section of the (cut) granule to return.
+    *
+    * @return Values of the requested section.
+    *
+    * @throws Exception if the granule could not be read.
+    */
+   private Array readGranule(int granuleIdx, Variable var, List<Range> rangeList) throws Exception {
+	   synchronized (nclist.get(granuleIdx)) {
+		   // If there were chunks of fill data to remove...
+		   List<Range> al = granCutRanges.get(granuleIdx);
+		   if (al.isEmpty()) {
+			   Array subarray = var.read(rangeList);
+			   logger.debug("Size of reg sub array: " + subarray.getSize());
+			   return subarray;
+		   }
+
+		   List<Variable> varChunks = new ArrayList<>();
+		   for (int rangeCount = 0; rangeCount < al.size(); rangeCount+=2) {
+			   List<Range> rl = new ArrayList<>();
+			   rl.add(al.get(rangeCount));
+			   rl.add(al.get(rangeCount + 1));
+			   varChunks.add(var.section(rl));
+		   }
+
+		   int [] newShape = var.getShape();
+		   int cutScans = granCutScans.get(granuleIdx);
+		   newShape[0] = newShape[0] - cutScans;
+		   logger.trace("New Shape: " + newShape[0] + ", " + newShape[1]);
+		   Array single = Array.factory(var.getDataType(), newShape);
+
+		   // now read variable chunk data into single contiguous array; the
+		   // chunks are whole scans, so each one is a contiguous block
+		   int idx = 0;
+		   for (Variable v : varChunks) {
+			   Array data = v.read();
+			   int chunkSize = (int) data.getSize();
+			   Array.arraycopy(data, 0, single, idx, chunkSize);
+			   idx += chunkSize;
+		   }
+
+		   // finally, apply subset ranges
+		   logger.debug("Size of cut src array: " + single.getSize());
+		   Array subarray = single.section(rangeList);
+		   logger.debug("Size of cut sub array: " + subarray.getSize());
+		   return subarray;
+	   }
+   }
    
    /**
     * @param qfMap the qfMap to set
@@ -889,13 +958,15 @@ public class GranuleAggregation implements MultiDimensionReader {
    }
 
    /* pass individual granule pieces just read from dataset through the RangeProcessor */
-   private Object processArray(String mapName, String array_name, Class arrayType, int granIdx, Object values, RangeProcessor rngProcessor, int[] start, int[] count) {
+   private Object processArray(String mapName, Class arrayType, int granIdx, Object values, RangeProcessor rngProcessor) {
 
 	   if (rngProcessor == null) {
 		   return values;
 	   }
 	   else {
-		   ((AggregationRangeProcessor) rngProcessor).setWhichRangeProcessor(granIdx);
+		   // use the granule's own processor rather than switching the shared
+		   // aggregate one, so that granules can be processed concurrently
+		   RangeProcessor granProcessor = ((AggregationRangeProcessor) rngProcessor).getRangeProcessor(granIdx);
 
 		   Object outArray = null;
 
@@ -905,26 +976,46 @@ public class GranuleAggregation implements MultiDimensionReader {
 				   float lut[] = lutMap.get(mapName);
 				   outArray = rngProcessor.processRangeApplyLUT((short []) values, lut);
 			   } else {
-				   outArray = rngProcessor.processRange((short[]) values, null);
+				   outArray = granProcessor.processRange((short[]) values, null);
 			   }
 		   } else if (arrayType == Byte.TYPE) {
 			   // if variable is a bit-field quality flag, apply mask
-			   if ((qfMap != null) && (qfMap.containsKey(origName))) {
-				   QualityFlag qf = qfMap.get(origName);
+			   if ((qfMap != null) && (qfMap.containsKey(mapName))) {
+				   QualityFlag qf = qfMap.get(mapName);
 				   outArray = rngProcessor.processRangeQualityFlag((byte[]) values, null, qf);
 			   } else {
-				   outArray = rngProcessor.processRange((byte[]) values, null);
+				   outArray = granProcessor.processRange((byte[]) values, null);
 			   }
 		   } else if (arrayType == Float.TYPE) {
-			   outArray = rngProcessor.processRange((float[]) values, null);
+			   outArray = granProcessor.processRange((float[]) values, null);
 		   } else if (arrayType == Double.TYPE) {
-			   outArray = rngProcessor.processRange((double[]) values, null);
+			   outArray = granProcessor.processRange((double[]) values, null);
 		   }
 
 		   return outArray;
 	   }
    }
 
+   /**
+    * Set the maximum number of granules that are read concurrently for a
+    * single request.
+    *
+    * @param readThreads Number of threads. Must be at least one.
+    *
+    * @throws IllegalArgumentException if {@code readThreads} is less than
+    * one.
+    */
+   public void setReadThreads(int readThreads) {
+	   if (readThreads < 1) {
+		   throw new IllegalArgumentException("readThreads must be at least 1: " + readThreads);
+	   }
+	   this.readThreads = readThreads;
+   }
+
+   public int getReadThreads() {
+	   return readThreads;
+   }
+
    /* Application can supply a RangeProcessor for a variable 'arrayName' */
    public void addRangeProcessor(String arrayName, RangeProcessor rangeProcessor) {
 	   varToRangeProcessor.put(arrayName, rangeProcessor);
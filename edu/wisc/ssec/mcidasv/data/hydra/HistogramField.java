@@ -27,8 +27,22 @@
  */
 package edu.wisc.ssec.mcidasv.data.hydra;
 
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
+
 import visad.*;
 
+/**
+ * Two dimensional histogram of a pair of fields, used by the scatter plot
+ * to show sample density and to map selections in the scatter plot back to
+ * the samples that fall in them.
+ *
+ * <p>Samples are binned with direct arithmetic on the linear bin sets, in
+ * chunks that each fill a partial histogram in parallel. The partial
+ * histograms are merged into one array of sample indexes ordered by bin,
+ * so the samples of any run of bins along X are contiguous. Each mask
+ * remembers which samples it holds, so changing a mask only touches the
+ * samples that were in it and the ones that are now.</p>
+ */
 public class HistogramField {
 
     Linear2DSet histSet;
@@ -37,7 +51,10 @@ public class HistogramField {
     int len0;
     int len1;
     int[] count;
-    int[][] indexes;
+    /** Samples of bin {@code b} are {@code binMembers[binStart[b]]} up to {@code binMembers[binStart[b+1]-1]}. */
+    int[] binStart;
+    /** Sample indexes, ordered by bin and then by index. */
+    int[] binMembers;
     FlatField field_0;
     FlatField field_1;
     FlatField mask_field;
@@ -45,9 +62,28 @@ public class HistogramField {
     Class rangeType;
     byte[][] mask = new byte[3][];
     byte[] order = new byte[3];
+    /** Samples currently held by each mask. */
+    int[][] marked = new int[3][];
+    int[] markedLen = new int[3];
+
+    private final int parallelism = ParallelRows.availableParallelism();
+
+    private double first0;
+    private double first1;
+    private double invStep0;
+    private double invStep1;
 
     public FlatField scatterDensityField;
 
+    /**
+     * @param field_0 Field along X.
+     * @param field_1 Field along Y, on the same domain as {@code field_0}.
+     * @param mask_field Field holding the mask value of each sample.
+     * @param n_bins Number of bins along each axis (ignored for integer data).
+     * @param bin_size No longer used; bins are sized exactly.
+     *
+     * @throws Exception if the fields could not be read.
+     */
     public HistogramField(FlatField field_0, FlatField field_1,
             FlatField mask_field,
             int n_bins, int bin_size)
@@ -64,6 +100,7 @@ public class HistogramField {
         java.util.Arrays.fill(mask[1], Byte.MAX_VALUE);
         java.util.Arrays.fill(mask[2], Byte.MAX_VALUE);
         java.util.Arrays.fill(order, Byte.MAX_VALUE);
+        findMarked();
 
         Set[] rangeSets = field_0.getRangeSets();
         Set rngSet = rangeSets[0];
@@ -76,157 +113,47 @@ public class HistogramField {
             rangeType = Integer.TYPE;
         }
 
-        double[] minmax_0 = {Double.MAX_VALUE, -Double.MAX_VALUE};
-        double[] minmax_1 = {Double.MAX_VALUE, -Double.MAX_VALUE};
-
-
-        if (rangeType == Integer.TYPE) {
-          //Ghansham: Dont do any allocation here. Do based on the individual ranges of fieldX and fieldY respectively
+        float[] flts_0 = null;
+        float[] flts_1 = null;
+        double[] dbls_0 = null;
+        double[] dbls_1 = null;
+        int n_samples;
+        if (rangeType == Double.TYPE) {
+            dbls_0 = field_0.getValues(false)[0];
+            dbls_1 = field_1.getValues(false)[0];
+            n_samples = dbls_0.length;
         } else {
-            indexes = new int[n_bins * n_bins][1];
-            count = new int[n_bins * n_bins];
+            flts_0 = field_0.getFloats(false)[0];
+            flts_1 = field_1.getFloats(false)[0];
+            n_samples = flts_0.length;
         }
 
+        double[] minmax = findMinMax(flts_0, flts_1, dbls_0, dbls_1, n_samples);
 
-        double[][] val = new double[2][1];
-        int[] histIdx = null;
-
-        if (rangeType == Double.TYPE) {
-            double[][] vals_0 = field_0.getValues(false);
-            double[][] vals_1 = field_1.getValues(false);
-            int n_samples = vals_0[0].length;
-            for (int k = 0; k < n_samples; k++) {
-                double v0 = vals_0[0][k];
-                if (v0 < minmax_0[0]) {
-                    minmax_0[0] = v0;
-                } else if (v0 > minmax_0[1]) {
-                    minmax_0[1] = v0;
-                }
-
-                double v1 = vals_1[0][k];
-                if (v1 < minmax_1[0]) {
-                    minmax_1[0] = v1;
-                } else if (v1 > minmax_1[1]) {
-                    minmax_1[1] = v1;
-                }
-            }
-
-            histSet = new Linear2DSet(minmax_0[0], minmax_0[1], n_bins,
-                    minmax_1[0], minmax_1[1], n_bins);
-
-            for (int k = 0; k < n_samples; k++) {
-                val[0][0] = vals_0[0][k];
-                val[1][0] = vals_1[0][k];
-                histIdx = histSet.doubleToIndex(val);
-                if (histIdx[0] >= 0) {
-                    int len = indexes[histIdx[0]].length;
-                    if (count[histIdx[0]] > len - 1) { //-grow array
-                        int[] tmp = new int[len + bin_size];
-                        System.arraycopy(indexes[histIdx[0]], 0, tmp, 0, len);
-                        indexes[histIdx[0]] = tmp;
-                    }
-                    indexes[histIdx[0]][count[histIdx[0]]++] = k;
-                }
-            }
-        } else if (rangeType == Float.TYPE) {
-            float[][] vals_0 = field_0.getFloats(false);
-            float[][] vals_1 = field_1.getFloats(false);
-            int n_samples = vals_0[0].length;
-            for (int k = 0; k < n_samples; k++) {
-                double v0 = vals_0[0][k];
-                if (v0 < minmax_0[0]) {
-                    minmax_0[0] = v0;
-                } else if (v0 > minmax_0[1]) {
-                    minmax_0[1] = v0;
-                }
-                double v1 = vals_1[0][k];
-                if (v1 < minmax_1[0]) {
-                    minmax_1[0] = v1;
-                } else if (v1 > minmax_1[1]) {
-                    minmax_1[1] = v1;
-                }
-
-            }
-            histSet = new Linear2DSet(minmax_0[0], minmax_0[1], n_bins, minmax_1[0], minmax_1[1], n_bins);
-            for (int k = 0; k < n_samples; k++) {
-                val[0][0] = vals_0[0][k];
-                val[1][0] = vals_1[0][k];
-                histIdx = histSet.doubleToIndex(val);
-                if (histIdx[0] >= 0) {
-                    int len = indexes[histIdx[0]].length;
-                    if (count[histIdx[0]] > len - 1) { //-grow array
-
-                        int[] tmp = new int[len + bin_size];
-                        System.arraycopy(indexes[histIdx[0]], 0, tmp, 0, len);
-                        indexes[histIdx[0]] = tmp;
-                    }
-                    indexes[histIdx[0]][count[histIdx[0]]++] = k;
-                }
-            }
-        } else if (rangeType == Integer.TYPE) {
-            float[][] vals_0 = field_0.getFloats(false);
-            float[][] vals_1 = field_1.getFloats(false);
-            int n_samples = vals_0[0].length;
-            for (int k = 0; k < n_samples; k++) {
-                double v0 = vals_0[0][k];
-                if (v0 < minmax_0[0]) {
-                    minmax_0[0] = v0;
-                } else if (v0 > minmax_0[1]) {
-                    minmax_0[1] = v0;
-                }
-                double v1 = vals_1[0][k];
-                if (v1 < minmax_1[0]) {
-                    minmax_1[0] = v1;
-                } else if (v1 > minmax_1[1]) {
-                    minmax_1[1] = v1;
-                }
-            }
-
-
-            int startX = (int) minmax_0[0];
-            int endX = (int) minmax_0[1];
-            int startY = (int) minmax_1[0];
-            int endY = (int) minmax_1[1];
+        if (rangeType == Integer.TYPE) {
+            //Ghansham: one bin per grey count, based on the individual ranges of fieldX and fieldY
+            int startX = (int) minmax[0];
+            int endX = (int) minmax[1];
+            int startY = (int) minmax[2];
+            int endY = (int) minmax[3];
             int lenX = endX - startX + 1;
             int lenY = endY - startY + 1;
             histSet = new Linear2DSet(startX, endX, lenX, startY, endY, lenY);
-
-
-
-            //Ghansham:Allocate here based on length of lenghts of XField and YField
-            indexes = new int[lenY * lenX][]; //Ghansham:Dont allocate here if not required.
-            count = new int[lenY * lenX];
-
-            //First calculate frequency of each grey count.
-            for (int k = 0; k < n_samples; k++) {
-                val[0][0] = vals_0[0][k];
-                val[1][0] = vals_1[0][k];
-                histIdx = histSet.doubleToIndex(val);
-                if (histIdx[0] >= 0) {
-                    count[histIdx[0]]++;
-                }
-            }
-
-            for (int k = 0; k < n_samples; k++) {
-                val[0][0] = vals_0[0][k];
-                val[1][0] = vals_1[0][k];
-                histIdx = histSet.doubleToIndex(val);
-                if (histIdx[0] >= 0) {
-                    if (indexes[histIdx[0]] == null) { //Tricky stuff is here: encountering a particular grey count first time.
-                        indexes[histIdx[0]] = new int[count[histIdx[0]]]; //Allocating the values based on the frequency of this grey count (calculate earlier). No extra allocation at all
-                        count[histIdx[0]] = 0;  //Resetting the frequency to 0.
-                    }
-                    indexes[histIdx[0]][count[histIdx[0]]++] = k;
-                }
-            }
+        } else {
+            histSet = new Linear2DSet(minmax[0], minmax[1], n_bins,
+                    minmax[2], minmax[3], n_bins);
         }
 
-
         set0 = histSet.getLinear1DComponent(0);
         set1 = histSet.getLinear1DComponent(1);
         len0 = set0.getLength();
         len1 = set1.getLength();
+        first0 = set0.getFirst();
+        first1 = set1.getFirst();
+        invStep0 = (len0 > 1 && set0.getStep() != 0) ? 1.0 / set0.getStep() : 0.0;
+        invStep1 = (len1 > 1 && set1.getStep() != 0) ? 1.0 / set1.getStep() : 0.0;
 
+        binSamples(flts_0, flts_1, dbls_0, dbls_1, n_samples);
 
         Linear2DSet dSet = (Linear2DSet) histSet.changeMathType(new RealTupleType(RealType.XAxis, RealType.YAxis));
         scatterDensityField = new FlatField(
@@ -248,6 +175,130 @@ public class HistogramField {
         return scatterDensityField;
     }
 
+    /**
+     * @return {min_0, max_0, min_1, max_1}, ignoring missing values.
+     */
+    private double[] findMinMax(final float[] flts_0, final float[] flts_1,
+            final double[] dbls_0, final double[] dbls_1, final int n_samples)
+            throws Exception {
+        final int nChunks = Math.max(1, Math.min(parallelism, n_samples / 65536));
+        final int chunkLen = (n_samples + nChunks - 1) / nChunks;
+        final double[][] partial = new double[nChunks][];
+        ParallelRows.run(0, nChunks - 1, 1, parallelism, (start, stop) -> {
+            for (int c = start; c <= stop; c++) {
+                double[] minmax = {Double.MAX_VALUE, -Double.MAX_VALUE,
+                                   Double.MAX_VALUE, -Double.MAX_VALUE};
+                int end = Math.min(n_samples, (c + 1) * chunkLen);
+                for (int k = c * chunkLen; k < end; k++) {
+                    double v0 = (dbls_0 != null) ? dbls_0[k] : flts_0[k];
+                    double v1 = (dbls_1 != null) ? dbls_1[k] : flts_1[k];
+                    if (v0 < minmax[0]) {
+                        minmax[0] = v0;
+                    }
+                    if (v0 > minmax[1]) {
+                        minmax[1] = v0;
+                    }
+                    if (v1 < minmax[2]) {
+                        minmax[2] = v1;
+                    }
+                    if (v1 > minmax[3]) {
+                        minmax[3] = v1;
+                    }
+                }
+                partial[c] = minmax;
+            }
+        });
+        double[] minmax = partial[0];
+        for (int c = 1; c < nChunks; c++) {
+            minmax[0] = Math.min(minmax[0], partial[c][0]);
+            minmax[1] = Math.max(minmax[1], partial[c][1]);
+            minmax[2] = Math.min(minmax[2], partial[c][2]);
+            minmax[3] = Math.max(minmax[3], partial[c][3]);
+        }
+        return minmax;
+    }
+
+    /**
+     * Fill {@link #count}, {@link #binStart} and {@link #binMembers}. Each
+     * chunk of samples counts into its own partial histogram; the partial
+     * counts then become each chunk's write position within every bin, so
+     * the chunks can place their samples in parallel and still leave each
+     * bin in index order.
+     */
+    private void binSamples(final float[] flts_0, final float[] flts_1,
+            final double[] dbls_0, final double[] dbls_1, final int n_samples)
+            throws Exception {
+        final int nBins = len0 * len1;
+        final int[] bins = new int[n_samples];
+        final int nChunks = (int) Math.max(1, Math.min(parallelism, (long) n_samples / Math.max(nBins, 1)));
+        final int chunkLen = (n_samples + nChunks - 1) / nChunks;
+        final int[][] partial = new int[nChunks][nBins];
+
+        ParallelRows.run(0, nChunks - 1, 1, parallelism, (start, stop) -> {
+            for (int c = start; c <= stop; c++) {
+                int[] cnt = partial[c];
+                int end = Math.min(n_samples, (c + 1) * chunkLen);
+                for (int k = c * chunkLen; k < end; k++) {
+                    int b = (dbls_0 != null) ? binIndex(dbls_0[k], dbls_1[k]) : binIndex(flts_0[k], flts_1[k]);
+                    bins[k] = b;
+                    if (b >= 0) {
+                        cnt[b]++;
+                    }
+                }
+            }
+        });
+
+        count = new int[nBins];
+        binStart = new int[nBins + 1];
+        for (int b = 0; b < nBins; b++) {
+            int offset = binStart[b];
+            for (int c = 0; c < nChunks; c++) {
+                int n = partial[c][b];
+                partial[c][b] = offset;
+                offset += n;
+            }
+            count[b] = offset - binStart[b];
+            binStart[b + 1] = offset;
+        }
+
+        binMembers = new int[binStart[nBins]];
+        ParallelRows.run(0, nChunks - 1, 1, parallelism, (start, stop) -> {
+            for (int c = start; c <= stop; c++) {
+                int[] next = partial[c];
+                int end = Math.min(n_samples, (c + 1) * chunkLen);
+                for (int k = c * chunkLen; k < end; k++) {
+                    int b = bins[k];
+                    if (b >= 0) {
+                        binMembers[next[b]++] = k;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Same result as {@code histSet.doubleToIndex}, without the per sample
+     * array allocations.
+     *
+     * @return Bin holding (v0, v1), or -1 if it is outside the histogram.
+     */
+    private int binIndex(double v0, double v1) {
+        int i = axisIndex(v0, first0, invStep0, len0);
+        if (i < 0) {
+            return -1;
+        }
+        int j = axisIndex(v1, first1, invStep1, len1);
+        if (j < 0) {
+            return -1;
+        }
+        return j * len0 + i;
+    }
+
+    private static int axisIndex(double v, double first, double invStep, int len) {
+        double l = (v - first) * invStep + 0.5;
+        return (l >= 0 && l < len) ? (int) l : -1;
+    }
+
     public void markMaskFieldByRange(double[] lowhi_0, double[] lowhi_1, float maskVal)
             throws Exception {
         reorder((byte)maskVal);
@@ -302,256 +353,232 @@ public class HistogramField {
             h01 = hist0[1];
         }
 
-        for (int k = 0; k < maskRange[0].length; k++) {
-            if (maskRange[0][k] == maskVal) {
-                maskRange[0][k] = Float.NaN;
-                mask[(byte)maskVal][k] = Byte.MAX_VALUE;
-            }
-        }
-
-        int lenX = set0.getLengthX();
+        final byte m = (byte) maskVal;
+        unmark(m);
 
+        // The bins h00..h01 of a row are adjacent, so their samples are one run of binMembers.
+        final int lenX = set0.getLengthX();
+        final int firstRow = h10;
+        final int firstBin = h00;
+        final int lastBin = h01;
+        final int[] rowStart = new int[h11 - h10 + 2];
         for (int j = h10; j <= h11; j++) {
-            int col_factor = j * lenX;
-            for (int i = h00; i <= h01; i++) {
-                int idx = col_factor + i;
-                for (int k = 0; k < count[idx]; k++) {
-                    maskRange[0][indexes[idx][k]] = maskVal;
-                    mask[(byte)maskVal][indexes[idx][k]] = (byte)maskVal;
+            int n = binStart[j * lenX + lastBin + 1] - binStart[j * lenX + firstBin];
+            rowStart[j - h10 + 1] = rowStart[j - h10] + n;
+        }
+
+        final int[] samples = new int[rowStart[rowStart.length - 1]];
+        ParallelRows.run(h10, h11, parallelism, (start, stop) -> {
+            for (int j = start; j <= stop; j++) {
+                int from = binStart[j * lenX + firstBin];
+                int n = binStart[j * lenX + lastBin + 1] - from;
+                System.arraycopy(binMembers, from, samples, rowStart[j - firstRow], n);
+                for (int t = from; t < from + n; t++) {
+                    int k = binMembers[t];
+                    maskRange[0][k] = maskVal;
+                    mask[m][k] = m;
                 }
             }
-        }
+        });
+        addMarked(m, samples, samples.length);
 
         mask_field.setSamples(maskRange, false);
     }
 
-    public void markMaskFieldByCurve(float[][] curve, float maskVal) throws Exception {
+    public void markMaskFieldByCurve(final float[][] curve, final float maskVal) throws Exception {
         reorder((byte)maskVal);
-        float[][] samples0 = set0.getSamples();
-        float[][] samples1 = set1.getSamples();
-
-        boolean[][] checked = null;
-        boolean[][] inside = null;
-
-
-        if (rangeType == Integer.TYPE) { //Dealing with rangeSet constructed fields separately.
-            float[][] vals_0 = field_0.getFloats(false);
-            float[][] vals_1 = field_1.getFloats(false);
-            int lenX = set0.getLength();
-            int lenY = set1.getLength();
-            checked = new boolean[lenX][lenY];
-            inside = new boolean[lenX][lenY];
-            for (int jj = 0; jj < lenX; jj++) {
-                java.util.Arrays.fill(checked[jj], false);
-                java.util.Arrays.fill(inside[jj], false);
-            }
-            for (int jj = 0; jj < lenY - 1; jj++) {
-                for (int ii = 0; ii < lenX - 1; ii++) {
-                    int idx = jj * lenX + ii; //Calclualting the index value in the start only.
-                    if (count[idx] > 0) { //No need to do go further if the frequency of particular grey count is zero.
-                        int inside_cnt = 0;
-                        if (!checked[ii][jj]) {
-                            float x = samples0[0][ii];
-                            float y = samples1[0][jj];
-                            if (DelaunayCustom.inside(curve, x, y)) {
-                                inside_cnt++;
-                                inside[ii][jj] = true;
-                            }
-                            checked[ii][jj] = true;
-                        } else if (inside[ii][jj]) {
-                            inside_cnt++;
-                        }
-
-                        if (!checked[ii + 1][jj]) {
-                            float x = samples0[0][ii + 1];
-                            float y = samples1[0][jj];
-                            if (DelaunayCustom.inside(curve, x, y)) {
-                                inside_cnt++;
-                                inside[ii + 1][jj] = true;
-                            }
-                            checked[ii + 1][jj] = true;
-                        } else if (inside[ii + 1][jj]) {
-                            inside_cnt++;
-                        }
-
-                        if (!checked[ii][jj + 1]) {
-                            float x = samples0[0][ii];
-                            float y = samples1[0][jj + 1];
-                            if (DelaunayCustom.inside(curve, x, y)) {
-                                inside_cnt++;
-                                inside[ii][jj + 1] = true;
-                            }
-                            checked[ii][jj + 1] = true;
-                        } else if (inside[ii][jj + 1]) {
-                            inside_cnt++;
-                        }
+        final byte m = (byte) maskVal;
+        final float[][] samples0 = set0.getSamples();
+        final float[][] samples1 = set1.getSamples();
+
+        float[] flts_0 = null;
+        float[] flts_1 = null;
+        double[] dbls_0 = null;
+        double[] dbls_1 = null;
+        if (rangeType == Double.TYPE) {
+            dbls_0 = field_0.getValues(false)[0];
+            dbls_1 = field_1.getValues(false)[0];
+        } else {
+            flts_0 = field_0.getFloats(false)[0];
+            flts_1 = field_1.getFloats(false)[0];
+        }
 
-                        if (!checked[ii + 1][jj + 1]) {
-                            float x = samples0[0][ii + 1];
-                            float y = samples1[0][jj + 1];
-                            if (DelaunayCustom.inside(curve, x, y)) {
-                                inside_cnt++;
-                                inside[ii + 1][jj + 1] = true;
-                            }
-                            checked[ii + 1][jj + 1] = true;
-                        } else if (inside[ii + 1][jj + 1]) {
-                            inside_cnt++;
-                        }
+        final int lenX = len0;
+        final int lenY = len1;
+        if (lenX < 2 || lenY < 2) {
+            mask_field.setSamples(maskRange, false);
+            return;
+        }
 
-                        if (inside_cnt == 0) {
-                            continue;
-                        } else if (inside_cnt == 4) {
-                            for (int k = 0; k < count[idx]; k++) {
-                                maskRange[0][indexes[idx][k]] = maskVal;
-                            }
-                        } else if (inside_cnt > 0 && inside_cnt < 4) {
-                            for (int k = 0; k < count[idx]; k++) {
-                                float xx = vals_0[0][indexes[idx][k]];
-                                float yy = vals_1[0][indexes[idx][k]];
-                                if (DelaunayCustom.inside(curve, xx, yy)) {
-                                    maskRange[0][indexes[idx][k]] = maskVal;
-                                }
-                            }
-                        }
+        // First find which bin corners are inside the curve, only for
+        // corners of bins that have samples.
+        final boolean[] inside = new boolean[lenX * lenY];
+        ParallelRows.run(0, lenY - 1, parallelism, (start, stop) -> {
+            for (int jj = start; jj <= stop; jj++) {
+                for (int ii = 0; ii < lenX; ii++) {
+                    if (cornerNeeded(ii, jj)) {
+                        inside[jj * lenX + ii] = DelaunayCustom.inside(curve, samples0[0][ii], samples1[0][jj]);
                     }
                 }
             }
-        } else {
-            int len = set0.getLength();
-            checked = new boolean[len][len];
-            inside = new boolean[len][len];
-            for (int jj = 0; jj < len; jj++) {
-                java.util.Arrays.fill(checked[jj], false);
-                java.util.Arrays.fill(inside[jj], false);
-            }
-            for (int jj = 0; jj < len - 1; jj++) {
-                for (int ii = 0; ii < len - 1; ii++) {
-                    int idx = jj * set0.getLengthX() + ii; //Calclualting the index value in the start only.
-                    if (count[idx] > 0) { //No need to do go further if the frequency of particular value is zero.
-                        int inside_cnt = 0;
-                        if (!checked[ii][jj]) {
-                            float x = samples0[0][ii];
-                            float y = samples1[0][jj];
-                            if (DelaunayCustom.inside(curve, x, y)) {
-                                inside_cnt++;
-                                inside[ii][jj] = true;
-                            }
-                            checked[ii][jj] = true;
-                        } else if (inside[ii][jj]) {
-                            inside_cnt++;
-                        }
-
-                        if (!checked[ii + 1][jj]) {
-                            float x = samples0[0][ii + 1];
-                            float y = samples1[0][jj];
-                            if (DelaunayCustom.inside(curve, x, y)) {
-                                inside_cnt++;
-                                inside[ii + 1][jj] = true;
-                            }
-                            checked[ii + 1][jj] = true;
-                        } else if (inside[ii + 1][jj]) {
-                            inside_cnt++;
-                        }
-
-                        if (!checked[ii][jj + 1]) {
-                            float x = samples0[0][ii];
-                            float y = samples1[0][jj + 1];
-                            if (DelaunayCustom.inside(curve, x, y)) {
-                                inside_cnt++;
-                                inside[ii][jj + 1] = true;
-                            }
-                            checked[ii][jj + 1] = true;
-                        } else if (inside[ii][jj + 1]) {
-                            inside_cnt++;
-                        }
-
-                        if (!checked[ii + 1][jj + 1]) {
-                            float x = samples0[0][ii + 1];
-                            float y = samples1[0][jj + 1];
-                            if (DelaunayCustom.inside(curve, x, y)) {
-                                inside_cnt++;
-                                inside[ii + 1][jj + 1] = true;
-                            }
-                            checked[ii + 1][jj + 1] = true;
-                        } else if (inside[ii + 1][jj + 1]) {
-                            inside_cnt++;
-                        }
-                        if (inside_cnt == 0) {
-                            continue;
-                        }
-
-                        if (rangeType == Float.TYPE) {
-                            float[][] vals_0 = field_0.getFloats(false);
-                            float[][] vals_1 = field_1.getFloats(false);
-                            if (inside_cnt == 4) {
-
-                                for (int k = 0; k < count[idx]; k++) {
-                                    maskRange[0][indexes[idx][k]] = maskVal;
-                                    mask[(byte)maskVal][indexes[idx][k]] = (byte)maskVal;
-                                }
-                            }
-                            if (inside_cnt > 0 && inside_cnt < 4) {
-
-                                for (int k = 0; k < count[idx]; k++) {
-                                    float xx = vals_0[0][indexes[idx][k]];
-                                    float yy = vals_1[0][indexes[idx][k]];
-                                    if (DelaunayCustom.inside(curve, xx, yy)) {
-                                        maskRange[0][indexes[idx][k]] = maskVal;
-                                        mask[(byte)maskVal][indexes[idx][k]] = (byte)maskVal;
-                                    }
-                                }
-                            }
-                        } else if (rangeType == Double.TYPE) {
-                            double[][] vals_0 = field_0.getValues(false);
-                            double[][] vals_1 = field_1.getValues(false);
-                            if (inside_cnt == 4) {
-                                for (int k = 0; k < count[idx]; k++) {
-                                    maskRange[0][indexes[idx][k]] = maskVal;
-                                    mask[(byte)maskVal][indexes[idx][k]] = (byte)maskVal;
-                                }
-                            }
-                            if (inside_cnt > 0 && inside_cnt < 4) {
-
-                                for (int k = 0; k < count[idx]; k++) {
-                                    double xx = vals_0[0][indexes[idx][k]];
-                                    double yy = vals_1[0][indexes[idx][k]];
-                                    if (DelaunayCustom.inside(curve, (float) xx, (float) yy)) {
-                                        maskRange[0][indexes[idx][k]] = maskVal;
-                                        mask[(byte)maskVal][indexes[idx][k]] = (byte)maskVal;
-                                    }
-                                }
+        });
+
+        // Then mark the samples of each bin: all of them if the bin is
+        // inside the curve, none if it is outside, and sample by sample if
+        // the curve crosses it.
+        final float[] vals0f = flts_0;
+        final float[] vals1f = flts_1;
+        final double[] vals0d = dbls_0;
+        final double[] vals1d = dbls_1;
+        final int[][] rowSamples = new int[lenY - 1][];
+        final int[] rowLen = new int[lenY - 1];
+        ParallelRows.run(0, lenY - 2, parallelism, (start, stop) -> {
+            for (int jj = start; jj <= stop; jj++) {
+                int[] hits = new int[16];
+                int nHits = 0;
+                for (int ii = 0; ii < lenX - 1; ii++) {
+                    int idx = jj * lenX + ii;
+                    if (count[idx] == 0) { //No need to do go further if the frequency of particular value is zero.
+                        continue;
+                    }
+                    int inside_cnt = 0;
+                    if (inside[idx]) {
+                        inside_cnt++;
+                    }
+                    if (inside[idx + 1]) {
+                        inside_cnt++;
+                    }
+                    if (inside[idx + lenX]) {
+                        inside_cnt++;
+                    }
+                    if (inside[idx + lenX + 1]) {
+                        inside_cnt++;
+                    }
+                    if (inside_cnt == 0) {
+                        continue;
+                    }
+                    if (nHits + count[idx] > hits.length) {
+                        hits = java.util.Arrays.copyOf(hits, Math.max(2 * hits.length, nHits + count[idx]));
+                    }
+                    for (int t = binStart[idx]; t < binStart[idx + 1]; t++) {
+                        int k = binMembers[t];
+                        if (inside_cnt < 4) {
+                            float xx = (vals0d != null) ? (float) vals0d[k] : vals0f[k];
+                            float yy = (vals1d != null) ? (float) vals1d[k] : vals1f[k];
+                            if (!DelaunayCustom.inside(curve, xx, yy)) {
+                                continue;
                             }
                         }
+                        maskRange[0][k] = maskVal;
+                        mask[m][k] = m;
+                        hits[nHits++] = k;
                     }
                 }
+                rowSamples[jj] = hits;
+                rowLen[jj] = nHits;
             }
+        });
+        for (int jj = 0; jj < lenY - 1; jj++) {
+            addMarked(m, rowSamples[jj], rowLen[jj]);
         }
 
         mask_field.setSamples(maskRange, false);
     }
 
+    /**
+     * @return Whether any of the (up to four) bins having corner (ii, jj)
+     * is one that {@link #markMaskFieldByCurve} looks at and has samples.
+     */
+    private boolean cornerNeeded(int ii, int jj) {
+        for (int j = jj - 1; j <= jj; j++) {
+            if (j < 0 || j > len1 - 2) {
+                continue;
+            }
+            for (int i = ii - 1; i <= ii; i++) {
+                if (i >= 0 && i <= len0 - 2 && count[j * len0 + i] > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     private void reorder(byte maskVal) {
        order[2] = order[1];
        order[1] = order[0];
        order[0] = maskVal;
     }
 
+    /**
+     * Take samples that already hold a mask value in {@link #maskRange} as
+     * belonging to that mask, so that clearing the mask clears them too.
+     */
+    private void findMarked() {
+        float[] range = maskRange[0];
+        for (int k = 0; k < range.length; k++) {
+            float val = range[k];
+            if (val == 0f || val == 1f || val == 2f) {
+                addMarked((byte) val, new int[] {k}, 1);
+            }
+        }
+    }
+
+    private void addMarked(byte maskVal, int[] samples, int n) {
+        if (n == 0) {
+            return;
+        }
+        int len = markedLen[maskVal];
+        int[] all = marked[maskVal];
+        if (all == null || len + n > all.length) {
+            all = java.util.Arrays.copyOf((all == null) ? new int[0] : all, Math.max(len + n, 2 * len));
+            marked[maskVal] = all;
+        }
+        System.arraycopy(samples, 0, all, len, n);
+        markedLen[maskVal] = len + n;
+    }
+
+    /**
+     * Remove every sample from the given mask, clearing the ones that
+     * currently show it.
+     */
+    private void unmark(byte maskVal) {
+        int[] samples = marked[maskVal];
+        for (int t = 0; t < markedLen[maskVal]; t++) {
+            int k = samples[t];
+            if (maskRange[0][k] == maskVal) {
+                maskRange[0][k] = Float.NaN;
+            }
+            mask[maskVal][k] = Byte.MAX_VALUE;
+        }
+        marked[maskVal] = null;
+        markedLen[maskVal] = 0;
+    }
+
     public void clearMaskField(float maskVal) {
-        for (int k = 0; k < maskRange[0].length; k++) {
-            maskRange[0][k] = Float.NaN;
-            mask[(byte)maskVal][k] = Byte.MAX_VALUE;
+        byte m = (byte) maskVal;
+        int[] samples = marked[m];
+        int n = markedLen[m];
+        for (int t = 0; t < n; t++) {
+            maskRange[0][samples[t]] = Float.NaN;
+            mask[m][samples[t]] = Byte.MAX_VALUE;
         }
+        marked[m] = null;
+        markedLen[m] = 0;
 
         for (int t=0; t<order.length; t++) {
-           if (order[t] == (byte)maskVal) {
+           if (order[t] == m) {
                order[t] = Byte.MAX_VALUE;
            }
         }
 
+        // Only the samples that were in this mask can change; give them
+        // back the most recent mask that still holds them.
         for (int t=order.length-1; t >=0; t--) {
             if (order[t] != Byte.MAX_VALUE) {
-               for (int k=0; k<maskRange[0].length; k++) {
-                   if (mask[order[t]][k] != Byte.MAX_VALUE) {
+               byte[] other = mask[order[t]];
+               for (int s = 0; s < n; s++) {
+                   int k = samples[s];
+                   if (other[k] != Byte.MAX_VALUE) {
                       maskRange[0][k] = (float) order[t];
                    }
                }
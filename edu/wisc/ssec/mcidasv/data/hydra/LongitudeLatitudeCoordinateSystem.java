@@ -41,6 +41,8 @@ import java.awt.geom.Rectangle2D;
 import visad.data.hdfeos.LambertAzimuthalEqualArea;
 import visad.Data;
 
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
+
 
 public class LongitudeLatitudeCoordinateSystem extends CoordinateSystem {
 
@@ -55,6 +57,10 @@ public class LongitudeLatitudeCoordinateSystem extends CoordinateSystem {
 
    Gridded1DSet goodLinesSet;
 
+   //- bucket index over projSet, built on first use
+   transient SwathLocationIndex projIndex;
+   boolean useSpatialIndex = true;
+
    //- assumes incoming GriddedSet is (longitude,latitude) with range (-180,+180)
    boolean neg180pos180 = true;  //false: longitude range (0,+360)
 
@@ -185,7 +191,7 @@ public class LongitudeLatitudeCoordinateSystem extends CoordinateSystem {
      //float[][] grid_vals = gset.valueToGrid(values);
      // use the projected set
      values = projCS.fromReference(values);
-     float[][] grid_vals = projSet.valueToGrid(values);
+     float[][] grid_vals = projectedValueToGrid(values);
 
      // return original domain coordinates if missing geo lines were removed
      if (goodLinesSet != null) {
@@ -270,7 +276,7 @@ public class LongitudeLatitudeCoordinateSystem extends CoordinateSystem {
      }
 
      // use the projected set
-     float[][] grid_vals = projSet.valueToGrid(Set.doubleToFloat(values));
+     float[][] grid_vals = projectedValueToGrid(Set.doubleToFloat(values));
 
      // return original domain coordinates if missing geo lines were removed
      if (goodLinesSet != null) {
@@ -283,6 +289,38 @@ public class LongitudeLatitudeCoordinateSystem extends CoordinateSystem {
      return Set.floatToDouble(coords);
    }
 
+   /**
+    * Locate projected points in {@code projSet}, through the spatial index
+    * when it is enabled.
+    */
+   private float[][] projectedValueToGrid(float[][] values) throws VisADException {
+     if (!useSpatialIndex) {
+        return projSet.valueToGrid(values);
+     }
+     return getProjIndex().valueToGrid(values, ParallelRows.availableParallelism());
+   }
+
+   private synchronized SwathLocationIndex getProjIndex() throws VisADException {
+     if (projIndex == null) {
+        projIndex = new SwathLocationIndex(projSet);
+     }
+     return projIndex;
+   }
+
+   /**
+    * Turn the bucket index used by {@code fromReference} on or off. When
+    * off, every point is located by searching {@code projSet} directly.
+    *
+    * @param useSpatialIndex Whether to use the index.
+    */
+   public void setUseSpatialIndex(boolean useSpatialIndex) {
+     this.useSpatialIndex = useSpatialIndex;
+   }
+
+   public boolean getUseSpatialIndex() {
+     return useSpatialIndex;
+   }
+
    public Rectangle2D getDefaultMapArea() {
      float[] lo = domainSet.getLow();
      float[] hi = domainSet.getHi();
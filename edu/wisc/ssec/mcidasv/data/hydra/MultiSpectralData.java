@@ -31,6 +31,7 @@ package edu.wisc.ssec.mcidasv.data.hydra;
 import java.awt.geom.Rectangle2D;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -80,6 +81,12 @@ public class MultiSpectralData extends MultiDimensionAdapter {
   List<String> bandNameList = null;
   Map<String, Float> bandNameMap = null;
 
+  PlanckTransform planckTransform = null;
+  boolean usePlanckLUT = false;
+
+  float[] modisChannels = null;
+  int[] modisBandNumbers = null;
+
   
   public MultiSpectralData(SwathAdapter swathAdapter, SpectrumAdapter spectrumAdapter,
                            String inputParamName, String paramName, String sensorName, String platformName) {
@@ -134,10 +141,12 @@ public class MultiSpectralData extends MultiDimensionAdapter {
       throws Exception, VisADException, RemoteException {
     if (coords == null) return null;
     if (spectrumAdapter == null) return null;
-    spectrumSelect.put(SpectrumAdapter.x_dim_name, new double[] {(double)coords[0], (double)coords[0], 1.0});
-    spectrumSelect.put(SpectrumAdapter.y_dim_name, new double[] {(double)coords[1], (double)coords[1], 1.0});
+    //- private copy: probes may ask for spectra from several threads
+    Map<String, double[]> select = new HashMap<>(spectrumSelect);
+    select.put(SpectrumAdapter.x_dim_name, new double[] {(double)coords[0], (double)coords[0], 1.0});
+    select.put(SpectrumAdapter.y_dim_name, new double[] {(double)coords[1], (double)coords[1], 1.0});
 
-    FlatField spectrum = spectrumAdapter.getData(spectrumSelect);
+    FlatField spectrum = spectrumAdapter.getData(select);
     return convertSpectrum(spectrum, paramName);
   }
 
@@ -146,10 +155,12 @@ public class MultiSpectralData extends MultiDimensionAdapter {
     if (spectrumAdapter == null) return null;
     int[] coords = getSwathCoordinates(location, cs);
     if (coords == null) return null;
-    spectrumSelect.put(SpectrumAdapter.x_dim_name, new double[] {(double)coords[0], (double)coords[0], 1.0});
-    spectrumSelect.put(SpectrumAdapter.y_dim_name, new double[] {(double)coords[1], (double)coords[1], 1.0});
+    //- private copy: probes may ask for spectra from several threads
+    Map<String, double[]> select = new HashMap<>(spectrumSelect);
+    select.put(SpectrumAdapter.x_dim_name, new double[] {(double)coords[0], (double)coords[0], 1.0});
+    select.put(SpectrumAdapter.y_dim_name, new double[] {(double)coords[1], (double)coords[1], 1.0});
 
-    FlatField spectrum = spectrumAdapter.getData(spectrumSelect);
+    FlatField spectrum = spectrumAdapter.getData(select);
     return convertSpectrum(spectrum, paramName);
   }
 
@@ -644,26 +655,12 @@ public class MultiSpectralData extends MultiDimensionAdapter {
   }
 
   public float[] radianceToBrightnessTemp(float[] values, float channelValue) {
-    float c1=1.191066E-5f;           //- mW/m2/ster/cm^-4
-    float c2=1.438833f;              //- K*cm
-    float nu = channelValue;         //- nu: wavenumber
-    float B, K, BT;
-
-    int n_values = values.length;
-    float[] new_values = new float[n_values];
-    for (int i=0; i<n_values;i++) {
-      B = values[i];
-      K = (c1*nu*nu*nu)/B;
-      if (K == 0.0) {
-        BT = B;
-      } 
-      else {
-        BT = c2*nu/((float) (Math.log((double)((c1*nu*nu*nu)/B)+1.0f)) );
-      }
-      if (BT < 0.01) BT = Float.NaN;
-      new_values[i] = BT;
+    PlanckTransform planck = getPlanckTransform();
+    int channel = (planck != null) ? planck.indexOf(channelValue) : -1;
+    if (channel < 0) {
+      return PlanckTransform.planeToBrightnessTemp(values, channelValue);
     }
-    return new_values;
+    return planck.planeToBrightnessTemp(values, channel);
   }
 
   public float[] radianceToBrightnessTemp(float[] values, float channelValue, String platformName, String sensorName) 
@@ -689,23 +686,73 @@ public class MultiSpectralData extends MultiDimensionAdapter {
     //-   Paolo Antonelli
     //-   Wed Feb 25 16:43:05 CST 1998
 
-    float c1=1.191066E-5f;           //- mW/m2/ster/cm^-4
-    float c2=1.438833f;              //- K*cm
+    return getPlanckTransform(channelValues).spectrumToBrightnessTemp(values);
+  }
 
-    float nu;                        //- wavenumber
-    float B, BT;
+  /**
+   * Converts a batch of radiance spectra to brightness temperature, e.g. a
+   * whole cube laid out one spectrum after the other with the channel
+   * varying fastest.
+   *
+   * @param values Radiances [mW/ster/m2/cm^-1]. Length must be a multiple
+   * of the length of {@code channelValues}.
+   * @param channelValues Wavenumbers [cm^-1] of each channel.
+   *
+   * @return Brightness temperatures [K].
+   */
+  public float[] radianceToBrightnessTempSpectra(float[] values, float[] channelValues) {
+    return getPlanckTransform(channelValues).spectraToBrightnessTemp(values);
+  }
 
-    int n_values = values.length;
-    float[] new_values = new float[n_values];
-    for (int i=0; i<n_values; i++) {
-      nu = channelValues[i];
-      B = values[i];
-      BT = c2*nu/((float) (Math.log(((c1*nu*nu*nu)/B)+1.0f)) );
-      new_values[i] = BT;
+  /**
+   * @return Planck transform for the channels of the spectrum adapter, or
+   * {@code null} if there is no spectrum adapter.
+   */
+  synchronized PlanckTransform getPlanckTransform() {
+    PlanckTransform planck = planckTransform;
+    if ((planck == null) && (spectrumAdapter != null)) {
+      try {
+        float[] channels = spectrumAdapter.getDomainSet().getSamples(false)[0];
+        planck = getPlanckTransform(channels);
+      } catch (Exception e) {
+        logger.error("could not get channels for Planck transform", e);
+      }
     }
-    return new_values;
+    return planck;
   }
 
+  /**
+   * @param channelValues Channel wavenumbers [cm^-1].
+   *
+   * @return Planck transform for {@code channelValues}. The last one built
+   * is kept, since successive calls nearly always ask for the same channels.
+   */
+  synchronized PlanckTransform getPlanckTransform(float[] channelValues) {
+    if ((planckTransform == null) || !planckTransform.matches(channelValues)) {
+      planckTransform = new PlanckTransform(channelValues.clone());
+      planckTransform.setUseLUT(usePlanckLUT);
+    }
+    return planckTransform;
+  }
+
+  /**
+   * Whether radiances are converted to brightness temperature through
+   * per-channel lookup tables rather than evaluating the Planck function.
+   * The tables cover 150-350 K to within about 0.001 K; values outside of
+   * that range are still computed exactly.
+   *
+   * @param usePlanckLUT {@code true} to use the lookup tables.
+   */
+  public synchronized void setUsePlanckLUT(boolean usePlanckLUT) {
+    this.usePlanckLUT = usePlanckLUT;
+    if (planckTransform != null) {
+      planckTransform.setUseLUT(usePlanckLUT);
+    }
+  }
+
+  public synchronized boolean getUsePlanckLUT() {
+    return usePlanckLUT;
+  }
 
   public float[] radianceToBrightnessTempSpectrum(float[] values, float[] channelValues,
                                  String platformName, String sensorName) 
@@ -717,19 +764,31 @@ public class MultiSpectralData extends MultiDimensionAdapter {
       new_values =  radianceToBrightnessTempSpectrum(values, channelValues);
     }
     else if (Objects.equals(sensorName, "MODIS")) {
+      int[] bandNumbers = getModisBandNumbers(channelValues);
       new_values = new float[values.length];
+      double[] tmp = new double[1];
       for (int k=0; k<new_values.length; k++) {
-        int channelIndex = spectrumAdapter.getChannelIndexFromWavenumber(channelValues[k]);
-        int band_number = MODIS_L1B_Utility.emissive_indexToBandNumber(channelIndex);
-        float[] tmp = new float[1];
         tmp[0] = values[k];
-        new_values[k] = (MODIS_L1B_Utility.modis_radiance_to_brightnessTemp(platformName, band_number, tmp))[0];
+        new_values[k] = (float) (MODIS_L1B_Utility.modis_radiance_to_brightnessTemp(platformName, bandNumbers[k], tmp))[0];
       }
     }
 
     return new_values;
   }
 
+  private synchronized int[] getModisBandNumbers(float[] channelValues) throws Exception {
+    if ((modisBandNumbers == null) || !Arrays.equals(modisChannels, channelValues)) {
+      int[] bandNumbers = new int[channelValues.length];
+      for (int k=0; k<channelValues.length; k++) {
+        int channelIndex = spectrumAdapter.getChannelIndexFromWavenumber(channelValues[k]);
+        bandNumbers[k] = MODIS_L1B_Utility.emissive_indexToBandNumber(channelIndex);
+      }
+      modisChannels = channelValues.clone();
+      modisBandNumbers = bandNumbers;
+    }
+    return modisBandNumbers;
+  }
+
   public Map<String, double[]> getDefaultSubset() {
     Map<String, double[]> subset = swathAdapter.getDefaultSubset();
     double chanIdx=0;
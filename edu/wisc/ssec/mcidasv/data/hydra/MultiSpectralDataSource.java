@@ -1301,6 +1301,18 @@ public class MultiSpectralDataSource extends HydraDataSource {
      return ReprojectSwath.swathToGrid(grid, swath, (int)mode);
   }
 
+  /**
+   * Grid and swath must both have a CoordinateSystem with an Earth Reference.
+   * @param  grid  the new domain (target of reproject).
+   * @param  swath swath to be reprojected.
+   * @param  mode  See ReprojectSwath for details.
+   * @param  parallelism number of threads to reproject with.
+   */
+
+  public static FlatField swathToGrid(Linear2DSet grid, FlatField swath, double mode, int parallelism) throws Exception {
+     return ReprojectSwath.swathToGrid(grid, swath, (int)mode, true, parallelism);
+  }
+
   /* keep in here for now.
   public static FlatField swathToGrid(Linear2DSet grid, FlatField swath, double mode) throws Exception {
     FunctionType ftype = (FunctionType) swath.getType();
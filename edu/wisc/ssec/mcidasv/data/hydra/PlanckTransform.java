@@ -0,0 +1,364 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+package edu.wisc.ssec.mcidasv.data.hydra;
+
+import java.util.Arrays;
+
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
+
+/**
+ * Converts radiances [mW/ster/m2/cm^-1] to brightness temperatures [K] for
+ * a fixed set of channels.
+ *
+ * <p>The Planck constants for every channel (c1&middot;&nu;<sup>3</sup> and
+ * c2&middot;&nu;) are worked out once, when the transform is created, and
+ * whole planes or batches of spectra are converted in parallel once they
+ * are large enough to be worth it.</p>
+ *
+ * <p>Optionally, values can be read from per-channel lookup tables instead
+ * of calling {@code Math.log}, in the spirit of {@link LUTtransform}. The
+ * tables are indexed by the exponent and leading mantissa bits of the
+ * radiance, so they keep the same relative resolution from the cold to the
+ * warm end of the scene, and interpolate linearly within each entry. They
+ * cover {@link #DEFAULT_LUT_MIN_BT} to {@link #DEFAULT_LUT_MAX_BT} and are
+ * built the first time a channel is converted; radiances outside of that
+ * range are computed exactly.</p>
+ */
+public class PlanckTransform {
+
+   public static final float C1 = 1.191066E-5f;   //- mW/m2/ster/cm^-4
+   public static final float C2 = 1.438833f;      //- K*cm
+
+   /** Coldest brightness temperature covered by the lookup tables. */
+   public static final float DEFAULT_LUT_MIN_BT = 150f;
+
+   /** Warmest brightness temperature covered by the lookup tables. */
+   public static final float DEFAULT_LUT_MAX_BT = 350f;
+
+   /** Arrays at least this long are converted in parallel. */
+   public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+   private static final int BLOCK_SIZE = 1 << 14;
+
+   /** Mantissa bits below the ones used to index the lookup tables. */
+   private static final int LUT_SHIFT = 16;
+   private static final int LUT_FRAC_MASK = (1 << LUT_SHIFT) - 1;
+   private static final float LUT_FRAC_SCALE = 1f / (1 << LUT_SHIFT);
+
+   private final float[] wavenumbers;
+   private final float[] c1nu3;
+   private final float[] c2nu;
+
+   private final Table[] luts;
+
+   private volatile boolean useLUT = false;
+   private int parallelism = ParallelRows.availableParallelism();
+
+   /**
+    * @param wavenumbers Channel wavenumbers [cm^-1]. Not copied, callers
+    * must not change the array afterwards.
+    */
+   public PlanckTransform(float[] wavenumbers) {
+      this.wavenumbers = wavenumbers;
+      int numChannels = wavenumbers.length;
+      c1nu3 = new float[numChannels];
+      c2nu = new float[numChannels];
+      for (int k=0; k<numChannels; k++) {
+         float nu = wavenumbers[k];
+         c1nu3[k] = C1*nu*nu*nu;
+         c2nu[k] = C2*nu;
+      }
+      luts = new Table[numChannels];
+   }
+
+   public int getNumChannels() {
+      return wavenumbers.length;
+   }
+
+   /**
+    * @param channels Channel wavenumbers to compare against.
+    *
+    * @return Whether this transform was built for {@code channels}.
+    */
+   public boolean matches(float[] channels) {
+      return (channels == wavenumbers) || Arrays.equals(channels, wavenumbers);
+   }
+
+   /**
+    * @param wavenumber Channel wavenumber [cm^-1].
+    *
+    * @return Index of the channel with exactly this wavenumber, or
+    * {@code -1} if there is none.
+    */
+   public int indexOf(float wavenumber) {
+      for (int k=0; k<wavenumbers.length; k++) {
+         if (wavenumbers[k] == wavenumber) {
+            return k;
+         }
+      }
+      return -1;
+   }
+
+   public void setUseLUT(boolean useLUT) {
+      this.useLUT = useLUT;
+   }
+
+   public boolean getUseLUT() {
+      return useLUT;
+   }
+
+   public void setParallelism(int parallelism) {
+      this.parallelism = parallelism;
+   }
+
+   public int getParallelism() {
+      return parallelism;
+   }
+
+   /**
+    * Convert a plane of radiances for one channel, as
+    * {@link MultiSpectralData#radianceToBrightnessTemp(float[], float)}
+    * does: a zero radiance term passes the value through, and temperatures
+    * below 0.01 K become {@code NaN}.
+    *
+    * @param values Radiances.
+    * @param channel Channel index.
+    *
+    * @return New array of brightness temperatures.
+    */
+   public float[] planeToBrightnessTemp(float[] values, int channel) {
+      float[] bt = new float[values.length];
+      Table lut = useLUT ? getLUT(channel) : null;
+      float k1 = c1nu3[channel];
+      float k2 = c2nu[channel];
+      forBlocks(values.length, (start, stop) -> {
+         for (int i=start; i<stop; i++) {
+            float B = values[i];
+            float T = (lut != null) ? lut.lookup(B) : Float.NaN;
+            bt[i] = (T == T) ? T : planeValue(k1, k2, B);
+         }
+      });
+      return bt;
+   }
+
+   /**
+    * Convert a plane of radiances for a channel that has no precomputed
+    * constants. Same conventions as {@link #planeToBrightnessTemp(float[], int)}.
+    *
+    * @param values Radiances.
+    * @param wavenumber Channel wavenumber [cm^-1].
+    *
+    * @return New array of brightness temperatures.
+    */
+   public static float[] planeToBrightnessTemp(float[] values, float wavenumber) {
+      float[] bt = new float[values.length];
+      float k1 = C1*wavenumber*wavenumber*wavenumber;
+      float k2 = C2*wavenumber;
+      forBlocks(values.length, ParallelRows.availableParallelism(), (start, stop) -> {
+         for (int i=start; i<stop; i++) {
+            bt[i] = planeValue(k1, k2, values[i]);
+         }
+      });
+      return bt;
+   }
+
+   /**
+    * Convert one spectrum, with a value for every channel.
+    *
+    * @param values Radiances, in channel order.
+    *
+    * @return New array of brightness temperatures.
+    */
+   public float[] spectrumToBrightnessTemp(float[] values) {
+      float[] bt = new float[values.length];
+      convertSpectra(values, bt, 0, 1);
+      return bt;
+   }
+
+   /**
+    * Convert a batch of spectra laid out one after the other, channel
+    * varying fastest. Spectra are spread over worker threads.
+    *
+    * @param values Radiances. Length must be a multiple of the number of
+    * channels.
+    *
+    * @return New array of brightness temperatures.
+    *
+    * @throws IllegalArgumentException if the length of {@code values} is
+    * not a multiple of the number of channels.
+    */
+   public float[] spectraToBrightnessTemp(float[] values) {
+      int numChannels = wavenumbers.length;
+      if ((numChannels == 0) || ((values.length % numChannels) != 0)) {
+         throw new IllegalArgumentException("values length "+values.length+
+                                            " is not a multiple of "+numChannels+" channels");
+      }
+      float[] bt = new float[values.length];
+      int numSpectra = values.length / numChannels;
+      int spectraPerBlock = Math.max(1, BLOCK_SIZE / numChannels);
+      int numBlocks = (numSpectra + spectraPerBlock - 1) / spectraPerBlock;
+      int threads = (values.length < PARALLEL_THRESHOLD) ? 1 : parallelism;
+      run(numBlocks, threads, (start, stop) -> {
+         int first = start*spectraPerBlock;
+         int count = Math.min(numSpectra, stop*spectraPerBlock) - first;
+         convertSpectra(values, bt, first, count);
+      });
+      return bt;
+   }
+
+   private void convertSpectra(float[] values, float[] bt, int firstSpectrum, int numSpectra) {
+      int numChannels = wavenumbers.length;
+      Table[] tables = null;
+      if (useLUT) {
+         tables = new Table[numChannels];
+         for (int c=0; c<numChannels; c++) {
+            tables[c] = getLUT(c);
+         }
+      }
+      int idx = firstSpectrum*numChannels;
+      for (int s=0; s<numSpectra; s++) {
+         for (int c=0; c<numChannels; c++, idx++) {
+            float B = values[idx];
+            float T = (tables != null) ? tables[c].lookup(B) : Float.NaN;
+            bt[idx] = (T == T) ? T : spectrumValue(c1nu3[c], c2nu[c], B);
+         }
+      }
+   }
+
+   //- Same arithmetic, including float/double promotion, as the scalar
+   //- loops these replace in MultiSpectralData, so results are unchanged.
+
+   private static float planeValue(float k1, float k2, float B) {
+      float K = k1/B;
+      float BT;
+      if (K == 0.0) {
+         BT = B;
+      }
+      else {
+         BT = k2/((float) (Math.log((double)(k1/B)+1.0f)));
+      }
+      if (BT < 0.01) BT = Float.NaN;
+      return BT;
+   }
+
+   private static float spectrumValue(float k1, float k2, float B) {
+      return k2/((float) (Math.log((k1/B)+1.0f)));
+   }
+
+   private Table getLUT(int channel) {
+      Table lut = luts[channel];
+      if (lut == null) {
+         synchronized (luts) {
+            lut = luts[channel];
+            if (lut == null) {
+               lut = new Table(c1nu3[channel], c2nu[channel]);
+               luts[channel] = lut;
+            }
+         }
+      }
+      return lut;
+   }
+
+   /**
+    * Brightness temperature tabulated at every radiance whose low
+    * {@link #LUT_SHIFT} bits are zero, between the radiances of
+    * {@link #DEFAULT_LUT_MIN_BT} and {@link #DEFAULT_LUT_MAX_BT}.
+    */
+   private static final class Table {
+      private final int first;
+      private final float[] values;
+
+      Table(double k1, double k2) {
+         float minB = (float) (k1/(Math.exp(k2/DEFAULT_LUT_MIN_BT) - 1.0));
+         float maxB = (float) (k1/(Math.exp(k2/DEFAULT_LUT_MAX_BT) - 1.0));
+         int lo = Float.floatToRawIntBits(minB) >> LUT_SHIFT;
+         int hi = (Float.floatToRawIntBits(maxB) >> LUT_SHIFT) + 1;
+         if (!(minB > 0f) || (hi <= lo)) {
+            first = 0;
+            values = new float[0];
+            return;
+         }
+         first = lo;
+         values = new float[hi - lo + 1];
+         for (int i=0; i<values.length; i++) {
+            double B = Float.intBitsToFloat((lo + i) << LUT_SHIFT);
+            values[i] = (float) (k2/Math.log(k1/B + 1.0));
+         }
+      }
+
+      /**
+       * @return Interpolated brightness temperature, or {@code NaN} if
+       * {@code B} is outside of the table.
+       */
+      float lookup(float B) {
+         int bits = Float.floatToRawIntBits(B);
+         int seg = (bits >> LUT_SHIFT) - first;
+         if ((seg < 0) || (seg >= values.length - 1)) {
+            return Float.NaN;
+         }
+         float frac = (bits & LUT_FRAC_MASK)*LUT_FRAC_SCALE;
+         return values[seg] + frac*(values[seg+1] - values[seg]);
+      }
+   }
+
+   private interface Block {
+      void run(int start, int stop);
+   }
+
+   private void forBlocks(int length, Block block) {
+      forBlocks(length, parallelism, block);
+   }
+
+   /**
+    * Run {@code block} over {@code [0, length)} in pieces of
+    * {@link #BLOCK_SIZE}, in parallel once {@code length} reaches
+    * {@link #PARALLEL_THRESHOLD}.
+    */
+   private static void forBlocks(int length, int parallelism, Block block) {
+      int numBlocks = (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      int threads = (length < PARALLEL_THRESHOLD) ? 1 : parallelism;
+      run(numBlocks, threads, (start, stop) ->
+         block.run(start*BLOCK_SIZE, Math.min(length, stop*BLOCK_SIZE)));
+   }
+
+   /**
+    * Run {@code block} over block indexes {@code [0, numBlocks)}. The
+    * arguments handed to {@code block} are block indexes, stop exclusive.
+    */
+   private static void run(int numBlocks, int parallelism, Block block) {
+      try {
+         ParallelRows.run(0, numBlocks - 1, 1, parallelism, (first, last) -> block.run(first, last + 1));
+      }
+      catch (RuntimeException e) {
+         throw e;
+      }
+      catch (Exception e) {
+         throw new IllegalStateException(e);
+      }
+   }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+package edu.wisc.ssec.mcidasv.data.hydra;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Flat storage for the four bounding quad corners (LL, LR, UL, UR) that
+ * {@link ReprojectSwath} finds for every target grid point.
+ *
+ * <p>A corner is always within three grid cells of the grid point it
+ * belongs to, so it is stored as a single byte encoding the (dx, dy)
+ * offset instead of as an absolute grid index. Four corners therefore
+ * take four bytes per grid point, held in one contiguous buffer that can
+ * optionally live outside of the Java heap.</p>
+ */
+public class QuadIndex {
+
+   public static final int LL = 0;
+   public static final int LR = 1;
+   public static final int UL = 2;
+   public static final int UR = 3;
+
+   private static final int MAX_OFFSET = 3;
+   private static final int SPAN = 2*MAX_OFFSET + 1;
+   private static final byte MISSING = -1;
+
+   private final ByteBuffer buffer;
+   private final int gridXLen;
+   private final int gridLen;
+
+   /**
+    * @param gridXLen Number of grid points along X.
+    * @param gridYLen Number of grid points along Y.
+    * @param offHeap Whether to allocate the index outside of the Java heap.
+    */
+   public QuadIndex(int gridXLen, int gridYLen, boolean offHeap) {
+      this.gridXLen = gridXLen;
+      this.gridLen = gridXLen*gridYLen;
+      int size = 4*gridLen;
+      buffer = offHeap ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+      clear();
+   }
+
+   /**
+    * Mark every corner of every grid point as missing.
+    */
+   public void clear() {
+      if (buffer.hasArray()) {
+         Arrays.fill(buffer.array(), buffer.arrayOffset(), buffer.arrayOffset() + buffer.capacity(), MISSING);
+      }
+      else {
+         for (int k=0; k<gridLen; k++) {
+            buffer.putInt(4*k, -1);
+         }
+      }
+   }
+
+   /**
+    * @param grdIdx Grid point.
+    * @param corner One of {@link #LL}, {@link #LR}, {@link #UL}, {@link #UR}.
+    * @param idx Grid index of the corner, or {@code -1} if none was found.
+    */
+   public void set(int grdIdx, int corner, int idx) {
+      byte code = MISSING;
+      if (idx >= 0) {
+         int dx = (idx % gridXLen) - (grdIdx % gridXLen);
+         int dy = (idx / gridXLen) - (grdIdx / gridXLen);
+         code = (byte) ((dy + MAX_OFFSET)*SPAN + (dx + MAX_OFFSET));
+      }
+      buffer.put(4*grdIdx + corner, code);
+   }
+
+   /**
+    * @param grdIdx Grid point.
+    * @param corner One of {@link #LL}, {@link #LR}, {@link #UL}, {@link #UR}.
+    *
+    * @return Grid index of the corner, or {@code -1} if there is none.
+    */
+   public int get(int grdIdx, int corner) {
+      byte code = buffer.get(4*grdIdx + corner);
+      if (code == MISSING) {
+         return -1;
+      }
+      int dx = (code % SPAN) - MAX_OFFSET;
+      int dy = (code / SPAN) - MAX_OFFSET;
+      return grdIdx + dx + dy*gridXLen;
+   }
+
+   public boolean isOffHeap() {
+      return buffer.isDirect();
+   }
+
+   /**
+    * @return Size of the index in bytes.
+    */
+   public long getSize() {
+      return buffer.capacity();
+   }
+}
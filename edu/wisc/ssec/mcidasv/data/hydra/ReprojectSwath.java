@@ -29,6 +29,8 @@ package edu.wisc.ssec.mcidasv.data.hydra;
 
 import java.rmi.RemoteException;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import visad.CoordinateSystem;
 import visad.FlatField;
@@ -38,10 +40,11 @@ import visad.RealTupleType;
 import visad.RealType;
 import visad.SetType;
 import visad.VisADException;
-import visad.util.ThreadManager;
+
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
 
 public class ReprojectSwath {
-  private static int count = 0;
+  private static final AtomicInteger count = new AtomicInteger();
 
   Linear2DSet grid;
   Linear2DSet swathDomain;
@@ -66,39 +69,79 @@ public class ReprojectSwath {
   int rngTupDim;
   FlatField grdFF;
 
-  int[][][] quads;
+  QuadIndex quads;
   int mode;
+
+  // valid (non-missing) swath samples that swathGridCoord, swathIndexAtGrid
+  // and quads were last computed for; quads are reused while this holds.
+  BitSet footprint = null;
+  boolean quadsValid = false;
   
   public static final int NEAREST = 1;
   public static final int BILINEAR_VISAD = 0;
   
-  int numProc = Runtime.getRuntime().availableProcessors();
-  private static boolean doParallel = false;
-
-  private static ReprojectSwath lastReproject = null;
+  // swaths shorter than this are always processed on the calling thread
+  private static final int MIN_PARALLEL_TRACK_LEN = 200;
 
+  int parallelism = 1;
+  private static boolean doParallel = false;
+  private static boolean offHeapQuads = false;
+
+  private static final ReprojectSwathCache geometryCache = new ReprojectSwathCache();
+
+  /**
+   * Sets the parallelism used by the {@code swathToGrid} variants that do
+   * not take an explicit parallelism level.
+   *
+   * @param enable {@code true} to use all available processors.
+   *
+   * @deprecated Pass a parallelism level to
+   * {@link #swathToGrid(Linear2DSet, FlatField, int, boolean, int)} instead.
+   */
+  @Deprecated
   public static void setDoParallel(boolean enable) {
      doParallel = enable;
   }
+
+  private static int getDefaultParallelism() {
+     return doParallel ? ParallelRows.availableParallelism() : 1;
+  }
+
+  /**
+   * Whether new instances should keep their {@link QuadIndex} outside of
+   * the Java heap.
+   *
+   * @param enable {@code true} to allocate quad indexes off-heap.
+   */
+  public static void setOffHeapQuads(boolean enable) {
+     offHeapQuads = enable;
+  }
+
+  public static ReprojectSwathCache getGeometryCache() {
+     return geometryCache;
+  }
   
   public static FlatField swathToGrid(Linear2DSet grid, FlatField[] swaths, int mode) throws Exception {
      return swathToGrid(grid, swaths, mode, true);
   }
   
   public static FlatField swathToGrid(Linear2DSet grid, FlatField[] swaths, int mode, boolean filter) throws Exception {
+     return swathToGrid(grid, swaths, mode, filter, getDefaultParallelism());
+  }
+
+  public static FlatField swathToGrid(Linear2DSet grid, FlatField[] swaths, int mode, boolean filter, int parallelism) throws Exception {
+    int cnt = count.getAndIncrement();
     FunctionType ftype = (FunctionType) swaths[0].getType();
     visad.Set domSet = swaths[0].getDomainSet();
 
     FlatField swath = new FlatField(new FunctionType(ftype.getDomain(),
         new RealTupleType(new RealType[] 
-           {RealType.getRealType("redimage_"+count), RealType.getRealType("greenimage_"+count), RealType.getRealType("blueimage_"+count)})), domSet);
+           {RealType.getRealType("redimage_"+cnt), RealType.getRealType("greenimage_"+cnt), RealType.getRealType("blueimage_"+cnt)})), domSet);
 
     swath.setSamples(new float[][]
         {swaths[0].getFloats(false)[0], swaths[1].getFloats(false)[0], swaths[2].getFloats(false)[0]});
 
-    count++;
-
-    return swathToGrid(grid, swath, mode);
+    return swathToGrid(grid, swath, mode, filter, parallelism);
   }
   
   public static FlatField swathToGrid(Linear2DSet grid, FlatField swath, int mode) throws Exception {
@@ -106,24 +149,42 @@ public class ReprojectSwath {
   }
   
   public static FlatField swathToGrid(Linear2DSet grid, FlatField swath, int mode, boolean filter) throws Exception {
-    ReprojectSwath obj = null;
+     return swathToGrid(grid, swath, mode, filter, getDefaultParallelism());
+  }
+
+  /**
+   * Reproject {@code swath} onto {@code grid}.
+   *
+   * @param grid Target grid.
+   * @param swath Swath to reproject.
+   * @param mode {@link #NEAREST} or {@link #BILINEAR_VISAD}.
+   * @param filter Whether to smooth the result.
+   * @param parallelism Number of threads to use. Rows are split into tiles
+   *                    and balanced across threads by work stealing; one
+   *                    or less runs everything on the calling thread.
+   *
+   * @return {@code swath} on the new grid.
+   *
+   * @throws Exception if the reprojection failed.
+   */
+  public static FlatField swathToGrid(Linear2DSet grid, FlatField swath, int mode, boolean filter, int parallelism) throws Exception {
+    Linear2DSet swathDomain = (Linear2DSet) swath.getDomainSet();
+    ReprojectSwath obj = geometryCache.get(grid, swathDomain);
     FlatField ff = null;
 
-    if (lastReproject != null) {
-       if (grid.equals(lastReproject.grid) && (swath.getDomainSet()).equals(lastReproject.swathDomain)) {
-         obj = lastReproject;
-         ff = obj.reproject(swath, mode, filter);
-       }
-       else {
-         obj = new ReprojectSwath(grid, swath);
-         ff = obj.reproject(mode, filter);
+    if (obj != null) {
+       synchronized (obj) {
+          obj.setParallelism(parallelism);
+          ff = obj.reproject(swath, mode, filter);
+          obj.releaseRange();
        }
     }
     else {
-      obj = new ReprojectSwath(grid, swath);
-      ff = obj.reproject(mode, filter);
+       obj = new ReprojectSwath(grid, swath, parallelism);
+       ff = obj.reproject(mode, filter);
+       obj.releaseRange();
+       geometryCache.put(obj);
     }
-    lastReproject = obj;
 
     return ff;
   }
@@ -132,15 +193,29 @@ public class ReprojectSwath {
   }
   
   public ReprojectSwath(Linear2DSet grid, FlatField swath) throws Exception {
+    this(grid, swath, getDefaultParallelism());
+  }
+
+  public ReprojectSwath(Linear2DSet grid, FlatField swath, int parallelism) throws Exception {
       
     init(grid, swath);
     
-    if (trackLen < 200 || doParallel == false) {
-        numProc = 1;
-    }
+    setParallelism(parallelism);
 
     projectSwathToGrid();
   }
+
+  /**
+   * @param parallelism Number of threads used by the reprojection steps.
+   *                    Small swaths always run on the calling thread.
+   */
+  public void setParallelism(int parallelism) {
+     this.parallelism = (trackLen < MIN_PARALLEL_TRACK_LEN) ? 1 : Math.max(1, parallelism);
+  }
+
+  public int getParallelism() {
+     return parallelism;
+  }
   
   private void init(Linear2DSet grid, FlatField swath) throws VisADException {
      this.grid = grid;
@@ -164,7 +239,7 @@ public class ReprojectSwath {
      swathGridCoord = new float[2][gridLen];
      swathIndexAtGrid = new int[gridLen];
     
-     quads = new int[gridYLen][gridXLen][4];
+     quads = new QuadIndex(gridXLen, gridYLen, offHeapQuads);
    }
 
   /*
@@ -184,7 +259,10 @@ public class ReprojectSwath {
     
     initGrid();
 
-    getBoundingQuadAtGridPts();
+    if (!quadsValid) {
+       getBoundingQuadAtGridPts();
+       quadsValid = true;
+    }
 
     interpolateToGrid();
     
@@ -205,7 +283,10 @@ public class ReprojectSwath {
      
      initGrid();
      
-     getBoundingQuadAtGridPts();
+     if (!quadsValid) {
+        getBoundingQuadAtGridPts();
+        quadsValid = true;
+     }
      
      interpolateToGrid();
      
@@ -220,29 +301,7 @@ public class ReprojectSwath {
   }
   
    private void getBoundingQuadAtGridPts() throws VisADException, RemoteException {
-    int ystart = 3;
-    int ystop = gridYLen-4;
-    int subLen = ((ystop - ystart)+1)/numProc;
-    int rem = ((ystop - ystart)+1) % numProc;
-    
-    
-    ThreadManager threadManager = new ThreadManager("getBoundingQuadAtGridPts");
-    for (int i=0; i<numProc; i++) {
-        final int start = i*subLen + ystart;
-        final int stop = (i != numProc-1 ) ? (start + subLen - 1): (start + subLen + rem - 1);
-          threadManager.addRunnable(new ThreadManager.MyRunnable() {
-                  public void run()  throws Exception {
-                     getBoundingQuadAtGridPts(start, stop);
-                  }
-              });
-    }
-    
-    if (numProc == 1 || !doParallel) {
-       threadManager.runSequentially();
-    }
-    else {
-       threadManager.runAllParallel();
-    }
+    runRows(3, gridYLen-4, this::getBoundingQuadAtGridPts);
   }
 
   // start to stop inclusive
@@ -252,44 +311,23 @@ public class ReprojectSwath {
        for (int i=3; i<gridXLen-3; i++) {
           int grdIdx = i + j*gridXLen;
 
-          int ll = findSwathGridLoc(grdIdx, swathGridCoord, gridYLen, gridXLen, "LL");
-          quads[j][i][0] = ll;
+          int ll = findSwathGridLoc(grdIdx, swathGridCoord, gridYLen, gridXLen, QuadIndex.LL);
+          quads.set(grdIdx, QuadIndex.LL, ll);
 
-          int lr = findSwathGridLoc(grdIdx, swathGridCoord, gridYLen, gridXLen, "LR");
-          quads[j][i][1] = lr;
+          int lr = findSwathGridLoc(grdIdx, swathGridCoord, gridYLen, gridXLen, QuadIndex.LR);
+          quads.set(grdIdx, QuadIndex.LR, lr);
 
-          int ul = findSwathGridLoc(grdIdx, swathGridCoord, gridYLen, gridXLen, "UL");
-          quads[j][i][2] = ul;
+          int ul = findSwathGridLoc(grdIdx, swathGridCoord, gridYLen, gridXLen, QuadIndex.UL);
+          quads.set(grdIdx, QuadIndex.UL, ul);
 
-          int ur = findSwathGridLoc(grdIdx, swathGridCoord, gridYLen, gridXLen, "UR");
-          quads[j][i][3] = ur;
+          int ur = findSwathGridLoc(grdIdx, swathGridCoord, gridYLen, gridXLen, QuadIndex.UR);
+          quads.set(grdIdx, QuadIndex.UR, ur);
        }
     }
   }
   
   public void interpolateToGrid() throws VisADException, RemoteException {
-    int ystart = 3;
-    int ystop = gridYLen-4;
-    int subLen = ((ystop - ystart)+1)/numProc;
-    int rem = ((ystop - ystart)+1) % numProc;
-    
-    ThreadManager threadManager = new ThreadManager("interpolateToGrid");
-    for (int i=0; i<numProc; i++) {
-        final int start = i*subLen + ystart;
-        final int stop = (i != numProc-1 ) ? (start + subLen - 1): (start + subLen + rem - 1);
-          threadManager.addRunnable(new ThreadManager.MyRunnable() {
-                  public void run()  throws Exception {
-                     interpolateToGrid(start, stop);
-                  }
-              });
-    }
-    
-    if (numProc == 1 || !doParallel) {
-       threadManager.runSequentially();
-    }
-    else {
-       threadManager.runAllParallel();
-    }
+    runRows(3, gridYLen-4, this::interpolateToGrid);
   }
 
   // start to stop inclusive
@@ -310,10 +348,10 @@ public class ReprojectSwath {
           java.util.Arrays.fill(corners[0], Float.NaN);
           java.util.Arrays.fill(corners[1], Float.NaN);
         
-          int ll = quads[j][i][0];
-          int lr = quads[j][i][1];
-          int ul = quads[j][i][2];
-          int ur = quads[j][i][3];
+          int ll = quads.get(grdIdx, QuadIndex.LL);
+          int lr = quads.get(grdIdx, QuadIndex.LR);
+          int ul = quads.get(grdIdx, QuadIndex.UL);
+          int ur = quads.get(grdIdx, QuadIndex.UR);
 
           if (ll >= 0) {
              corners[0][0] = swathGridCoord[0][ll] - gx;
@@ -404,25 +442,22 @@ public class ReprojectSwath {
   }
 
  public void projectSwathToGrid() throws VisADException, RemoteException {
-    int subLen = trackLen/numProc;
-    int rem = trackLen % numProc;
-    
-    ThreadManager threadManager = new ThreadManager("projectSwathToGrid");
-    for (int i=0; i<numProc; i++) {
-        final int start = i*subLen;
-        final int stop = (i != numProc-1 ) ? (start + subLen - 1): (start + subLen + rem - 1);
-          threadManager.addRunnable(new ThreadManager.MyRunnable() {
-                  public void run()  throws Exception {
-                     projectSwathToGrid(start, stop);
-                  }
-              });
+    runRows(0, trackLen-1, this::projectSwathToGrid);
+ }
+
+ /**
+  * Run {@code task} over rows {@code start} to {@code stop} (inclusive),
+  * as work-stealing row tiles when {@link #parallelism} is above one.
+  */
+ private void runRows(int start, int stop, ParallelRows.RowRange task) throws VisADException, RemoteException {
+    try {
+       ParallelRows.run(start, stop, parallelism, task);
     }
-    
-    if (numProc == 1 || !doParallel) {
-       threadManager.runSequentially();
+    catch (VisADException | RemoteException | RuntimeException e) {
+       throw e;
     }
-    else {
-       threadManager.runAllParallel();
+    catch (Exception e) {
+       throw new VisADException("ReprojectSwath: " + e);
     }
  }
  
@@ -453,30 +488,39 @@ public class ReprojectSwath {
  }
  
  public void initGrid() throws VisADException {
-    Arrays.fill(swathGridCoord[0], -999.9f);
-    Arrays.fill(swathGridCoord[1], -999.9f);
-    Arrays.fill(swathIndexAtGrid, -1);
-
-    for (int j=0; j < trackLen; j++) {
-       for (int i=0; i < xtrackLen; i++) {
-         int swathIdx = j*xtrackLen + i;
-         float val = swathRange[0][swathIdx];
-         int k = allSwathGridIndexs[swathIdx];
-         
-         if ( !(Float.isNaN(val)) && ((k >=0) && (k < gridLen)) ) { // val or val[rngTupDim] ?
-            if (swathIndexAtGrid[k] == -1) {
-               swathGridCoord[0][k] = allSwathGridCoords[0][swathIdx];
-               swathGridCoord[1][k] = allSwathGridCoords[1][swathIdx];
-               swathIndexAtGrid[k] = swathIdx;
-            }
-         }
+    int swathLen = trackLen*xtrackLen;
+    BitSet valid = new BitSet(swathLen);
+    for (int swathIdx=0; swathIdx < swathLen; swathIdx++) {
+       if (!Float.isNaN(swathRange[0][swathIdx])) {
+          valid.set(swathIdx);
        }
     }
-    
-    for (int j=0; j<gridYLen; j++) {
-       for (int i=0; i<gridXLen; i++) {
-          java.util.Arrays.fill(quads[j][i], -1);
+
+    // swathGridCoord, swathIndexAtGrid and the quads only depend on the
+    // projected swath and which samples are missing: skip if unchanged.
+    if (!valid.equals(footprint)) {
+       Arrays.fill(swathGridCoord[0], -999.9f);
+       Arrays.fill(swathGridCoord[1], -999.9f);
+       Arrays.fill(swathIndexAtGrid, -1);
+
+       for (int j=0; j < trackLen; j++) {
+          for (int i=0; i < xtrackLen; i++) {
+            int swathIdx = j*xtrackLen + i;
+            int k = allSwathGridIndexs[swathIdx];
+
+            if ( valid.get(swathIdx) && ((k >=0) && (k < gridLen)) ) { // val or val[rngTupDim] ?
+               if (swathIndexAtGrid[k] == -1) {
+                  swathGridCoord[0][k] = allSwathGridCoords[0][swathIdx];
+                  swathGridCoord[1][k] = allSwathGridCoords[1][swathIdx];
+                  swathIndexAtGrid[k] = swathIdx;
+               }
+            }
+          }
        }
+
+       quads.clear();
+       footprint = valid;
+       quadsValid = false;
     }
     
     RealTupleType rtt = ((SetType)grid.getType()).getDomain();
@@ -488,6 +532,30 @@ public class ReprojectSwath {
     }
  }
 
+ /**
+  * Drop references to the swath and grid range values so that a cached
+  * instance only holds on to its geometry.
+  */
+ void releaseRange() {
+    swathRange = null;
+    gridRange = null;
+    grdFF = null;
+ }
+
+ /**
+  * Rough estimate of the heap used by the geometry arrays of this object.
+  *
+  * @return Size in bytes.
+  */
+ public long getEstimatedSize() {
+    long swathLen = (long) trackLen * xtrackLen;
+    long size = swathLen * (2 * 4 + 4);         // allSwathGridCoords, allSwathGridIndexs
+    size += (long) gridLen * (2 * 4 + 4);       // swathGridCoord, swathIndexAtGrid
+    size += quads.getSize();                    // quads, on or off heap
+    size += swathLen / 8;                       // footprint
+    return size;
+ }
+
  private float[][] filter() throws VisADException, RemoteException {
 
     double mag = 3.0;
@@ -518,9 +586,17 @@ public class ReprojectSwath {
     for (int t=0; t<rngTupDim; t++) {
        java.util.Arrays.fill(newRange[t], Float.NaN);
     }
+
+    runRows(2, gridYLen-3, (start, stop) -> filter(start, stop, weights, newRange));
+
+    return newRange;
+ }
+
+ // start to stop inclusive
+ private void filter(int grdYstart, int grdYstop, float[][] weights, float[][] newRange) {
     float[] sum = new float[rngTupDim];
 
-    for (int j=2; j<gridYLen-2; j++) {
+    for (int j=grdYstart; j<=grdYstop; j++) {
        for (int i=2; i<gridXLen-2; i++) {
          int grdIdx = i + j*gridXLen;
 
@@ -540,10 +616,9 @@ public class ReprojectSwath {
          }
        }
     }
-
-    return newRange;
  }
- private static int findSwathGridLoc(int grdIdx, float[][] swathGridCoord, int gridYLen, int gridXLen, String which) {
+
+ private static int findSwathGridLoc(int grdIdx, float[][] swathGridCoord, int gridYLen, int gridXLen, int which) {
   
     int idx = -1;
 
@@ -559,7 +634,7 @@ public class ReprojectSwath {
     int yd3 = (gy-3)*gridXLen;
 
     switch (which) {
-       case "LL":
+       case QuadIndex.LL:
 
           idx = yd1 + (gx-1);
           if (swathGridCoord[0][idx] != -999.9f) {
@@ -602,7 +677,7 @@ public class ReprojectSwath {
 
           idx = -1;
           break;
-       case "UL":
+       case QuadIndex.UL:
           idx = (gy)*gridXLen + (gx-1);
           if (swathGridCoord[0][idx] != -999.9f) {
              break;
@@ -643,7 +718,7 @@ public class ReprojectSwath {
 
           idx = -1;
           break;
-       case "UR":
+       case QuadIndex.UR:
           idx = (gy)*gridXLen + (gx);
           if (swathGridCoord[0][idx] != -999.9f) {
              break;
@@ -684,7 +759,7 @@ public class ReprojectSwath {
 
           idx = -1;
           break;
-       case "LR":
+       case QuadIndex.LR:
           idx = yd1 + (gx);
           if (swathGridCoord[0][idx] != -999.9f) {
              break;
@@ -0,0 +1,215 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+package edu.wisc.ssec.mcidasv.data.hydra;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import visad.Linear2DSet;
+
+/**
+ * Bounded, least-recently-used cache of {@link ReprojectSwath} geometry.
+ *
+ * <p>Entries are keyed by the target grid and the swath domain. The
+ * projected swath coordinates and the bounding quads held by a cached
+ * {@code ReprojectSwath} only depend on those two sets, so every band that
+ * shares a navigation can skip straight to interpolation. The cache is
+ * bounded by an estimate of the bytes held by its entries; once that
+ * budget is exceeded the least recently used entries are dropped.</p>
+ */
+public class ReprojectSwathCache {
+
+   private static final Logger logger =
+      LoggerFactory.getLogger(ReprojectSwathCache.class);
+
+   /** Default budget: one eighth of the maximum heap. */
+   public static final long DEFAULT_MAX_BYTES = Runtime.getRuntime().maxMemory() / 8;
+
+   /** Default upper limit on the number of cached geometries. */
+   public static final int DEFAULT_MAX_ENTRIES = 8;
+
+   private final LinkedHashMap<Key, ReprojectSwath> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+   private long maxBytes;
+   private int maxEntries;
+   private long residentBytes = 0;
+
+   private long hitCount = 0;
+   private long missCount = 0;
+   private long evictionCount = 0;
+
+   public ReprojectSwathCache() {
+      this(DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRIES);
+   }
+
+   public ReprojectSwathCache(long maxBytes, int maxEntries) {
+      this.maxBytes = maxBytes;
+      this.maxEntries = maxEntries;
+   }
+
+   /**
+    * Look up the geometry for {@code grid} and {@code swathDomain}.
+    *
+    * @param grid Target grid.
+    * @param swathDomain Domain set of the swath being reprojected.
+    *
+    * @return Cached geometry, or {@code null} if there is none.
+    */
+   public synchronized ReprojectSwath get(Linear2DSet grid, Linear2DSet swathDomain) {
+      ReprojectSwath obj = entries.get(new Key(grid, swathDomain));
+      if (obj != null) {
+         hitCount++;
+      }
+      else {
+         missCount++;
+      }
+      return obj;
+   }
+
+   /**
+    * Add (or replace) the geometry held by {@code obj}, evicting least
+    * recently used entries until the cache is back within its budget.
+    *
+    * @param obj Geometry to cache. Cannot be {@code null}.
+    */
+   public synchronized void put(ReprojectSwath obj) {
+      long bytes = obj.getEstimatedSize();
+      if (bytes > maxBytes) {
+         logger.debug("not caching reprojection geometry: {} bytes exceeds budget of {}", bytes, maxBytes);
+         return;
+      }
+      ReprojectSwath old = entries.put(new Key(obj.grid, obj.swathDomain), obj);
+      if (old != null) {
+         residentBytes -= old.getEstimatedSize();
+      }
+      residentBytes += bytes;
+      trim();
+   }
+
+   /**
+    * Drop every cached geometry. Counters are left untouched.
+    */
+   public synchronized void clear() {
+      entries.clear();
+      residentBytes = 0;
+   }
+
+   public synchronized void setMaxBytes(long maxBytes) {
+      this.maxBytes = maxBytes;
+      trim();
+   }
+
+   public synchronized long getMaxBytes() {
+      return maxBytes;
+   }
+
+   public synchronized void setMaxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      trim();
+   }
+
+   public synchronized int getMaxEntries() {
+      return maxEntries;
+   }
+
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   public synchronized long getResidentBytes() {
+      return residentBytes;
+   }
+
+   public synchronized long getHitCount() {
+      return hitCount;
+   }
+
+   public synchronized long getMissCount() {
+      return missCount;
+   }
+
+   public synchronized long getEvictionCount() {
+      return evictionCount;
+   }
+
+   public synchronized String getStats() {
+      return "ReprojectSwathCache: entries=" + entries.size() +
+             " resident=" + (residentBytes / 1024 / 1024) + "MB" +
+             " max=" + (maxBytes / 1024 / 1024) + "MB" +
+             " hits=" + hitCount + " misses=" + missCount +
+             " evictions=" + evictionCount;
+   }
+
+   private void trim() {
+      Iterator<Map.Entry<Key, ReprojectSwath>> iter = entries.entrySet().iterator();
+      while (iter.hasNext() && (residentBytes > maxBytes || entries.size() > maxEntries)) {
+         ReprojectSwath eldest = iter.next().getValue();
+         iter.remove();
+         residentBytes -= eldest.getEstimatedSize();
+         evictionCount++;
+      }
+   }
+
+   /**
+    * Cache key built from the target grid and swath domain. The hash only
+    * uses the set lengths, since the swath coordinate systems do not
+    * provide a {@code hashCode} consistent with their {@code equals}.
+    */
+   private static final class Key {
+      private final Linear2DSet grid;
+      private final Linear2DSet swathDomain;
+      private final int hash;
+
+      Key(Linear2DSet grid, Linear2DSet swathDomain) {
+         this.grid = grid;
+         this.swathDomain = swathDomain;
+         this.hash = 31 * Arrays.hashCode(grid.getLengths()) + Arrays.hashCode(swathDomain.getLengths());
+      }
+
+      @Override public int hashCode() {
+         return hash;
+      }
+
+      @Override public boolean equals(Object obj) {
+         if (this == obj) {
+            return true;
+         }
+         if (!(obj instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) obj;
+         return hash == other.hash && grid.equals(other.grid) && swathDomain.equals(other.swathDomain);
+      }
+   }
+}
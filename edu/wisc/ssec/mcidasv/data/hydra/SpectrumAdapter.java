@@ -110,6 +110,11 @@ public class SpectrumAdapter extends MultiDimensionAdapter {
   Map<String, Float> bandNameMap = null;
   boolean hasBandNames = false;
 
+  int xDimIndex = -1;
+  int yDimIndex = -1;
+  SpectrumCubeCache cubeCache = new SpectrumCubeCache();
+  boolean useCubeCache = true;
+
   public SpectrumAdapter(MultiDimensionReader reader, Map<String, Object> metadata) {
     super(reader, metadata);
     this.init();
@@ -123,6 +128,12 @@ public class SpectrumAdapter extends MultiDimensionAdapter {
           channelIndex = k;
         }
       }
+      if (array_dim_names[k].equals(metadata.get(x_dim_name))) {
+        xDimIndex = k;
+      }
+      if (array_dim_names[k].equals(metadata.get(y_dim_name))) {
+        yDimIndex = k;
+      }
     }
 
     numChannels = computeNumChannels();
@@ -275,4 +286,70 @@ public class SpectrumAdapter extends MultiDimensionAdapter {
   public int getNumChannels() {
     return numChannels;
   }
+
+  /**
+   * Reads the spectra in {@code subset}. Requests that fall inside one
+   * spatial tile are served from {@link #getSpectrumCubeCache()}, which
+   * reads the whole tile, with every requested channel, the first time any
+   * field of view in it is asked for.
+   */
+  public Object readArray(Map<String, double[]> subset) throws Exception {
+    if (!useCubeCache || (xDimIndex < 0) || (yDimIndex < 0)) {
+      return super.readArray(subset);
+    }
+    Subset select = getIndexes(subset);
+    int[] start = select.getStart();
+    int[] count = select.getCount();
+    int[] stride = select.getStride();
+
+    int tileSize = cubeCache.getTileSize();
+    int[] chunkStart = start.clone();
+    int[] chunkCount = count.clone();
+    long bytes = elementSize(arrayType);
+    for (int k=0; k<array_rank; k++) {
+      if ((start[k] < 0) || (count[k] < 1) || (stride[k] != 1)) {
+        return super.readArray(subset);
+      }
+      if ((k == xDimIndex) || (k == yDimIndex)) {
+        chunkStart[k] = (start[k]/tileSize)*tileSize;
+        chunkCount[k] = Math.min(tileSize, array_dim_lengths[k] - chunkStart[k]);
+        if ((start[k] + count[k]) > (chunkStart[k] + chunkCount[k])) {
+          return super.readArray(subset);
+        }
+      }
+      bytes *= chunkCount[k];
+    }
+
+    Object chunk = cubeCache.get(chunkStart, chunkCount, bytes,
+        () -> reader.getArray(arrayName, chunkStart.clone(), chunkCount.clone(), stride));
+
+    int[] offset = new int[array_rank];
+    for (int k=0; k<array_rank; k++) {
+      offset[k] = start[k] - chunkStart[k];
+    }
+    return SpectrumCubeCache.extract(chunk, chunkCount, offset, count);
+  }
+
+  private static int elementSize(Class type) {
+    if ((type == byte.class) || (type == Byte.class)) return 1;
+    if ((type == short.class) || (type == Short.class)) return 2;
+    if ((type == int.class) || (type == Integer.class)) return 4;
+    if ((type == float.class) || (type == Float.class)) return 4;
+    return 8;
+  }
+
+  public SpectrumCubeCache getSpectrumCubeCache() {
+    return cubeCache;
+  }
+
+  public void setUseCubeCache(boolean useCubeCache) {
+    this.useCubeCache = useCubeCache;
+    if (!useCubeCache) {
+      cubeCache.clear();
+    }
+  }
+
+  public boolean getUseCubeCache() {
+    return useCubeCache;
+  }
 }
@@ -0,0 +1,299 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+package edu.wisc.ssec.mcidasv.data.hydra;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Bounded, least-recently-used cache of spectral cube chunks.
+ *
+ * <p>A chunk is a tile of fields of view along the two spatial dimensions
+ * with every channel requested, read from the {@link MultiDimensionReader}
+ * in a single call. Spectra for any field of view inside a cached chunk are
+ * copied straight out of it, so moving a probe around a scene only goes back
+ * to the file when it crosses into a new tile.</p>
+ *
+ * <p>Concurrent requests for the same chunk wait for the first one to
+ * finish rather than repeating its read. A chunk that fails to load is
+ * dropped, so the next request tries again.</p>
+ */
+public class SpectrumCubeCache {
+
+   /** Default number of fields of view along each spatial tile edge. */
+   public static final int DEFAULT_TILE_SIZE = 16;
+
+   /** Default budget: one sixteenth of the maximum heap. */
+   public static final long DEFAULT_MAX_BYTES = Runtime.getRuntime().maxMemory() / 16;
+
+   /** Default upper limit on the number of cached chunks. */
+   public static final int DEFAULT_MAX_ENTRIES = 32;
+
+   private final LinkedHashMap<Key, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+   private int tileSize;
+   private long maxBytes;
+   private int maxEntries;
+   private long residentBytes = 0;
+
+   private long hitCount = 0;
+   private long missCount = 0;
+   private long evictionCount = 0;
+
+   public SpectrumCubeCache() {
+      this(DEFAULT_TILE_SIZE, DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRIES);
+   }
+
+   public SpectrumCubeCache(int tileSize, long maxBytes, int maxEntries) {
+      this.tileSize = Math.max(1, tileSize);
+      this.maxBytes = maxBytes;
+      this.maxEntries = maxEntries;
+   }
+
+   /**
+    * Look up the chunk read with {@code start} and {@code count}, reading it
+    * with {@code loader} if it is not cached.
+    *
+    * @param start Start of the chunk along every array dimension.
+    * @param count Length of the chunk along every array dimension.
+    * @param bytes Estimated size of the chunk in bytes.
+    * @param loader Reads the chunk as a one dimensional primitive array.
+    *
+    * @return Cached or newly read chunk. Callers must not modify it.
+    *
+    * @throws Exception if {@code loader} fails.
+    */
+   public Object get(int[] start, int[] count, long bytes, Callable<Object> loader) throws Exception {
+      Key key = new Key(start, count);
+      Entry entry;
+      boolean isOwner = false;
+      synchronized (this) {
+         entry = entries.get(key);
+         if (entry != null) {
+            hitCount++;
+         }
+         else {
+            missCount++;
+            entry = new Entry(new FutureTask<>(loader), bytes);
+            if (bytes <= maxBytes) {
+               entries.put(key, entry);
+               residentBytes += bytes;
+               trim();
+            }
+            isOwner = true;
+         }
+      }
+      if (isOwner) {
+         entry.task.run();
+      }
+      try {
+         return entry.task.get();
+      }
+      catch (ExecutionException e) {
+         synchronized (this) {
+            if (entries.remove(key, entry)) {
+               residentBytes -= entry.bytes;
+            }
+         }
+         Throwable cause = e.getCause();
+         if (cause instanceof Exception) {
+            throw (Exception) cause;
+         }
+         if (cause instanceof Error) {
+            throw (Error) cause;
+         }
+         throw e;
+      }
+   }
+
+   /**
+    * Copy a block out of a chunk.
+    *
+    * @param chunk Chunk returned by {@link #get}.
+    * @param chunkCount Length of {@code chunk} along every array dimension.
+    * @param offset Start of the block relative to the chunk.
+    * @param count Length of the block along every array dimension.
+    *
+    * @return New array of the same primitive type as {@code chunk}.
+    */
+   public static Object extract(Object chunk, int[] chunkCount, int[] offset, int[] count) {
+      int rank = chunkCount.length;
+      int len = 1;
+      for (int k=0; k<rank; k++) {
+         len *= count[k];
+      }
+      Object block = Array.newInstance(chunk.getClass().getComponentType(), len);
+      if (len == 0) {
+         return block;
+      }
+
+      int[] chunkStride = new int[rank];
+      chunkStride[rank-1] = 1;
+      for (int k=rank-2; k>=0; k--) {
+         chunkStride[k] = chunkStride[k+1]*chunkCount[k+1];
+      }
+
+      //- copy contiguous runs along the fastest varying dimension
+      int run = count[rank-1];
+      int[] idx = new int[rank];
+      int dst = 0;
+      while (dst < len) {
+         int src = offset[rank-1];
+         for (int k=0; k<rank-1; k++) {
+            src += (offset[k] + idx[k])*chunkStride[k];
+         }
+         System.arraycopy(chunk, src, block, dst, run);
+         dst += run;
+         for (int k=rank-2; k>=0; k--) {
+            if (++idx[k] < count[k]) {
+               break;
+            }
+            idx[k] = 0;
+         }
+      }
+      return block;
+   }
+
+   /**
+    * Drop every cached chunk. Counters are left untouched.
+    */
+   public synchronized void clear() {
+      entries.clear();
+      residentBytes = 0;
+   }
+
+   public synchronized void setTileSize(int tileSize) {
+      this.tileSize = Math.max(1, tileSize);
+      clear();
+   }
+
+   public synchronized int getTileSize() {
+      return tileSize;
+   }
+
+   public synchronized void setMaxBytes(long maxBytes) {
+      this.maxBytes = maxBytes;
+      trim();
+   }
+
+   public synchronized long getMaxBytes() {
+      return maxBytes;
+   }
+
+   public synchronized void setMaxEntries(int maxEntries) {
+      this.maxEntries = maxEntries;
+      trim();
+   }
+
+   public synchronized int getMaxEntries() {
+      return maxEntries;
+   }
+
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   public synchronized long getResidentBytes() {
+      return residentBytes;
+   }
+
+   public synchronized long getHitCount() {
+      return hitCount;
+   }
+
+   public synchronized long getMissCount() {
+      return missCount;
+   }
+
+   public synchronized long getEvictionCount() {
+      return evictionCount;
+   }
+
+   public synchronized String getStats() {
+      return "SpectrumCubeCache: entries=" + entries.size() +
+             " resident=" + (residentBytes / 1024 / 1024) + "MB" +
+             " max=" + (maxBytes / 1024 / 1024) + "MB" +
+             " hits=" + hitCount + " misses=" + missCount +
+             " evictions=" + evictionCount;
+   }
+
+   private void trim() {
+      Iterator<Entry> iter = entries.values().iterator();
+      while (iter.hasNext() && (residentBytes > maxBytes || entries.size() > maxEntries)) {
+         Entry eldest = iter.next();
+         iter.remove();
+         residentBytes -= eldest.bytes;
+         evictionCount++;
+      }
+   }
+
+   private static final class Entry {
+      final FutureTask<Object> task;
+      final long bytes;
+
+      Entry(FutureTask<Object> task, long bytes) {
+         this.task = task;
+         this.bytes = bytes;
+      }
+   }
+
+   /** Cache key made of the start and count of a chunk. */
+   private static final class Key {
+      private final int[] start;
+      private final int[] count;
+      private final int hash;
+
+      Key(int[] start, int[] count) {
+         this.start = start.clone();
+         this.count = count.clone();
+         this.hash = 31 * Arrays.hashCode(this.start) + Arrays.hashCode(this.count);
+      }
+
+      @Override public int hashCode() {
+         return hash;
+      }
+
+      @Override public boolean equals(Object obj) {
+         if (this == obj) {
+            return true;
+         }
+         if (!(obj instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) obj;
+         return hash == other.hash && Arrays.equals(start, other.start) && Arrays.equals(count, other.count);
+      }
+   }
+}
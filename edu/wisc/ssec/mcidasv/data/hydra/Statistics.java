@@ -32,6 +32,7 @@ import static java.util.Arrays.asList;
 
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -40,8 +41,6 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.math3.random.EmpiricalDistribution;
-import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.StatUtils;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 
@@ -56,9 +55,20 @@ import visad.RealType;
 import visad.TupleType;
 import visad.VisADException;
 
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
+
 /**
  * Used to obtain various commonly used statistics for VisAD 
  * {@link FlatField FlatFields}.
+ * 
+ * <p>Statistics are computed straight from the range values returned by
+ * {@link FlatField#getFloats(boolean)}, without copying them. Moments,
+ * minimum and maximum come from one pass over the values, split into
+ * chunks that are summarized in parallel and then merged. Percentiles are
+ * found with a histogram of the values: in the default, exact mode only
+ * the values in the histogram bins holding the wanted ranks are collected
+ * and sorted, while in approximate mode the result is interpolated within
+ * the bin and the values are not visited again.</p>
  */
 public class Statistics {
     
@@ -92,7 +102,15 @@ public class Statistics {
         asList('\u2581', '\u2582', '\u2583', '\u2584', '\u2585', '\u2586',
                '\u2587', '\u2588');
     
-    DescriptiveStatistics[] descriptiveStats = null;
+    /** Number of values summarized by one parallel task. */
+    private static final int CHUNK_SIZE = 1 << 16;
+    
+    /** Number of histogram bins used to locate percentiles. */
+    private static final int QUANTILE_BINS = 4096;
+    
+    private final FlatField field;
+    
+    float[][] rngFloats;
     
     double[][] values_x;
     double[][] rngVals;
@@ -105,24 +123,40 @@ public class Statistics {
     
     MathType statType;
     
-    PearsonsCorrelation pCorrelation = null;
+    Moments[] moments;
+    
+    /** Cumulative histogram of each range component, made when needed. */
+    int[][] quantileBins;
+    
+    boolean exactQuantiles;
     
     public Statistics(FlatField fltFld) throws VisADException {
-        rngVals = fltFld.getValues(false);
-        rngTupLen = rngVals.length;
+        this(fltFld, true);
+    }
+    
+    /**
+     * @param fltFld Field to summarize.
+     * @param exactQuantiles Whether {@link #median()} and
+     *                       {@link #percentile(double)} should be exact. If
+     *                       {@code false}, they are interpolated from a
+     *                       histogram of {@value #QUANTILE_BINS} bins.
+     *
+     * @throws VisADException if VisAD had problems.
+     */
+    public Statistics(FlatField fltFld, boolean exactQuantiles)
+        throws VisADException {
+        this.field = fltFld;
+        this.exactQuantiles = exactQuantiles;
+        rngFloats = fltFld.getFloats(false);
+        rngTupLen = rngFloats.length;
         numPoints = fltFld.getDomainSet().getLength();
         numGoodPoints = new int[rngTupLen];
         
-        values_x = new double[rngTupLen][];
-        
+        moments = new Moments[rngTupLen];
+        quantileBins = new int[rngTupLen][];
         for (int k = 0; k < rngTupLen; k++) {
-            values_x[k] = removeMissing(rngVals[k]);
-            numGoodPoints[k] = values_x[k].length;
-        }
-        
-        descriptiveStats = new DescriptiveStatistics[rngTupLen];
-        for (int k = 0; k < rngTupLen; k++) {
-            descriptiveStats[k] = new DescriptiveStatistics(values_x[k]);
+            moments[k] = moments(rngFloats[k]);
+            numGoodPoints[k] = (int) moments[k].n;
         }
         
         MathType rangeType = ((FunctionType) fltFld.getType()).getRange();
@@ -139,8 +173,6 @@ public class Statistics {
         } else {
             throw new VisADException("fltFld must be RealTupleType or RealType");
         }
-        
-        pCorrelation = new PearsonsCorrelation();
     }
     
     /**
@@ -165,20 +197,40 @@ public class Statistics {
      * Get the original range values.
      *
      * @return Original range values.
+     *
+     * @throws VisADException if VisAD had problems.
      */
-    public double[][] getRngVals() {
+    public synchronized double[][] getRngVals() throws VisADException {
+        if (rngVals == null) {
+            rngVals = field.getValues(false);
+        }
         return rngVals;
     }
     
     /** 
-     * Get the range values actually used (missing removed).
+     * Get the range values actually used (missing removed). These are only
+     * copied out of the field when asked for.
      * 
      * @return Range values used.
+     *
+     * @throws VisADException if VisAD had problems.
      */
-    public double[][] getValues() {
+    public synchronized double[][] getValues() throws VisADException {
+        if (values_x == null) {
+            values_x = removeMissing(getRngVals());
+        }
         return values_x;
     }
     
+    /**
+     * Whether percentiles are exact, or interpolated from a histogram.
+     *
+     * @return {@code true} if exact.
+     */
+    public boolean isExactQuantiles() {
+        return exactQuantiles;
+    }
+    
     private double[] removeMissing(double[] vals) {
         int num = vals.length;
         int cnt = 0;
@@ -214,7 +266,7 @@ public class Statistics {
     public Data mean() throws VisADException, RemoteException {
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getMean();
+            stats[k] = moments[k].getMean();
         }
         return makeStat(stats);
     }
@@ -222,7 +274,7 @@ public class Statistics {
     public Data geometricMean() throws VisADException, RemoteException {
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getGeometricMean();
+            stats[k] = geometricMean(rngFloats[k], moments[k].n);
         }
         return makeStat(stats);
     }
@@ -231,7 +283,7 @@ public class Statistics {
     public Data max() throws VisADException, RemoteException {
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getMax();
+            stats[k] = moments[k].getMax();
         }
         return makeStat(stats);
     }
@@ -239,23 +291,22 @@ public class Statistics {
     public Data min() throws VisADException, RemoteException {
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getMin();
+            stats[k] = moments[k].getMin();
         }
         return makeStat(stats);
     }
     
     public Data median() throws VisADException, RemoteException {
-        double[] stats = new double[rngTupLen];
-        for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getPercentile(50.0);
-        }
-        return makeStat(stats);
+        return percentile(50.0);
     }
     
     public Data percentile(double p) throws VisADException, RemoteException {
+        if ((p <= 0.0) || (p > 100.0)) {
+            throw new VisADException("percentile must be in (0, 100]: " + p);
+        }
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getPercentile(p);
+            stats[k] = quantile(k, p);
         }
         return makeStat(stats);
     }
@@ -263,7 +314,7 @@ public class Statistics {
     public Data variance() throws VisADException, RemoteException {
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getVariance();
+            stats[k] = moments[k].getVariance();
         }
         return makeStat(stats);
     }
@@ -271,7 +322,7 @@ public class Statistics {
     public Data kurtosis() throws VisADException, RemoteException {
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getKurtosis();
+            stats[k] = moments[k].getKurtosis();
         }
         return makeStat(stats);
     }
@@ -279,7 +330,7 @@ public class Statistics {
     public Data standardDeviation() throws VisADException, RemoteException {
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getStandardDeviation();
+            stats[k] = Math.sqrt(moments[k].getVariance());
         }
         return makeStat(stats);
     }
@@ -287,15 +338,15 @@ public class Statistics {
     public Data skewness() throws VisADException, RemoteException {
         double[] stats = new double[rngTupLen];
         for (int k = 0; k < rngTupLen; k++) {
-            stats[k] = descriptiveStats[k].getSkewness();
+            stats[k] = moments[k].getSkewness();
         }
         return makeStat(stats);
     }
     
     public Data correlation(FlatField fltFld)
         throws VisADException, RemoteException {
-        double[][] values_x = this.rngVals;
-        double[][] values_y = fltFld.getValues(false);
+        float[][] values_x = this.rngFloats;
+        float[][] values_y = fltFld.getFloats(false);
         
         if (values_y.length != rngTupLen) {
             throw new VisADException("fields must have same range tuple length");
@@ -304,8 +355,7 @@ public class Statistics {
         double[] stats = new double[rngTupLen];
         
         for (int k = 0; k < rngTupLen; k++) {
-            double[][] newVals = removeMissingAND(values_x[k], values_y[k]);
-            stats[k] = pCorrelation.correlation(newVals[0], newVals[1]);
+            stats[k] = correlation(values_x[k], values_y[k]);
         }
         
         return makeStat(stats);
@@ -321,26 +371,433 @@ public class Statistics {
         return null;
     }
     
-    private double[][] removeMissingAND(double[] vals_x, double[] vals_y) {
-        int cnt = 0;
-        int[] good = new int[vals_x.length];
-        for (int k = 0; k < vals_x.length; k++) {
-            if (!(Double.isNaN(vals_x[k])) && !(Double.isNaN(vals_y[k]))) {
-                good[cnt] = k;
-                cnt++;
+    /**
+     * Run {@code task} over chunks {@code 0} to {@code numChunks - 1} on
+     * the shared {@link ParallelRows} pool.
+     */
+    private static void forEachChunk(int numChunks, ParallelRows.RowRange task)
+        throws VisADException {
+        try {
+            ParallelRows.run(0, numChunks - 1, 1,
+                ParallelRows.availableParallelism(), task);
+        } catch (VisADException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new VisADException("Statistics: " + e);
+        }
+    }
+    
+    private static int numChunks(int length) {
+        return Math.max(1, (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+    }
+    
+    /**
+     * Summarize the non-missing values of one range component.
+     */
+    private static Moments moments(final float[] vals) throws VisADException {
+        final Moments[] partial = new Moments[numChunks(vals.length)];
+        forEachChunk(partial.length, (start, stop) -> {
+            for (int c = start; c <= stop; c++) {
+                int end = Math.min(vals.length, (c + 1) * CHUNK_SIZE);
+                partial[c] = new Moments(vals, c * CHUNK_SIZE, end);
+            }
+        });
+        Moments all = partial[0];
+        for (int c = 1; c < partial.length; c++) {
+            all.merge(partial[c]);
+        }
+        return all;
+    }
+    
+    /**
+     * Geometric mean of the non-missing values. This takes a log of every
+     * value, so it is left out of {@link Moments} and only done when asked
+     * for.
+     */
+    private static double geometricMean(final float[] vals, long n)
+        throws VisADException {
+        if (n == 0) {
+            return Double.NaN;
+        }
+        final double[] partial = new double[numChunks(vals.length)];
+        forEachChunk(partial.length, (start, stop) -> {
+            for (int c = start; c <= stop; c++) {
+                int end = Math.min(vals.length, (c + 1) * CHUNK_SIZE);
+                double sumLog = 0.0;
+                for (int i = c * CHUNK_SIZE; i < end; i++) {
+                    if (!Float.isNaN(vals[i])) {
+                        sumLog += Math.log(vals[i]);
+                    }
+                }
+                partial[c] = sumLog;
+            }
+        });
+        double sumLog = 0.0;
+        for (double part : partial) {
+            sumLog += part;
+        }
+        return Math.exp(sumLog / n);
+    }
+    
+    /**
+     * Pearson's correlation of the values that are present in both
+     * {@code x} and {@code y}, using the same chunked, mergeable sums as
+     * {@link Moments}.
+     */
+    private static double correlation(final float[] x, final float[] y)
+        throws VisADException {
+        final double[][] partial = new double[numChunks(x.length)][];
+        forEachChunk(partial.length, (start, stop) -> {
+            for (int c = start; c <= stop; c++) {
+                int from = c * CHUNK_SIZE;
+                int end = Math.min(x.length, from + CHUNK_SIZE);
+                long n = 0;
+                double sumX = 0.0;
+                double sumY = 0.0;
+                for (int i = from; i < end; i++) {
+                    if (!Float.isNaN(x[i]) && !Float.isNaN(y[i])) {
+                        n++;
+                        sumX += x[i];
+                        sumY += y[i];
+                    }
+                }
+                double meanX = (n > 0) ? sumX / n : 0.0;
+                double meanY = (n > 0) ? sumY / n : 0.0;
+                double sxx = 0.0;
+                double syy = 0.0;
+                double sxy = 0.0;
+                for (int i = from; i < end; i++) {
+                    if (!Float.isNaN(x[i]) && !Float.isNaN(y[i])) {
+                        double dx = x[i] - meanX;
+                        double dy = y[i] - meanY;
+                        sxx += dx * dx;
+                        syy += dy * dy;
+                        sxy += dx * dy;
+                    }
+                }
+                partial[c] = new double[] { n, meanX, meanY, sxx, syy, sxy };
+            }
+        });
+        double[] all = partial[0];
+        for (int c = 1; c < partial.length; c++) {
+            double[] b = partial[c];
+            double nA = all[0];
+            double nB = b[0];
+            double n = nA + nB;
+            if (nB == 0) {
+                continue;
+            }
+            double dx = b[1] - all[1];
+            double dy = b[2] - all[2];
+            double f = nA * nB / n;
+            all[3] += b[3] + dx * dx * f;
+            all[4] += b[4] + dy * dy * f;
+            all[5] += b[5] + dx * dy * f;
+            all[1] += dx * nB / n;
+            all[2] += dy * nB / n;
+            all[0] = n;
+        }
+        if (all[0] < 2) {
+            return Double.NaN;
+        }
+        return all[5] / Math.sqrt(all[3] * all[4]);
+    }
+    
+    /**
+     * Percentile of one range component, estimated the same way as
+     * {@link org.apache.commons.math3.stat.descriptive.rank.Percentile}.
+     */
+    private double quantile(int comp, double p) throws VisADException {
+        Moments m = moments[comp];
+        long n = m.n;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        if (n == 1) {
+            return m.min;
+        }
+        double pos = p * (n + 1) / 100.0;
+        double fpos = Math.floor(pos);
+        if (pos < 1) {
+            return m.min;
+        }
+        if (pos >= n) {
+            return m.max;
+        }
+        int rank = (int) fpos - 1;
+        double[] lowerUpper = orderStatistics(comp, rank, rank + 1);
+        return lowerUpper[0] + (pos - fpos) * (lowerUpper[1] - lowerUpper[0]);
+    }
+    
+    /**
+     * Find the values of (zero based) ranks {@code r0} and {@code r1} in the
+     * sorted, non-missing values of a range component, with
+     * {@code r0 <= r1}.
+     */
+    private double[] orderStatistics(int comp, int r0, int r1)
+        throws VisADException {
+        final Moments m = moments[comp];
+        final int[] cum = getQuantileBins(comp);
+        final int b0 = findBin(cum, r0);
+        final int b1 = findBin(cum, r1);
+        final double scale = binScale(m);
+        
+        if (m.min == m.max) {
+            return new double[] { m.min, m.min };
+        }
+        // with infinite values everything lands in one bin, so that case
+        // is always collected and sorted
+        if (!exactQuantiles && (scale != 0.0)) {
+            return new double[] {
+                approximate(m, cum, b0, r0, scale),
+                approximate(m, cum, b1, r1, scale)
+            };
+        }
+        
+        final float[] vals = rngFloats[comp];
+        final float[][] partial = new float[numChunks(vals.length)][];
+        final int[] partialLen = new int[partial.length];
+        forEachChunk(partial.length, (start, stop) -> {
+            for (int c = start; c <= stop; c++) {
+                int end = Math.min(vals.length, (c + 1) * CHUNK_SIZE);
+                float[] hits = new float[16];
+                int nHits = 0;
+                for (int i = c * CHUNK_SIZE; i < end; i++) {
+                    float v = vals[i];
+                    if (Float.isNaN(v)) {
+                        continue;
+                    }
+                    int b = bin(v, m.min, scale);
+                    if ((b >= b0) && (b <= b1)) {
+                        if (nHits == hits.length) {
+                            hits = Arrays.copyOf(hits, 2 * nHits);
+                        }
+                        hits[nHits++] = v;
+                    }
+                }
+                partial[c] = hits;
+                partialLen[c] = nHits;
+            }
+        });
+        float[] inBins = new float[cum[b1 + 1] - cum[b0]];
+        int len = 0;
+        for (int c = 0; c < partial.length; c++) {
+            System.arraycopy(partial[c], 0, inBins, len, partialLen[c]);
+            len += partialLen[c];
+        }
+        Arrays.sort(inBins);
+        return new double[] { inBins[r0 - cum[b0]], inBins[r1 - cum[b0]] };
+    }
+    
+    /**
+     * Get the cumulative histogram of a range component: bin {@code b}
+     * holds the values of ranks {@code cum[b]} to {@code cum[b + 1] - 1}.
+     */
+    private synchronized int[] getQuantileBins(int comp) throws VisADException {
+        if (quantileBins[comp] != null) {
+            return quantileBins[comp];
+        }
+        final Moments m = moments[comp];
+        final double scale = binScale(m);
+        final float[] vals = rngFloats[comp];
+        final int[][] partial = new int[numChunks(vals.length)][];
+        forEachChunk(partial.length, (start, stop) -> {
+            for (int c = start; c <= stop; c++) {
+                int end = Math.min(vals.length, (c + 1) * CHUNK_SIZE);
+                int[] counts = new int[QUANTILE_BINS];
+                for (int i = c * CHUNK_SIZE; i < end; i++) {
+                    if (!Float.isNaN(vals[i])) {
+                        counts[bin(vals[i], m.min, scale)]++;
+                    }
+                }
+                partial[c] = counts;
+            }
+        });
+        int[] cum = new int[QUANTILE_BINS + 1];
+        for (int b = 0; b < QUANTILE_BINS; b++) {
+            int count = 0;
+            for (int c = 0; c < partial.length; c++) {
+                count += partial[c][b];
             }
+            cum[b + 1] = cum[b] + count;
+        }
+        quantileBins[comp] = cum;
+        return cum;
+    }
+    
+    /**
+     * @return Bins per unit value, or zero if the values cannot be binned.
+     */
+    private static double binScale(Moments m) {
+        double width = m.max - m.min;
+        if ((width > 0.0) && !Double.isInfinite(width)) {
+            return QUANTILE_BINS / width;
         }
+        return 0.0;
+    }
+    
+    private static int bin(float v, double min, double scale) {
+        int b = (int) ((v - min) * scale);
+        return (b < QUANTILE_BINS) ? b : QUANTILE_BINS - 1;
+    }
+    
+    /**
+     * @return Bin holding rank {@code r}.
+     */
+    private static int findBin(int[] cum, int r) {
+        int b = Arrays.binarySearch(cum, r);
+        if (b < 0) {
+            return -b - 2;
+        }
+        // several bins may start at r when some are empty; take the last
+        while ((b < QUANTILE_BINS - 1) && (cum[b + 1] == r)) {
+            b++;
+        }
+        return b;
+    }
+    
+    /**
+     * Estimate the value of rank {@code r}, taking the values in its bin to
+     * be evenly spread.
+     */
+    private static double approximate(Moments m, int[] cum, int b, int r, double scale) {
+        double within = (r - cum[b] + 0.5) / (cum[b + 1] - cum[b]);
+        double v = m.min + (b + within) / scale;
+        return Math.max(m.min, Math.min(m.max, v));
+    }
+    
+    /**
+     * Count, extremes and central moments of the non-missing values in a
+     * range of an array. Partial results for separate ranges are combined
+     * with {@link #merge(Moments)}, using the pairwise update formulas of
+     * Chan et al. and P&eacute;bay. The statistics returned match those of
+     * {@link org.apache.commons.math3.stat.descriptive.DescriptiveStatistics}.
+     */
+    static final class Moments {
+        long n;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        double mean;
+        double m2;
+        double m3;
+        double m4;
         
-        if (cnt == vals_x.length) {
-            return new double[][]{vals_x, vals_y};
-        } else {
-            double[] newVals_x = new double[cnt];
-            double[] newVals_y = new double[cnt];
-            for (int k = 0; k < cnt; k++) {
-                newVals_x[k] = vals_x[good[k]];
-                newVals_y[k] = vals_y[good[k]];
+        Moments(float[] vals, int from, int to) {
+            double sum = 0.0;
+            double lo = Double.POSITIVE_INFINITY;
+            double hi = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                float v = vals[i];
+                if (Float.isNaN(v)) {
+                    continue;
+                }
+                n++;
+                sum += v;
+                if (v < lo) {
+                    lo = v;
+                }
+                if (v > hi) {
+                    hi = v;
+                }
+            }
+            if (n == 0) {
+                return;
+            }
+            min = lo;
+            max = hi;
+            mean = sum / n;
+            for (int i = from; i < to; i++) {
+                float v = vals[i];
+                if (Float.isNaN(v)) {
+                    continue;
+                }
+                double d = v - mean;
+                double d2 = d * d;
+                m2 += d2;
+                m3 += d2 * d;
+                m4 += d2 * d2;
             }
-            return new double[][]{newVals_x, newVals_y};
+        }
+        
+        void merge(Moments b) {
+            if (b.n == 0) {
+                return;
+            }
+            if (n == 0) {
+                n = b.n;
+                min = b.min;
+                max = b.max;
+                mean = b.mean;
+                m2 = b.m2;
+                m3 = b.m3;
+                m4 = b.m4;
+                return;
+            }
+            double nA = n;
+            double nB = b.n;
+            double nAB = nA + nB;
+            double delta = b.mean - mean;
+            double d2 = delta * delta;
+            double newM4 = m4 + b.m4
+                + d2 * d2 * nA * nB * (nA * nA - nA * nB + nB * nB) / (nAB * nAB * nAB)
+                + 6.0 * d2 * (nA * nA * b.m2 + nB * nB * m2) / (nAB * nAB)
+                + 4.0 * delta * (nA * b.m3 - nB * m3) / nAB;
+            double newM3 = m3 + b.m3
+                + d2 * delta * nA * nB * (nA - nB) / (nAB * nAB)
+                + 3.0 * delta * (nA * b.m2 - nB * m2) / nAB;
+            m2 += b.m2 + d2 * nA * nB / nAB;
+            m3 = newM3;
+            m4 = newM4;
+            mean += delta * nB / nAB;
+            n += b.n;
+            min = Math.min(min, b.min);
+            max = Math.max(max, b.max);
+        }
+        
+        double getMin() {
+            return min;
+        }
+        
+        double getMax() {
+            return max;
+        }
+        
+        double getMean() {
+            return (n > 0) ? mean : Double.NaN;
+        }
+        
+        double getVariance() {
+            if (n == 0) {
+                return Double.NaN;
+            }
+            return (n == 1) ? 0.0 : m2 / (n - 1);
+        }
+        
+        double getSkewness() {
+            if (n < 3) {
+                return Double.NaN;
+            }
+            double variance = m2 / (n - 1);
+            if (variance < 10E-20) {
+                return 0.0;
+            }
+            double n0 = n;
+            return (n0 * m3) / ((n0 - 1) * (n0 - 2) * Math.sqrt(variance) * variance);
+        }
+        
+        double getKurtosis() {
+            if (n <= 3) {
+                return Double.NaN;
+            }
+            double variance = m2 / (n - 1);
+            if (variance < 10E-20) {
+                return 0.0;
+            }
+            double n0 = n;
+            double multiplier = (n0 * (n0 + 1)) / ((n0 - 1) * (n0 - 2) * (n0 - 3));
+            double term1 = m4 / variance / variance;
+            double term2 = (3.0 * Math.pow(n0 - 1, 2.0)) / ((n0 - 2) * (n0 - 3));
+            return multiplier * term1 - term2;
         }
     }
     
@@ -492,15 +949,6 @@ public class Statistics {
             double min = ((Real) s.min()).getValue();
             double q1 = ((Real) s.percentile(25.0)).getValue();
             double q3 = ((Real) s.percentile(75.0)).getValue();
-            double[] modes = StatUtils.mode(field.getValues(false)[0]);
-            
-            StringBuilder tmp = new StringBuilder(128);
-            for (int i = 0; i < modes.length; i++) {
-                tmp.append(fmtMe(modes[i]));
-                if ((i + 1) < modes.length) {
-                    tmp.append(", ");
-                }
-            }
             
             String temp;
             char endl = '\n';
@@ -543,6 +991,16 @@ public class Statistics {
                 sb.append("Mean      :  ").append(temp).append(endl);
             }
             if (params.contains(DescribeParams.MODE)) {
+                // mode needs a frequency table of every value, so only
+                // build it when asked for
+                double[] modes = StatUtils.mode(s.getValues()[0]);
+                StringBuilder tmp = new StringBuilder(128);
+                for (int i = 0; i < modes.length; i++) {
+                    tmp.append(fmtMe(modes[i]));
+                    if ((i + 1) < modes.length) {
+                        tmp.append(", ");
+                    }
+                }
                 sb.append("Mode      :  ").append(tmp).append(endl);
             }
             if (params.contains(DescribeParams.KURTOSIS)) {
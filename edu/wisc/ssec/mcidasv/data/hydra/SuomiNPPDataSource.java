@@ -1599,6 +1599,8 @@ public class SuomiNPPDataSource extends HydraDataSource {
             String zidvPath = 
                     McIDASV.getStaticMcv().getStateManager().
                     getProperty(IdvPersistenceManager.PROP_ZIDVPATH, "");
+            PersistenceManager pm = 
+                    (PersistenceManager) McIDASV.getStaticMcv().getPersistenceManager();
     	    if (getTmpPaths() != null) {
     	        // New code for zipped bundles-
     	        // we want 'sources' to point to wherever the zipped data was unpacked.
@@ -1606,8 +1608,8 @@ public class SuomiNPPDataSource extends HydraDataSource {
     	        // following PersistenceManager.fixBulkDataSources, get temporary data location
     	        for (Object o : getTmpPaths()) {
     	            String tempPath = (String) o;
-    	            // replace macro string with actual path
-    	            String expandedPath = tempPath.replace(PersistenceManager.MACRO_ZIDVPATH, zidvPath);
+    	            // replace macro string with actual path, extracting the file if needed
+    	            String expandedPath = pm.resolveZidvPath(tempPath);
     	            // we don't want to add nav files to this list!:
     	            File f = new File(expandedPath);
     	            if (!f.getName().matches(JPSSUtilities.SUOMI_GEO_REGEX_NOAA)) {
@@ -1625,7 +1627,7 @@ public class SuomiNPPDataSource extends HydraDataSource {
                         String name = fileNames.get(i);
                         int lastSeparator = name.lastIndexOf(File.separatorChar);
                         String sub = name.substring(0, lastSeparator);
-                        name = name.replace(sub, zidvPath);
+                        name = pm.resolveZidvPath(name.replace(sub, zidvPath));
                         fileNames.set(i, name);
                     }
                 }
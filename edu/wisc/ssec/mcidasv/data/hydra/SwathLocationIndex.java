@@ -0,0 +1,371 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+package edu.wisc.ssec.mcidasv.data.hydra;
+
+import java.util.Arrays;
+
+import visad.Gridded2DSet;
+import visad.MathType;
+import visad.SetType;
+import visad.VisADException;
+
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
+
+/**
+ * Bucket grid over the samples of an irregular {@link Gridded2DSet}, used
+ * to speed up {@link Gridded2DSet#valueToGrid(float[][])} for scattered
+ * points.
+ *
+ * <p>{@code Gridded2DSet} finds each point by walking cell to cell from
+ * wherever the previous point was found, so points that jump around the
+ * swath make it walk across most of the swath every time. Here the plane
+ * is cut into buckets of a few samples each and every bucket remembers one
+ * sample that falls in it. A point only looks at its own bucket (or the
+ * nearest non-empty one around it) to find a nearby sample, and is then
+ * located exactly by running {@code valueToGrid} on a small window of the
+ * set around that sample. Points that cannot be placed this way are
+ * handed to the full set, so results never depend on the index being
+ * complete.</p>
+ *
+ * <p>Batches are split into blocks of points that are located in
+ * parallel.</p>
+ */
+public class SwathLocationIndex {
+
+   /** Target number of samples per bucket. */
+   private static final int SAMPLES_PER_BUCKET = 4;
+
+   /** How far out (in buckets) to look for a non-empty bucket. */
+   private static final int MAX_BUCKET_RING = 2;
+
+   /** Radius (in samples) of the first window a point is located in. */
+   private static final int WINDOW_RADIUS = 4;
+
+   /** Radius (in samples) of the window tried when the first one misses. */
+   private static final int WIDE_WINDOW_RADIUS = 16;
+
+   /** Number of points located by one task. */
+   private static final int POINTS_PER_TASK = 256;
+
+   private static final int FOUND = 0;
+   private static final int OUTSIDE = 1;
+   private static final int UNRESOLVED = 2;
+
+   private final Gridded2DSet set;
+   private final MathType domainType;
+   private final float[] xs;
+   private final float[] ys;
+   private final int lenX;
+   private final int lenY;
+
+   private final float minX;
+   private final float minY;
+   private final float maxX;
+   private final float maxY;
+   private final float invBucketSize;
+   private final int bucketsX;
+   private final int bucketsY;
+   private final int[] buckets;
+
+   /**
+    * @param set Irregular 2D set to index. Its samples are not copied.
+    *
+    * @throws VisADException if the samples of {@code set} cannot be read.
+    */
+   public SwathLocationIndex(Gridded2DSet set) throws VisADException {
+      this.set = set;
+      this.domainType = ((SetType) set.getType()).getDomain();
+      float[][] samples = set.getSamples(false);
+      xs = samples[0];
+      ys = samples[1];
+      int[] lengths = set.getLengths();
+      lenX = lengths[0];
+      lenY = lengths[1];
+
+      float loX = Float.MAX_VALUE;
+      float loY = Float.MAX_VALUE;
+      float hiX = -Float.MAX_VALUE;
+      float hiY = -Float.MAX_VALUE;
+      int count = 0;
+      for (int k=0; k<xs.length; k++) {
+         float x = xs[k];
+         float y = ys[k];
+         if (x == x && y == y) {
+            if (x < loX) loX = x;
+            if (x > hiX) hiX = x;
+            if (y < loY) loY = y;
+            if (y > hiY) hiY = y;
+            count++;
+         }
+      }
+
+      if (count == 0 || lenX < 2 || lenY < 2) {
+         minX = minY = maxX = maxY = 0;
+         invBucketSize = 0;
+         bucketsX = bucketsY = 0;
+         buckets = new int[0];
+         return;
+      }
+      minX = loX;
+      minY = loY;
+      maxX = hiX;
+      maxY = hiY;
+
+      // square buckets that hold about SAMPLES_PER_BUCKET samples where
+      // the set is, sized from the spacing between neighboring samples
+      // since a curved swath can fill only a small part of its bounding box.
+      // Very sparse sets are limited to a few buckets per sample.
+      double width = Math.max(maxX - minX, Float.MIN_NORMAL);
+      double height = Math.max(maxY - minY, Float.MIN_NORMAL);
+      double size = Math.sqrt(SAMPLES_PER_BUCKET) * meanSpacing();
+      double minSize = Math.sqrt(width * height / (SAMPLES_PER_BUCKET * (double) count));
+      if (!(size >= minSize)) {
+         size = minSize;
+      }
+      bucketsX = (int) Math.min(Math.ceil(width / size), 1 << 14);
+      bucketsY = (int) Math.min(Math.ceil(height / size), 1 << 14);
+      invBucketSize = (float) (1.0 / Math.max(width / bucketsX, height / bucketsY));
+
+      buckets = new int[bucketsX * bucketsY];
+      Arrays.fill(buckets, -1);
+      for (int k=0; k<xs.length; k++) {
+         float x = xs[k];
+         float y = ys[k];
+         if (x == x && y == y) {
+            buckets[bucketIndex(bucketX(x), bucketY(y))] = k;
+         }
+      }
+   }
+
+   /**
+    * Same as {@code valueToGrid} on the indexed set.
+    *
+    * @param values Points to locate, as {@code [2][numPoints]}.
+    * @param parallelism Number of threads to use for large batches.
+    *
+    * @return Grid coordinates of {@code values}, {@code NaN} for points
+    * outside the set.
+    *
+    * @throws VisADException if a point could not be located.
+    */
+   public float[][] valueToGrid(float[][] values, int parallelism) throws VisADException {
+      final int numPoints = values[0].length;
+      final float[][] grid = new float[2][numPoints];
+      if (buckets.length == 0) {
+         return set.valueToGrid(values);
+      }
+
+      final byte[] status = new byte[numPoints];
+      try {
+         ParallelRows.run(0, numPoints - 1, POINTS_PER_TASK, parallelism, (start, stop) -> {
+            float[] out = new float[2];
+            for (int i = start; i <= stop; i++) {
+               int result = locate(values[0][i], values[1][i], out);
+               status[i] = (byte) result;
+               if (result == FOUND) {
+                  grid[0][i] = out[0];
+                  grid[1][i] = out[1];
+               }
+               else {
+                  grid[0][i] = Float.NaN;
+                  grid[1][i] = Float.NaN;
+               }
+            }
+         });
+      }
+      catch (VisADException | RuntimeException e) {
+         throw e;
+      }
+      catch (Exception e) {
+         throw new VisADException("SwathLocationIndex: " + e);
+      }
+
+      // anything the index could not place goes through the full set
+      int unresolved = 0;
+      for (int i = 0; i < numPoints; i++) {
+         if (status[i] == UNRESOLVED) {
+            unresolved++;
+         }
+      }
+      if (unresolved > 0) {
+         int[] which = new int[unresolved];
+         float[][] rest = new float[2][unresolved];
+         int n = 0;
+         for (int i = 0; i < numPoints; i++) {
+            if (status[i] == UNRESOLVED) {
+               which[n] = i;
+               rest[0][n] = values[0][i];
+               rest[1][n] = values[1][i];
+               n++;
+            }
+         }
+         rest = set.valueToGrid(rest);
+         for (int k = 0; k < unresolved; k++) {
+            grid[0][which[k]] = rest[0][k];
+            grid[1][which[k]] = rest[1][k];
+         }
+      }
+      return grid;
+   }
+
+   /**
+    * Locate one point.
+    *
+    * @param x First coordinate of the point.
+    * @param y Second coordinate of the point.
+    * @param out Receives the grid coordinates if the point is found.
+    *
+    * @return {@link #FOUND}, {@link #OUTSIDE} if the point is clearly
+    * outside the set, or {@link #UNRESOLVED} if the full set has to be
+    * searched.
+    *
+    * @throws VisADException if a window of the set could not be searched.
+    */
+   private int locate(float x, float y, float[] out) throws VisADException {
+      if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) {
+         // also catches NaN
+         return OUTSIDE;
+      }
+      int sample = nearbySample(bucketX(x), bucketY(y));
+      if (sample < 0) {
+         return OUTSIDE;
+      }
+      int result = locateInWindow(x, y, sample, WINDOW_RADIUS, out);
+      if (result == UNRESOLVED) {
+         result = locateInWindow(x, y, sample, WIDE_WINDOW_RADIUS, out);
+      }
+      return result;
+   }
+
+   /**
+    * Find a sample in the bucket at ({@code bx}, {@code by}), or failing
+    * that in the closest non-empty bucket no more than
+    * {@link #MAX_BUCKET_RING} buckets away.
+    *
+    * @return Sample index, or {@code -1} if all of those buckets are empty.
+    */
+   private int nearbySample(int bx, int by) {
+      int sample = buckets[bucketIndex(bx, by)];
+      for (int ring = 1; sample < 0 && ring <= MAX_BUCKET_RING; ring++) {
+         for (int j = by - ring; j <= by + ring && sample < 0; j++) {
+            if (j < 0 || j >= bucketsY) {
+               continue;
+            }
+            int step = (j == by - ring || j == by + ring) ? 1 : 2 * ring;
+            for (int i = bx - ring; i <= bx + ring; i += step) {
+               if (i >= 0 && i < bucketsX && buckets[bucketIndex(i, j)] >= 0) {
+                  sample = buckets[bucketIndex(i, j)];
+                  break;
+               }
+            }
+         }
+      }
+      return sample;
+   }
+
+   /**
+    * Locate a point in the window of the set within {@code radius} samples
+    * of {@code sample}.
+    *
+    * @return {@link #FOUND}, or {@link #UNRESOLVED} if the point was not
+    * in the window.
+    */
+   private int locateInWindow(float x, float y, int sample, int radius, float[] out) throws VisADException {
+      int cx = sample % lenX;
+      int cy = sample / lenX;
+      int x0 = Math.max(0, cx - radius);
+      int y0 = Math.max(0, cy - radius);
+      int x1 = Math.min(lenX - 1, cx + radius);
+      int y1 = Math.min(lenY - 1, cy + radius);
+      int w = x1 - x0 + 1;
+      int h = y1 - y0 + 1;
+
+      float[][] window = new float[2][w * h];
+      for (int j = 0; j < h; j++) {
+         System.arraycopy(xs, (y0 + j) * lenX + x0, window[0], j * w, w);
+         System.arraycopy(ys, (y0 + j) * lenX + x0, window[1], j * w, w);
+      }
+      Gridded2DSet local = new Gridded2DSet(domainType, window, w, h, null, null, null, false, false);
+      float[][] g = local.valueToGrid(new float[][] {{x}, {y}});
+      if (g[0][0] == g[0][0] && g[1][0] == g[1][0]) {
+         out[0] = g[0][0] + x0;
+         out[1] = g[1][0] + y0;
+         return FOUND;
+      }
+      // a window can miss a point near a curved or folded edge even when
+      // the set holds it, so only the full set can say it is outside
+      return UNRESOLVED;
+   }
+
+   /**
+    * @return Mean distance between a sample and its next neighbor along
+    * either grid axis, from a sampling of the rows, or {@code NaN} if no
+    * pair of neighbors is valid.
+    */
+   private double meanSpacing() {
+      int rowStep = Math.max(1, lenY / 64);
+      double sum = 0;
+      long pairs = 0;
+      for (int j = 0; j < lenY - 1; j += rowStep) {
+         for (int i = 0; i < lenX - 1; i++) {
+            int k = j * lenX + i;
+            double d = Math.max(distance(k, k + 1), distance(k, k + lenX));
+            if (d == d) {
+               sum += d;
+               pairs++;
+            }
+         }
+      }
+      return sum / pairs;
+   }
+
+   private double distance(int a, int b) {
+      double dx = xs[a] - xs[b];
+      double dy = ys[a] - ys[b];
+      return Math.sqrt(dx * dx + dy * dy);
+   }
+
+   private int bucketX(float x) {
+      return Math.min(bucketsX - 1, (int) ((x - minX) * invBucketSize));
+   }
+
+   private int bucketY(float y) {
+      return Math.min(bucketsY - 1, (int) ((y - minY) * invBucketSize));
+   }
+
+   private int bucketIndex(int bx, int by) {
+      return by * bucketsX + bx;
+   }
+
+   /**
+    * @return Estimated size of the index in bytes.
+    */
+   public long getSize() {
+      return 4L * buckets.length;
+   }
+}
@@ -91,6 +91,8 @@ public class SwathNavigation implements Navigation  {
 
   Class type;
 
+  Gridded2DSet interpSet;
+
   public SwathNavigation(SwathAdapter swathAdapter) throws Exception {
 
     Map<String, Object> metadata = swathAdapter.getMetadata();
@@ -267,17 +269,34 @@ public class SwathNavigation implements Navigation  {
       length[track_idx]  = (int) ((last[track_idx] - first[track_idx])/stride[geo_track_idx] + 1);
       length[xtrack_idx] = (int) ((last[xtrack_idx] - first[xtrack_idx])/stride[geo_xtrack_idx] + 1);
 
-      domainSet = new Linear2DSet(first[0], last[0], length[0], first[1], last[1], length[1]);
-   
-      Gridded2DSet gset = null;
+      Linear2DSet navDomainSet = new Linear2DSet(first[0], last[0], length[0], first[1], last[1], length[1]);
+
+      // every band sharing this navigation reads the same geolocation, so
+      // the set and the coordinate system built on it come from a cache
+      // shared by everything reading through this reader
+      GeolocationCache cache = GeolocationCache.getInstance(reader);
+      GeolocationCache.Key geoKey = new GeolocationCache.Key(getClass(),
+          lon_array_name, lat_array_name, scale_name, offset_name, fillValue_name,
+          geo_start.clone(), geo_count.clone(), geo_stride.clone());
 
-      gset = createInterpSet();
+      LongitudeLatitudeCoordinateSystem cs = cache.getCoordinateSystem(geoKey, navDomainSet,
+          () -> new LongitudeLatitudeCoordinateSystem(navDomainSet,
+                    cache.getInterpSet(geoKey, this::createInterpSet)));
 
-      CoordinateSystem cs = new LongitudeLatitudeCoordinateSystem(domainSet, gset);
+      interpSet = cs.getTheGridded2DSet();
 
       return cs;
   }
 
+  /**
+   * @return Geolocation set behind the most recent
+   * {@link #getVisADCoordinateSystem(Linear2DSet, Map)} call, or
+   * {@code null} if there has not been one.
+   */
+  Gridded2DSet getLastInterpSet() {
+    return interpSet;
+  }
+
   Gridded2DSet createInterpSet() throws Exception {
     Gridded2DSet gset = null;
     if (type == Float.TYPE) {
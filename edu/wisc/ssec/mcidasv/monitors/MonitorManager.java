@@ -34,6 +34,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import edu.wisc.ssec.mcidasv.monitors.cache.CacheMonitor;
 import edu.wisc.ssec.mcidasv.monitors.memory.MemoryMonitor;
 import edu.wisc.ssec.mcidasv.monitors.time.TimeMonitor;
 
@@ -41,7 +42,7 @@ import ucar.unidata.util.CacheManager;
 
 public class MonitorManager {
 
-    public enum MonitorType { MEMORY, TIME };
+    public enum MonitorType { MEMORY, TIME, CACHE };
 
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(3);
 
@@ -52,6 +53,7 @@ public class MonitorManager {
     public MonitorManager() {
         monitors.put(MonitorType.MEMORY, new MemoryMonitor(this, 75, 95));
         monitors.put(MonitorType.TIME, new TimeMonitor());
+        monitors.put(MonitorType.CACHE, new CacheMonitor());
     }
 
     public void addListener(final MonitorType type, final Monitoring listener) {
@@ -0,0 +1,128 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ * 
+ * All Rights Reserved
+ * 
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.  
+ * 
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+package edu.wisc.ssec.mcidasv.monitors.cache;
+
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.SwingUtilities;
+
+import ucar.unidata.data.DataSourceImpl;
+
+import visad.data.DataCacheManager;
+
+import edu.wisc.ssec.mcidasv.monitors.Monitorable;
+import edu.wisc.ssec.mcidasv.monitors.Monitoring;
+
+/**
+ * Polls the {@link DataCacheManager} and reports how much of the cache is
+ * in memory, how much has been spilled to disk, and how often lookups
+ * had to go to disk since the last poll. Also shows how many data source
+ * loads were shared by requests for the same data, and how many requests
+ * were answered from cached data that covered a larger area.
+ */
+public class CacheMonitor implements Monitorable {
+
+    private static final double MB = 1048576.0;
+
+    private final DecimalFormat fmt = new DecimalFormat("#0");
+
+    private final DecimalFormat latencyFmt = new DecimalFormat("#0.0");
+
+    private final List<Monitoring> listeners = new CopyOnWriteArrayList<>();
+
+    private long lastHits = -1;
+
+    private long lastMisses = -1;
+
+    public CacheMonitor() {
+        // nothin!
+    }
+
+    public void addMonitor(final Monitoring listener) {
+        listeners.add(listener);
+    }
+
+    public void removeMonitor(final Monitoring listener) {
+        if (!listeners.isEmpty()) {
+            listeners.remove(listener);
+        }
+    }
+
+    public boolean hasMonitors() {
+        return !listeners.isEmpty();
+    }
+
+    public void run() {
+        DataCacheManager cache = DataCacheManager.getCacheManager();
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+
+        // hit ratio over the last interval, so the readout follows what
+        // the user is doing now rather than the whole session
+        String ratio = "-";
+        if (lastHits >= 0 && hits >= lastHits && misses >= lastMisses) {
+            long lookups = (hits - lastHits) + (misses - lastMisses);
+            if (lookups > 0) {
+                ratio = fmt.format(100.0 * (hits - lastHits) / lookups) + "%";
+            }
+        }
+        lastHits = hits;
+        lastMisses = misses;
+
+        String output = " Cache: " +
+                        fmt.format(cache.getResidentBytes() / MB) + "/" +
+                        fmt.format(cache.getMaxBytes() / MB) + " MB  hits " +
+                        ratio + " ";
+
+        String details = "<html>Cache in memory/max: " +
+                         fmt.format(cache.getResidentBytes() / MB) + "/" +
+                         fmt.format(cache.getMaxBytes() / MB) + " MB" +
+                         "<br>On disk: " + fmt.format(cache.getSpilledBytes() / MB) + " MB" +
+                         "<br>Entries: " + cache.getEntryCount() +
+                         " (" + cache.getResidentEntryCount() + " in memory)" +
+                         "<br>Hits/misses: " + hits + "/" + misses +
+                         "<br>Spills/reloads/drops: " + cache.getSpillCount() + "/" +
+                         cache.getReloadCount() + "/" + cache.getDropCount() +
+                         "<br>Mean reload: " + latencyFmt.format(cache.getMeanReloadMillis()) + " ms" +
+                         "<br>Data loads/shared/subset: " + DataSourceImpl.getDataLoadCount() + "/" +
+                         DataSourceImpl.getCoalescedDataLoadCount() + "/" +
+                         DataSourceImpl.getSubsetCacheHitCount() +
+                         "</html>";
+
+        final CacheMonitorEvent event = new CacheMonitorEvent(this, output, details);
+        for (final Monitoring listener : listeners) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    listener.monitorUpdated(event);
+                }
+            });
+        }
+    }
+}
@@ -164,6 +164,8 @@ import edu.wisc.ssec.mcidasv.Constants;
 import edu.wisc.ssec.mcidasv.McIDASV;
 import edu.wisc.ssec.mcidasv.PersistenceManager;
 import edu.wisc.ssec.mcidasv.StateManager;
+import edu.wisc.ssec.mcidasv.monitors.MonitorManager.MonitorType;
+import edu.wisc.ssec.mcidasv.monitors.cache.CachePanel;
 import edu.wisc.ssec.mcidasv.supportform.McvStateCollector;
 import edu.wisc.ssec.mcidasv.supportform.SupportForm;
 import edu.wisc.ssec.mcidasv.util.Contract;
@@ -240,6 +242,12 @@ public class UIManager extends IdvUIManager implements ActionListener {
     /** The IDV property that reflects the size of the icons. */
     private static final String PROP_ICON_SIZE = "mcv.ui.iconsize";
 
+    /**
+     * Whether or not the data cache readout is shown next to the memory
+     * monitor in the status bar.
+     */
+    public static final String PROP_SHOW_CACHE_MONITOR = "mcidasv.monitor.cache";
+
     /** The URL of the script that processes McIDAS-V support requests. */
     private static final String SUPPORT_REQ_URL = 
         "http://www.ssec.wisc.edu/mcidas/misc/mc-v/supportreq/support.php";
@@ -1196,6 +1204,14 @@ public class UIManager extends IdvUIManager implements ActionListener {
         MemoryMonitor mm = new MemoryMonitor(getStateManager(), 75, 95, isClockShowing);
         mm.setBorder(getStatusBorder());
 
+        JComponent monitors = mm;
+        if (Boolean.parseBoolean(getStateManager().getPreferenceOrProperty(PROP_SHOW_CACHE_MONITOR, "false"))) {
+            CachePanel cachePanel = new CachePanel();
+            ((McIDASV)getIdv()).getMonitorManager().addListener(MonitorType.CACHE, cachePanel);
+            cachePanel.setBorder(getStatusBorder());
+            monitors = LayoutUtil.hbox(mm, cachePanel);
+        }
+
         // MAKE PRETTY NOW!
         progress.setBorder(getStatusBorder());
         waitLabel.setBorder(getStatusBorder());
@@ -1203,7 +1219,7 @@ public class UIManager extends IdvUIManager implements ActionListener {
 //        ((JPanel)label).setBorder(getStatusBorder());
 
 //        JPanel msgBar = GuiUtils.leftCenter((JPanel)label, msgLabel);
-        JPanel msgBar = LayoutUtil.leftCenter(mm, msgLabel);
+        JPanel msgBar = LayoutUtil.leftCenter(monitors, msgLabel);
         JPanel statusBar = LayoutUtil.centerRight(msgBar, progress);
         statusBar.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
         return statusBar;
@@ -0,0 +1,174 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+package edu.wisc.ssec.mcidasv.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a loop over a range of rows as fork/join tasks. The range is split
+ * in half until each piece is at most one tile of rows, and idle workers
+ * steal tiles from busy ones. This keeps every thread busy even when the
+ * cost per row is very uneven (think of a swath that only covers part of
+ * the target grid).
+ *
+ * <p>All callers share one pool with a worker per processor, so concurrent
+ * callers share threads rather than each starting their own. A caller that
+ * asks for less parallelism gets fewer, larger tiles.</p>
+ */
+public final class ParallelRows {
+
+    /** Default number of rows per tile. */
+    public static final int DEFAULT_TILE_ROWS = 16;
+
+    /** Pool shared by every caller. */
+    private static final ForkJoinPool pool =
+        new ForkJoinPool(availableParallelism());
+
+    private ParallelRows() { }
+
+    /**
+     * Work done on a contiguous block of rows.
+     */
+    @FunctionalInterface
+    public interface RowRange {
+        /**
+         * @param start First row (inclusive).
+         * @param stop Last row (inclusive).
+         *
+         * @throws Exception if the rows could not be processed.
+         */
+        void run(int start, int stop) throws Exception;
+    }
+
+    /**
+     * @return Number of available processors.
+     */
+    public static int availableParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return Pool shared by every caller, with one worker per processor.
+     */
+    public static ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Process rows {@code start} through {@code stop} (inclusive).
+     *
+     * <p>If {@code parallelism} is one or less, or the range fits in one
+     * tile, {@code task} is simply run on the calling thread. Parallelism
+     * above the size of the shared pool is capped at that size; below it,
+     * tiles are made large enough that there are about
+     * {@code parallelism} of them.</p>
+     *
+     * @param start First row (inclusive).
+     * @param stop Last row (inclusive).
+     * @param tileRows Maximum number of rows handed to one task.
+     * @param parallelism Number of worker threads to use.
+     * @param task Work to do for each block of rows.
+     *
+     * @throws Exception the first exception thrown by {@code task}.
+     */
+    public static void run(int start, int stop, int tileRows, int parallelism, RowRange task) throws Exception {
+        if (stop < start) {
+            return;
+        }
+        int rows = stop - start + 1;
+        int tile = Math.max(1, tileRows);
+        int workers = Math.min(parallelism, pool.getParallelism());
+        if (workers <= 1 || rows <= tile) {
+            task.run(start, stop);
+            return;
+        }
+        if (workers < pool.getParallelism()) {
+            tile = Math.max(tile, (rows + workers - 1) / workers);
+        }
+        try {
+            pool.invoke(new Tile(start, stop, tile, task));
+        } catch (TileFailure e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Same as {@link #run(int, int, int, int, RowRange)}, using
+     * {@link #DEFAULT_TILE_ROWS}.
+     *
+     * @param start First row (inclusive).
+     * @param stop Last row (inclusive).
+     * @param parallelism Number of worker threads to use.
+     * @param task Work to do for each block of rows.
+     *
+     * @throws Exception the first exception thrown by {@code task}.
+     */
+    public static void run(int start, int stop, int parallelism, RowRange task) throws Exception {
+        run(start, stop, DEFAULT_TILE_ROWS, parallelism, task);
+    }
+
+    private static final class Tile extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int start;
+        private final int stop;
+        private final int tileRows;
+        private final RowRange task;
+
+        Tile(int start, int stop, int tileRows, RowRange task) {
+            this.start = start;
+            this.stop = stop;
+            this.tileRows = tileRows;
+            this.task = task;
+        }
+
+        @Override protected void compute() {
+            if ((stop - start + 1) <= tileRows) {
+                try {
+                    task.run(start, stop);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new TileFailure(e);
+                }
+                return;
+            }
+            int mid = start + (stop - start) / 2;
+            invokeAll(new Tile(start, mid, tileRows, task),
+                      new Tile(mid + 1, stop, tileRows, task));
+        }
+    }
+
+    /** Carries checked exceptions out of {@link Tile#compute()}. */
+    private static final class TileFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        TileFailure(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ * 
+ * All Rights Reserved
+ * 
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.  
+ * 
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+
+package ucar.unidata.data;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * Immutable key used by {@link DataSourceImpl} to cache the data it reads.
+ *
+ * A key holds the data choice, compared with its own equals and hashCode,
+ * the data selection with its bounding box pulled out and rounded, and the
+ * request properties. Request properties are kept sorted, so two requests
+ * that only differ in the order of their properties get the same key. The
+ * hash code is computed once.
+ *
+ * Because the bounding box is held on its own, the key can also tell when
+ * the data cached for another key covers a larger area but is otherwise
+ * the same request. See {@link #getRegionFreeKey()} and {@link #covers}.
+ */
+public final class DataCacheKey {
+
+    /** Bounding box values are rounded to this many parts per degree */
+    private static final double BOX_PRECISION = 1.0e6;
+
+    /** Data choice, or whatever key a data source made itself */
+    private final Object choice;
+
+    /** The data selection, without its bounding box */
+    private final DataSelection selection;
+
+    /** The data selection as given. Not part of the key. */
+    private final DataSelection dataSelection;
+
+    /** Rounded min lat, max lat, min lon, max lon. Null for no box. */
+    private final long[] box;
+
+    /** Request properties */
+    private final SortedMap<String, String> requestProperties;
+
+    /** The hash code */
+    private final int hash;
+
+    /**
+     * Create the key for a request
+     *
+     * @param dataChoice data choice
+     * @param dataSelection data selection. May be null.
+     * @param requestProperties request properties. May be null.
+     */
+    public DataCacheKey(DataChoice dataChoice, DataSelection dataSelection,
+                        Hashtable requestProperties) {
+        this(dataChoice, withoutBox(dataSelection), dataSelection,
+             box(dataSelection), sorted(requestProperties));
+    }
+
+    /**
+     * Wrap a key made by a data source with the request properties
+     *
+     * @param baseKey the data source's key
+     * @param requestProperties request properties. May be null.
+     */
+    public DataCacheKey(Object baseKey, Hashtable requestProperties) {
+        this(baseKey, null, null, null, sorted(requestProperties));
+    }
+
+    /**
+     * ctor
+     *
+     * @param choice data choice or key
+     * @param selection selection without the box
+     * @param dataSelection selection as given
+     * @param box rounded box
+     * @param requestProperties request properties
+     */
+    private DataCacheKey(Object choice, DataSelection selection,
+                         DataSelection dataSelection, long[] box,
+                         SortedMap<String, String> requestProperties) {
+        this.choice            = choice;
+        this.selection         = selection;
+        this.dataSelection     = dataSelection;
+        this.box               = box;
+        this.requestProperties = requestProperties;
+        int h = Objects.hash(choice, selection, requestProperties);
+        this.hash = 31 * h + Arrays.hashCode(box);
+    }
+
+    /**
+     * Get this key without its bounding box. Keys that are the same except
+     * for their boxes have the same region free key.
+     *
+     * @return the key without a box, or this key if it has no box
+     */
+    public DataCacheKey getRegionFreeKey() {
+        if (box == null) {
+            return this;
+        }
+        return new DataCacheKey(choice, selection, null, null,
+                                requestProperties);
+    }
+
+    /**
+     * Does this key have a bounding box
+     *
+     * @return true if it does
+     */
+    public boolean hasRegion() {
+        return box != null;
+    }
+
+    /**
+     * Does the area of this key cover the area of that key. The caller is
+     * expected to have checked that the two keys have the same region free
+     * key. A key without a box covers everything.
+     *
+     * @param that the other key
+     *
+     * @return true if this key's area contains that key's area
+     */
+    public boolean covers(DataCacheKey that) {
+        if (box == null) {
+            return true;
+        }
+        if (that.box == null) {
+            return false;
+        }
+        if ((that.box[0] < box[0]) || (that.box[1] > box[1])) {
+            return false;
+        }
+        long full     = Math.round(360 * BOX_PRECISION);
+        long width    = lonWidth(box, full);
+        long start    = Math.floorMod(that.box[2] - box[2], full);
+        long thatSpan = lonWidth(that.box, full);
+        return start + thatSpan <= width;
+    }
+
+    /**
+     * Get the data selection this key was made from, box and all
+     *
+     * @return the selection. May be null.
+     */
+    public DataSelection getDataSelection() {
+        return dataSelection;
+    }
+
+    /**
+     * Get the longitude extent of a box
+     *
+     * @param box the box
+     * @param full 360 degrees
+     *
+     * @return the width of the box
+     */
+    private static long lonWidth(long[] box, long full) {
+        long width = box[3] - box[2];
+        if (width < 0) {
+            width += full;
+        }
+        return Math.min(width, full);
+    }
+
+    /**
+     * Normalize a table into sorted strings
+     *
+     * @param table the table. May be null.
+     *
+     * @return the sorted contents
+     */
+    private static SortedMap<String, String> sorted(Hashtable table) {
+        if ((table == null) || table.isEmpty()) {
+            return Collections.emptySortedMap();
+        }
+        SortedMap<String, String> result = new TreeMap<>();
+        for (Object o : table.entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            if (DataChoice.PROP_REQUESTER.equals(entry.getKey())) {
+                continue;
+            }
+            result.put(String.valueOf(entry.getKey()),
+                       String.valueOf(entry.getValue()));
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    /**
+     * Get the rounded bounding box of the selection
+     *
+     * @param dataSelection the selection
+     *
+     * @return the box, or null if there is none
+     */
+    private static long[] box(DataSelection dataSelection) {
+        GeoSelection geoSelection = (dataSelection != null)
+                                    ? dataSelection.getGeoSelection()
+                                    : null;
+        GeoLocationInfo bbox = (geoSelection != null)
+                               ? geoSelection.getBoundingBox()
+                               : null;
+        if (bbox == null) {
+            return null;
+        }
+        return new long[] { Math.round(bbox.getMinLat() * BOX_PRECISION),
+                            Math.round(bbox.getMaxLat() * BOX_PRECISION),
+                            Math.round(bbox.getMinLon() * BOX_PRECISION),
+                            Math.round(bbox.getMaxLon() * BOX_PRECISION) };
+    }
+
+    /**
+     * Copy the selection with its bounding box taken out
+     *
+     * @param dataSelection the selection
+     *
+     * @return the copy
+     */
+    private static DataSelection withoutBox(DataSelection dataSelection) {
+        if (dataSelection == null) {
+            return null;
+        }
+        DataSelection copy         = dataSelection.cloneMe();
+        GeoSelection  geoSelection = dataSelection.getGeoSelection();
+        if ((geoSelection != null)
+                && (geoSelection.getBoundingBox() != null)) {
+            GeoSelection noBox = new GeoSelection(geoSelection);
+            noBox.setBoundingBox(null);
+            copy.setGeoSelection(noBox);
+        }
+        return copy;
+    }
+
+    /**
+     * Get the hash code
+     *
+     * @return the hash code
+     */
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Is this key the same as the given object
+     *
+     * @param o the object
+     *
+     * @return true if it is
+     */
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if ( !(o instanceof DataCacheKey)) {
+            return false;
+        }
+        DataCacheKey that = (DataCacheKey) o;
+        return (hash == that.hash) && Arrays.equals(box, that.box)
+               && Objects.equals(choice, that.choice)
+               && requestProperties.equals(that.requestProperties)
+               && Objects.equals(selection, that.selection);
+    }
+
+    /**
+     * To string
+     *
+     * @return string
+     */
+    public String toString() {
+        return "DataCacheKey[" + choice + " box:"
+               + Arrays.toString(box) + " " + requestProperties
+               + "]";
+    }
+}
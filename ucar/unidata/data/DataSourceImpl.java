@@ -78,12 +78,18 @@ import java.awt.event.ActionListener;
 
 import java.io.File;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 
 import java.rmi.RemoteException;
 
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -253,6 +259,31 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
     /** mutex used when accessing the outstanding getdata calls counter */
     private static Object MUTEX_OUTSTANDINGGETDATACALLS = new Object();
 
+    /** How many get data calls actually loaded their data */
+    private static final LongAdder dataLoads = new LongAdder();
+
+    /** How many get data calls were answered by someone else's load of the same data */
+    private static final LongAdder coalescedDataLoads = new LongAdder();
+
+    /** How many get data calls were answered by subsetting larger cached data */
+    private static final LongAdder subsetCacheHits = new LongAdder();
+
+    /** Loads that are in progress, keyed by cache key */
+    private final ConcurrentHashMap<Object, Load> inFlightLoads =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Keys of data we have cached, grouped by their region free key, so
+     * that a request for a smaller area can find cached data that covers it.
+     * The data is only weakly held, so entries for data the CacheManager
+     * has dropped go away once the data is collected.
+     */
+    private final Map<DataCacheKey, List<IndexedData>> regionIndex =
+        new HashMap<>();
+
+    /** Where indexed data that has been collected shows up */
+    private final ReferenceQueue<Data> collectedData = new ReferenceQueue<>();
+
 
     /** properties widget */
     private JCheckBox cacheDataToDiskCbx;
@@ -1109,6 +1140,9 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
     protected void flushCache() {
         // System.out.println("flushing cache");
         CacheManager.remove(dataCacheKey);
+        synchronized (regionIndex) {
+            regionIndex.clear();
+        }
     }
 
 
@@ -1162,6 +1196,9 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
      */
     public void removeCache(Object key) {
         CacheManager.remove(dataCacheKey, key);
+        if (key instanceof DataCacheKey) {
+            unindexCacheKey((DataCacheKey) key);
+        }
     }
 
 
@@ -2334,7 +2371,40 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
     }
 
     /**
-     * Utility to create the key used when caching
+     * How many get data calls, across all data sources, missed the cache
+     * and loaded their data
+     *
+     * @return Number of loads
+     */
+    public static long getDataLoadCount() {
+        return dataLoads.sum();
+    }
+
+    /**
+     * How many get data calls, across all data sources, found the same
+     * data already being loaded and were answered with what that load
+     * cached instead of doing their own
+     *
+     * @return Number of duplicate loads that were avoided
+     */
+    public static long getCoalescedDataLoadCount() {
+        return coalescedDataLoads.sum();
+    }
+
+    /**
+     * How many get data calls, across all data sources, were answered by
+     * subsetting cached data that covered a larger area
+     *
+     * @return Number of requests answered from a cached superset
+     */
+    public static long getSubsetCacheHitCount() {
+        return subsetCacheHits.sum();
+    }
+
+    /**
+     * Utility to create the key used when caching. If this returns
+     * something other than a {@link DataCacheKey} it is wrapped in one
+     * along with the request properties.
      *
      * @param dataChoice data choice
      * @param dataSelection data selection
@@ -2345,7 +2415,157 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
     protected Object createCacheKey(DataChoice dataChoice,
                                     DataSelection dataSelection,
                                     Hashtable requestProperties) {
-        return Misc.newList(dataChoice, dataSelection);
+        return new DataCacheKey(dataChoice, dataSelection,
+                                requestProperties);
+    }
+
+    /**
+     * Can a request be answered by subsetting cached data that covers a
+     * larger area. If so, {@link #subsetCachedData} is called to do it.
+     *
+     * @return false. Derived classes can override.
+     */
+    protected boolean canSubsetCachedData() {
+        return false;
+    }
+
+    /**
+     * Subset data that was cached for a larger area down to the area of
+     * the given selection. The cached data is for the same data choice,
+     * times, levels, strides and properties. The subset has to be what
+     * reading the data for the selection would have given; if that can
+     * not be done, return null.
+     *
+     * @param dataChoice the data choice
+     * @param superset the cached data
+     * @param supersetSelection the selection the cached data was read for
+     * @param dataSelection the selection being asked for
+     *
+     * @return the subset, or null to read the data as usual
+     *
+     * @throws RemoteException    Java RMI problem
+     * @throws VisADException     VisAD problem
+     */
+    protected Data subsetCachedData(DataChoice dataChoice, Data superset,
+                                    DataSelection supersetSelection,
+                                    DataSelection dataSelection)
+            throws VisADException, RemoteException {
+        return null;
+    }
+
+    /**
+     * Look for cached data that covers the area of the given key and
+     * subset it.
+     *
+     * @param dataChoice the data choice
+     * @param cacheKey the key being asked for
+     * @param dataSelection the selection being asked for
+     *
+     * @return the subset or null
+     *
+     * @throws RemoteException    Java RMI problem
+     * @throws VisADException     VisAD problem
+     */
+    private Data getFromCachedSuperset(DataChoice dataChoice,
+                                       DataCacheKey cacheKey,
+                                       DataSelection dataSelection)
+            throws VisADException, RemoteException {
+        if ( !cacheKey.hasRegion() || !canSubsetCachedData()) {
+            return null;
+        }
+        List<DataCacheKey> candidates = new ArrayList<>();
+        synchronized (regionIndex) {
+            pruneRegionIndex();
+            List<IndexedData> entries =
+                regionIndex.get(cacheKey.getRegionFreeKey());
+            if (entries == null) {
+                return null;
+            }
+            for (IndexedData entry : entries) {
+                candidates.add(entry.key);
+            }
+        }
+        for (DataCacheKey candidate : candidates) {
+            if (candidate.equals(cacheKey) || !candidate.covers(cacheKey)) {
+                continue;
+            }
+            Data superset = (Data) getCache(candidate);
+            if (superset == null) {
+                //It has been dropped from the cache
+                unindexCacheKey(candidate);
+                continue;
+            }
+            Data subset = subsetCachedData(dataChoice, superset,
+                                           candidate.getDataSelection(),
+                                           dataSelection);
+            if (subset != null) {
+                subsetCacheHits.increment();
+                log_.debug("subset cached data for:" + cacheKey);
+                return subset;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remember that we cached data under the given key
+     *
+     * @param cacheKey the key
+     * @param data the data that was cached
+     */
+    private void indexCacheKey(DataCacheKey cacheKey, Data data) {
+        synchronized (regionIndex) {
+            pruneRegionIndex();
+            List<IndexedData> entries =
+                regionIndex.computeIfAbsent(cacheKey.getRegionFreeKey(),
+                                            k -> new ArrayList<>());
+            entries.removeIf(entry -> entry.key.equals(cacheKey));
+            entries.add(new IndexedData(cacheKey, data, collectedData));
+        }
+    }
+
+    /**
+     * Forget the given key
+     *
+     * @param cacheKey the key
+     */
+    private void unindexCacheKey(DataCacheKey cacheKey) {
+        synchronized (regionIndex) {
+            removeIndexEntry(cacheKey, null);
+        }
+    }
+
+    /**
+     * Drop the index entries of data that has been collected. Callers hold
+     * the lock on the region index.
+     */
+    private void pruneRegionIndex() {
+        IndexedData entry;
+        while ((entry = (IndexedData) collectedData.poll()) != null) {
+            removeIndexEntry(entry.key, entry);
+        }
+    }
+
+    /**
+     * Remove a key from the region index. Callers hold the lock on the
+     * region index.
+     *
+     * @param cacheKey the key
+     * @param entry only remove this entry. If null remove any entry for
+     *              the key.
+     */
+    private void removeIndexEntry(DataCacheKey cacheKey, IndexedData entry) {
+        DataCacheKey      regionFree = cacheKey.getRegionFreeKey();
+        List<IndexedData> entries    = regionIndex.get(regionFree);
+        if (entries == null) {
+            return;
+        }
+        entries.removeIf(e -> (entry == null)
+                              ? e.key.equals(cacheKey)
+                              : (e == entry));
+        if (entries.isEmpty()) {
+            regionIndex.remove(regionFree);
+        }
     }
 
 
@@ -2363,10 +2583,9 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
      * @throws RemoteException    Java RMI problem
      * @throws VisADException     VisAD problem
      */
-    public synchronized Data getData(DataChoice dataChoice,
-                                     DataCategory category,
-                                     DataSelection incomingDataSelection,
-                                     Hashtable requestProperties)
+    public Data getData(DataChoice dataChoice, DataCategory category,
+                        DataSelection incomingDataSelection,
+                        Hashtable requestProperties)
             throws VisADException, RemoteException {
 
 
@@ -2374,76 +2593,225 @@ public class DataSourceImpl extends SharableImpl implements DataSource,
             return null;
         }
 
-        //start up polling if we have not done so already.
-        initPolling();
+        DataSelection selection;
+        DataCacheKey  cacheKey;
+        synchronized (this) {
+            //start up polling if we have not done so already.
+            initPolling();
 
 
-        //Just call this in case it has not been called yet
-        //because it can trigger a failure in some of
-        //the derived DataSource classes.
-        getDataChoices();
-        getAllDateTimes();
+            //Just call this in case it has not been called yet
+            //because it can trigger a failure in some of
+            //the derived DataSource classes.
+            getDataChoices();
+            getAllDateTimes();
 
 
-        log_.debug("data source data selection:" + getDataSelection());
-        log_.debug("incoming data selection:" + incomingDataSelection);
+            log_.debug("data source data selection:" + getDataSelection());
+            log_.debug("incoming data selection:" + incomingDataSelection);
 
-        DataSelection selection = DataSelection.merge(incomingDataSelection,
-                                      getDataSelection());
+            selection = DataSelection.merge(incomingDataSelection,
+                                            getDataSelection());
 
-        DataSelection lselection = selection.cloneMe();
+            DataSelection lselection = selection.cloneMe();
 
-        boolean isProgressiveResolution =
-            selection.getProperty(DataSelection.PROP_PROGRESSIVERESOLUTION,
-                                  false);
-
-        Object baseCacheKey = createCacheKey(dataChoice, lselection,
-                                             requestProperties);
-        List cacheKey = ((baseCacheKey != null)
-                         ? Misc.newList(baseCacheKey)
-                         : null);
-
-        if (requestProperties != null) {
-            Hashtable newProperties = (Hashtable) requestProperties.clone();
-            newProperties.remove(DataChoice.PROP_REQUESTER);
-            if ((cacheKey != null) && (newProperties.size() > 0)) {
-                cacheKey.add(newProperties.toString());
+            Object baseCacheKey = createCacheKey(dataChoice, lselection,
+                                      requestProperties);
+            if (baseCacheKey == null) {
+                cacheKey = null;
+            } else if (baseCacheKey instanceof DataCacheKey) {
+                cacheKey = (DataCacheKey) baseCacheKey;
+            } else {
+                cacheKey = new DataCacheKey(baseCacheKey, requestProperties);
             }
         }
 
-        /**
-         * if(true)
-         *   throw new IllegalArgumentException("BADNESS");
-         * if(!first)
-         *   throw new IllegalArgumentException("BADNESS");
-         * first = false;
-         */
+        if (cacheKey == null) {
+            synchronized (this) {
+                return loadData(dataChoice, category, selection,
+                                requestProperties, null);
+            }
+        }
 
-        // System.out.println(cacheKey.hashCode());
-        Data cachedData = ((cacheKey != null)
-                           ? (Data) getCache(cacheKey)
-                           : null);
-        if (cachedData == null) {
-            incrOutstandingGetDataCalls();
-            try {
-                LogUtil.message("Data: " + toStringTruncated() + ": "
-                                + dataChoice);
-                cachedData = getDataInner(dataChoice, category, selection,
-                                          requestProperties);
-
-                LogUtil.message("");
-            } finally {
-                decrOutstandingGetDataCalls();
+        Data cachedData = (Data) getCache(cacheKey);
+        if (cachedData != null) {
+            return cachedData;
+        }
+
+        //If someone else is already loading this data then wait for them.
+        //If it is us (the data is being derived from itself), or we already
+        //hold the lock the loading thread needs to finish, then just load it.
+        Load load     = new Load();
+        Load inFlight = inFlightLoads.putIfAbsent(cacheKey, load);
+        if (inFlight != null) {
+            if ((inFlight.owner != Thread.currentThread())
+                    && !Thread.holdsLock(this)) {
+                log_.debug("waiting for load already in progress:"
+                           + dataChoice);
+                waitForLoad(inFlight);
+                //Only share what went into the cache. Otherwise the data
+                //belongs to the caller that loaded it and we load our own.
+                cachedData = (Data) getCache(cacheKey);
+                if (cachedData != null) {
+                    coalescedDataLoads.increment();
+                    return cachedData;
+                }
             }
-            if ((cacheKey != null) && (cachedData != null)
-                    && shouldCache(dataChoice, cachedData)) {
-                // System.out.println(cacheKey.hashCode());
-                putCache(cacheKey, cachedData);
+            synchronized (this) {
+                return loadData(dataChoice, category, selection,
+                                requestProperties, cacheKey);
             }
-        } else {}
+        }
+
+        try {
+            synchronized (this) {
+                //It may have been cached while we waited
+                cachedData = (Data) getCache(cacheKey);
+                if (cachedData == null) {
+                    cachedData = getFromCachedSuperset(dataChoice, cacheKey,
+                            selection);
+                    if (cachedData != null) {
+                        cacheData(dataChoice, cacheKey, cachedData);
+                    }
+                }
+                if (cachedData == null) {
+                    cachedData = loadData(dataChoice, category, selection,
+                                          requestProperties, cacheKey);
+                }
+            }
+            load.complete(cachedData);
+            return cachedData;
+        } catch (VisADException | RemoteException | RuntimeException
+                     | Error exc) {
+            load.completeExceptionally(exc);
+            throw exc;
+        } finally {
+            inFlightLoads.remove(cacheKey, load);
+        }
+    }
+
+    /**
+     * Load the data through getDataInner and cache it. Callers hold the
+     * lock on this data source.
+     *
+     * @param dataChoice         choice that defines the data
+     * @param category           the data category
+     * @param selection          DataSelection for subsetting
+     * @param requestProperties  extra request properties
+     * @param cacheKey           key to cache the data under. May be null.
+     * @return  the associated data
+     *
+     * @throws RemoteException    Java RMI problem
+     * @throws VisADException     VisAD problem
+     */
+    private Data loadData(DataChoice dataChoice, DataCategory category,
+                          DataSelection selection,
+                          Hashtable requestProperties, DataCacheKey cacheKey)
+            throws VisADException, RemoteException {
+        Data cachedData;
+        dataLoads.increment();
+        incrOutstandingGetDataCalls();
+        try {
+            LogUtil.message("Data: " + toStringTruncated() + ": "
+                            + dataChoice);
+            cachedData = getDataInner(dataChoice, category, selection,
+                                      requestProperties);
+
+            LogUtil.message("");
+        } finally {
+            decrOutstandingGetDataCalls();
+        }
+        if ((cacheKey != null) && (cachedData != null)) {
+            cacheData(dataChoice, cacheKey, cachedData);
+        }
         return cachedData;
     }
 
+    /**
+     * Cache data if we should, and index it so requests for a smaller area
+     * can be subset from it.
+     *
+     * @param dataChoice  choice that defines the data
+     * @param cacheKey    key to cache the data under
+     * @param data        the data
+     */
+    private void cacheData(DataChoice dataChoice, DataCacheKey cacheKey,
+                           Data data) {
+        if ( !shouldCache(dataChoice, data)) {
+            return;
+        }
+        putCache(cacheKey, data);
+        if (canSubsetCachedData()) {
+            indexCacheKey(cacheKey, data);
+        }
+    }
+
+    /**
+     * Wait for a load started by another get data call to finish, and
+     * rethrow what it threw.
+     *
+     * @param load The load in progress
+     *
+     * @throws RemoteException    Java RMI problem
+     * @throws VisADException     VisAD problem
+     */
+    private static void waitForLoad(Load load)
+            throws VisADException, RemoteException {
+        try {
+            load.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new VisADException("Interrupted while waiting for data");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof VisADException) {
+                throw (VisADException) cause;
+            }
+            if (cause instanceof RemoteException) {
+                throw (RemoteException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new WrapperException(cause);
+        }
+    }
+
+    /**
+     * A load in progress, along with the thread doing it
+     */
+    private static class Load extends CompletableFuture<Data> {
+
+        /** The thread doing the load */
+        private final Thread owner = Thread.currentThread();
+    }
+
+    /**
+     * An entry in the region index: the key data was cached under and a
+     * weak reference to the data.
+     */
+    private static class IndexedData extends WeakReference<Data> {
+
+        /** The key the data was cached under */
+        private final DataCacheKey key;
+
+        /**
+         * Create the entry
+         *
+         * @param key The key the data was cached under
+         * @param data The data
+         * @param queue Where to put the entry once the data is collected
+         */
+        private IndexedData(DataCacheKey key, Data data,
+                            ReferenceQueue<Data> queue) {
+            super(data, queue);
+            this.key = key;
+        }
+    }
+
 
     /**
      * Have this one around for other, non-unidata, datasource implementations.
@@ -68,10 +68,12 @@ import visad.CachingCoordinateSystem;
 import visad.CartesianProductCoordinateSystem;
 import visad.CommonUnit;
 import visad.CoordinateSystem;
+import visad.Data;
 import visad.DateTime;
 import visad.EmpiricalCoordinateSystem;
 import visad.ErrorEstimate;
 import visad.FieldImpl;
+import visad.FlatField;
 import visad.FunctionType;
 import visad.Gridded1DSet;
 import visad.Gridded3DSet;
@@ -105,6 +107,7 @@ import java.io.IOException;
 import java.rmi.RemoteException;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.TreeMap;
@@ -160,9 +163,6 @@ public class GeoGridAdapter {
     /** the parameter type */
     RealType paramType;
 
-    /** Used to synchronize read access on the data set */
-    private Object readLock;
-
     /** Default vertical transform */
     private String vertcs = DataUtil.STD_ATMOSPHERE;
 
@@ -260,7 +260,6 @@ public class GeoGridAdapter {
                 }
             }
         }
-        this.readLock = dataSource.readLock;
         if (geoGrid == null) {
             throw new IllegalArgumentException(
                 "GeoGridAdapter: geogrid cannot be null");
@@ -1347,7 +1346,7 @@ public class GeoGridAdapter {
             retField = new CachedFlatField(ffType, domainSet, fieldArray);
         } else {
             Object readLockToUse = (dataSource.isLocalFile()
-                                    ? readLock
+                                    ? dataSource.getReadLock(geoGrid, timeIndex)
                                     : new Object());
 
             GeoGridFlatField ggff = new GeoGridFlatField(geoGrid,
@@ -1517,6 +1516,10 @@ public class GeoGridAdapter {
 
                     i++;
                 }
+                if (lazyEvaluation && (dataSource.getIdv() != null)
+                        && dataSource.shouldPrefetch()) {
+                    prefetch(gridMap.values(), loadId);
+                }
             } else {
                 if (testModeBuffer != null) {
                     System.err.println(testModeBuffer.toString());
@@ -1529,6 +1532,67 @@ public class GeoGridAdapter {
         return data;
     }
 
+    /**
+     * Read the values of all the lazily read fields in a sequence now,
+     * in parallel. Fields from the same file still take turns on that
+     * file's read lock, but reads from different files (and the
+     * conversion of what was read) overlap.
+     *
+     * @param fields  the time steps of the sequence
+     * @param loadId  loadId, checked so a cancelled load stops reading
+     *
+     * @throws Exception On badness
+     */
+    private void prefetch(Collection fields, final Object loadId)
+            throws Exception {
+        List<CachedFlatField> toRead = new ArrayList<CachedFlatField>();
+        for (Object field : fields) {
+            collectLazyFields((Data) field, toRead);
+        }
+        if (toRead.size() < 2) {
+            return;
+        }
+        Trace.call1("GeoGridAdapter.prefetch");
+        ThreadManager threadManager =
+            new ThreadManager("GeoGrid data prefetch");
+        for (final CachedFlatField field : toRead) {
+            threadManager.addRunnable(new ThreadManager.MyRunnable() {
+                public void run() throws Exception {
+                    if (JobManager.getManager().canContinue(loadId)) {
+                        field.unpackFloats(false);
+                    }
+                }
+            });
+        }
+        threadManager.runInParallel(
+            dataSource.getIdv().getMaxDataThreadCount());
+        Trace.call2("GeoGridAdapter.prefetch");
+    }
+
+    /**
+     * Find the GeoGridFlatFields that have not been read yet
+     *
+     * @param data  a time step; a GeoGridFlatField or an ensemble of them
+     * @param toRead  where to put them
+     *
+     * @throws Exception On badness
+     */
+    private void collectLazyFields(Data data, List<CachedFlatField> toRead)
+            throws Exception {
+        if (data instanceof GeoGridFlatField) {
+            GeoGridFlatField field = (GeoGridFlatField) data;
+            if ( !field.haveData()) {
+                toRead.add(field);
+            }
+        } else if ((data instanceof FieldImpl)
+                   && !(data instanceof FlatField)) {
+            FieldImpl field = (FieldImpl) data;
+            for (int i = 0; i < field.getLength(); i++) {
+                collectLazyFields(field.getSample(i, false), toRead);
+            }
+        }
+    }
+
 
     /**
      * Read the given time step from the GeoGrid
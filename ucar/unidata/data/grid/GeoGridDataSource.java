@@ -76,6 +76,7 @@ import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Range;
 import ucar.nc2.Attribute;
 import ucar.nc2.Group;
+import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.NetcdfFileWriter.Version;
 import ucar.nc2.Variable;
@@ -127,11 +128,14 @@ import ucar.unidata.util.WrapperException;
 import ucar.unidata.xml.XmlUtil;
 import ucar.visad.Util;
 import ucar.visad.data.CalendarDateTime;
+import ucar.visad.data.GeoGridFlatField;
 
 import visad.Data;
 import visad.DateTime;
 import visad.FieldImpl;
+import visad.GriddedSet;
 import visad.Real;
+import visad.SampledSet;
 import visad.VisADException;
 import visad.georef.EarthLocation;
 import visad.georef.EarthLocationTuple;
@@ -177,6 +181,15 @@ public class GeoGridDataSource extends GridDataSource {
     /** This is used to synchronize geogrid read access */
     protected final Object readLock = new Object();
 
+    /** number of times in each file of a time aggregation */
+    private int[] sourceTimeCounts;
+
+    /**
+     * Preference for reading every time step of a grid sequence up front,
+     * in parallel, instead of as each step is displayed.
+     */
+    public static final String PREF_GRID_PREFETCH = "idv.data.grid.prefetch";
+
     /** logging category */
     static ucar.unidata.util.LogUtil.LogCategory log_ =
         ucar.unidata.util.LogUtil.getLogInstance(
@@ -618,7 +631,8 @@ public class GeoGridDataSource extends GridDataSource {
      * The source has changed
      */
     protected void sourcesChanged() {
-        dataset   = null;
+        dataset          = null;
+        sourceTimeCounts = null;
         gcsVsTime = new Hashtable();
         super.sourcesChanged();
     }
@@ -628,9 +642,10 @@ public class GeoGridDataSource extends GridDataSource {
      * Clear out the data set
      */
     public void reloadData() {
-        myTimes   = null;
-        dataset   = null;
-        gcsVsTime = new Hashtable();
+        myTimes          = null;
+        dataset          = null;
+        sourceTimeCounts = null;
+        gcsVsTime        = new Hashtable();
         resolvePath();
         dataChoices = null;
         //        doMakeDataChoices();
@@ -1007,6 +1022,236 @@ public class GeoGridDataSource extends GridDataSource {
 
 
 
+    /**
+     * Get the lock that coordinates reads of the given time step from a
+     * local file. Reads are coordinated per file, so different data
+     * sources can read at the same time, but two data sources on the same
+     * file cannot. When several files are aggregated along time, the lock
+     * is the one for the component file that holds the time step, so
+     * steps in different files can be read at the same time while steps
+     * in the same file take turns.
+     *
+     * @param geoGrid the grid being read
+     * @param timeIndex the time index being read
+     *
+     * @return the read lock
+     */
+    protected Object getReadLock(GeoGrid geoGrid, int timeIndex) {
+        String location = getFilePath();
+        if (location == null) {
+            return readLock;
+        }
+        if ((sources != null) && (sources.size() > 1)) {
+            String component = getComponentFile(geoGrid, timeIndex);
+            if (component != null) {
+                location = component;
+            }
+        }
+        return GeoGridFlatField.getReadLock(location);
+    }
+
+    /**
+     * Find the file of a time aggregation that holds the given time step
+     *
+     * @param geoGrid the grid being read
+     * @param timeIndex the time index being read
+     *
+     * @return the component file, or null if the grid is not aggregated
+     *         along time or the file could not be determined
+     */
+    private String getComponentFile(GeoGrid geoGrid, int timeIndex) {
+        String             timeName = getProperty(PROP_TIMEVAR, "time");
+        ucar.nc2.Dimension timeDim  = geoGrid.getTimeDimension();
+        if ((timeDim == null) || (timeIndex < 0)
+                || !timeName.equals(timeDim.getShortName())) {
+            return null;
+        }
+        List   files  = sources;
+        int[]  counts = getSourceTimeCounts(files, timeName);
+        if (counts.length != files.size()) {
+            return null;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (timeIndex < counts[i]) {
+                return files.get(i).toString();
+            }
+            timeIndex -= counts[i];
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of times in each file of a time aggregation, in the
+     * order the files are aggregated.
+     *
+     * @param files the aggregated files
+     * @param timeName name of the aggregated dimension
+     *
+     * @return the number of times in each file; empty if they could not
+     *         be read
+     */
+    private synchronized int[] getSourceTimeCounts(List files,
+            String timeName) {
+        if ((sourceTimeCounts != null)
+                && ((sourceTimeCounts.length == files.size())
+                    || (sourceTimeCounts.length == 0))) {
+            return sourceTimeCounts;
+        }
+        int[] counts = new int[files.size()];
+        for (int i = 0; i < counts.length; i++) {
+            String     file = files.get(i).toString();
+            NetcdfFile ncf  = null;
+            try {
+                ncf = NetcdfDataset.openFile(file, null);
+                ucar.nc2.Dimension dim = ncf.findDimension(timeName);
+                if (dim == null) {
+                    log_.debug("No dimension " + timeName + " in " + file);
+                    counts = new int[0];
+                    break;
+                }
+                counts[i] = dim.getLength();
+            } catch (IOException ioe) {
+                log_.debug("Could not count the times in " + file + ": "
+                           + ioe);
+                counts = new int[0];
+                break;
+            } finally {
+                if (ncf != null) {
+                    try {
+                        ncf.close();
+                    } catch (IOException ignore) {}
+                }
+            }
+        }
+        sourceTimeCounts = counts;
+        return counts;
+    }
+
+    /**
+     * Should all time steps of a sequence be read up front, in parallel
+     *
+     * @return true to prefetch
+     */
+    public boolean shouldPrefetch() {
+        return (getIdv() != null)
+               && getIdv().getStore().get(PREF_GRID_PREFETCH, false);
+    }
+
+    /**
+     * Grids cached for a larger area can be subset for a smaller one
+     *
+     * @return true
+     */
+    protected boolean canSubsetCachedData() {
+        return true;
+    }
+
+    /**
+     * Subset a grid that was cached for a larger area down to the bounding
+     * box of the selection. The grid index ranges for both boxes are worked
+     * out the same way a read does, and the cached grid is sliced by index,
+     * so the points are the ones a read would give. Strided and progressive
+     * resolution selections are read from the file.
+     *
+     * @param dataChoice the data choice
+     * @param superset the cached grid
+     * @param supersetSelection the selection the cached grid was read for
+     * @param dataSelection the selection being asked for
+     *
+     * @return the subset grid or null
+     *
+     * @throws RemoteException    Java RMI problem
+     * @throws VisADException     VisAD problem
+     */
+    protected Data subsetCachedData(DataChoice dataChoice, Data superset,
+                                    DataSelection supersetSelection,
+                                    DataSelection dataSelection)
+            throws VisADException, RemoteException {
+        if ( !(superset instanceof FieldImpl)
+                || !GridUtil.isGrid((FieldImpl) superset)) {
+            return null;
+        }
+        GeoGrid geoGrid = findGridForDataChoice(getDataset(), dataChoice);
+        if (geoGrid == null) {
+            return null;
+        }
+        List supersetRanges = getBoxRanges(geoGrid, dataChoice,
+                                           supersetSelection);
+        List ranges = getBoxRanges(geoGrid, dataChoice, dataSelection);
+        if ((supersetRanges == null) || (ranges == null)) {
+            return null;
+        }
+        Range superY = (Range) supersetRanges.get(0);
+        Range superX = (Range) supersetRanges.get(1);
+        Range y      = (Range) ranges.get(0);
+        Range x      = (Range) ranges.get(1);
+        if ((y.first() < superY.first()) || (y.last() > superY.last())
+                || (x.first() < superX.first())
+                || (x.last() > superX.last())) {
+            return null;
+        }
+        //Make sure the cached grid is the one those ranges were read into
+        SampledSet domain = GridUtil.getSpatialDomain((FieldImpl) superset);
+        if ( !(domain instanceof GriddedSet)
+                || (((GriddedSet) domain).getLength(0) != superX.length())
+                || (((GriddedSet) domain).getLength(1) != superY.length())) {
+            return null;
+        }
+        return GridUtil.subset((FieldImpl) superset,
+                               x.first() - superX.first(),
+                               x.last() - superX.first(),
+                               y.first() - superY.first(),
+                               y.last() - superY.first());
+    }
+
+    /**
+     * Get the y and x index ranges that reading a grid for the bounding box
+     * of a selection would use.
+     *
+     * @param geoGrid the grid
+     * @param dataChoice the data choice
+     * @param dataSelection the selection
+     *
+     * @return the y and x ranges, or null if the selection has no box, is
+     *         strided or uses progressive resolution
+     */
+    private List getBoxRanges(GeoGrid geoGrid, DataChoice dataChoice,
+                              DataSelection dataSelection) {
+        GeoSelection geoSelection = (dataSelection != null)
+                                    ? dataSelection.getGeoSelection()
+                                    : null;
+        if ((geoSelection == null) || (geoSelection.getLatLonRect() == null)
+                || geoSelection.getHasNonOneStride()) {
+            return null;
+        }
+        if (dataSelection.getProperty(
+                DataSelection.PROP_PROGRESSIVERESOLUTION, false)
+                || ((dataChoice.getDataSelection() != null)
+                    && dataChoice.getDataSelection().getProperty(
+                        DataSelection.PROP_PROGRESSIVERESOLUTION, false))) {
+            return null;
+        }
+        LatLonRect bbox = geoSelection.getLatLonRect();
+        if (geoSelection.getUseViewBounds()) {
+            LatLonRect grbox =
+                geoGrid.getCoordinateSystem().getLatLonBoundingBox();
+            bbox = grbox.intersect(bbox);
+            if (bbox == null) {
+                bbox = grbox;
+            }
+        }
+        try {
+            List yx_ranges =
+                geoGrid.getCoordinateSystem().getRangesFromLatLonRect(bbox);
+            return Misc.newList(makeRange(geoGrid.getYDimension(),
+                                          (Range) yx_ranges.get(0), 1),
+                                makeRange(geoGrid.getXDimension(),
+                                          (Range) yx_ranges.get(1), 1));
+        } catch (InvalidRangeException ire) {
+            return null;
+        }
+    }
+
     /**
      * Are we a local file
      *
@@ -29,6 +29,8 @@
 package ucar.unidata.data.grid;
 
 
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
+
 import ucar.unidata.data.DataUtil;
 import ucar.unidata.util.Misc;
 import ucar.unidata.util.Trace;
@@ -86,6 +88,9 @@ public class GridMath {
     /** function for the timeStepFunc routine */
     public static final String FUNC_DIFFERENCE = "difference";
 
+    /** number of grid points per parallel percentile task */
+    private static final int PERCENTILE_BLOCK_SIZE = 4096;
+
     /** cyclic option */
     public static final int OPT_CYCLIC = -1;
 
@@ -1524,7 +1529,6 @@ public class GridMath {
             int         numMembers   = 0;
             TupleType   rangeType    = null;
             TupleType   newRangeType = null;
-            float[][][] valuesAll    = null;
 
             for (int timeStepIdx = 0; timeStepIdx < timeDomain.getLength();
                     timeStepIdx++) {
@@ -1536,6 +1540,8 @@ public class GridMath {
                 GriddedSet newDomain = null;
 
                 float[][]  stdevs    = null;
+                // the values of each member, as held by the member fields
+                float[][][] memberValues = new float[numMembers][][];
                 for (int k = 0; k < numMembers; k++) {
                     FlatField innerField = (FlatField) sample.getSample(k,
                                                false);
@@ -1553,37 +1559,25 @@ public class GridMath {
 
                     float[][] ensStepValues = innerField.getFloats(false);
                     if (values == null) {
-                        values    = Misc.cloneArray(ensStepValues);
-                        valuesAll =
-                            new float[values.length][values[0].length][numMembers];
-                    }
-                    for (int i = 0; i < ensStepValues.length; i++) {
-                        for (int j = 0; j < ensStepValues[i].length; j++) {
-                            float value = ensStepValues[i][j];
-                            if (value != value) {
-                                continue;
-                            }
-                            valuesAll[i][j][k] = value;
-                        }
+                        values = Misc.cloneArray(ensStepValues);
                     }
+                    memberValues[k] = ensStepValues;
 
                 }
                 // do the math
                 if (function.equals(FUNC_PRCNTL) && (numMembers > 1)) {
                     int percent = (int) statThreshold;
-                    for (int i = 0; i < values.length; i++) {
-                        for (int j = 0; j < values[i].length; j++) {
-                            values[i][j] =
-                                evaluatePercentile(valuesAll[i][j], 0,
-                                    numMembers, percent);
-                        }
-                    }
+                    evaluateMemberPercentiles(memberValues, values,
+                            new double[] { percent });
                 }
 
                 if (function.equals(FUNC_MODE) && (numMembers > 1)) {
+                    float[] memberScratch = new float[numMembers];
                     for (int i = 0; i < values.length; i++) {
                         for (int j = 0; j < values[i].length; j++) {
-                            values[i][j] = evaluateMode(valuesAll[i][j]);
+                            getMemberValues(memberValues, i, j,
+                                            memberScratch);
+                            values[i][j] = evaluateMode(memberScratch);
                         }
                     }
                 }
@@ -1596,9 +1590,7 @@ public class GridMath {
 
                             float[] tmpValues       = new float[numMembers];
 
-                            for (int k = 0; k < numMembers; k++) {
-                                tmpValues[k] = valuesAll[i][j][k];
-                            }
+                            getMemberValues(memberValues, i, j, tmpValues);
 
 
                             for (int k = 0; k < numMembers; k++) {
@@ -2583,6 +2575,72 @@ public class GridMath {
         return retField;
     }
 
+    /**
+     * Get the values of every ensemble member at one grid point.
+     * Missing values and members are returned as 0.
+     *
+     * @param memberValues  the values of each member, indexed by member,
+     *                      range component and point. May hold nulls.
+     * @param comp  the range component
+     * @param point  the grid point
+     * @param result  filled with the value of each member
+     */
+    private static void getMemberValues(float[][][] memberValues, int comp,
+                                        int point, float[] result) {
+        for (int k = 0; k < memberValues.length; k++) {
+            float value = (memberValues[k] == null)
+                          ? 0
+                          : memberValues[k][comp][point];
+            result[k] = (value != value)
+                        ? 0
+                        : value;
+        }
+    }
+
+    /**
+     * Evaluate percentiles over the ensemble members at every grid point.
+     * Grid points are split into blocks that are done in parallel, each
+     * with its own scratch buffer.
+     *
+     * @param memberValues  the values of each member, indexed by member,
+     *                      range component and point. May hold nulls.
+     * @param values  filled with the first percentile at each point
+     * @param ps  the percentages
+     *
+     * @throws VisADException   VisAD Error
+     */
+    private static void evaluateMemberPercentiles(
+            final float[][][] memberValues, final float[][] values,
+            final double[] ps)
+            throws VisADException {
+        final int numMembers = memberValues.length;
+        for (int i = 0; i < values.length; i++) {
+            final int comp = i;
+            try {
+                ParallelRows.run(0, values[i].length - 1,
+                                 PERCENTILE_BLOCK_SIZE,
+                                 ParallelRows.availableParallelism(),
+                                 new ParallelRows.RowRange() {
+                    public void run(int start, int stop)
+                            throws VisADException {
+                        float[] scratch = new float[numMembers];
+                        float[] result  = new float[ps.length];
+                        for (int j = start; j <= stop; j++) {
+                            getMemberValues(memberValues, comp, j, scratch);
+                            evaluatePercentiles(scratch, 0, numMembers, ps,
+                                    scratch, result);
+                            values[comp][j] = result[0];
+                        }
+                    }
+                });
+            } catch (VisADException | RuntimeException exc) {
+                throw exc;
+            } catch (Exception exc) {
+                throw new VisADException("evaluating percentiles: " + exc);
+            }
+        }
+    }
+
     /**
      * evaluate percentile value
      *
@@ -2598,36 +2656,162 @@ public class GridMath {
                                            final int begin, final int length,
                                            final double p)
             throws VisADException {
+        float[] result = new float[1];
+        evaluatePercentiles(values, begin, length, new double[] { p },
+                            new float[length], result);
+        return result[0];
+    }
 
+    /**
+     * Evaluate several percentiles of the same values. Rather than sorting
+     * the values, this partially orders them in scratch just enough to
+     * find each rank, so each percentile takes linear time. Percentages
+     * in increasing order are cheapest, as each search starts where the
+     * previous one left off.
+     *
+     * @param values the values
+     * @param begin  the starting index
+     * @param length  number of points
+     * @param ps  the percentages
+     * @param scratch  work space of at least length values. May be
+     *                 values itself, when begin is 0 and the caller does
+     *                 not need the order of values kept.
+     * @param result  filled with the percentile for each of ps
+     *
+     * @throws VisADException   VisAD Error
+     */
+    public static void evaluatePercentiles(final float[] values,
+                                           final int begin, final int length,
+                                           final double[] ps,
+                                           final float[] scratch,
+                                           final float[] result)
+            throws VisADException {
 
-        if ((p > 100) || (p <= 0)) {
-            throw new VisADException(
-                "out of bounds percentile value:  must be in (0, 100)");
+        for (int pIdx = 0; pIdx < ps.length; pIdx++) {
+            if ((ps[pIdx] > 100) || (ps[pIdx] <= 0)) {
+                throw new VisADException(
+                    "out of bounds percentile value:  must be in (0, 100)");
+            }
         }
         if (length == 0) {
-            return Float.NaN;
+            java.util.Arrays.fill(result, 0, ps.length, Float.NaN);
+            return;
         }
         if (length == 1) {
-            return values[begin];  // always return single value for n = 1
+            // always return single value for n = 1
+            java.util.Arrays.fill(result, 0, ps.length, values[begin]);
+            return;
         }
-        double  n      = length;
-        double  pos    = p * (n + 1) / 100;
-        double  fpos   = Math.floor(pos);
-        int     intPos = (int) fpos;
-        float   dif    = (float) (pos - fpos);
-        float[] sorted = new float[length];
-        System.arraycopy(values, begin, sorted, 0, length);
-        QuickSort.sort(sorted);
-
-        if (pos < 1) {
-            return sorted[0];
+        if ((scratch != values) || (begin != 0)) {
+            System.arraycopy(values, begin, scratch, 0, length);
         }
-        if (pos >= n) {
-            return sorted[length - 1];
+        double n        = length;
+        int    lastRank = -1;
+        for (int pIdx = 0; pIdx < ps.length; pIdx++) {
+            double pos    = ps[pIdx] * (n + 1) / 100;
+            double fpos   = Math.floor(pos);
+            int    intPos = (int) fpos;
+            float  dif    = (float) (pos - fpos);
+            int    rank;
+            if (pos < 1) {
+                rank = 0;
+            } else if (pos >= n) {
+                rank = length - 1;
+            } else {
+                rank = intPos - 1;
+            }
+            // everything past the last rank found is no smaller than it
+            int lo = (rank > lastRank)
+                     ? lastRank + 1
+                     : 0;
+            select(scratch, lo, length - 1, rank);
+            lastRank = rank;
+            float lower = scratch[rank];
+            if ((pos < 1) || (pos >= n)) {
+                result[pIdx] = lower;
+                continue;
+            }
+            // the next rank is the smallest of the values after this one
+            float upper = scratch[rank + 1];
+            for (int k = rank + 2; k < length; k++) {
+                if (scratch[k] < upper) {
+                    upper = scratch[k];
+                }
+            }
+            result[pIdx] = lower + dif * (upper - lower);
         }
-        float lower = sorted[intPos - 1];
-        float upper = sorted[intPos];
-        return lower + dif * (upper - lower);
+    }
+
+    /**
+     * Partially order a[lo..hi] so that a[k] holds the value it would
+     * have if the range were sorted, with nothing larger before it and
+     * nothing smaller after it.
+     *
+     * @param a  the values
+     * @param lo  first index of the range
+     * @param hi  last index of the range
+     * @param k  the index to find, between lo and hi
+     */
+    private static void select(float[] a, int lo, int hi, int k) {
+        while (hi - lo > 16) {
+            // median of three pivot, left at a[mid]
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < a[lo]) {
+                swap(a, mid, lo);
+            }
+            if (a[hi] < a[lo]) {
+                swap(a, hi, lo);
+            }
+            if (a[hi] < a[mid]) {
+                swap(a, hi, mid);
+            }
+            float pivot = a[mid];
+            int   i     = lo;
+            int   j     = hi;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    i++;
+                }
+                while (pivot < a[j]) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(a, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+        // insertion sort what is left
+        for (int i = lo + 1; i <= hi; i++) {
+            float value = a[i];
+            int   j     = i - 1;
+            while ((j >= lo) && (value < a[j])) {
+                a[j + 1] = a[j];
+                j--;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    /**
+     * Swap two values
+     *
+     * @param a  the values
+     * @param i  first index
+     * @param j  second index
+     */
+    private static void swap(float[] a, int i, int j) {
+        float tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
     }
 
     /**
@@ -30,6 +30,7 @@ package ucar.unidata.data.grid;
 
 
 import edu.wisc.ssec.mcidasv.startupmanager.StartupManager;
+import edu.wisc.ssec.mcidasv.util.ParallelRows;
 import org.apache.poi.hssf.usermodel.HSSFRow;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
@@ -1275,6 +1276,187 @@ public class GridUtil {
         return fi;
     }
 
+    /**
+     * Create a subset of the grid that holds the points between the given
+     * x and y indices, inclusive. The values are copied as is, so the
+     * result has the same points a read of just those indices would give.
+     * This is only done for grids whose spatial domain is the same for
+     * every time step.
+     *
+     * @param grid     grid to subset
+     * @param minX     first x index
+     * @param maxX     last x index
+     * @param minY     first y index
+     * @param maxY     last y index
+     * @return   the subset grid, the grid itself if the indices cover all
+     *           of it, or null if it cannot be subset this way
+     *
+     * @throws VisADException   unable to subset the grid
+     */
+    public static FieldImpl subset(FieldImpl grid, int minX, int maxX,
+                                   int minY, int maxY)
+            throws VisADException {
+        if ((getTimeSet(grid) != null) && !isConstantSpatialDomain(grid)) {
+            return null;
+        }
+        SampledSet spatialDomain = getSpatialDomain(grid);
+        if ( !(spatialDomain instanceof GriddedSet)
+                || (spatialDomain.getManifoldDimension() < 2)) {
+            return null;
+        }
+        GriddedSet domainSet = (GriddedSet) spatialDomain;
+        int        sizeX     = domainSet.getLength(0);
+        int        sizeY     = domainSet.getLength(1);
+        if ((minX < 0) || (minY < 0) || (maxX >= sizeX) || (maxY >= sizeY)
+                || (minX > maxX) || (minY > maxY)) {
+            return null;
+        }
+        if ((minX == 0) && (minY == 0) && (maxX == sizeX - 1)
+                && (maxY == sizeY - 1)) {
+            return grid;
+        }
+        int        newSizeX = maxX - minX + 1;
+        int        newSizeY = maxY - minY + 1;
+        GriddedSet subDomain;
+        if (domainSet instanceof LinearSet) {
+            Linear1DSet xSet = ((LinearSet) domainSet).getLinear1DComponent(0);
+            Linear1DSet ySet = ((LinearSet) domainSet).getLinear1DComponent(1);
+            Linear1DSet newX = new Linear1DSet(xSet.getType(),
+                                   xSet.getFirst() + minX * xSet.getStep(),
+                                   xSet.getFirst() + maxX * xSet.getStep(),
+                                   newSizeX);
+            Linear1DSet newY = new Linear1DSet(ySet.getType(),
+                                   ySet.getFirst() + minY * ySet.getStep(),
+                                   ySet.getFirst() + maxY * ySet.getStep(),
+                                   newSizeY);
+            if (domainSet instanceof LinearLatLonSet) {
+                subDomain = new LinearLatLonSet(domainSet.getType(),
+                        new Linear1DSet[] { newX, newY },
+                        domainSet.getCoordinateSystem(),
+                        domainSet.getSetUnits(), domainSet.getSetErrors());
+            } else if (domainSet instanceof Linear2DSet) {
+                subDomain = new Linear2DSet(domainSet.getType(),
+                                            new Linear1DSet[] { newX, newY },
+                                            domainSet.getCoordinateSystem(),
+                                            domainSet.getSetUnits(),
+                                            domainSet.getSetErrors());
+            } else {
+                Linear1DSet zSet =
+                    ((LinearSet) domainSet).getLinear1DComponent(2);
+                subDomain = new Linear3DSet(domainSet.getType(),
+                                            new Linear1DSet[] { newX, newY,
+                        zSet }, domainSet.getCoordinateSystem(),
+                                domainSet.getSetUnits(),
+                                domainSet.getSetErrors());
+            }
+        } else {
+            int[] newSizes = (domainSet.getManifoldDimension() == 3)
+                             ? new int[] { newSizeX, newSizeY,
+                                           domainSet.getLength(2) }
+                             : new int[] { newSizeX, newSizeY };
+            subDomain = GriddedSet.create(domainSet.getType(),
+                                          getIndexValues(domainSet,
+                                              domainSet.getSamples(false),
+                                              minX, maxX, minY, maxY),
+                                          newSizes,
+                                          domainSet.getCoordinateSystem(),
+                                          domainSet.getSetUnits(),
+                                          domainSet.getSetErrors(), false,
+                                          false);
+        }
+        try {
+            return sliceByIndex(grid, domainSet, subDomain, minX, maxX,
+                                minY, maxY);
+        } catch (RemoteException re) {
+            throw new VisADException("problem subsetting remote field "
+                                     + re);
+        }
+    }
+
+    /**
+     * Copy the values between the given indices of each grid in a field
+     * onto the subset domain.
+     *
+     * @param grid      grid or sequence of grids
+     * @param domainSet the spatial domain of the grids
+     * @param subDomain the subset domain
+     * @param minX     first x index
+     * @param maxX     last x index
+     * @param minY     first y index
+     * @param maxY     last y index
+     * @return   the subset
+     *
+     * @throws RemoteException  Java RMI problem
+     * @throws VisADException   unable to subset the grid
+     */
+    private static FieldImpl sliceByIndex(FieldImpl grid,
+                                          GriddedSet domainSet,
+                                          GriddedSet subDomain, int minX,
+                                          int maxX, int minY, int maxY)
+            throws VisADException, RemoteException {
+        if (grid instanceof FlatField) {
+            FlatField ff = (FlatField) grid;
+            FlatField slice = new FlatField((FunctionType) ff.getType(),
+                                            subDomain,
+                                            ff.getRangeCoordinateSystem()[0],
+                                            ff.getRangeSets(),
+                                            Util.getRangeUnits(ff));
+            slice.setMetadataMap(ff.getMetadataMap());
+            slice.setSamples(getIndexValues(domainSet, ff.getFloats(false),
+                                            minX, maxX, minY, maxY), false);
+            return slice;
+        }
+        Set       domain = grid.getDomainSet();
+        FieldImpl slice  = new FieldImpl((FunctionType) grid.getType(),
+                                         domain);
+        slice.setMetadataMap(grid.getMetadataMap());
+        for (int i = 0; i < domain.getLength(); i++) {
+            Data sample = grid.getSample(i, false);
+            if ((sample instanceof FieldImpl) && !sample.isMissing()) {
+                sample = sliceByIndex((FieldImpl) sample, domainSet,
+                                      subDomain, minX, maxX, minY, maxY);
+            }
+            slice.setSample(i, sample, false);
+        }
+        return slice;
+    }
+
+    /**
+     * Get the values between the given x and y indices, on every level
+     *
+     * @param domainSet  the domain the values are on
+     * @param values     the values
+     * @param minX     first x index
+     * @param maxX     last x index
+     * @param minY     first y index
+     * @param maxY     last y index
+     * @return  the values within the indices
+     */
+    private static float[][] getIndexValues(GriddedSet domainSet,
+                                            float[][] values, int minX,
+                                            int maxX, int minY, int maxY) {
+        int       sizeX     = domainSet.getLength(0);
+        int       sizeY     = domainSet.getLength(1);
+        int       sizeZ     = (domainSet.getManifoldDimension() == 3)
+                              ? domainSet.getLength(2)
+                              : 1;
+        int       newSizeX  = maxX - minX + 1;
+        int       newSizeY  = maxY - minY + 1;
+        float[][] subValues =
+            new float[values.length][newSizeX * newSizeY * sizeZ];
+        for (int v = 0; v < values.length; v++) {
+            int l = 0;
+            for (int k = 0; k < sizeZ; k++) {
+                for (int j = minY; j <= maxY; j++) {
+                    System.arraycopy(values[v], minX + (j + k * sizeY) * sizeX,
+                                     subValues[v], l, newSizeX);
+                    l += newSizeX;
+                }
+            }
+        }
+        return subValues;
+    }
+
     /**
      * Create a subset of the grid skipping every i'th x and
      * j'th y point.
@@ -7488,30 +7670,101 @@ public class GridUtil {
 
     }
 
-    private static float[] getLevelSlice(float[] values, int sizeX, int sizeY, int levelIndex) {
-         float[] levelValues = new float[sizeX*sizeY];
-         int k = 0;
-         for (int i = 0; i < sizeY; i++) {
-             for (int j = 0; j < sizeX; j++) {
-               int offset = levelIndex*sizeX*sizeY + i*sizeX + j;
-               levelValues[k] = values[offset];
-               k++;
-             }
-         }
-         return levelValues;
+    /**
+     * Smooths a block of rows of one level of a grid. Implementations only
+     * write the output points of their own rows, so blocks of rows can be
+     * done in parallel.
+     */
+    private interface LevelKernel {
+
+        /**
+         * Smooth rows {@code start} through {@code stop} of one level.
+         *
+         * @param in  the input values
+         * @param out  the output values
+         * @param offset  index of the first point of the level in both arrays
+         * @param nx  number of points in a row
+         * @param ny  number of rows in the level
+         * @param start  first row (inclusive)
+         * @param stop  last row (inclusive)
+         */
+        void smoothRows(float[] in, float[] out, int offset, int nx, int ny,
+                        int start, int stop);
     }
-        
-    private static void setLevelSlice(float[] values, float[] levelValues, int sizeX, int sizeY, int levelIndex) {
-         int k = 0;
-         for (int i = 0; i < sizeY; i++) {
-             for (int j = 0; j < sizeX; j++) {
-                 int offset = levelIndex*sizeX*sizeY + i*sizeX + j;
-                 values[offset] = levelValues[k];
-                 k++;
-             }
-         }
+
+    /**
+     * Apply a smoothing kernel to every level of every range component.
+     * Levels are smoothed in place in the flat sample arrays, one after the
+     * other, with the rows of each level split into tiles that are smoothed
+     * in parallel. Cyclic grids are padded into scratch buffers that are
+     * reused for every level.
+     *
+     * @param samples  the input values, indexed by component and point
+     * @param newVals  the output values, indexed by component and point
+     * @param sizeX  number of x points
+     * @param sizeY  number of y points
+     * @param sizeZ  number of levels
+     * @param isCyclic  true if the grid wraps around in x
+     * @param pad  number of columns to pad each side of a cyclic grid with
+     * @param kernel  the smoothing kernel
+     *
+     * @throws VisADException   VisAD Error
+     */
+    private static void smoothLevels(float[][] samples, float[][] newVals,
+                                     int sizeX, int sizeY, int sizeZ,
+                                     boolean isCyclic, int pad,
+                                     final LevelKernel kernel)
+            throws VisADException {
+        final int nx      = isCyclic
+                            ? sizeX + 2 * pad
+                            : sizeX;
+        final int ny      = sizeY;
+        float[]   padIn   = null;
+        float[]   padOut  = null;
+        if (isCyclic) {
+            padIn  = new float[nx * ny];
+            padOut = new float[nx * ny];
+        }
+        for (int np = 0; np < samples.length; np++) {
+            for (int z = 0; z < sizeZ; z++) {
+                int           levelOffset = z * sizeX * sizeY;
+                final float[] in;
+                final float[] out;
+                final int     offset;
+                if (isCyclic) {
+                    extendGrid(samples[np], levelOffset, pad, sizeX, sizeY,
+                               padIn);
+                    in     = padIn;
+                    out    = padOut;
+                    offset = 0;
+                } else {
+                    in     = samples[np];
+                    out    = newVals[np];
+                    offset = levelOffset;
+                }
+                try {
+                    ParallelRows.run(0, ny - 1,
+                                     ParallelRows.availableParallelism(),
+                                     new ParallelRows.RowRange() {
+                        public void run(int start, int stop) {
+                            kernel.smoothRows(in, out, offset, nx, ny, start,
+                                    stop);
+                        }
+                    });
+                } catch (VisADException | RuntimeException exc) {
+                    throw exc;
+                } catch (Exception exc) {
+                    throw new VisADException("smoothing grid: " + exc);
+                }
+                if (isCyclic) {
+                    for (int i = 0; i < ny; i++) {
+                        System.arraycopy(padOut, pad + i * nx, newVals[np],
+                                         levelOffset + i * sizeX, sizeX);
+                    }
+                }
+            }
+        }
     }
-        
 
     /**
      * Apply a 5 point smoothing function to the grid.  Adapted from
@@ -7529,17 +7782,8 @@ public class GridUtil {
                                           TupleType rangeType)
             throws VisADException, RemoteException {
 
-        int   jgymin, jgymax, jgxmin, jgxmax, kxd;
-        int   ii, ip1, im1, jp1, jm1, ier, zero;
-        float wt, wt4, dip1, dim1, djp1, djm1, dsum, wsum;
         int sizeX, sizeY, sizeZ;
 
-        /*
-         * Set filter weight.
-         */
-        wt  = .125f;
-        wt4 = 4.f * wt;
-
         if (rangeType == null) {
             rangeType =
                 GridUtil.makeNewParamType(GridUtil.getParamType(slice),
@@ -7550,123 +7794,96 @@ public class GridUtil {
         float[][]  samples = slice.getFloats(false);
         GriddedSet domain  = (GriddedSet) GridUtil.getSpatialDomain(slice);
         int[]      lengths = domain.getLengths();
-        jgxmin = 1;
-        jgxmax = lengths[0];
-        kxd    = jgxmax;
-        jgymin = 1;
-        jgymax = lengths[1];
-        sizeX = jgxmax;
-        sizeY = jgymax;
+        sizeX = lengths[0];
+        sizeY = lengths[1];
         sizeZ = 1;
         if (lengths.length > 2) {
             sizeZ = lengths[2];
         }
-        int       kyd       = jgymax;
-        int       numParams = samples.length;
-        float[]   highs     = domain.getHi();
-        float[]   lows      = domain.getLow();
-        boolean   isCyclic  = lows[0] == highs[0] % 360.f;
-        float[][] newVals   = newField.getFloats(false);
-        int       nr        = 5;
-
-        for (int np = 0; np < numParams; np++) {
-            //float[] gni = samples[np];
-            //float[] gno = newVals[np];
-          for (int z = 0; z < sizeZ; z++) {
-            float[] gni;
-            float[] gno;
-            //float[] gnii = samples[np];
-            //float[] gnoi = newVals[np];
-            float[] gnii = getLevelSlice(samples[np], sizeX, sizeY, z);
-            float[] gnoi = getLevelSlice(newVals[np], sizeX, sizeY, z);
-            // reset jgxmax for each level
-            jgxmax = sizeX;
-            if (isCyclic) {
-                gni    = extendGrid(gnii, nr, jgxmax, jgymax);
-                gno    = new float[gni.length];
-                jgxmax += 2 * nr;
-                kxd    = jgxmax;
-            } else {
-                gni = gnii;
-                gno = gnoi;
+        float[]   highs    = domain.getHi();
+        float[]   lows     = domain.getLow();
+        boolean   isCyclic = lows[0] == highs[0] % 360.f;
+        float[][] newVals  = newField.getFloats(false);
+        int       nr       = 5;
+
+        smoothLevels(samples, newVals, sizeX, sizeY, sizeZ, isCyclic, nr,
+                     new LevelKernel() {
+            public void smoothRows(float[] gni, float[] gno, int offset,
+                                   int kxd, int kyd, int start, int stop) {
+                smooth5PointRows(gni, gno, offset, kxd, kyd, start, stop);
             }
+        });
+        newField.setSamples(newVals, false);
 
+        return newField;
 
-            /*
-             * Apply five-point binomial smoother over subset grid.
-             */
-            for (int j = jgymin; j <= jgymax; j++) {
-                for (int i = jgxmin; i <= jgxmax; i++) {
-                    ii = (j - 1) * kxd + i;
-                    if (Float.isNaN(gni[ii - 1])) {
-                        /*
-                         * Check for missing data.
-                         */
-                        gno[ii - 1] = Float.NaN;
-                    } else {
-                        ip1 = ii + 1;
-                        if (i + 1 > jgxmax) {
-                            dip1 = Float.NaN;
-                        } else {
-                            dip1 = gni[ip1 - 1];
-                        }
-                        im1 = ii - 1;
-                        if (i - 1 < jgxmin) {
-                            dim1 = Float.NaN;
-                        } else {
-                            dim1 = gni[im1 - 1];
-                        }
-                        jp1 = ii + kxd;
-                        if (j + 1 > jgymax) {
-                            djp1 = Float.NaN;
-                        } else {
-                            djp1 = gni[jp1 - 1];
-                        }
-                        jm1 = ii - kxd;
-                        if (j - 1 < jgymin) {
-                            djm1 = Float.NaN;
-                        } else {
-                            djm1 = gni[jm1 - 1];
-                        }
-                        dsum = gni[ii - 1] * wt4;
-                        wsum = wt4;
-                        if ( !Float.isNaN(dip1)) {
-                            dsum += dip1 * wt;
-                            wsum += wt;
-                        }
-                        if ( !Float.isNaN(dim1)) {
-                            dsum += dim1 * wt;
-                            wsum += wt;
-                        }
-                        if ( !Float.isNaN(djp1)) {
-                            dsum += djp1 * wt;
-                            wsum += wt;
-                        }
-                        if ( !Float.isNaN(djm1)) {
-                            dsum += djm1 * wt;
-                            wsum += wt;
-                        }
-                        gno[ii - 1] = dsum / wsum;
-                    }
+    }
+
+    /**
+     * Apply the five-point binomial smoother to a block of rows of one level.
+     *
+     * @param gni  input values
+     * @param gno  output values
+     * @param offset  index of the first point of the level
+     * @param kxd  number of points in a row
+     * @param kyd  number of rows
+     * @param start  first row (inclusive)
+     * @param stop  last row (inclusive)
+     */
+    private static void smooth5PointRows(float[] gni, float[] gno,
+                                         int offset, int kxd, int kyd,
+                                         int start, int stop) {
+
+        /*
+         * Set filter weight.
+         */
+        float wt  = .125f;
+        float wt4 = 4.f * wt;
+
+        for (int j = start; j <= stop; j++) {
+            int row = offset + j * kxd;
+            for (int i = 0; i < kxd; i++) {
+                int ii = row + i;
+                if (Float.isNaN(gni[ii])) {
+                    /*
+                     * Check for missing data.
+                     */
+                    gno[ii] = Float.NaN;
+                    continue;
                 }
-            }
-            if (isCyclic) {
-                int kxdi = kxd - 2 * nr;
-                int m    = 0;
-                for (int i = 0; i < kyd; i++) {
-                    for (int j = 0; j < kxdi; j++) {
-                        int index = nr + j + i * kxd;
-                        gnoi[m++] = gno[index];
-                    }
+                float dip1 = (i + 1 < kxd)
+                             ? gni[ii + 1]
+                             : Float.NaN;
+                float dim1 = (i > 0)
+                             ? gni[ii - 1]
+                             : Float.NaN;
+                float djp1 = (j + 1 < kyd)
+                             ? gni[ii + kxd]
+                             : Float.NaN;
+                float djm1 = (j > 0)
+                             ? gni[ii - kxd]
+                             : Float.NaN;
+                float dsum = gni[ii] * wt4;
+                float wsum = wt4;
+                if ( !Float.isNaN(dip1)) {
+                    dsum += dip1 * wt;
+                    wsum += wt;
+                }
+                if ( !Float.isNaN(dim1)) {
+                    dsum += dim1 * wt;
+                    wsum += wt;
+                }
+                if ( !Float.isNaN(djp1)) {
+                    dsum += djp1 * wt;
+                    wsum += wt;
+                }
+                if ( !Float.isNaN(djm1)) {
+                    dsum += djm1 * wt;
+                    wsum += wt;
                 }
+                gno[ii] = dsum / wsum;
             }
-            setLevelSlice(newVals[np], gnoi, sizeX, sizeY, z);
-          }
         }
-        newField.setSamples(newVals, false);
-
-        return newField;
-
     }
 
     /**
@@ -7685,27 +7902,8 @@ public class GridUtil {
                                           TupleType rangeType)
             throws VisADException, RemoteException {
 
-        int   ni, no, jgymin, jgymax, jgxmin, jgxmax, kxd, kyd, ksub1, ksub2;
-        int   i, j, ii, ip1, im1, jp1, jm1, imjm, ipjm, imjp, ipjp, ier, zero;
-        float dsum, wsum, wt, wtc, wt4;
-        float dip1, dim1, djp1, djm1, dimjm, dipjm, dimjp, dipjp;
         int sizeX, sizeY, sizeZ;
 
-        /*
-         * Set filter weight for Diamond points weight
-         */
-        wt = 2.0f;
-
-        /*
-         * Corner points weight
-         */
-        wtc = 1.0f;
-
-        /*
-         * Center point weight
-         */
-        wt4 = 4.0f;
-
         if (rangeType == null) {
             rangeType =
                 GridUtil.makeNewParamType(GridUtil.getParamType(slice),
@@ -7716,197 +7914,137 @@ public class GridUtil {
         float[][]  samples = slice.getFloats(false);
         GriddedSet domain  = (GriddedSet) GridUtil.getSpatialDomain(slice);
         int[]      lengths = domain.getLengths();
-        jgxmin = 1;
-        jgxmax = lengths[0];
-        kxd    = jgxmax;
-        jgymin = 1;
-        jgymax = lengths[1];
-        kyd    = jgymax;
-        sizeX = jgxmax;
-        sizeY = jgymax;
+        sizeX = lengths[0];
+        sizeY = lengths[1];
         sizeZ = 1;
         if (lengths.length > 2) {
             sizeZ = lengths[2];
         }
-        int       numParams = samples.length;
-        float[]   highs     = domain.getHi();
-        float[]   lows      = domain.getLow();
-        boolean   isCyclic  = lows[0] == highs[0] % 360.f;
-        float[][] newVals   = newField.getFloats(false);
-        int       nr        = 9;
-
-        for (int np = 0; np < numParams; np++) {
-          for (int z = 0; z < sizeZ; z++) {
-            float[] gni;
-            float[] gno;
-            //float[] gnii = samples[np];
-            //float[] gnoi = newVals[np];
-            float[] gnii = getLevelSlice(samples[np], sizeX, sizeY, z);
-            float[] gnoi = getLevelSlice(newVals[np], sizeX, sizeY, z);
-            // reset jgxmax for each level
-            jgxmax = sizeX;
-            if (isCyclic) {
-                gni    = extendGrid(gnii, nr, jgxmax, jgymax);
-                gno    = new float[gni.length];
-                jgxmax += 2 * nr;
-                kxd    = jgxmax;
-            } else {
-                gni = gnii;
-                gno = gnoi;
-            }
-
-            for (j = jgymin; j <= jgymax; j++) {
-                for (i = jgxmin; i <= jgxmax; i++) {
-                    ii = (j - 1) * kxd + i;
-                    if (Float.isNaN(gni[ii - 1])) {
-                        //
-                        // Check for missing data.
-                        //
-                        gno[ii - 1] = Float.NaN;
-                    } else {
-                        ip1 = ii + 1;
-                        if (i + 1 > jgxmax) {
-                            dip1 = Float.NaN;
-                        } else {
-                            dip1 = gni[ip1 - 1];
-                        }
-
-                        im1 = ii - 1;
-                        if (i - 1 < jgxmin) {
-                            dim1 = Float.NaN;
-                        } else {
-                            dim1 = gni[im1 - 1];
-                        }
-
-                        jp1 = ii + kxd;
-                        if (j + 1 > jgymax) {
-                            djp1 = Float.NaN;
-                        } else {
-                            djp1 = gni[jp1 - 1];
-                        }
-
-                        jm1 = ii - kxd;
-                        if (j - 1 < jgymin) {
-                            djm1 = Float.NaN;
-                        } else {
-                            djm1 = gni[jm1 - 1];
-                        }
+        float[]   highs    = domain.getHi();
+        float[]   lows     = domain.getLow();
+        boolean   isCyclic = lows[0] == highs[0] % 360.f;
+        float[][] newVals  = newField.getFloats(false);
+        int       nr       = 9;
 
-                        imjm = jm1 - 1;
-                        if ((j - 1 < jgymin) || (i - 1 < jgxmin)) {
-                            dimjm = Float.NaN;
-                        } else {
-                            dimjm = gni[imjm - 1];
-                        }
-
-                        ipjm = jm1 + 1;
-                        if ((j - 1 < jgymin) || (i + 1 > jgxmax)) {
-                            dipjm = Float.NaN;
-                        } else {
-                            dipjm = gni[ipjm - 1];
-                        }
-
-                        imjp = jp1 - 1;
-                        if ((j + 1 > jgymax) || (i - 1 < jgxmin)) {
-                            dimjp = Float.NaN;
-                        } else {
-                            dimjp = gni[imjp - 1];
-                        }
-
-                        ipjp = jp1 + 1;
-                        if ((j + 1 > jgymax) || (i + 1 > jgxmax)) {
-                            dipjp = Float.NaN;
-                        } else {
-                            dipjp = gni[ipjp - 1];
-                        }
-
-                        dsum = gni[ii - 1] * wt4;
-                        wsum = wt4;
-                        if ( !Float.isNaN(dip1)) {
-                            dsum += dip1 * wt;
-                            wsum += wt;
-                        } else {
-                            dsum += gni[ii - 1] * wt;
-                            wsum += wt;
-                        }
-
-                        if ( !Float.isNaN(dim1)) {
-                            dsum += dim1 * wt;
-                            wsum += wt;
-                        } else {
-                            dsum += gni[ii - 1] * wt;
-                            wsum += wt;
-                        }
+        smoothLevels(samples, newVals, sizeX, sizeY, sizeZ, isCyclic, nr,
+                     new LevelKernel() {
+            public void smoothRows(float[] gni, float[] gno, int offset,
+                                   int kxd, int kyd, int start, int stop) {
+                smooth9PointRows(gni, gno, offset, kxd, kyd, start, stop);
+            }
+        });
+        newField.setSamples(newVals, false);
 
-                        if ( !Float.isNaN(djp1)) {
-                            dsum += djp1 * wt;
-                            wsum += wt;
-                        } else {
-                            dsum += gni[ii - 1] * wt;
-                            wsum += wt;
-                        }
+        return newField;
 
-                        if ( !Float.isNaN(djm1)) {
-                            dsum += djm1 * wt;
-                            wsum += wt;
-                        } else {
-                            dsum += gni[ii - 1] * wt;
-                            wsum += wt;
-                        }
+    }
 
-                        if ( !Float.isNaN(dimjm)) {
-                            dsum += dimjm * wtc;
-                            wsum += wtc;
-                        } else {
-                            dsum += gni[ii - 1] * wtc;
-                            wsum += wtc;
-                        }
+    /**
+     * Apply the nine-point smoother to a block of rows of one level.
+     * Missing neighbors are replaced by the center point.
+     *
+     * @param gni  input values
+     * @param gno  output values
+     * @param offset  index of the first point of the level
+     * @param kxd  number of points in a row
+     * @param kyd  number of rows
+     * @param start  first row (inclusive)
+     * @param stop  last row (inclusive)
+     */
+    private static void smooth9PointRows(float[] gni, float[] gno,
+                                         int offset, int kxd, int kyd,
+                                         int start, int stop) {
 
-                        if ( !Float.isNaN(dipjm)) {
-                            dsum += dipjm * wtc;
-                            wsum += wtc;
-                        } else {
-                            dsum += gni[ii - 1] * wtc;
-                            wsum += wtc;
-                        }
+        /*
+         * Set filter weight for Diamond points weight
+         */
+        float wt = 2.0f;
 
-                        if ( !Float.isNaN(dimjp)) {
-                            dsum += dimjp * wtc;
-                            wsum += wtc;
-                        } else {
-                            dsum += gni[ii - 1] * wtc;
-                            wsum += wtc;
-                        }
+        /*
+         * Corner points weight
+         */
+        float wtc = 1.0f;
 
-                        if ( !Float.isNaN(dipjp)) {
-                            dsum += dipjp * wtc;
-                            wsum += wtc;
-                        } else {
-                            dsum += gni[ii - 1] * wtc;
-                            wsum += wtc;
-                        }
+        /*
+         * Center point weight
+         */
+        float wt4 = 4.0f;
 
-                        gno[ii - 1] = dsum / wsum;
-                    }
-                }
-            }
-            if (isCyclic) {
-                int kxdi = kxd - 2 * nr;
-                int m    = 0;
-                for (i = 0; i < kyd; i++) {
-                    for (j = 0; j < kxdi; j++) {
-                        int index = nr + j + i * kxd;
-                        gnoi[m++] = gno[index];
-                    }
+        /*
+         * Every neighbor contributes its weight, so the weights always
+         * sum to the same value.
+         */
+        float wsum = wt4 + 4 * wt + 4 * wtc;
+
+        for (int j = start; j <= stop; j++) {
+            int     row  = offset + j * kxd;
+            boolean hasN = j + 1 < kyd;
+            boolean hasS = j > 0;
+            for (int i = 0; i < kxd; i++) {
+                int   ii = row + i;
+                float c  = gni[ii];
+                if (Float.isNaN(c)) {
+                    //
+                    // Check for missing data.
+                    //
+                    gno[ii] = Float.NaN;
+                    continue;
                 }
+                boolean hasE  = i + 1 < kxd;
+                boolean hasW  = i > 0;
+                float   dip1  = hasE
+                                ? gni[ii + 1]
+                                : Float.NaN;
+                float   dim1  = hasW
+                                ? gni[ii - 1]
+                                : Float.NaN;
+                float   djp1  = hasN
+                                ? gni[ii + kxd]
+                                : Float.NaN;
+                float   djm1  = hasS
+                                ? gni[ii - kxd]
+                                : Float.NaN;
+                float   dimjm = (hasS && hasW)
+                                ? gni[ii - kxd - 1]
+                                : Float.NaN;
+                float   dipjm = (hasS && hasE)
+                                ? gni[ii - kxd + 1]
+                                : Float.NaN;
+                float   dimjp = (hasN && hasW)
+                                ? gni[ii + kxd - 1]
+                                : Float.NaN;
+                float   dipjp = (hasN && hasE)
+                                ? gni[ii + kxd + 1]
+                                : Float.NaN;
+
+                float   dsum  = c * wt4;
+                dsum += (Float.isNaN(dip1)
+                         ? c
+                         : dip1) * wt;
+                dsum += (Float.isNaN(dim1)
+                         ? c
+                         : dim1) * wt;
+                dsum += (Float.isNaN(djp1)
+                         ? c
+                         : djp1) * wt;
+                dsum += (Float.isNaN(djm1)
+                         ? c
+                         : djm1) * wt;
+                dsum += (Float.isNaN(dimjm)
+                         ? c
+                         : dimjm) * wtc;
+                dsum += (Float.isNaN(dipjm)
+                         ? c
+                         : dipjm) * wtc;
+                dsum += (Float.isNaN(dimjp)
+                         ? c
+                         : dimjp) * wtc;
+                dsum += (Float.isNaN(dipjp)
+                         ? c
+                         : dipjp) * wtc;
+                gno[ii] = dsum / wsum;
             }
-            setLevelSlice(newVals[np], gnoi, sizeX, sizeY, z);
-          }
         }
-        newField.setSamples(newVals, false);
-
-        return newField;
-
     }
 
     /** max number of weights */
@@ -7930,12 +8068,9 @@ public class GridUtil {
             throws VisADException, RemoteException {
 
 
-        int       ni, no, nnw, kxd, kyd, ksub1, ksub2, zero, ier;
-        int       nwl, nr, jw, iw, jj, ii, is, ie, js, je, j, i, indx;
-        float[]   gnnw, gnist, gnost;
-        float     sgma, sumw, sumf, sig2, aa, x, y;
-        float[][] w = new float[MAXWTS][MAXWTS];
-        int sizeX, sizeY, sizeZ;
+        int   nwl, nr, jw, iw, is;
+        float sgma, sumw, sig2, aa, x, y;
+        int   sizeX, sizeY, sizeZ;
 
         nwl = filterLevel;
 
@@ -7958,6 +8093,37 @@ public class GridUtil {
             nr = MAXWTS - 1;
         }
 
+        /*
+         * Compute the matrix of weights for one quadrant using symmetry
+         * of two dimensional Gaussian surface.  The weights do not depend
+         * on the data, so they are shared by every level.
+         */
+        final float[][] w = new float[nr + 1][nr + 1];
+        sumw = 0.0f;
+        sig2 = sgma * sgma;
+        aa   = (float) (1.f / (sig2 * Math.PI));
+        for (jw = 1; jw <= nr + 1; jw++) {
+            if (jw == 1) {
+                is = 2;
+            } else {
+                is = jw;
+            }
+            for (iw = is; iw <= nr + 1; iw++) {
+                x = iw - 1;
+                y = jw - 1;
+                w[iw - 1][jw - 1] = (float) (aa
+                                    * Math.exp(-(x * x + y * y) / sig2));
+                w[jw - 1][iw - 1] = w[iw - 1][jw - 1];
+                if ((jw == 1) || (jw == iw)) {
+                    sumw += w[iw - 1][jw - 1];
+                } else {
+                    sumw += 2. * w[iw - 1][jw - 1];
+                }
+            }
+        }
+        sumw    *= 4.f;
+        w[0][0] = 1.f - sumw;
+
         if (rangeType == null) {
             rangeType =
                 GridUtil.makeNewParamType(GridUtil.getParamType(slice),
@@ -7968,116 +8134,83 @@ public class GridUtil {
         float[][]  samples = slice.getFloats(false);
         GriddedSet domain  = (GriddedSet) GridUtil.getSpatialDomain(slice);
         int[]      lengths = domain.getLengths();
-        kxd = lengths[0];
-        kyd = lengths[1];
-        sizeX = kxd;
-        sizeY = kyd;
+        sizeX = lengths[0];
+        sizeY = lengths[1];
         sizeZ = 1;
         if (lengths.length > 2) {
             sizeZ = lengths[2];
         }
-        float[]   highs     = domain.getHi();
-        float[]   lows      = domain.getLow();
-        boolean   isCyclic  = lows[0] == highs[0] % 360.f;
-        int       numParams = samples.length;
-        float[][] newVals   = newField.getFloats(false);
-
-        for (int np = 0; np < numParams; np++) {
-          for (int z = 0; z < sizeZ; z++) {
-            //float[] gnisti = samples[np];
-            //float[] gnosti = newVals[np];
-            float[] gnisti = getLevelSlice(samples[np], sizeX, sizeY, z);
-            float[] gnosti = getLevelSlice(newVals[np], sizeX, sizeY, z);
-            kxd = sizeX;
-            if (isCyclic) {
-                gnist = extendGrid(gnisti, nr, kxd, kyd);
-                gnost = new float[gnist.length];
-                kxd   += 2 * nr;
-            } else {
-                gnist = gnisti;
-                gnost = gnosti;
+        float[]   highs    = domain.getHi();
+        float[]   lows     = domain.getLow();
+        boolean   isCyclic = lows[0] == highs[0] % 360.f;
+        float[][] newVals  = newField.getFloats(false);
+        final int radius   = nr;
+
+        smoothLevels(samples, newVals, sizeX, sizeY, sizeZ, isCyclic, nr,
+                     new LevelKernel() {
+            public void smoothRows(float[] gnist, float[] gnost, int offset,
+                                   int kxd, int kyd, int start, int stop) {
+                smoothGaussianRows(gnist, gnost, w, radius, offset, kxd, kyd,
+                                   start, stop);
             }
+        });
+        newField.setSamples(newVals, false);
 
+        return newField;
 
-            /*
-             * Compute the matrix of weights for one quadrant using symmetry
-             * of two dimensional Gaussian surface.
-             */
-            sumw = 0.0f;
-            sig2 = sgma * sgma;
-            aa   = (float) (1.f / (sig2 * Math.PI));
-            for (jw = 1; jw <= nr + 1; jw++) {
-                if (jw == 1) {
-                    is = 2;
-                } else {
-                    is = jw;
-                }
-                for (iw = is; iw <= nr + 1; iw++) {
-                    x = iw - 1;
-                    y = jw - 1;
-                    w[iw - 1][jw - 1] = (float) (aa
-                            * Math.exp(-(x * x + y * y) / sig2));
-                    w[jw - 1][iw - 1] = w[iw - 1][jw - 1];
-                    if ((jw == 1) || (jw == iw)) {
-                        sumw += w[iw - 1][jw - 1];
-                    } else {
-                        sumw += 2. * w[iw - 1][jw - 1];
-                    }
+    }
+
+    /**
+     * Apply the Gaussian weighted smoother to a block of rows of one level.
+     * Missing points are left out of both the weighted sum and the sum of
+     * the weights.
+     *
+     * @param gnist  input values
+     * @param gnost  output values
+     * @param w  weights, indexed by the y and x distance from the center
+     * @param nr  radius of the filter in grid points
+     * @param offset  index of the first point of the level
+     * @param kxd  number of points in a row
+     * @param kyd  number of rows
+     * @param start  first row (inclusive)
+     * @param stop  last row (inclusive)
+     */
+    private static void smoothGaussianRows(float[] gnist, float[] gnost,
+                                           float[][] w, int nr, int offset,
+                                           int kxd, int kyd, int start,
+                                           int stop) {
+        for (int jj = start; jj <= stop; jj++) {
+            int js = Math.max(0, jj - nr);
+            int je = Math.min(kyd - 1, jj + nr);
+            for (int ii = 0; ii < kxd; ii++) {
+                int indx = offset + jj * kxd + ii;
+                if (Float.isNaN(gnist[indx])) {
+                    gnost[indx] = Float.NaN;
+                    continue;
                 }
-            }
-            sumw    *= 4.f;
-            w[0][0] = 1.f - sumw;
-
-            for (jj = 1; jj <= kyd; jj++) {
-                for (ii = 1; ii <= kxd; ii++) {
-                    is   = ii - nr;
-                    ie   = ii + nr;
-                    js   = jj - nr;
-                    je   = jj + nr;
-                    sumw = 0.0f;
-                    sumf = 0.0f;
-                    for (j = js; j <= je; j++) {
-                        if ((j >= 1) && (j <= kyd)) {
-                            for (i = is; i <= ie; i++) {
-                                if ((i >= 1) && (i <= kxd)) {
-                                    iw   = Math.abs(i - ii) + 1;
-                                    jw   = Math.abs(j - jj) + 1;
-                                    indx = (j - 1) * kxd + i;
-                                    if ( !Float.isNaN(gnist[indx - 1])) {
-                                        sumw += w[iw - 1][jw - 1];
-                                        sumf += gnist[indx - 1]
-                                                * w[iw - 1][jw - 1];
-                                    }
-                                }
-                            }
+                int   is   = Math.max(0, ii - nr);
+                int   ie   = Math.min(kxd - 1, ii + nr);
+                float sumw = 0.0f;
+                float sumf = 0.0f;
+                for (int j = js; j <= je; j++) {
+                    float[] wj  = w[Math.abs(j - jj)];
+                    int     row = offset + j * kxd;
+                    for (int i = is; i <= ie; i++) {
+                        float value = gnist[row + i];
+                        if ( !Float.isNaN(value)) {
+                            float weight = wj[Math.abs(i - ii)];
+                            sumw += weight;
+                            sumf += value * weight;
                         }
                     }
-                    indx = (jj - 1) * kxd + ii;
-                    if ( !G_DIFFT(sumw, 0.0F, GDIFFD)
-                            && !Float.isNaN(gnist[indx - 1])) {
-                        gnost[indx - 1] = sumf / sumw;
-                    } else {
-                        gnost[indx - 1] = Float.NaN;
-                    }
                 }
-            }
-            if (isCyclic) {
-                int kxdi = kxd - 2 * nr;
-                int m    = 0;
-                for (i = 0; i < kyd; i++) {
-                    for (j = 0; j < kxdi; j++) {
-                        int index = nr + j + i * kxd;
-                        gnosti[m++] = gnost[index];
-                    }
+                if ( !G_DIFFT(sumw, 0.0F, GDIFFD)) {
+                    gnost[indx] = sumf / sumw;
+                } else {
+                    gnost[indx] = Float.NaN;
                 }
             }
-            setLevelSlice(newVals[np], gnosti, sizeX, sizeY ,z);
-          }
         }
-        newField.setSamples(newVals, false);
-
-        return newField;
-
     }
 
     /**
@@ -8122,21 +8255,67 @@ public class GridUtil {
 
         float beszero = 3.8317f;
 
-        int   idist, nfp, npsq, njx, niy;
-        int   is, ie, js, je, ifp, jfp;
-        float dist, distsq, xfac, yfac, tot, totwt, xdist, ydist;
-        //float[][] fprint = new float[MAXWTS][MAXWTS];
-        float[] pslab, work;
-        int     index, psindex;
-        int sizeX, sizeY, sizeZ;
+        int   idist, nfp, npsq;
+        float dist, distsq, xfac, yfac, xdist, ydist;
+        int   sizeX, sizeY, sizeZ;
 
         idist = radius;
         if (idist == 0) {
             return slice;
         }
         nfp = Math.min(MAXWTS, 2 * idist);
-        float[][] fprint = new float[nfp][nfp];
+
+        /*
+         * The footprint only depends on the type and radius, so it is
+         * computed once for every level.  It is stored by y then x offset
+         * so the inner loop of the smoother walks along a row of it.
+         */
+        final float[][] fprint = new float[nfp][nfp];
         npsq = idist * idist;
+        if (type.equals(SMOOTH_CRESSMAN)) {  // Cressman function
+            for (int i = 0; i < nfp; i++) {
+                for (int j = 0; j < nfp; j++) {
+                    distsq = (float) (Math.pow((i - idist), 2)
+                                      + Math.pow((j - idist), 2));
+                    fprint[i][j] = (float) Math.max((npsq - distsq)
+                            / (npsq + distsq), 0.f);
+                }
+            }
+        } else if (type.equals(SMOOTH_CIRCULAR)) {  // Circular diffraction function
+            for (int i = 0; i < nfp; i++) {
+                for (int j = 0; j < nfp; j++) {
+                    dist = (float) (beszero / idist
+                                    * Math.sqrt(Math.pow((i - idist),
+                                            2) + Math.pow((j
+                                            - idist), 2)));
+                    if ((i == idist) && (j == idist)) {
+                        fprint[i][j] = .5f;
+                    } else {
+                        fprint[i][j] = (float) Math.max(0.,
+                                bes(dist) / dist);
+                    }
+                }
+            }
+        } else if (type.equals(SMOOTH_RECTANGULAR)) {  // Rect. diffraction function
+            for (int i = 0; i < nfp; i++) {
+                for (int j = 0; j < nfp; j++) {
+                    if (j == idist) {
+                        xfac = 1.f;
+                    } else {
+                        xdist = (float) Math.PI / idist * (j - idist);
+                        xfac  = (float) Math.sin(xdist) / xdist;
+                    }
+                    if (i == idist) {
+                        yfac = 1.f;
+                    } else {
+                        ydist = (float) Math.PI / idist * (i - idist);
+                        yfac  = (float) Math.sin(ydist) / ydist;
+                    }
+                    fprint[i][j] = xfac * yfac;
+                }
+            }
+        }
+
         if (rangeType == null) {
             rangeType =
                 GridUtil.makeNewParamType(GridUtil.getParamType(slice),
@@ -8147,10 +8326,8 @@ public class GridUtil {
         float[][]  samples = slice.getFloats(false);
         GriddedSet domain  = (GriddedSet) GridUtil.getSpatialDomain(slice);
         int[]      lengths = domain.getLengths();
-        njx = lengths[0];
-        niy = lengths[1];
-        sizeX = njx;
-        sizeY = niy;
+        sizeX = lengths[0];
+        sizeY = lengths[1];
         sizeZ = 1;
         if (lengths.length > 2) {
             sizeZ = lengths[2];
@@ -8158,146 +8335,95 @@ public class GridUtil {
         float[]   highs     = domain.getHi();
         float[]   lows      = domain.getLow();
         boolean   isCyclic  = lows[0] == highs[0] % 360.f;
-        int       numParams = samples.length;
         float[][] newValues = newField.getFloats(false);
+        final int pad       = idist;
 
-        for (int np = 0; np < numParams; np++) {
-          for (int z = 0; z < sizeZ; z++)  {
-            //float[] pslabi = samples[np];
-            //float[] worki  = newValues[np];
-            float[] pslabi = getLevelSlice(samples[np], sizeX, sizeY, z);
-            float[] worki  = getLevelSlice(newValues[np], sizeX, sizeY, z);
-
-            if (type.equals(SMOOTH_CRESSMAN)) {  // Cressman function
-                for (int i = 0; i < nfp; i++) {
-                    for (int j = 0; j < nfp; j++) {
-                        distsq = (float) (Math.pow((i - idist), 2)
-                                          + Math.pow((j - idist), 2));
-                        fprint[j][i] = (float) Math.max((npsq - distsq)
-                                / (npsq + distsq), 0.f);
-                    }
-                }
-            } else if (type.equals(SMOOTH_CIRCULAR)) {  // Circular diffraction function
-                for (int i = 0; i < nfp; i++) {
-                    for (int j = 0; j < nfp; j++) {
-                        dist = (float) (beszero / idist
-                                        * Math.sqrt(Math.pow((i - idist),
-                                                2) + Math.pow((j
-                                                - idist), 2)));
-                        if ((i == idist) && (j == idist)) {
-                            fprint[j][i] = .5f;
-                        } else {
-                            fprint[j][i] = (float) Math.max(0.,
-                                    bes(dist) / dist);
-                        }
-                    }
-                }
-            } else if (type.equals(SMOOTH_RECTANGULAR)) {  // Rect. diffraction function
-                for (int i = 0; i < nfp; i++) {
-                    for (int j = 0; j < nfp; j++) {
-                        if (j == idist) {
-                            xfac = 1.f;
-                        } else {
-                            xdist = (float) Math.PI / idist * (j - idist);
-                            xfac  = (float) Math.sin(xdist) / xdist;
-                        }
-                        if (i == idist) {
-                            yfac = 1.f;
-                        } else {
-                            ydist = (float) Math.PI / idist * (i - idist);
-                            yfac  = (float) Math.sin(ydist) / ydist;
-                        }
-                        fprint[j][i] = xfac * yfac;
-                    }
-                }
+        // pad each side of a cyclic grid with idist the values
+        smoothLevels(samples, newValues, sizeX, sizeY, sizeZ, isCyclic,
+                     idist, new LevelKernel() {
+            public void smoothRows(float[] pslab, float[] work, int offset,
+                                   int njx, int niy, int start, int stop) {
+                smoothWeightedRows(pslab, work, fprint, pad, offset, njx,
+                                   niy, start, stop);
             }
-            njx = sizeX;
-            if (isCyclic) {  // pad each side with idist the values
-                pslab = extendGrid(pslabi, idist, njx, niy);
-                work  = new float[pslab.length];
-                njx   += 2 * idist;
-            } else {
-                pslab = pslabi;
-                work  = worki;
-            }
-            // now do the work of smoothing
-            for (int i = 0; i < niy; i++) {
-                for (int j = 0; j < njx; j++) {
-                    index = j + i * njx;
-                    if ( !Float.isNaN(pslab[index])) {
-                        tot   = 0.f;
-                        totwt = 0.f;
-                        is    = Math.max(0, i - idist);
-                        ie    = Math.min(niy - 1, i + idist);
-                        js    = Math.max(0, j - idist);
-                        je    = Math.min(njx - 1, j + idist);
-                        for (int ireg = is; ireg < ie; ireg++) {
-                            ifp = ireg - i + idist;
-                            for (int jreg = js; jreg < je; jreg++) {
-                                jfp     = jreg - j + idist;
-                                psindex = ireg * njx + jreg;
-                                if ( !Float.isNaN(pslab[psindex])) {
-                                    totwt = totwt + fprint[jfp][ifp];
-                                    tot = tot
-                                          + fprint[jfp][ifp] * pslab[psindex];
-                                }
-                            }
-                        }
-                        work[index] = tot / totwt;
-                    } else {
-                        work[index] = Float.NaN;
-                    }
+        });
+        newField.setSamples(newValues, false);
+
+        return newField;
+
+    }
+
+    /**
+     * Apply a weighted smoother to a block of rows of one level.
+     *
+     * @param pslab  input values
+     * @param work  output values
+     * @param fprint  footprint of weights, indexed by y then x offset
+     * @param idist  radius of the footprint in grid points
+     * @param offset  index of the first point of the level
+     * @param njx  number of points in a row
+     * @param niy  number of rows
+     * @param start  first row (inclusive)
+     * @param stop  last row (inclusive)
+     */
+    private static void smoothWeightedRows(float[] pslab, float[] work,
+                                           float[][] fprint, int idist,
+                                           int offset, int njx, int niy,
+                                           int start, int stop) {
+        for (int i = start; i <= stop; i++) {
+            int is = Math.max(0, i - idist);
+            int ie = Math.min(niy - 1, i + idist);
+            for (int j = 0; j < njx; j++) {
+                int index = offset + j + i * njx;
+                if (Float.isNaN(pslab[index])) {
+                    work[index] = Float.NaN;
+                    continue;
                 }
-            }
-            if (isCyclic) {
-                int njxi = njx - 2 * idist;
-                int m    = 0;
-                for (int i = 0; i < niy; i++) {
-                    for (int j = 0; j < njxi; j++) {
-                        index      = idist + j + i * njx;
-                        worki[m++] = work[index];
+                int   js    = Math.max(0, j - idist);
+                int   je    = Math.min(njx - 1, j + idist);
+                float tot   = 0.f;
+                float totwt = 0.f;
+                for (int ireg = is; ireg < ie; ireg++) {
+                    float[] fp  = fprint[ireg - i + idist];
+                    int     row = offset + ireg * njx;
+                    for (int jreg = js; jreg < je; jreg++) {
+                        float value = pslab[row + jreg];
+                        if ( !Float.isNaN(value)) {
+                            float weight = fp[jreg - j + idist];
+                            totwt = totwt + weight;
+                            tot   = tot + weight * value;
+                        }
                     }
                 }
-            } else {
-                
+                work[index] = tot / totwt;
             }
-            setLevelSlice(newValues[np], worki, sizeX, sizeY, z );
-          }
         }
-        newField.setSamples(newValues, false);
-
-        return newField;
-
     }
 
     /**
-     * Pad the cyclical grid on each edge by ncols
+     * Pad one level of a cyclical grid on each edge by ncols
      * @param data  the data to pad
+     * @param offset  index of the first point of the level in data
      * @param ncols  the number of columns
      * @param nx  number of x points
      * @param ny  number of y points
-     * @return  extended grid
+     * @param newData  filled with the extended grid of
+     *                 (nx + 2 * ncols) * ny points
      */
-    private static float[] extendGrid(float[] data, int ncols, int nx,
-                                      int ny) {
-        float[] newData = new float[data.length + ny * ncols * 2];
-        int     index   = 0;
-        int     l       = 0;
+    private static void extendGrid(float[] data, int offset, int ncols,
+                                   int nx, int ny, float[] newData) {
+        int l = 0;
         for (int i = 0; i < ny; i++) {
+            int row = offset + i * nx;
             for (int j = ncols; j > 0; j--) {
-                index        = nx - j - 1 + i * nx;
-                newData[l++] = data[index];
-            }
-            for (int j = 0; j < nx; j++) {
-                index        = j + i * nx;
-                newData[l++] = data[index];
+                newData[l++] = data[row + nx - j - 1];
             }
+            System.arraycopy(data, row, newData, l, nx);
+            l += nx;
             for (int j = 0; j < ncols; j++) {
-                index        = j + 1 + i * nx;
-                newData[l++] = data[index];
+                newData[l++] = data[row + j + 1];
             }
         }
-        return newData;
     }
 
     /**
@@ -119,6 +119,12 @@ public abstract class ImageDataSource extends DataSourceImpl {
     /** satellite type */
     public static final String PROP_BANDINFO = "bandinfo";
 
+    /**
+     * Preference for keeping area images as raw counts and calibrating
+     * them only when their values are needed
+     */
+    public static final String PREF_COMPACT_IMAGES = "idv.data.image.compact";
+
     /** list of twod categories */
     private List twoDCategories;
 
@@ -1204,8 +1210,12 @@ public abstract class ImageDataSource extends DataSourceImpl {
                             readLabel);
                 } else {
                     //Else, pass in the already created range type
-                    result = AreaImageFlatField.create(aid, areaDir,
-                            rangeType, readLabel);
+                    AreaImageFlatField aiff = AreaImageFlatField.create(aid,
+                                                  areaDir, rangeType,
+                                                  readLabel);
+                    aiff.setCompactStorage(
+                        getIdv().getStore().get(PREF_COMPACT_IMAGES, true));
+                    result = aiff;
                 }
             } else {
                 AreaAdapter aa = new AreaAdapter(aid.getSource(), false);
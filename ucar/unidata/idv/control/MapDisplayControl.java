@@ -383,6 +383,68 @@ public class MapDisplayControl extends DisplayControlImpl {
         }
     }
 
+    /**
+     * Listen for zooms so we can change the maps' level of detail
+     *
+     * @return  true
+     */
+    protected boolean shouldAddControlListener() {
+        return true;
+    }
+
+    /**
+     * Handle the viewpoint changed by showing each map at the level of
+     * detail that suits the new scale
+     */
+    public void viewpointChanged() {
+        super.viewpointChanged();
+        int level = getMapLevel();
+        for (MapState mapState : new ArrayList<MapState>(mapStates)) {
+            mapState.checkLevelOfDetail(level);
+        }
+    }
+
+    /**
+     * Get the level of detail the maps should be shown at, from how many
+     * degrees a pixel covers at the center of the display.
+     *
+     * @return the level. 0 is full detail.
+     */
+    private int getMapLevel() {
+        try {
+            NavigatedDisplay navDisplay = getNavigatedDisplay();
+            if ((navDisplay == null) || (navDisplay.getDisplay() == null)) {
+                return 0;
+            }
+            Rectangle screenBounds = navDisplay.getScreenBounds();
+            int       span         = Math.min(100, screenBounds.width / 2);
+            if (span <= 0) {
+                return 0;
+            }
+            int cx = screenBounds.width / 2;
+            int cy = screenBounds.height / 2;
+            EarthLocation p1 = navDisplay.screenToEarthLocation(cx - span / 2,
+                                   cy);
+            EarthLocation p2 = navDisplay.screenToEarthLocation(cx + span / 2,
+                                   cy);
+            double dLat = Math.abs(p1.getLatitude().getValue()
+                                   - p2.getLatitude().getValue());
+            double dLon = Math.abs(p1.getLongitude().getValue()
+                                   - p2.getLongitude().getValue());
+            if (dLon > 180) {
+                dLon = 360 - dLon;
+            }
+            double degreesPerPixel = Math.max(dLat, dLon) / span;
+            if (Double.isNaN(degreesPerPixel)) {
+                return 0;
+            }
+            return MapSetCache.getLevel(degreesPerPixel);
+        } catch (Exception exc) {
+            //Off the earth, etc. Use full detail.
+            return 0;
+        }
+    }
+
     /**
      * Append any label information to the list of labels.
      *
@@ -2176,6 +2238,12 @@ public class MapDisplayControl extends DisplayControlImpl {
         /** A mutex */
         private Object MAP_MUTEX = new Object();
 
+        /** The shared map and its levels of detail */
+        private MapSetCache.Entry mapEntry;
+
+        /** The level of detail we are showing */
+        private int level = 0;
+
         /**
          * ctor for persistence
          */
@@ -2223,14 +2291,43 @@ public class MapDisplayControl extends DisplayControlImpl {
 
 
         /**
-         * Create, if needed, and return the SampledSet that represents this map
+         * Get the SampledSet that represents this map from the shared cache,
+         * at the level of detail for the current scale
          *
          * @param source The map source (may be a java resource, url or file)
          *
          * @return The map data
          */
         private SampledSet getData(String source) {
-            return MapInfo.createMapData(source);
+            mapEntry = MapSetCache.getInstance().get(source);
+            if (mapEntry == null) {
+                return null;
+            }
+            level = mapDisplayControl.getMapLevel();
+            return mapEntry.getSet(level);
+        }
+
+        /**
+         * Show the map at the given level of detail
+         *
+         * @param newLevel the level
+         */
+        protected void checkLevelOfDetail(int newLevel) {
+            if ((myMap == null) || (mapEntry == null)
+                    || (newLevel == level)) {
+                return;
+            }
+            SampledSet mapSet = mapEntry.getSet(newLevel);
+            try {
+                synchronized (MAP_MUTEX) {
+                    if (mapSet != mapEntry.getSet(level)) {
+                        myMap.setMapLines(mapSet);
+                    }
+                    level = newLevel;
+                }
+            } catch (Exception exc) {
+                mapDisplayControl.logException("Changing map detail", exc);
+            }
         }
 
 
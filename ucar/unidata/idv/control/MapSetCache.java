@@ -0,0 +1,452 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ * 
+ * All Rights Reserved
+ * 
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.  
+ * 
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+
+package ucar.unidata.idv.control;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ucar.unidata.gis.maps.MapInfo;
+
+import visad.Gridded2DSet;
+import visad.SampledSet;
+import visad.UnionSet;
+import visad.VisADException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Process wide cache of parsed map outlines, shared by every
+ * {@link MapDisplayControl}. Each map is parsed once, no matter how many
+ * views show it, and is held along with simplified versions of itself for
+ * when the view is zoomed out far enough that the full detail cannot be
+ * seen. The cache is bounded by an estimate of the bytes it holds; once
+ * that is exceeded the least recently used maps are dropped.
+ */
+public class MapSetCache {
+
+    /** logger */
+    private static final Logger logger =
+        LoggerFactory.getLogger(MapSetCache.class);
+
+    /**
+     * Simplification tolerances, in degrees, of the levels of detail we
+     * make. Level 0 is the map as read.
+     */
+    private static final float[] TOLERANCES = { 0.005f, 0.02f, 0.08f,
+            0.32f };
+
+    /** Default budget: one sixteenth of the maximum heap */
+    public static final long DEFAULT_MAX_BYTES =
+        Runtime.getRuntime().maxMemory() / 16;
+
+    /** The one cache */
+    private static final MapSetCache instance = new MapSetCache();
+
+    /** Maps we have, in least recently used order */
+    private final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Maps being read */
+    private final Map<String, CompletableFuture<Entry>> loading =
+        new HashMap<>();
+
+    /** Max bytes */
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    /** Bytes we hold */
+    private long residentBytes = 0;
+
+    /** hits */
+    private long hitCount = 0;
+
+    /** misses */
+    private long missCount = 0;
+
+    /** evictions */
+    private long evictionCount = 0;
+
+    /**
+     * Get the cache
+     *
+     * @return the cache
+     */
+    public static MapSetCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the map for the given source, reading it if we don't have it.
+     * If another thread is reading the same map we wait for it.
+     *
+     * @param source The map source (may be a java resource, url or file)
+     *
+     * @return The map or null if it could not be read
+     */
+    public Entry get(String source) {
+        CompletableFuture<Entry> load;
+        boolean                  mine = false;
+        synchronized (this) {
+            Entry entry = entries.get(source);
+            if (entry != null) {
+                hitCount++;
+                return entry;
+            }
+            load = loading.get(source);
+            if (load == null) {
+                missCount++;
+                load = new CompletableFuture<>();
+                loading.put(source, load);
+                mine = true;
+            }
+        }
+        if ( !mine) {
+            return load.join();
+        }
+        Entry entry = null;
+        try {
+            SampledSet mapSet = MapInfo.createMapData(source);
+            if (mapSet != null) {
+                entry = new Entry(mapSet);
+            }
+        } catch (Exception exc) {
+            logger.error("Error reading map:" + source, exc);
+        } finally {
+            synchronized (this) {
+                loading.remove(source);
+                if ((entry != null) && (entry.bytes <= maxBytes)) {
+                    entries.put(source, entry);
+                    residentBytes += entry.bytes;
+                    trim();
+                }
+            }
+            load.complete(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Drop every map. Counters are left alone.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        residentBytes = 0;
+    }
+
+    /**
+     * Set the max bytes
+     *
+     * @param maxBytes the max bytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    /**
+     * Get the max bytes
+     *
+     * @return the max bytes
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the bytes held
+     *
+     * @return the bytes held
+     */
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Get the number of maps held
+     *
+     * @return number of maps
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get a description of the cache
+     *
+     * @return the stats
+     */
+    public synchronized String getStats() {
+        return "MapSetCache: maps=" + entries.size() + " resident="
+               + (residentBytes / 1024 / 1024) + "MB" + " max="
+               + (maxBytes / 1024 / 1024) + "MB" + " hits=" + hitCount
+               + " misses=" + missCount + " evictions=" + evictionCount;
+    }
+
+    /**
+     * Drop the least recently used maps until we are within budget
+     */
+    private void trim() {
+        Iterator<Entry> iter = entries.values().iterator();
+        while (iter.hasNext() && (residentBytes > maxBytes)) {
+            Entry eldest = iter.next();
+            iter.remove();
+            residentBytes -= eldest.bytes;
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Get the level of detail to use when one pixel covers the given number
+     * of degrees. This is the coarsest level whose simplification can not
+     * be seen.
+     *
+     * @param degreesPerPixel degrees per pixel. Zero or less for full detail.
+     *
+     * @return the level
+     */
+    public static int getLevel(double degreesPerPixel) {
+        int level = 0;
+        for (int i = 0; i < TOLERANCES.length; i++) {
+            if (TOLERANCES[i] <= degreesPerPixel) {
+                level = i + 1;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Approximate the size of a set
+     *
+     * @param set the set
+     *
+     * @return bytes
+     *
+     * @throws VisADException On badness
+     */
+    private static long getSize(SampledSet set) throws VisADException {
+        if (set instanceof UnionSet) {
+            long size = 0;
+            for (SampledSet s : ((UnionSet) set).getSets()) {
+                size += getSize(s);
+            }
+            return size;
+        }
+        return 4L * set.getDimension() * set.getLength();
+    }
+
+    /**
+     * Simplify the lines in the map. Only a union of lat/lon lines, which
+     * is what the map readers make, can be simplified.
+     *
+     * @param set the map
+     * @param tolerance tolerance in degrees
+     *
+     * @return the simplified map, or null if it can't be simplified
+     *
+     * @throws VisADException On badness
+     */
+    private static SampledSet simplify(SampledSet set, float tolerance)
+            throws VisADException {
+        if ( !(set instanceof UnionSet)) {
+            return null;
+        }
+        SampledSet[]     sets   = ((UnionSet) set).getSets();
+        List<SampledSet> result = new ArrayList<>(sets.length);
+        for (SampledSet s : sets) {
+            if ( !(s instanceof Gridded2DSet)
+                    || (s.getManifoldDimension() != 1)) {
+                return null;
+            }
+            float[][] samples = s.getSamples(false);
+            float[][] simple  = simplify(samples, tolerance);
+            if (simple == samples) {
+                result.add(s);
+            } else if (simple[0].length > 1) {
+                result.add(new Gridded2DSet(s.getType(), simple,
+                                            simple[0].length,
+                                            s.getCoordinateSystem(),
+                                            s.getSetUnits(),
+                                            s.getSetErrors(), false));
+            }
+        }
+        if (result.isEmpty()) {
+            return null;
+        }
+        return new UnionSet(set.getType(),
+                            result.toArray(new SampledSet[result.size()]));
+    }
+
+    /**
+     * Simplify a line with the Douglas-Peucker algorithm. Missing points
+     * break the line and are kept.
+     *
+     * @param samples the points
+     * @param tolerance tolerance
+     *
+     * @return the points to keep, or samples if all are kept
+     */
+    static float[][] simplify(float[][] samples, float tolerance) {
+        float[]   x    = samples[0];
+        float[]   y    = samples[1];
+        int       n    = x.length;
+        boolean[] keep = new boolean[n];
+        int[]     stack = new int[2 * n + 2];
+        int       start = 0;
+        while (start < n) {
+            if ((x[start] != x[start]) || (y[start] != y[start])) {
+                keep[start] = true;
+                start++;
+                continue;
+            }
+            int end = start;
+            while ((end + 1 < n) && (x[end + 1] == x[end + 1])
+                    && (y[end + 1] == y[end + 1])) {
+                end++;
+            }
+            keep[start] = true;
+            keep[end]   = true;
+            int top = 0;
+            stack[top++] = start;
+            stack[top++] = end;
+            while (top > 0) {
+                int   last  = stack[--top];
+                int   first = stack[--top];
+                float dx    = x[last] - x[first];
+                float dy    = y[last] - y[first];
+                float len2  = dx * dx + dy * dy;
+                float max   = 0;
+                int   index = -1;
+                for (int i = first + 1; i < last; i++) {
+                    float px = x[i] - x[first];
+                    float py = y[i] - y[first];
+                    float d2;
+                    if (len2 == 0) {
+                        d2 = px * px + py * py;
+                    } else {
+                        float cross = px * dy - py * dx;
+                        d2 = cross * cross / len2;
+                    }
+                    if (d2 > max) {
+                        max   = d2;
+                        index = i;
+                    }
+                }
+                if ((index >= 0) && (max > tolerance * tolerance)) {
+                    keep[index]  = true;
+                    stack[top++] = first;
+                    stack[top++] = index;
+                    stack[top++] = index;
+                    stack[top++] = last;
+                }
+            }
+            start = end + 1;
+        }
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                count++;
+            }
+        }
+        if (count == n) {
+            return samples;
+        }
+        float[][] result = new float[samples.length][count];
+        int       j      = 0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i]) {
+                for (int k = 0; k < samples.length; k++) {
+                    result[k][j] = samples[k][i];
+                }
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A map and its levels of detail
+     */
+    public static class Entry {
+
+        /** The map, then each simplified level. Entries may be null. */
+        private final SampledSet[] levels;
+
+        /** Approximate bytes held */
+        private final long bytes;
+
+        /**
+         * Make the levels of detail for the map
+         *
+         * @param mapSet the map
+         *
+         * @throws VisADException On badness
+         */
+        Entry(SampledSet mapSet) throws VisADException {
+            levels    = new SampledSet[TOLERANCES.length + 1];
+            levels[0] = mapSet;
+            long size = getSize(mapSet);
+            //Each level simplifies the one before it, which is quicker
+            SampledSet previous = mapSet;
+            for (int i = 0; (i < TOLERANCES.length) && (previous != null);
+                    i++) {
+                SampledSet simple = simplify(previous, TOLERANCES[i]);
+                if (simple != null) {
+                    levels[i + 1] = simple;
+                    size          += getSize(simple);
+                }
+                previous = simple;
+            }
+            bytes = size;
+        }
+
+        /**
+         * Get the map at a level of detail, or the nearest finer one we
+         * have
+         *
+         * @param level the level
+         *
+         * @return the map
+         */
+        public SampledSet getSet(int level) {
+            for (int i = Math.min(level, levels.length - 1); i > 0; i--) {
+                if (levels[i] != null) {
+                    return levels[i];
+                }
+            }
+            return levels[0];
+        }
+    }
+}
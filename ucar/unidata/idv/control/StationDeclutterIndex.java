@@ -0,0 +1,253 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ * 
+ * All Rights Reserved
+ * 
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.  
+ * 
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+
+package ucar.unidata.idv.control;
+
+
+import ucar.unidata.data.point.PointOb;
+import ucar.unidata.view.geoloc.NavigatedDisplay;
+
+import visad.FieldImpl;
+import visad.VisADException;
+
+import java.rmi.RemoteException;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Precomputed declutter index for one time step of station observations.
+ * The display coordinates of each ob are found once when the index is
+ * made. Decluttering is done by marking a grid of cells about the size
+ * of the station glyph, in the order the obs are given, over all of the
+ * obs rather than just the ones in view. Cell sizes are rounded up to
+ * powers of the square root of two, so each zoom factor maps to one
+ * level. Levels are made the first time they are needed and kept, so
+ * zooming back to a scale we have seen just picks the level.
+ */
+class StationDeclutterIndex {
+
+    /** Ratio between the cell sizes of successive levels */
+    private static final double LEVEL_RATIO = Math.sqrt(2.0);
+
+    /** The obs */
+    private final PointOb[] obs;
+
+    /** Position of each ob in obs */
+    private final IdentityHashMap<PointOb, Integer> positions;
+
+    /** Display x of each ob */
+    private final float[] xs;
+
+    /** Display y of each ob */
+    private final float[] ys;
+
+    /** Obs kept at each level, keyed by level and glyph aspect ratio */
+    private final Map<Long, BitSet> levels = new ConcurrentHashMap<>();
+
+    /**
+     * Make the index. This finds the display location of every ob.
+     *
+     * @param pointObs one time step of obs
+     * @param navDisplay  the display used for the locations
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    StationDeclutterIndex(FieldImpl pointObs, NavigatedDisplay navDisplay)
+            throws VisADException, RemoteException {
+        int numObs = pointObs.getDomainSet().getLength();
+        obs       = new PointOb[numObs];
+        positions = new IdentityHashMap<>(numObs);
+        xs        = new float[numObs];
+        ys        = new float[numObs];
+        double[] xyz = new double[3];
+        for (int i = 0; i < numObs; i++) {
+            obs[i] = (PointOb) pointObs.getSample(i);
+            positions.put(obs[i], i);
+            xyz = navDisplay.getSpatialCoordinates(obs[i].getEarthLocation(),
+                    xyz, 0);
+            xs[i] = (float) xyz[0];
+            ys[i] = (float) xyz[1];
+        }
+    }
+
+    /**
+     * Get the position in this index of the given ob
+     *
+     * @param ob  the ob
+     *
+     * @return its position or -1 if we don't have it
+     */
+    int indexOf(PointOb ob) {
+        Integer position = positions.get(ob);
+        return (position == null)
+               ? -1
+               : position.intValue();
+    }
+
+    /**
+     * Do we have every ob in the given field
+     *
+     * @param pointObs  the obs
+     *
+     * @return true if all of them are in this index
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    boolean covers(FieldImpl pointObs)
+            throws VisADException, RemoteException {
+        int numObs = pointObs.getDomainSet().getLength();
+        if (numObs > obs.length) {
+            return false;
+        }
+        for (int i = 0; i < numObs; i++) {
+            if ( !positions.containsKey(pointObs.getSample(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the display x of the ob at the given position
+     *
+     * @param position  the position
+     *
+     * @return display x
+     */
+    float getX(int position) {
+        return xs[position];
+    }
+
+    /**
+     * Get the display y of the ob at the given position
+     *
+     * @param position  the position
+     *
+     * @return display y
+     */
+    float getY(int position) {
+        return ys[position];
+    }
+
+    /**
+     * Get the number of obs
+     *
+     * @return number of obs
+     */
+    int size() {
+        return obs.length;
+    }
+
+    /**
+     * Get the obs that survive decluttering with a glyph of the given
+     * size. The glyph width is rounded up to the next level, so the
+     * result is never more crowded than asked for.
+     *
+     * @param glyphWidth  glyph width in display coordinates
+     * @param glyphHeight glyph height in display coordinates
+     *
+     * @return the positions of the obs that are kept. Do not change it.
+     */
+    BitSet getLevel(double glyphWidth, double glyphHeight) {
+        if ((glyphWidth <= 0) || (glyphHeight <= 0)) {
+            BitSet all = new BitSet(obs.length);
+            all.set(0, obs.length);
+            return all;
+        }
+        final int   level  = (int) Math.ceil(Math.log(glyphWidth)
+                                             / Math.log(LEVEL_RATIO));
+        final float aspect = (float) (glyphHeight / glyphWidth);
+        long key = (((long) level) << 32)
+                   | (Float.floatToIntBits(aspect) & 0xffffffffL);
+        return levels.computeIfAbsent(key, k -> {
+            double cellWidth = Math.pow(LEVEL_RATIO, level);
+            return declutter(cellWidth, cellWidth * aspect);
+        });
+    }
+
+    /**
+     * Mark a grid of cells with the given size. An ob is kept when
+     * none of the cells under its glyph have been marked already.
+     *
+     * @param cellWidth  width of a cell
+     * @param cellHeight height of a cell
+     *
+     * @return the positions of the obs that are kept
+     */
+    private BitSet declutter(double cellWidth, double cellHeight) {
+        BitSet        kept   = new BitSet(obs.length);
+        HashSet<Long> marked = new HashSet<>();
+        for (int i = 0; i < obs.length; i++) {
+            if (Float.isNaN(xs[i]) || Float.isNaN(ys[i])) {
+                continue;
+            }
+            long col0 = (long) Math.floor(xs[i] / cellWidth);
+            long row0 = (long) Math.floor(ys[i] / cellHeight);
+            long col1 = (long) Math.floor((xs[i] + cellWidth) / cellWidth);
+            long row1 = (long) Math.floor((ys[i] + cellHeight)
+                                          / cellHeight);
+            boolean clear = true;
+            for (long row = row0; clear && (row <= row1); row++) {
+                for (long col = col0; col <= col1; col++) {
+                    if (marked.contains(cellKey(col, row))) {
+                        clear = false;
+                        break;
+                    }
+                }
+            }
+            if ( !clear) {
+                continue;
+            }
+            for (long row = row0; row <= row1; row++) {
+                for (long col = col0; col <= col1; col++) {
+                    marked.add(cellKey(col, row));
+                }
+            }
+            kept.set(i);
+        }
+        return kept;
+    }
+
+    /**
+     * Make the key for a grid cell
+     *
+     * @param col  cell column
+     * @param row  cell row
+     *
+     * @return the key
+     */
+    private static long cellKey(long col, long row) {
+        return (col << 32) ^ (row & 0xffffffffL);
+    }
+}
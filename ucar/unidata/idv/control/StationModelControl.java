@@ -39,7 +39,6 @@ import ucar.unidata.data.point.PointDataSource;
 import ucar.unidata.data.point.PointOb;
 import ucar.unidata.data.point.PointObFactory;
 import ucar.unidata.geoloc.Bearing;
-import ucar.unidata.gis.SpatialGrid;
 import ucar.unidata.idv.ControlContext;
 import ucar.unidata.idv.control.chart.LineState;
 import ucar.unidata.idv.control.chart.PointParam;
@@ -92,6 +91,7 @@ import visad.VisADException;
 import visad.georef.EarthLocation;
 import visad.georef.LatLonPoint;
 import visad.georef.MapProjection;
+import visad.util.ThreadManager;
 
 
 
@@ -114,6 +114,7 @@ import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
@@ -266,8 +267,12 @@ public class StationModelControl extends ObsDisplayControl {
     String modelName;
 
 
-    /** grid for decluttering */
-    private SpatialGrid stationGrid;
+    /**
+     * Declutter indexes for the time steps we last decluttered. The list
+     * is replaced, never changed, so it can be read without locking.
+     */
+    private volatile List<StationDeclutterIndex> declutterIndexes =
+        new ArrayList<>();
 
     /** flag for decluttering */
     private boolean declutter = true;
@@ -2029,6 +2034,7 @@ public class StationModelControl extends ObsDisplayControl {
      */
     protected void resetData() throws VisADException, RemoteException {
         clearDataInstance();
+        clearDeclutterIndexes();
         super.resetData();
     }
 
@@ -2039,6 +2045,7 @@ public class StationModelControl extends ObsDisplayControl {
      */
     public void projectionChanged() {
         super.projectionChanged();
+        clearDeclutterIndexes();
         //Handle this in a thread
         Misc.run(new Runnable() {
             public void run() {
@@ -3176,6 +3183,7 @@ public class StationModelControl extends ObsDisplayControl {
      */
     public void applyFilters() {
         lastDeclutteredData = null;
+        clearDeclutterIndexes();
         initFilters();
         loadData();
     }
@@ -3337,30 +3345,53 @@ public class StationModelControl extends ObsDisplayControl {
      * @throws RemoteException  Java RMI error
      * @throws VisADException   VisAD Error
      */
-    private FieldImpl doDeclutter(FieldImpl obs, int timestamp)
+    private FieldImpl doDeclutter(FieldImpl obs, final int timestamp)
             throws VisADException, RemoteException {
 
         long      millis           = System.currentTimeMillis();
         boolean   isTimeSequence   = GridUtil.isTimeSequence(obs);
         FieldImpl declutteredField = null;
+        final List<StationDeclutterIndex> indexes = declutterIndexes;
         if (isTimeSequence) {
             Set timeSet = obs.getDomainSet();
             declutteredField = new FieldImpl((FunctionType) obs.getType(),
                                              timeSet);
             int numTimes = timeSet.getLength();
+            final FieldImpl[] subTimes = new FieldImpl[numTimes];
+            final StationDeclutterIndex[] usedIndexes =
+                new StationDeclutterIndex[numTimes];
+            ThreadManager threadManager =
+                new ThreadManager("Station model declutter");
             for (int i = 0; i < numTimes; i++) {
-                FieldImpl oneTime = (FieldImpl) obs.getSample(i);
-                FieldImpl subTime = doTheActualDecluttering(oneTime,
-                                        timestamp);
-                if (timestamp != loadDataTimestamp) {
-                    return null;
-                }
-                if (subTime != null) {
-                    declutteredField.setSample(i, subTime, false);
+                final int       timeIdx = i;
+                final FieldImpl oneTime = (FieldImpl) obs.getSample(i);
+                threadManager.addRunnable(new ThreadManager.MyRunnable() {
+                    public void run() throws Exception {
+                        if (timestamp != loadDataTimestamp) {
+                            return;
+                        }
+                        usedIndexes[timeIdx] = getDeclutterIndex(oneTime,
+                                indexes);
+                        subTimes[timeIdx] = doTheActualDecluttering(oneTime,
+                                usedIndexes[timeIdx], timestamp);
+                    }
+                });
+            }
+            threadManager.runInParallel(getIdv().getMaxDataThreadCount());
+            if (timestamp != loadDataTimestamp) {
+                return null;
+            }
+            for (int i = 0; i < numTimes; i++) {
+                if (subTimes[i] != null) {
+                    declutteredField.setSample(i, subTimes[i], false);
                 }
             }
+            keepDeclutterIndexes(usedIndexes);
         } else {
-            declutteredField = doTheActualDecluttering(obs, timestamp);
+            StationDeclutterIndex index = getDeclutterIndex(obs, indexes);
+            declutteredField = doTheActualDecluttering(obs, index,
+                    timestamp);
+            keepDeclutterIndexes(new StationDeclutterIndex[] { index });
         }
         //System.out.println("Subsetting took : " +
         //    (System.currentTimeMillis() - millis) + " ms");
@@ -3368,9 +3399,61 @@ public class StationModelControl extends ObsDisplayControl {
     }
 
     /**
-     * a     * Declutters a single timestep of observations.
+     * Find the declutter index that holds all of the given obs, making
+     * a new one if there is none.
      *
      * @param pointObs  point observations for one timestep.
+     * @param indexes   the indexes we have
+     *
+     * @return the index or null if pointObs is empty
+     *
+     * @throws RemoteException  Java RMI error
+     * @throws VisADException   VisAD Error
+     */
+    private StationDeclutterIndex getDeclutterIndex(FieldImpl pointObs,
+            List<StationDeclutterIndex> indexes)
+            throws VisADException, RemoteException {
+        if ((pointObs == null) || pointObs.isMissing()) {
+            return null;
+        }
+        PointOb first = (PointOb) pointObs.getSample(0);
+        for (StationDeclutterIndex index : indexes) {
+            if ((index.indexOf(first) >= 0) && index.covers(pointObs)) {
+                return index;
+            }
+        }
+        return new StationDeclutterIndex(pointObs, getNavigatedDisplay());
+    }
+
+    /**
+     * Keep the declutter indexes used by the last declutter, dropping
+     * any others.
+     *
+     * @param used  the indexes used. May hold nulls and duplicates.
+     */
+    private void keepDeclutterIndexes(StationDeclutterIndex[] used) {
+        List<StationDeclutterIndex> indexes = new ArrayList<>();
+        for (StationDeclutterIndex index : used) {
+            if ((index != null) && !indexes.contains(index)) {
+                indexes.add(index);
+            }
+        }
+        declutterIndexes = indexes;
+    }
+
+    /**
+     * Drop the declutter indexes. Call this when the display locations
+     * of the obs, or which obs are shown together, change.
+     */
+    private void clearDeclutterIndexes() {
+        declutterIndexes = new ArrayList<>();
+    }
+
+    /**
+     * Declutters a single timestep of observations.
+     *
+     * @param pointObs  point observations for one timestep.
+     * @param index     declutter index holding all of pointObs
      * @param timestamp  the timestamp
      *
      * @return a decluttered version of pointObs
@@ -3379,7 +3462,7 @@ public class StationModelControl extends ObsDisplayControl {
      * @throws VisADException   VisAD Error
      */
     private FieldImpl doTheActualDecluttering(FieldImpl pointObs,
-            int timestamp)
+            StationDeclutterIndex index, int timestamp)
             throws VisADException, RemoteException {
         if ((pointObs == null) || pointObs.isMissing()) {
             return pointObs;
@@ -3394,52 +3477,27 @@ public class StationModelControl extends ObsDisplayControl {
 
         float       myScale = getScale() * .0025f * getDeclutterFilter();
 
-        Rectangle2D scaledGlyphBounds =
-            new Rectangle2D.Double(glyphBounds.getX() * myScale,
-                                   glyphBounds.getY() * myScale,
-                                   glyphBounds.getWidth() * myScale,
-                                   glyphBounds.getHeight() * myScale);
-        NavigatedDisplay   navDisplay = getNavigatedDisplay();
-
-        Rectangle2D.Double obBounds   = new Rectangle2D.Double();
-        obBounds.width  = scaledGlyphBounds.getWidth();
-        obBounds.height = scaledGlyphBounds.getHeight();
-
         Rectangle2D bounds = getBounds();
         //        System.out.println("my bounds: x:" + bounds.getX()+"-" +(bounds.getX()+bounds.getWidth())+" y:" +
         //                           bounds.getY()+"-" +(bounds.getY()+bounds.getHeight()));
 
-
-        if (stationGrid == null) {
-            stationGrid = new SpatialGrid(200, 200);
-        }
-        stationGrid.clear();
-        stationGrid.setGrid(bounds, scaledGlyphBounds);
-        if (getDeclutterFilter() < 0.3f) {
-            //      stationGrid.setOverlap((int)((1.0-getDeclutterFilter())*100));
-            //      stationGrid.setOverlap(          (int)((.5f-getDeclutterFilter())*100));
-        } else {
-            //      stationGrid.setOverlap(0);
-        }
-
-        double[] xyz = new double[3];
-        //TODO: The repeated getSpatialCoords is a bit expensive
+        //The index has the display locations and the obs that are kept at
+        //this scale, so all we do here is pick the ones that are in view
+        BitSet kept = index.getLevel(glyphBounds.getWidth() * myScale,
+                                     glyphBounds.getHeight() * myScale);
         for (int i = 0; i < numObs; i++) {
             if (timestamp != loadDataTimestamp) {
                 return null;
             }
-            PointOb ob = (PointOb) pointObs.getSample(i);
-            xyz = navDisplay.getSpatialCoordinates(ob.getEarthLocation(),
-                    xyz, 0);
-            obBounds.x = xyz[0];
-            obBounds.y = xyz[1];
-            //            if(i<30)
-            //                System.err.println("\tel:" + ob.getEarthLocation() +" obBounds:" + obBounds.x +"/" + obBounds.y);
-            if (stationGrid.markIfClear(obBounds, "") || isSelected(ob)) {
+            PointOb ob       = (PointOb) pointObs.getSample(i);
+            int     position = index.indexOf(ob);
+            if ((kept.get(position)
+                    && bounds.contains(index.getX(position),
+                                       index.getY(position))) || isSelected(
+                                           ob)) {
                 v.add(ob);  // is in the bounds
             }
         }
-        //      stationGrid.print();
         long t2 = System.currentTimeMillis();
 
 
@@ -3467,7 +3525,6 @@ public class StationModelControl extends ObsDisplayControl {
         return retField;
     }
 
-
     /**
      * Set whether this DisplayControl should be decluttered or not.
      * Used by XML persistence.
@@ -3702,6 +3759,7 @@ public class StationModelControl extends ObsDisplayControl {
      */
     public void setUseDataTimes(boolean value) {
         useDataTimes = value;
+        clearDeclutterIndexes();
         if (getHaveInitialized()) {
             try {
                 loadDataInThread();
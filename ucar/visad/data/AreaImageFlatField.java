@@ -111,6 +111,15 @@ public class AreaImageFlatField extends CachedFlatField implements SingleBandedI
     /** _more_          */
     private boolean readDataFailed = false;
 
+    /** Keep the image as counts instead of floats when it allows it */
+    private boolean compactStorage = false;
+
+    /** The counts, if we read them compactly */
+    private Counts counts;
+
+    /** Set when the image could not, or should no longer, be held as counts */
+    private boolean compactFailed = false;
+
     /**
      * copy ctor
      *
@@ -320,7 +329,30 @@ public class AreaImageFlatField extends CachedFlatField implements SingleBandedI
         int           nEles  = (aii != null)
                                ? aid.getImageInfo().getElements()
                                : areaDirectory.getElements();
+        return create(aid, areaDirectory, rangeType, readLabel, nLines,
+                      nEles);
+    }
+
+    /**
+     * Create a AIFF of the given size without reading any data yet
+     *
+     * @param aid The descriptor
+     * @param areaDirectory _more_
+     * @param rangeType Use this range type if its not null
+     * @param readLabel What to show in the gui when we are reading the data
+     * @param nLines Number of lines in the image
+     * @param nEles Number of elements in the image
+     *
+     * @return The flatfield
+     *
+     * @throws VisADException On badness
+     */
+    private static AreaImageFlatField create(AddeImageDescriptor aid,
+            AreaDirectory areaDirectory, MathType rangeType,
+            String readLabel, int nLines, int nEles)
+            throws VisADException {
 
+        AddeImageInfo aii = aid.getImageInfo();
 
         // make the VisAD RealTypes for the dimension variables
         RealType line    = RealType.getRealType("ImageLine", null, null);
@@ -454,7 +486,7 @@ public class AreaImageFlatField extends CachedFlatField implements SingleBandedI
      */
     private void checkReadData() {
         synchronized (READMUTEX) {
-            if ( !haveData()) {
+            if ( !haveData() && !readCounts()) {
                 //Force the read
                 try {
                     unpackFloats(false);
@@ -693,6 +725,413 @@ public class AreaImageFlatField extends CachedFlatField implements SingleBandedI
     }
 
 
+    /**
+     * Set whether this image should be read as raw counts and held as one
+     * or two byte values with a calibration lookup table rather than as a
+     * float per pixel. Values are made from the table when someone asks
+     * for them.
+     *
+     * @param value true to hold the counts
+     */
+    public void setCompactStorage(boolean value) {
+        compactStorage = value;
+    }
+
+    /**
+     * Do we try to hold the counts
+     *
+     * @return true if we do
+     */
+    public boolean getCompactStorage() {
+        return compactStorage;
+    }
+
+    /**
+     * Read the image now and hold it as counts. This is the compact
+     * version of {@link #createImmediate(AddeImageDescriptor, String)}.
+     *
+     * @param aid The descriptor
+     * @param source The image url or file to read
+     * @param rangeType Use this range type if its not null
+     * @param readLabel What to show in the gui when we are reading the data
+     *
+     * @return The flatfield, or null if the image cannot be held as counts
+     *
+     * @throws VisADException On badness
+     */
+    public static AreaImageFlatField createImmediateCompact(
+            AddeImageDescriptor aid, String source, MathType rangeType,
+            String readLabel)
+            throws VisADException {
+        AreaImageFlatField aiff;
+        try {
+            AreaFile      areaFile = AreaFileFactory.getAreaFileInstance(source);
+            AreaDirectory areaDirectory = areaFile.getAreaDirectory();
+            aiff = create(aid, areaDirectory, rangeType, readLabel,
+                          areaDirectory.getLines(),
+                          areaDirectory.getElements());
+            aiff.compactStorage = true;
+            synchronized (aiff.READMUTEX) {
+                aiff.counts = aiff.readDataCompact(areaFile);
+                if (aiff.counts == null) {
+                    return null;
+                }
+                aiff.countsRead();
+            }
+        } catch (VisADException ve) {
+            throw ve;
+        } catch (Exception exc) {
+            throw new VisADException("Error reading " + source, exc);
+        }
+        return aiff;
+    }
+
+    /**
+     * Read the image as counts if we are set up to do that and have not
+     * read the data yet.
+     *
+     * @return true if we are holding the counts
+     */
+    private boolean readCounts() {
+        if (counts != null) {
+            return true;
+        }
+        if ( !compactStorage || compactFailed || (aid == null)) {
+            return false;
+        }
+        synchronized (READMUTEX) {
+            if (counts != null) {
+                return true;
+            }
+            if (compactFailed || super.haveData()) {
+                return false;
+            }
+            try {
+                LogUtil.message(readLabel);
+                ucar.unidata.data.DataSourceImpl
+                    .incrOutstandingGetDataCalls();
+                String url = (aid.getImageInfo() != null)
+                             ? aid.getImageInfo().makeAddeUrl()
+                             : aid.getSource();
+                counts = readDataCompact(
+                    AreaFileFactory.getAreaFileInstance(url));
+            } catch (Exception exc) {
+                logger.warn("Could not read " + readLabel
+                            + " as counts, reading floats instead", exc);
+            } finally {
+                ucar.unidata.data.DataSourceImpl
+                    .decrOutstandingGetDataCalls();
+                LogUtil.message("");
+            }
+            if (counts == null) {
+                compactFailed = true;
+                return false;
+            }
+            countsRead();
+            return true;
+        }
+    }
+
+    /**
+     * Set the ranges and flags once we have the counts
+     */
+    private void countsRead() {
+        setSampleRanges(new DataRange[] {
+            new DataRange(counts.getMin(), counts.getMax()) });
+        clearMissing();
+    }
+
+    /**
+     * Read the raw counts of our band from the area file and keep them in
+     * the DataCacheManager as a byte[] (at most 256 distinct counts) or a
+     * short[] (at most 65536), relative to the smallest count. The lookup
+     * table maps each stored value to its count divided by the calibration
+     * scale factor, which is the calibration {@link #readDataOldWay()}
+     * applies. The ADDE server has already calibrated the counts to the
+     * requested unit.
+     *
+     * @param areaFile The area file to read
+     *
+     * @return The counts, or null if they span more than 16 bits or do not
+     *         fit our domain (the image is then read as floats)
+     *
+     * @throws Exception On badness
+     */
+    private Counts readDataCompact(AreaFile areaFile) throws Exception {
+        msg("readDataCompact");
+        long    t1        = System.nanoTime();
+        int     bandIndex = (bandIndices != null)
+                            ? bandIndices[0]
+                            : 0;
+        int[][] data      = areaFile.getData()[bandIndex];
+        int     nLines    = data.length;
+        int     nEles     = data[0].length;
+        if (nLines * nEles != super.getDomainSet().getLength()) {
+            msg("readDataCompact: image size does not match the domain");
+            return null;
+        }
+
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int lineIdx = 0; lineIdx < nLines; lineIdx++) {
+            int[] line = data[lineIdx];
+            for (int elementIdx = 0; elementIdx < nEles; elementIdx++) {
+                min = Math.min(min, line[elementIdx]);
+                max = Math.max(max, line[elementIdx]);
+            }
+        }
+        long span = (long) max - min + 1;
+        if (span > Counts.MAX_VALUES) {
+            msg("readDataCompact: counts span more than 16 bits");
+            return null;
+        }
+
+        float calScale =
+            (1.0f / areaFile.getAreaDirectory().getCalibrationScaleFactor());
+        float[] lut = new float[(int) span];
+        for (int i = 0; i < lut.length; i++) {
+            lut[i] = calScale * (min + i);
+        }
+
+        RealType lineType    = RealType.getRealType("ImageLine", null, null);
+        RealType elementType = RealType.getRealType("ImageElement", null, null);
+        RealTupleType imageDomain = new RealTupleType(new RealType[] {
+                                        elementType,
+                                        lineType }, new AREACoordinateSystem(
+                                            areaFile), null);
+        setDomain(new Linear2DSet(imageDomain, 0, (nEles - 1), nEles,
+                                  (nLines - 1), 0, nLines));
+
+        DataCacheManager cacheManager = DataCacheManager.getCacheManager();
+        String           what         = getClass().getSimpleName();
+        Object           cacheId;
+        if (span <= 256) {
+            byte[] b = new byte[nLines * nEles];
+            for (int lineIdx = 0; lineIdx < nLines; lineIdx++) {
+                int   sampleOffset = (nEles * lineIdx);
+                int[] line         = data[lineIdx];
+                for (int elementIdx = 0; elementIdx < nEles; elementIdx++) {
+                    b[elementIdx + sampleOffset] =
+                        (byte) (line[elementIdx] - min);
+                }
+            }
+            cacheId = cacheManager.addToCache(what, b);
+        } else {
+            short[] s = new short[nLines * nEles];
+            for (int lineIdx = 0; lineIdx < nLines; lineIdx++) {
+                int   sampleOffset = (nEles * lineIdx);
+                int[] line         = data[lineIdx];
+                for (int elementIdx = 0; elementIdx < nEles; elementIdx++) {
+                    s[elementIdx + sampleOffset] =
+                        (short) (line[elementIdx] - min);
+                }
+            }
+            cacheId = cacheManager.addToCache(what, s);
+        }
+
+        cacheManager.getMetrics().sourceRead(what, System.nanoTime() - t1);
+        return new Counts(cacheId, span <= 256, lut);
+    }
+
+    /**
+     * Get the calibrated values. If we are holding counts these are made
+     * from the lookup table on each call and are not kept, so the counts
+     * are all that stays resident or gets spilled to disk. Changes made to
+     * the returned arrays are not kept either, use
+     * {@link #setSamples(float[][], ErrorEstimate[], boolean)} for that.
+     *
+     * @return The values
+     *
+     * @throws VisADException On badness
+     */
+    protected float[][] getMyValues() throws VisADException {
+        Counts c = readCounts()
+                   ? counts
+                   : null;
+        if (c == null) {
+            return super.getMyValues();
+        }
+        return new float[][] {
+            c.calibrate()
+        };
+    }
+
+    /**
+     * Unpack the floats for one sample without calibrating the whole image
+     *
+     * @param s_index the sample index
+     *
+     * @return the floats for that index
+     *
+     * @throws VisADException On badness
+     */
+    protected float[] unpackFloats(int s_index) throws VisADException {
+        Counts c = readCounts()
+                   ? counts
+                   : null;
+        if (c == null) {
+            return super.unpackFloats(s_index);
+        }
+        return new float[] { c.calibrate(s_index) };
+    }
+
+    /**
+     * Do we have the data
+     *
+     * @return true if we have read the counts or the floats
+     */
+    public boolean haveData() {
+        return (counts != null) || super.haveData();
+    }
+
+    /**
+     * Set the samples. Once values are set from outside we hold them as
+     * floats, so any counts are dropped.
+     *
+     * @param values the samples
+     * @param errors errors
+     * @param copy   true to copy
+     *
+     * @throws RemoteException Java RMI Exception
+     * @throws VisADException  Problem in VisAD land
+     */
+    public void setSamples(float[][] values, ErrorEstimate[] errors,
+                           boolean copy)
+            throws VisADException, RemoteException {
+        synchronized (READMUTEX) {
+            dropCounts();
+            super.setSamples(values, errors, copy);
+        }
+    }
+
+    /**
+     * Clone this object. The clone holds its values as floats.
+     *
+     * @return the clone
+     */
+    public Object clone() {
+        synchronized (READMUTEX) {
+            //The clone calibrates its own floats from our counts
+            AreaImageFlatField theClone = (AreaImageFlatField) super.clone();
+            theClone.counts        = null;
+            theClone.compactFailed = true;
+            return theClone;
+        }
+    }
+
+    /**
+     * Remove the counts from the cache
+     *
+     * @throws Throwable On badness
+     */
+    public void finalize() throws Throwable {
+        super.finalize();
+        if (counts != null) {
+            DataCacheManager.getCacheManager().removeFromCache(
+                counts.cacheId);
+        }
+    }
+
+    /**
+     * Forget the counts and remove them from the cache
+     */
+    private void dropCounts() {
+        if (counts != null) {
+            DataCacheManager.getCacheManager().removeFromCache(
+                counts.cacheId);
+        }
+        counts        = null;
+        compactFailed = true;
+    }
+
+    /**
+     * Raw counts held in the DataCacheManager with the lookup table that
+     * calibrates them.
+     */
+    private static class Counts {
+
+        /** Most distinct counts we can hold in two bytes */
+        private static final int MAX_VALUES = 1 << 16;
+
+        /** Cache id of the byte[] or short[] counts */
+        private final Object cacheId;
+
+        /** True if the counts are a byte[] */
+        private final boolean isByte;
+
+        /** Calibrated value for each count */
+        private final float[] lut;
+
+        /**
+         * ctor
+         *
+         * @param cacheId cache id of the counts
+         * @param isByte true if the counts are a byte[]
+         * @param lut lookup table
+         */
+        private Counts(Object cacheId, boolean isByte, float[] lut) {
+            this.cacheId = cacheId;
+            this.isByte  = isByte;
+            this.lut     = lut;
+        }
+
+        /**
+         * @return smallest calibrated value
+         */
+        float getMin() {
+            return Math.min(lut[0], lut[lut.length - 1]);
+        }
+
+        /**
+         * @return largest calibrated value
+         */
+        float getMax() {
+            return Math.max(lut[0], lut[lut.length - 1]);
+        }
+
+        /**
+         * Calibrate every sample
+         *
+         * @return calibrated values
+         */
+        float[] calibrate() {
+            DataCacheManager cacheManager =
+                DataCacheManager.getCacheManager();
+            if (isByte) {
+                byte[]  b      = cacheManager.getByteArray1D(cacheId);
+                float[] values = new float[b.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = lut[b[i] & 0xff];
+                }
+                return values;
+            }
+            short[] s      = cacheManager.getShortArray1D(cacheId);
+            float[] values = new float[s.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = lut[s[i] & 0xffff];
+            }
+            return values;
+        }
+
+        /**
+         * Calibrate one sample
+         *
+         * @param index sample index
+         *
+         * @return calibrated value
+         */
+        float calibrate(int index) {
+            DataCacheManager cacheManager =
+                DataCacheManager.getCacheManager();
+            if (isByte) {
+                return lut[cacheManager.getByteArray1D(cacheId)[index]
+                           & 0xff];
+            }
+            return lut[cacheManager.getShortArray1D(cacheId)[index] & 0xffff];
+        }
+    }
+
+
     /**
      * _more_
      *
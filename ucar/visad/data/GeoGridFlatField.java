@@ -60,6 +60,12 @@ import java.io.*;
 
 import java.rmi.RemoteException;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+import java.util.HashMap;
+import java.util.Map;
+
 
 
 /**
@@ -216,18 +222,93 @@ public class GeoGridFlatField extends CachedFlatField {
     }
 
 
-    /** a mutex */
+    /**
+     * a mutex
+     *
+     * @deprecated Reads are now coordinated per file; see
+     *             {@link #getReadLock(String)}.
+     */
+    @Deprecated
     public static Object ALLMUTEX = new Object();
 
+    /**
+     * read locks keyed by dataset location. The locks are weakly held, so
+     * an entry goes away once no field or data source is using it.
+     */
+    private static final Map<String, LockReference> LOCKS =
+        new HashMap<String, LockReference>();
+
+    /** where the garbage collector puts locks that are no longer used */
+    private static final ReferenceQueue<Object> STALE_LOCKS =
+        new ReferenceQueue<Object>();
 
     /**
-     * Get the read lock
+     * Get the lock that coordinates reads from the given location. Every
+     * caller that asks for the same location gets the same lock, so two
+     * data sources that share an underlying file do not read from it at
+     * the same time, while reads from different files run concurrently.
+     *
+     * @param location  file or URL being read
+     *
+     * @return  the read lock
+     */
+    public static Object getReadLock(String location) {
+        if (location == null) {
+            return ALLMUTEX;
+        }
+        synchronized (LOCKS) {
+            LockReference stale;
+            while ((stale = (LockReference) STALE_LOCKS.poll()) != null) {
+                if (LOCKS.get(stale.location) == stale) {
+                    LOCKS.remove(stale.location);
+                }
+            }
+            LockReference ref  = LOCKS.get(location);
+            Object        lock = (ref == null)
+                                 ? null
+                                 : ref.get();
+            if (lock == null) {
+                lock = new Object();
+                LOCKS.put(location, new LockReference(location, lock));
+            }
+            return lock;
+        }
+    }
+
+    /**
+     * A weak reference to a read lock that remembers the location it was
+     * handed out for, so its entry can be dropped once it is collected.
+     */
+    private static class LockReference extends WeakReference<Object> {
+
+        /** the dataset location */
+        private final String location;
+
+        /**
+         * Create a reference to the lock for a location
+         *
+         * @param location  the dataset location
+         * @param lock  the read lock
+         */
+        LockReference(String location, Object lock) {
+            super(lock, STALE_LOCKS);
+            this.location = location;
+        }
+    }
+
+    /**
+     * Get the read lock. If none was given, fall back to the lock for the
+     * file the grid comes from.
      *
      * @return  the read lock
      */
     private Object getReadLock() {
         if (readLock == null) {
-            readLock = ALLMUTEX;
+            String location = null;
+            if ((geoGrid != null) && (geoGrid.getVariable() != null)) {
+                location = geoGrid.getVariable().getDatasetLocation();
+            }
+            readLock = getReadLock(location);
         }
         return readLock;
     }
@@ -0,0 +1,333 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+
+package visad.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reads and writes the files that {@link DataCacheManager} spills arrays to.
+ *
+ * <p>The format is a small header followed by the raw array contents in
+ * little-endian order:<pre>
+ *   int magic
+ *   int element type (see the ELEM_ constants)
+ *   int number of dimensions
+ *   array
+ * </pre>
+ * where an array is its length (or -1 for {@code null}) followed by either
+ * the primitive values or, for multi-dimensional arrays, each sub-array in
+ * turn. Ragged arrays are therefore fine.</p>
+ *
+ * <p>Files are read back with bulk channel reads into a direct buffer, so
+ * reloading a large array is a straight copy rather than Java
+ * deserialization. Files are never mapped, and a spill is written to a new
+ * file that is then renamed into place, so an existing cache file is never
+ * truncated while it might still be open.</p>
+ */
+public final class CacheFileIO {
+
+  /** "VCM1" */
+  private static final int MAGIC = 0x56434d31;
+
+  private static final int ELEM_DOUBLE = 0;
+  private static final int ELEM_FLOAT = 1;
+  private static final int ELEM_INT = 2;
+  private static final int ELEM_SHORT = 3;
+  private static final int ELEM_BYTE = 4;
+
+  /** Size of the staging buffers used when reading and writing. */
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  /** Staging buffer for each thread, reused across reads and writes. */
+  private static final ThreadLocal<ByteBuffer> buffers =
+    ThreadLocal.withInitial(() ->
+      ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN));
+
+  private CacheFileIO() {}
+
+  /**
+   * Write {@code data} to {@code file}, replacing it. The data goes to a
+   * new file next to {@code file} which is then renamed over it.
+   *
+   * @param file the file
+   * @param data a 1D, 2D or 3D double/float/int/short/byte array
+   *
+   * @throws IOException on badness
+   */
+  public static void write(File file, Object data) throws IOException {
+    Class<?> leaf = data.getClass();
+    int depth = 0;
+    while (leaf.isArray()) {
+      leaf = leaf.getComponentType();
+      depth++;
+    }
+    int elem = getElementType(leaf);
+
+    File dir = file.getAbsoluteFile().getParentFile();
+    File tmp = File.createTempFile(file.getName() + ".", ".tmp", dir);
+    boolean done = false;
+    try {
+      try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+           FileChannel channel = raf.getChannel()) {
+        Writer writer = new Writer(channel);
+        writer.putInt(MAGIC);
+        writer.putInt(elem);
+        writer.putInt(depth);
+        writer.putArray(data, depth, elem);
+        writer.flush();
+      }
+      try {
+        Files.move(tmp.toPath(), file.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      done = true;
+    } finally {
+      if (!done) {
+        tmp.delete();
+      }
+    }
+  }
+
+  /**
+   * Read an array previously written by {@link #write(File, Object)}.
+   *
+   * @param file the file
+   *
+   * @return the array
+   *
+   * @throws IOException on badness, or if this is not a cache file
+   */
+  public static Object read(File file) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+         FileChannel channel = raf.getChannel()) {
+      Reader reader = new Reader(channel);
+      if (reader.getInt() != MAGIC) {
+        throw new IOException("Not a data cache file: " + file);
+      }
+      int elem = reader.getInt();
+      int depth = reader.getInt();
+      return reader.getArray(depth, elem);
+    }
+  }
+
+  private static int getElementType(Class<?> c) {
+    if (c == double.class) return ELEM_DOUBLE;
+    if (c == float.class) return ELEM_FLOAT;
+    if (c == int.class) return ELEM_INT;
+    if (c == short.class) return ELEM_SHORT;
+    if (c == byte.class) return ELEM_BYTE;
+    throw new IllegalArgumentException("Unsupported array type:" + c);
+  }
+
+  private static Class<?> getElementClass(int elem) {
+    switch (elem) {
+      case ELEM_DOUBLE: return double.class;
+      case ELEM_FLOAT: return float.class;
+      case ELEM_INT: return int.class;
+      case ELEM_SHORT: return short.class;
+      case ELEM_BYTE: return byte.class;
+      default: throw new IllegalArgumentException("Unknown element type:" + elem);
+    }
+  }
+
+  private static int getElementSize(int elem) {
+    switch (elem) {
+      case ELEM_DOUBLE: return 8;
+      case ELEM_FLOAT: return 4;
+      case ELEM_INT: return 4;
+      case ELEM_SHORT: return 2;
+      case ELEM_BYTE: return 1;
+      default: throw new IllegalArgumentException("Unknown element type:" + elem);
+    }
+  }
+
+  /**
+   * Stages values in a direct buffer and writes it out in large chunks.
+   */
+  private static class Writer {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = buffers.get();
+
+    Writer(FileChannel channel) {
+      this.channel = channel;
+      buffer.clear();
+    }
+
+    void putInt(int value) throws IOException {
+      if (buffer.remaining() < 4) {
+        flush();
+      }
+      buffer.putInt(value);
+    }
+
+    void putArray(Object array, int depth, int elem) throws IOException {
+      if (array == null) {
+        putInt(-1);
+        return;
+      }
+      int length = Array.getLength(array);
+      putInt(length);
+      if (depth > 1) {
+        Object[] rows = (Object[]) array;
+        for (Object row : rows) {
+          putArray(row, depth - 1, elem);
+        }
+        return;
+      }
+      int elemSize = getElementSize(elem);
+      int offset = 0;
+      while (offset < length) {
+        if (buffer.remaining() < elemSize) {
+          flush();
+        }
+        int n = Math.min(length - offset, buffer.remaining() / elemSize);
+        switch (elem) {
+          case ELEM_DOUBLE:
+            buffer.asDoubleBuffer().put((double[]) array, offset, n);
+            break;
+          case ELEM_FLOAT:
+            buffer.asFloatBuffer().put((float[]) array, offset, n);
+            break;
+          case ELEM_INT:
+            buffer.asIntBuffer().put((int[]) array, offset, n);
+            break;
+          case ELEM_SHORT:
+            buffer.asShortBuffer().put((short[]) array, offset, n);
+            break;
+          default:
+            // relative put already advances the position
+            buffer.put((byte[]) array, offset, n);
+            offset += n;
+            continue;
+        }
+        buffer.position(buffer.position() + n * elemSize);
+        offset += n;
+      }
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Reads values through a direct buffer that is refilled from the channel
+   * as it moves forward. Payloads larger than the buffer are copied in
+   * buffer sized pieces.
+   */
+  private static class Reader {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = buffers.get();
+
+    Reader(FileChannel channel) {
+      this.channel = channel;
+      buffer.clear();
+      buffer.flip();
+    }
+
+    /**
+     * Make sure the next {@code bytes} bytes of the file are in the buffer,
+     * reading more if needed. {@code bytes} must not exceed the buffer size.
+     */
+    private ByteBuffer ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        buffer.compact();
+        while (buffer.position() < bytes) {
+          if (channel.read(buffer) < 0) {
+            throw new IOException("Truncated data cache file");
+          }
+        }
+        buffer.flip();
+      }
+      return buffer;
+    }
+
+    int getInt() throws IOException {
+      return ensure(4).getInt();
+    }
+
+    Object getArray(int depth, int elem) throws IOException {
+      int length = getInt();
+      if (length < 0) {
+        return null;
+      }
+      if (depth > 1) {
+        Class<?> rowClass = Array.newInstance(getElementClass(elem), new int[depth - 1]).getClass();
+        Object[] rows = (Object[]) Array.newInstance(rowClass, length);
+        for (int i = 0; i < length; i++) {
+          rows[i] = getArray(depth - 1, elem);
+        }
+        return rows;
+      }
+      Object array = Array.newInstance(getElementClass(elem), length);
+      int elemSize = getElementSize(elem);
+      int perChunk = BUFFER_SIZE / elemSize;
+      for (int offset = 0; offset < length; offset += perChunk) {
+        int n = Math.min(perChunk, length - offset);
+        ByteBuffer buf = ensure(n * elemSize);
+        int end = buf.position() + n * elemSize;
+        switch (elem) {
+          case ELEM_DOUBLE:
+            buf.asDoubleBuffer().get((double[]) array, offset, n);
+            break;
+          case ELEM_FLOAT:
+            buf.asFloatBuffer().get((float[]) array, offset, n);
+            break;
+          case ELEM_INT:
+            buf.asIntBuffer().get((int[]) array, offset, n);
+            break;
+          case ELEM_SHORT:
+            buf.asShortBuffer().get((short[]) array, offset, n);
+            break;
+          default:
+            buf.get((byte[]) array, offset, n);
+            break;
+        }
+        // the typed views do not move the buffer itself
+        buf.position(end);
+      }
+      return array;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+
+package visad.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark for {@link CacheFileIO}. Not used by the application.
+ */
+final class CacheFileIOBenchmark {
+
+  private CacheFileIOBenchmark() {}
+
+  /**
+   * Compare spill and reload throughput of the {@link CacheFileIO} format
+   * against plain Java serialization, which {@link DataCacheManager} used to use.
+   *
+   * <pre>java visad.data.CacheFileIOBenchmark [rows] [columns] [iterations]</pre>
+   *
+   * @param args optional array dimensions and iteration count
+   *
+   * @throws Exception on badness
+   */
+  public static void main(String[] args) throws Exception {
+    int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+    int cols = (args.length > 1) ? Integer.parseInt(args[1]) : 12500000;
+    int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+
+    float[][] data = new float[rows][cols];
+    Random random = new Random(42);
+    for (float[] row : data) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] = random.nextFloat();
+      }
+    }
+    double mb = 4.0 * rows * cols / (1024 * 1024);
+    System.err.println("float[" + rows + "][" + cols + "] = " + (int) mb + " MB");
+
+    File raw = File.createTempFile("cachefileio", ".dat");
+    File ser = File.createTempFile("cachefileio", ".ser");
+    try {
+      for (int iter = 0; iter < iterations; iter++) {
+        long t1 = System.nanoTime();
+        CacheFileIO.write(raw, data);
+        long t2 = System.nanoTime();
+        float[][] rawBack = (float[][]) CacheFileIO.read(raw);
+        long t3 = System.nanoTime();
+
+        try (ObjectOutputStream oos = new ObjectOutputStream(
+               new BufferedOutputStream(new FileOutputStream(ser), 100000))) {
+          oos.writeObject(data);
+        }
+        long t4 = System.nanoTime();
+        float[][] serBack;
+        try (ObjectInputStream ois = new ObjectInputStream(
+               new BufferedInputStream(new FileInputStream(ser), 100000))) {
+          serBack = (float[][]) ois.readObject();
+        }
+        long t5 = System.nanoTime();
+
+        if (!Arrays.deepEquals(rawBack, data) || !Arrays.deepEquals(serBack, data)) {
+          throw new IllegalStateException("read back data does not match");
+        }
+
+        System.err.println("#" + iter +
+          "  raw: spill " + rate(mb, t2 - t1) + " reload " + rate(mb, t3 - t2) +
+          "  serialized: spill " + rate(mb, t4 - t3) + " reload " + rate(mb, t5 - t4));
+      }
+    } finally {
+      raw.delete();
+      ser.delete();
+    }
+  }
+
+  private static String rate(double mb, long nanos) {
+    return (int) (mb / (nanos / 1.0e9)) + " MB/s";
+  }
+}
@@ -473,13 +473,15 @@ public class CachedFlatField extends FlatField {
 
 
     /**
-     * Read data from cache
+     * Read data from cache. Every accessor in this class goes through here,
+     * so derived classes that keep their samples in some other form can
+     * override this to hand back the values on demand.
      *
      * @return the values from the cache
      *
      * @throws VisADException   problem reading data
      */
-    private float[][] getMyValues() throws VisADException {
+    protected float[][] getMyValues() throws VisADException {
         //        msg("CCF - getMyValues " + inCache);
         if(inCache) {
             if(cacheId == null) {
@@ -490,6 +492,7 @@ public class CachedFlatField extends FlatField {
         }
 
         float[][] values = null;
+        long t1 = System.nanoTime();
 
         //If we don't have the values and we have a ccf that we were cloned from 
         //then read the data from it and clear it out
@@ -509,6 +512,8 @@ public class CachedFlatField extends FlatField {
             //            msg("Floats still null after readData");
             return null;
         }
+        DataCacheManager.getCacheManager().getMetrics().sourceRead(
+            getClass().getSimpleName(), System.nanoTime() - t1);
         initCache(values);
         return values;
     }
@@ -28,20 +28,24 @@
 
 package visad.data;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+
+import java.lang.management.ManagementFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,76 +80,112 @@ import org.slf4j.LoggerFactory;
  * The cachemanager will keep the data arrays in memory until the total size
  * is greater than getMaxSize(). Then it will serialize the data arrays in a
  * least recently used manner until the totalSize less than the max size.
+ *
+ * <p>Locking is split in two. Each entry has its own lock, which covers
+ * its data and any disk I/O for it; reloading one big entry therefore does
+ * not hold up access to any other entry. A second, short lived lock covers
+ * the access ordered lists of resident entries and the total size, which
+ * makes touching an entry and picking the least recently used ones O(1).
+ * Eviction happens on the thread that pushed the cache over its limit,
+ * and never while holding the list lock.</p>
+ *
+ * <p>Hit, miss, spill and reload counts are kept in a
+ * {@link DataCacheMetrics} and published over JMX as
+ * {@value #MBEAN_NAME}.</p>
  */
-public class DataCacheManager  implements Runnable {
-  
+public class DataCacheManager  implements Runnable, DataCacheManagerMXBean {
+
+  /** Name the cache manager is registered under with the platform MBean server */
+  public static final String MBEAN_NAME = "visad.data:type=DataCacheManager";
+
   private static final Logger logger =
       LoggerFactory.getLogger(DataCacheManager.class);
-  
-  private double memoryPercentage = 0.25;
+
+  private volatile double memoryPercentage = 0.25;
 
   /** the singleton */
-  private static DataCacheManager cacheManager;
+  private static final DataCacheManager cacheManager = new DataCacheManager();
 
   /** Where to store the cached data */
-  private File cacheDir;
+  private volatile File cacheDir;
 
   /** for unique ids */
-  private int idCnt = 0;
+  private final AtomicInteger idCnt = new AtomicInteger();
 
   /** for unique ids */
   private long baseTime;
 
   /** The cache */
-  private Hashtable<Object, CacheInfo> cache = new Hashtable<Object,
-                                                 CacheInfo>();
+  private final Map<Object, CacheInfo> cache = new ConcurrentHashMap<>();
+
+  /** guards the resident lists and totalSize; never held while doing I/O */
+  private final Object LRU_MUTEX = new Object();
 
-  /** a mutex */
-  private final Object MUTEX = new Object();
+  /** Resident entries that are dropped rather than written out, least recently used first */
+  private final LinkedHashMap<Object, CacheInfo> volatileLru =
+    new LinkedHashMap<>(16, 0.75f, true);
+
+  /** Resident entries that get written to disk, least recently used first */
+  private final LinkedHashMap<Object, CacheInfo> lru =
+    new LinkedHashMap<>(16, 0.75f, true);
 
   /** Total number of bytes in memory */
-  private int totalSize = 0;
+  private long totalSize = 0;
 
-  private boolean running = false;
+  /** hit/miss/spill/reload counters */
+  private final DataCacheMetrics metrics = new DataCacheMetrics();
 
   /**
    * ctor
    */
   private DataCacheManager() {
     baseTime = System.currentTimeMillis();
+    registerMBean();
+  }
+
+  /**
+   * Publish this cache manager over JMX.
+   */
+  private void registerMBean() {
     try {
-      //Start  the cache monitor in a thread
-      Thread t = new Thread(this);
-      t.start();
-    } catch(Exception exc) {
-      throw new RuntimeException(exc);
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(MBEAN_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+    } catch (Exception exc) {
+      logger.warn("Could not register DataCacheManager with JMX", exc);
     }
   }
 
+  /**
+   * Get the counters kept by this cache manager.
+   *
+   * @return the metrics
+   */
+  public DataCacheMetrics getMetrics() {
+    return metrics;
+  }
+
   /**
    * The singleton access
    *
    * @return the cache manager
    */
   public static DataCacheManager getCacheManager() {
-    if (cacheManager == null) {
-      cacheManager = new DataCacheManager();
-    }
     return cacheManager;
   }
 
+  /**
+   * Check the cache once. Eviction used to be done by a thread that
+   * polled every few seconds; it now happens whenever data is added.
+   */
   public void run() {
-    if(running) return;
-    running= true;
     try {
-      while (true) {
-        Thread.currentThread().sleep(5000);
-        checkCache();
-      }
+      checkCache();
     } catch(Exception exc) {
       logger.error("Error in DataCacheManager", exc);
     }
-    running =false;
   }
 
   /**
@@ -175,7 +215,7 @@ public class DataCacheManager  implements Runnable {
    * @return unique id
    */
   public Object getId() {
-    return "data_" + baseTime + "_" + (idCnt++);
+    return "data_" + baseTime + "_" + idCnt.getAndIncrement();
   }
 
   /**
@@ -187,16 +227,17 @@ public class DataCacheManager  implements Runnable {
    * @return the unique id
    */
   private Object addToCache(String what, Object data, int type, boolean removeIfNeeded) {
-    synchronized (MUTEX) {
-      CacheInfo info = new CacheInfo(this, getId(), data, type, removeIfNeeded);
-      if (what != null) {
-        info.what = what;
-      }
+    CacheInfo info = new CacheInfo(this, getId(), data, type, removeIfNeeded);
+    if (what != null) {
+      info.what = what;
+      info.group = what;
+    }
+    synchronized (info) {
       cache.put(info.getId(), info);
-      totalSize += info.getSize();
-      checkCache();
-      return info.getId();
+      markResident(info);
     }
+    checkCache();
+    return info.getId();
   }
 
   /**
@@ -206,75 +247,109 @@ public class DataCacheManager  implements Runnable {
    * @param data  the new data
    */
   public void updateData(Object cacheId, Object data) {
-    synchronized (MUTEX) {
-      //      if(cacheId == null)
-      //          return addToCache(data, findType(data));
-      CacheInfo info = cache.get(cacheId);
-//      if(info==null) {
-//        return addToCache(data);
-//      }
-
-      int oldSize = info.data != null
-                  ? info.getSize()
-                  : 0;
+    CacheInfo info = cache.get(cacheId);
+    synchronized (info) {
       info.setData(data);
-      int newSize = info.getSize();
-      totalSize -= oldSize;
-      totalSize += newSize;
-      checkCache();
+      if (!info.removed) {
+        markResident(info);
+      }
     }
+    checkCache();
   }
 
   public boolean inMemory(Object cacheId) {
-    synchronized (MUTEX) {
-      CacheInfo info =  cache.get(cacheId);
-      if (info == null) {
-        return false;
-      }
-      info.dataAccessed();
-      return (info.data!=null);
+    CacheInfo info =  cache.get(cacheId);
+    if (info == null) {
+      return false;
     }
+    touch(info);
+    return (info.data!=null);
   }
 
   /**
-   *
+   * Get the data for the given id, reading it back from disk if it was
+   * flushed. Only the first thread that asks for a flushed entry reads it;
+   * any others wait for that read rather than doing their own.
    *
    * @param cacheId  the cache id
    *
-   * @return
+   * @return the data, or {@code null} if there is no such entry
    */
   private Object getData(Object cacheId) {
-    CacheInfo info = null;
-    Object data = null;
-    synchronized (MUTEX) {
-      info = cache.get(cacheId);
-      if (info == null) {
-        return null;
-      }
+    CacheInfo info = cache.get(cacheId);
+    if (info == null) {
+      return null;
+    }
+    Object data = info.data;
+    if (data != null) {
+      touch(info);
+      metrics.hit(info.group);
+      return data;
+    }
+
+    CompletableFuture<Object> load;
+    boolean loader = false;
+    synchronized (info) {
       data = info.data;
-      info.dataAccessed();
       if (data != null) {
+        touch(info);
+        metrics.hit(info.group);
         return data;
       }
-      try {
-        long t1 = System.currentTimeMillis();
-        FileInputStream fis = new FileInputStream(info.cacheFile);
-        BufferedInputStream bis = new BufferedInputStream(fis,100000);
-        ObjectInputStream ois = new ObjectInputStream(bis);
-        info.setDataFromCache(data = ois.readObject());
-        long t2 = System.currentTimeMillis();
-        System.err.println("Read " + info.getSize() +" bytes from file in " + (t2-t1) +" ms");
-        totalSize += info.getSize();
-        ois.close();
-        bis.close();
-        fis.close();
-        checkCache();
-        info.cacheMissed();
-        return data;
+      metrics.miss(info.group);
+      if (info.loading == null) {
+        info.loading = new CompletableFuture<>();
+        loader = true;
       }
-      catch (Exception exc) {
+      load = info.loading;
+    }
+
+    if (loader) {
+      try {
+        long t1 = System.nanoTime();
+        data = CacheFileIO.read(info.cacheFile);
+        long t2 = System.nanoTime();
+        metrics.reloaded(info.group, info.getSize(), t2-t1);
+        logger.debug("Read {} bytes from file in {} ms", info.getSize(), (t2-t1)/1000000);
+        synchronized (info) {
+          info.loading = null;
+          // removed while we were reading; hand back what was read but
+          // leave the entry out of the cache
+          if (!info.removed) {
+            if (info.data == null) {
+              info.setDataFromCache(data);
+            } else {
+              // updated while we were reading; the new data wins
+              data = info.data;
+            }
+            info.dataAccessed();
+            info.cacheMissed();
+            markResident(info);
+          }
+        }
+        load.complete(data);
+      } catch (Exception exc) {
+        boolean removed;
+        synchronized (info) {
+          info.loading = null;
+          removed = info.removed;
+        }
+        if (removed) {
+          // the cache file went away with the entry
+          load.complete(null);
+          return null;
+        }
+        load.completeExceptionally(exc);
         throw new RuntimeException(exc);
       }
+      checkCache();
+      return data;
+    }
+
+    try {
+      return load.join();
+    } catch (CompletionException exc) {
+      throw new RuntimeException(exc.getCause());
     }
   }
 
@@ -288,9 +363,7 @@ public class DataCacheManager  implements Runnable {
    * @param cacheId  the cache id
    */
   public void removeFromCache(Object cacheId) {
-    synchronized (MUTEX) {
-      removeFromCache(cache.get(cacheId));
-    }
+    removeFromCache(cache.get(cacheId));
   }
 
 
@@ -298,23 +371,23 @@ public class DataCacheManager  implements Runnable {
     if (info == null) {
       return;
     }
-    synchronized (MUTEX) {
-      if (info.data != null) {
-        info.data = null;
-        totalSize -= info.getSize();
-      }
+    synchronized (info) {
+      info.removed = true;
+      unmarkResident(info);
+      info.data = null;
       cache.remove(info.id);
       info.remove();
     }
   }
 
   public void flushAllCachedData() {
-    synchronized (MUTEX) {
-      for (CacheInfo info : getCacheInfos()) {
-        flushCachedData(info);
+    for (CacheInfo info : getCacheInfos()) {
+      synchronized (LRU_MUTEX) {
+        unmarkResident(info);
       }
-      Runtime.getRuntime().gc();
+      flushCachedData(info);
     }
+    Runtime.getRuntime().gc();
   }
 
   /**
@@ -324,43 +397,83 @@ public class DataCacheManager  implements Runnable {
    * {@link Runtime#gc()}.</p>
    */
   public void clearCache() {
-    synchronized (MUTEX) {
-      for (CacheInfo info : getCacheInfos()) {
-        removeFromCache(info);
-      }
+    for (CacheInfo info : getCacheInfos()) {
+      removeFromCache(info);
     }
   }
 
   /**
    * If this cacheinfo has never been written to disk then write it
-   * null out the data reference
+   * null out the data reference. The entry must already have been taken
+   * off the resident lists; if it was put back in the meantime (because
+   * it was updated or reloaded) it is left alone.
    *
    * @param info  the cacheinfo
    */
   private void flushCachedData(CacheInfo info) {
-    try {
-      if (info.removeIfNeeded) {
-        removeFromCache(info);
-        return;
+    if (info.removeIfNeeded) {
+      metrics.dropped(info.group);
+      removeFromCache(info);
+      return;
+    }
+    synchronized (info) {
+      try {
+        if (info.data == null || info.resident) {
+          return;
+        }
+
+        // data that was read back and not updated since is already on disk
+        if (!info.cacheFileGood) {
+          CacheFileIO.write(info.cacheFile, info.data);
+          info.cacheFileGood = true;
+          metrics.spilled(info.group, info.getSize());
+        }
+        info.data = null;
+      } catch (Exception exc) {
+        throw new RuntimeException(exc);
       }
+    }
+  }
 
-      if (info.data == null) {
-        return;
+  /**
+   * Add {@code info} to the resident list, or move it to the most
+   * recently used end, and account for its current size. Callers hold
+   * the lock of {@code info}.
+   */
+  private void markResident(CacheInfo info) {
+    synchronized (LRU_MUTEX) {
+      totalSize += info.getSize() - info.residentSize;
+      info.residentSize = info.getSize();
+      info.resident = true;
+      (info.removeIfNeeded ? volatileLru : lru).put(info.id, info);
+    }
+  }
+
+  /**
+   * Take {@code info} off the resident list. Callers hold
+   * {@link #LRU_MUTEX} or the lock of {@code info}.
+   */
+  private void unmarkResident(CacheInfo info) {
+    synchronized (LRU_MUTEX) {
+      if (info.resident) {
+        (info.removeIfNeeded ? volatileLru : lru).remove(info.id);
+        totalSize -= info.residentSize;
+        info.residentSize = 0;
+        info.resident = false;
       }
+    }
+  }
 
-      if (!info.cacheFileGood) {
-        FileOutputStream fos = new FileOutputStream(info.cacheFile);
-        BufferedOutputStream bos = new BufferedOutputStream(fos,100000);
-        ObjectOutputStream oos = new ObjectOutputStream(fos);
-        oos.writeObject(info.data);
-        oos.close();
-        bos.close();
-        fos.close();
+  /**
+   * Record an access to {@code info}: O(1) move to the most recently
+   * used end of its resident list.
+   */
+  private void touch(CacheInfo info) {
+    synchronized (LRU_MUTEX) {
+      info.dataAccessed();
+      if (info.resident) {
+        (info.removeIfNeeded ? volatileLru : lru).get(info.id);
       }
-      info.data = null;
-      totalSize -= info.getSize();
-    } catch (Exception exc) {
-      throw new RuntimeException(exc);
     }
   }
 
@@ -370,15 +483,9 @@ public class DataCacheManager  implements Runnable {
    * @return  Sorted list of cacheinfos
    */
   public List<CacheInfo> getCacheInfos() {
-    synchronized (MUTEX) {
-      List<CacheInfo> infos = new ArrayList<CacheInfo>(cache.size());
-      for (Enumeration keys = cache.keys(); keys.hasMoreElements(); ) {
-        CacheInfo info = cache.get(keys.nextElement());
-        infos.add(info);
-      }
-      Collections.sort(infos);
-      return infos;
-    }
+    List<CacheInfo> infos = new ArrayList<CacheInfo>(cache.values());
+    Collections.sort(infos);
+    return infos;
   }
 
   public  void setMemoryPercent(double percentage) {
@@ -386,37 +493,135 @@ public class DataCacheManager  implements Runnable {
     checkCache();
   }
 
+  public double getMemoryPercent() {
+    return memoryPercentage;
+  }
+
   public int getMaxSize() {
     return (int)(memoryPercentage*Runtime.getRuntime().maxMemory());
   }
 
+  public long getMaxBytes() {
+    return (long)(memoryPercentage*Runtime.getRuntime().maxMemory());
+  }
+
+  public long getResidentBytes() {
+    synchronized (LRU_MUTEX) {
+      return totalSize;
+    }
+  }
+
+  public long getSpilledBytes() {
+    long bytes = 0;
+    for (CacheInfo info : cache.values()) {
+      if (info.data == null) {
+        bytes += info.getSize();
+      }
+    }
+    return bytes;
+  }
+
+  public int getEntryCount() {
+    return cache.size();
+  }
+
+  public int getResidentEntryCount() {
+    synchronized (LRU_MUTEX) {
+      return volatileLru.size() + lru.size();
+    }
+  }
+
+  public long getHitCount() {
+    return metrics.getHitCount();
+  }
+
+  public long getMissCount() {
+    return metrics.getMissCount();
+  }
+
+  public double getHitRatio() {
+    return metrics.getHitRatio();
+  }
+
+  public long getSpillCount() {
+    return metrics.getSpillCount();
+  }
+
+  public long getSpillBytes() {
+    return metrics.getSpillBytes();
+  }
+
+  public long getReloadCount() {
+    return metrics.getReloadCount();
+  }
+
+  public long getReloadBytes() {
+    return metrics.getReloadBytes();
+  }
+
+  public double getMeanReloadMillis() {
+    return metrics.getMeanReloadMillis();
+  }
+
+  public long[] getReloadLatencyBounds() {
+    return metrics.getReloadLatencyBounds();
+  }
+
+  public long[] getReloadLatencyCounts() {
+    return metrics.getReloadLatencyCounts();
+  }
+
+  public long getDropCount() {
+    return metrics.getDropCount();
+  }
+
+  public long getSourceReadCount() {
+    return metrics.getSourceReadCount();
+  }
+
+  public List<DataCacheMetrics.Breakdown> getBreakdown() {
+    return metrics.getBreakdown();
+  }
+
+  public void resetStatistics() {
+    metrics.reset();
+  }
+
   /**
-   *  Check if we are above the max size. If so then flush data from memory  until we are below the threshold
+   *  Check if we are above the max size. If so then flush data from memory  until we are below the threshold.
+   *  Entries that are simply dropped go first, then the least recently used ones are written to disk.
    */
-    public  void checkCache() {
-      if (totalSize < getMaxSize()) {
+  public void checkCache() {
+    long maxBytes = getMaxBytes();
+    List<CacheInfo> victims = new ArrayList<CacheInfo>();
+    synchronized (LRU_MUTEX) {
+      if (totalSize <= maxBytes) {
         return;
       }
-      synchronized (MUTEX) {
-        //First do the volatile ones
-        for (CacheInfo info : getCacheInfos()) {
-          if(info.removeIfNeeded) {
-            flushCachedData(info);
-            if (totalSize <= getMaxSize()) {
-              break;
-            }
-          }
-        }
-        if (totalSize <= getMaxSize()) {
-          for (CacheInfo info : getCacheInfos()) {
-            flushCachedData(info);
-            if (totalSize <= getMaxSize()) {
-              break;
-            }
-          }
-        }
-      }
+      takeEldest(volatileLru, maxBytes, victims);
+      takeEldest(lru, maxBytes, victims);
+    }
+    for (CacheInfo info : victims) {
+      flushCachedData(info);
+    }
+  }
+
+  /**
+   * Move least recently used entries of {@code list} to {@code victims}
+   * until the resident total is within {@code maxBytes}. Callers hold
+   * {@link #LRU_MUTEX}.
+   */
+  private void takeEldest(LinkedHashMap<Object, CacheInfo> list, long maxBytes, List<CacheInfo> victims) {
+    Iterator<CacheInfo> iter = list.values().iterator();
+    while (totalSize > maxBytes && iter.hasNext()) {
+      CacheInfo info = iter.next();
+      iter.remove();
+      totalSize -= info.residentSize;
+      info.residentSize = 0;
+      info.resident = false;
+      victims.add(info);
     }
+  }
 
   /**
    * Print out the cache statistics
@@ -426,40 +631,34 @@ public class DataCacheManager  implements Runnable {
   }
 
   public String getStats() {
-    synchronized (MUTEX) {
-      StringBuffer sb = new StringBuffer();
-      int mb =(int)( getMaxSize()/(double)1000000.0);
-      int total =(int)( totalSize/(double)1000000.0);
-      sb.append("Cache total size:" + total +" MB   max size:" + mb +" MB  (" + (100*memoryPercentage)+"% of max memory)");
+    StringBuffer sb = new StringBuffer();
+    int mb =(int)( getMaxBytes()/(double)1000000.0);
+    long size;
+    synchronized (LRU_MUTEX) {
+      size = totalSize;
+    }
+    int total =(int)( size/(double)1000000.0);
+    sb.append("Cache total size:" + total +" MB   max size:" + mb +" MB  (" + (100*memoryPercentage)+"% of max memory)");
+    sb.append("\n");
+    sb.append("hits:" + metrics.getHitCount() + "   misses:" + metrics.getMissCount() +
+              "   spills:" + metrics.getSpillCount() + "   reloads:" + metrics.getReloadCount() +
+              "   drops:" + metrics.getDropCount());
+    sb.append("\n");
+    List<CacheInfo> infos= getCacheInfos();
+    if(infos.size()==0) {
+      sb.append("nothing in cache");
       sb.append("\n");
-      List<CacheInfo> infos= getCacheInfos();
-      if(infos.size()==0) {
-        sb.append("nothing in cache");
-        sb.append("\n");
-      } else {
-        sb.append("entry size/in cache/data access/cache miss/last touched");
-        sb.append("\n");
-        int cnt = 0;
-        for (CacheInfo info : infos) {
-          sb.append("   #" + (++cnt) +" ");
-          sb.append(info.toString());
-          /*
-                          "   #" + (++cnt) +" cache entry:" + info.getSize() + "   " + (info.data != null) +
-                                   "   " + info.dataAccessedCnt + "   " + info.cacheMissedCnt + "   " +
-                                   new Date(info.lastTime));
-          */
-          sb.append('\n');
-
-          /*
-          sb.append("what:" + info.what);
-          sb.append("\n");
-          sb.append(info.where.substring(300));
-          sb.append("\n");
-          */
-        }
+    } else {
+      sb.append("entry size/in cache/data access/cache miss/last touched");
+      sb.append("\n");
+      int cnt = 0;
+      for (CacheInfo info : infos) {
+        sb.append("   #" + (++cnt) +" ");
+        sb.append(info.toString());
+        sb.append('\n');
       }
-      return sb.toString();
     }
+    return sb.toString();
   }
 
   /**
@@ -468,18 +667,19 @@ public class DataCacheManager  implements Runnable {
    * @param where
    */
   private void checkStats(String where) {
-    synchronized (MUTEX) {
-      int tmp = 0;
-      for (Enumeration keys = cache.keys(); keys.hasMoreElements(); ) {
-        CacheInfo info = cache.get(keys.nextElement());
-        if (info.data != null) tmp += info.getSize();
+    synchronized (LRU_MUTEX) {
+      long tmp = 0;
+      for (CacheInfo info : volatileLru.values()) {
+        tmp += info.residentSize;
+      }
+      for (CacheInfo info : lru.values()) {
+        tmp += info.residentSize;
       }
 
       if (tmp != totalSize) {
         System.err.println(
           "WHOAA: " + where + "  " + tmp + " != total size:" + totalSize);
-        for (Enumeration keys = cache.keys(); keys.hasMoreElements(); ) {
-          CacheInfo info = cache.get(keys.nextElement());
+        for (CacheInfo info : cache.values()) {
           System.err.println(
             "   cache entry:" + info.getSize() + " " + (info.data != null));
         }
@@ -508,10 +708,10 @@ public class DataCacheManager  implements Runnable {
     private Object id;
 
     /**  */
-    private long lastTime;
+    private volatile long lastTime;
 
     /**  */
-    private Object data;
+    private volatile Object data;
 
     /**  */
     private File cacheFile;
@@ -520,17 +720,32 @@ public class DataCacheManager  implements Runnable {
     private boolean cacheFileGood = false;
 
     /**           */
-    private int dataAccessedCnt = 0;
+    private volatile int dataAccessedCnt = 0;
 
     /**           */
-    private int cacheMissedCnt = 0;
+    private volatile int cacheMissedCnt = 0;
 
     private String where;
 
     private String what;
 
+    /** what the metrics are kept under */
+    private String group;
+
     private boolean removeIfNeeded = false;
 
+    /** whether this entry is on a resident list; guarded by LRU_MUTEX */
+    private boolean resident = false;
+
+    /** bytes this entry contributes to totalSize; guarded by LRU_MUTEX */
+    private long residentSize = 0;
+
+    /** pending read from disk, if any; guarded by this */
+    private CompletableFuture<Object> loading;
+
+    /** whether this entry has been taken out of the cache; guarded by this */
+    private boolean removed = false;
+
     /**
      *
      *
@@ -547,6 +762,7 @@ public class DataCacheManager  implements Runnable {
       this.removeIfNeeded = removeIfNeeded;
       cacheFile = new File(cacheManager.getCacheDir() + "/" + cacheId + ".dat");
       this.what = data.toString();
+      this.group = getNameForType(type);
       where = "";
       //      where = ucar.unidata.util.LogUtil.getStackTrace();
       setData(data);
@@ -615,6 +831,7 @@ public class DataCacheManager  implements Runnable {
     private void setDataFromCache(Object data) {
       lastTime = System.currentTimeMillis();
       this.data = data;
+      cacheFileGood = true;
     }
 
     /**
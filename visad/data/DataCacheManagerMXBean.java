@@ -0,0 +1,109 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+
+package visad.data;
+
+import java.util.List;
+
+/**
+ * Management interface for the {@link DataCacheManager}. The cache
+ * manager registers itself with the platform MBean server as
+ * {@value DataCacheManager#MBEAN_NAME}, so these values can be watched
+ * with jconsole or any other JMX client.
+ */
+public interface DataCacheManagerMXBean {
+
+  /** @return Number of lookups served from memory. */
+  long getHitCount();
+
+  /** @return Number of lookups that had to go to disk. */
+  long getMissCount();
+
+  /** @return Fraction of lookups served from memory. */
+  double getHitRatio();
+
+  /** @return Number of entries written to disk to make room. */
+  long getSpillCount();
+
+  /** @return Total bytes written to disk to make room. */
+  long getSpillBytes();
+
+  /** @return Number of entries read back from disk. */
+  long getReloadCount();
+
+  /** @return Total bytes read back from disk. */
+  long getReloadBytes();
+
+  /** @return Mean time to read an entry back from disk, in milliseconds. */
+  double getMeanReloadMillis();
+
+  /** @return Upper bounds of the reload latency histogram buckets, in milliseconds. */
+  long[] getReloadLatencyBounds();
+
+  /** @return Reload latency histogram; the last bucket is unbounded. */
+  long[] getReloadLatencyCounts();
+
+  /** @return Number of entries dropped, rather than written out, to make room. */
+  long getDropCount();
+
+  /** @return Number of times a cached field had to read its values from its source. */
+  long getSourceReadCount();
+
+  /** @return Counters broken down by what was cached. */
+  List<DataCacheMetrics.Breakdown> getBreakdown();
+
+  /** @return Bytes currently held in memory. */
+  long getResidentBytes();
+
+  /** @return Bytes of entries that currently only exist on disk. */
+  long getSpilledBytes();
+
+  /** @return Memory budget of the cache, in bytes. */
+  long getMaxBytes();
+
+  /** @return Number of entries in the cache. */
+  int getEntryCount();
+
+  /** @return Number of entries currently held in memory. */
+  int getResidentEntryCount();
+
+  /** @return Fraction of the maximum heap the cache may use. */
+  double getMemoryPercent();
+
+  /** @param percentage Fraction of the maximum heap the cache may use. */
+  void setMemoryPercent(double percentage);
+
+  /** Zero the hit, miss, spill, reload and drop counters. */
+  void resetStatistics();
+
+  /** Write every entry out to disk. */
+  void flushAllCachedData();
+
+  /** @return Text dump of the cache. */
+  String getStats();
+}
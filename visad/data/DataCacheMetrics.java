@@ -0,0 +1,355 @@
+/*
+ * This file is part of McIDAS-V
+ *
+ * Copyright 2007-2020
+ * Space Science and Engineering Center (SSEC)
+ * University of Wisconsin - Madison
+ * 1225 W. Dayton Street, Madison, WI 53706, USA
+ * http://www.ssec.wisc.edu/mcidas
+ *
+ * All Rights Reserved
+ *
+ * McIDAS-V is built on Unidata's IDV and SSEC's VisAD libraries, and
+ * some McIDAS-V source code is based on IDV and VisAD source code.
+ *
+ * McIDAS-V is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * McIDAS-V is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with this program.  If not, see http://www.gnu.org/licenses.
+ */
+
+package visad.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters kept by the {@link DataCacheManager}: hits, misses, spills to
+ * disk, reloads from disk and entries dropped under memory pressure, plus
+ * a histogram of reload times. Every counter is also kept per
+ * &quot;what&quot;, the label that clients pass to
+ * {@code addToCache(String what, ...)}.
+ *
+ * <p>Recording is lock free, so it is cheap enough to leave on all the
+ * time.</p>
+ */
+public class DataCacheMetrics {
+
+  /** Upper bounds, in milliseconds, of the reload latency buckets. The last bucket is unbounded. */
+  private static final long[] LATENCY_BOUNDS = {
+    1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+  };
+
+  private final Counts totals = new Counts(null);
+
+  private final Map<String, Counts> byWhat = new ConcurrentHashMap<>();
+
+  private final AtomicLongArray reloadLatency =
+    new AtomicLongArray(LATENCY_BOUNDS.length + 1);
+
+  private volatile long resetTime = System.currentTimeMillis();
+
+  DataCacheMetrics() {
+  }
+
+  /** Data was found in memory. */
+  void hit(String what) {
+    totals.hits.increment();
+    counts(what).hits.increment();
+  }
+
+  /** Data had to be read back from disk, by this or another thread. */
+  void miss(String what) {
+    totals.misses.increment();
+    counts(what).misses.increment();
+  }
+
+  /** Data was written to disk to make room. */
+  void spilled(String what, long bytes) {
+    totals.spills.increment();
+    totals.spillBytes.add(bytes);
+    Counts c = counts(what);
+    c.spills.increment();
+    c.spillBytes.add(bytes);
+  }
+
+  /** Data was read back from disk; {@code nanos} is how long that took. */
+  void reloaded(String what, long bytes, long nanos) {
+    totals.reloads.increment();
+    totals.reloadBytes.add(bytes);
+    totals.reloadNanos.add(nanos);
+    Counts c = counts(what);
+    c.reloads.increment();
+    c.reloadBytes.add(bytes);
+    c.reloadNanos.add(nanos);
+    reloadLatency.incrementAndGet(bucket(nanos / 1000000L));
+  }
+
+  /** Data that did not need to be kept was dropped to make room. */
+  void dropped(String what) {
+    totals.drops.increment();
+    counts(what).drops.increment();
+  }
+
+  /**
+   * A {@link CachedFlatField} had to read its values from its source,
+   * which is what happens when a field is not in the cache at all.
+   * Public so fields that read outside of {@code readData} can report too.
+   *
+   * @param what Name to group the read under.
+   * @param nanos How long the read took.
+   */
+  public void sourceRead(String what, long nanos) {
+    totals.sourceReads.increment();
+    totals.sourceReadNanos.add(nanos);
+    Counts c = counts(what);
+    c.sourceReads.increment();
+    c.sourceReadNanos.add(nanos);
+  }
+
+  /**
+   * Zero every counter.
+   */
+  public void reset() {
+    totals.reset();
+    byWhat.clear();
+    for (int i = 0; i < reloadLatency.length(); i++) {
+      reloadLatency.set(i, 0);
+    }
+    resetTime = System.currentTimeMillis();
+  }
+
+  /**
+   * @return When the counters were created or last reset.
+   */
+  public long getResetTime() {
+    return resetTime;
+  }
+
+  public long getHitCount() {
+    return totals.hits.sum();
+  }
+
+  public long getMissCount() {
+    return totals.misses.sum();
+  }
+
+  public long getSpillCount() {
+    return totals.spills.sum();
+  }
+
+  public long getSpillBytes() {
+    return totals.spillBytes.sum();
+  }
+
+  public long getReloadCount() {
+    return totals.reloads.sum();
+  }
+
+  public long getReloadBytes() {
+    return totals.reloadBytes.sum();
+  }
+
+  public long getDropCount() {
+    return totals.drops.sum();
+  }
+
+  public long getSourceReadCount() {
+    return totals.sourceReads.sum();
+  }
+
+  /**
+   * @return Fraction of lookups that were served from memory, or
+   * {@code NaN} before the first lookup.
+   */
+  public double getHitRatio() {
+    long hits = getHitCount();
+    long total = hits + getMissCount();
+    return (total == 0) ? Double.NaN : (double) hits / total;
+  }
+
+  /**
+   * @return Mean time to read an entry back from disk, in milliseconds.
+   */
+  public double getMeanReloadMillis() {
+    long n = totals.reloads.sum();
+    return (n == 0) ? 0 : totals.reloadNanos.sum() / 1.0e6 / n;
+  }
+
+  /**
+   * @return Upper bounds of the reload latency buckets, in milliseconds.
+   * There is one more bucket than bounds; it holds everything slower.
+   */
+  public long[] getReloadLatencyBounds() {
+    return LATENCY_BOUNDS.clone();
+  }
+
+  /**
+   * @return Number of reloads that fell in each latency bucket.
+   */
+  public long[] getReloadLatencyCounts() {
+    long[] counts = new long[reloadLatency.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = reloadLatency.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * @return Counters broken down by &quot;what&quot;, sorted by name.
+   */
+  public List<Breakdown> getBreakdown() {
+    List<Breakdown> list = new ArrayList<>(byWhat.size());
+    for (Counts c : byWhat.values()) {
+      list.add(new Breakdown(c));
+    }
+    Collections.sort(list, (a, b) -> a.getWhat().compareTo(b.getWhat()));
+    return list;
+  }
+
+  private Counts counts(String what) {
+    if (what == null) {
+      what = "unknown";
+    }
+    Counts c = byWhat.get(what);
+    if (c == null) {
+      c = byWhat.computeIfAbsent(what, Counts::new);
+    }
+    return c;
+  }
+
+  private static int bucket(long millis) {
+    for (int i = 0; i < LATENCY_BOUNDS.length; i++) {
+      if (millis <= LATENCY_BOUNDS[i]) {
+        return i;
+      }
+    }
+    return LATENCY_BOUNDS.length;
+  }
+
+  private static final class Counts {
+    final String what;
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder spills = new LongAdder();
+    final LongAdder spillBytes = new LongAdder();
+    final LongAdder reloads = new LongAdder();
+    final LongAdder reloadBytes = new LongAdder();
+    final LongAdder reloadNanos = new LongAdder();
+    final LongAdder drops = new LongAdder();
+    final LongAdder sourceReads = new LongAdder();
+    final LongAdder sourceReadNanos = new LongAdder();
+
+    Counts(String what) {
+      this.what = what;
+    }
+
+    void reset() {
+      hits.reset();
+      misses.reset();
+      spills.reset();
+      spillBytes.reset();
+      reloads.reset();
+      reloadBytes.reset();
+      reloadNanos.reset();
+      drops.reset();
+      sourceReads.reset();
+      sourceReadNanos.reset();
+    }
+  }
+
+  /**
+   * Snapshot of the counters for one &quot;what&quot;. The getters follow
+   * bean naming so this maps onto a JMX composite type.
+   */
+  public static final class Breakdown {
+    private final String what;
+    private final long hits;
+    private final long misses;
+    private final long spills;
+    private final long spillBytes;
+    private final long reloads;
+    private final long reloadBytes;
+    private final double meanReloadMillis;
+    private final long drops;
+    private final long sourceReads;
+    private final double meanSourceReadMillis;
+
+    private Breakdown(Counts c) {
+      what = c.what;
+      hits = c.hits.sum();
+      misses = c.misses.sum();
+      spills = c.spills.sum();
+      spillBytes = c.spillBytes.sum();
+      reloads = c.reloads.sum();
+      reloadBytes = c.reloadBytes.sum();
+      meanReloadMillis = (reloads == 0) ? 0 : c.reloadNanos.sum() / 1.0e6 / reloads;
+      drops = c.drops.sum();
+      sourceReads = c.sourceReads.sum();
+      meanSourceReadMillis = (sourceReads == 0) ? 0 : c.sourceReadNanos.sum() / 1.0e6 / sourceReads;
+    }
+
+    public String getWhat() {
+      return what;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public long getSpills() {
+      return spills;
+    }
+
+    public long getSpillBytes() {
+      return spillBytes;
+    }
+
+    public long getReloads() {
+      return reloads;
+    }
+
+    public long getReloadBytes() {
+      return reloadBytes;
+    }
+
+    public double getMeanReloadMillis() {
+      return meanReloadMillis;
+    }
+
+    public long getDrops() {
+      return drops;
+    }
+
+    public long getSourceReads() {
+      return sourceReads;
+    }
+
+    public double getMeanSourceReadMillis() {
+      return meanSourceReadMillis;
+    }
+
+    public String toString() {
+      return what + "   hits:" + hits + "   misses:" + misses +
+             "   spills:" + spills + "   reloads:" + reloads +
+             "   drops:" + drops + "   source reads:" + sourceReads;
+    }
+  }
+}